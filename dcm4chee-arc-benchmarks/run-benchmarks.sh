@@ -0,0 +1,27 @@
+#!/bin/sh
+# Runs all JMH benchmarks of dcm4chee-arc-benchmarks with the fixed settings used for the baseline results in
+# results/<version>.json and records the JMH command line and the JVM in results/<version>.txt.
+#
+# Usage: run-benchmarks.sh [<regexp>]
+# Requires a previous build with: mvn install -P benchmarks -D db=psql
+
+cd "$(dirname "$0")" || exit 1
+
+VERSION=$(sed -n 's:.*<version>\(.*\)</version>.*:\1:p' pom.xml | head -1)
+JAR=target/benchmarks.jar
+RESULT=results/$VERSION.json
+CMD="java -jar $JAR -f 3 -wi 5 -w 1s -i 10 -r 1s -rf json -rff $RESULT $*"
+
+if [ ! -f "$JAR" ]; then
+    echo "$JAR not found - build it with: mvn install -P benchmarks -D db=psql" >&2
+    exit 1
+fi
+
+{
+    echo "$CMD"
+    java -version 2>&1
+    uname -a
+    date -u
+} > "results/$VERSION.txt"
+
+exec $CMD
@@ -17,7 +17,7 @@
  *
  * The Initial Developer of the Original Code is
  * J4Care.
- * Portions created by the Initial Developer are Copyright (C) 2015
+ * Portions created by the Initial Developer are Copyright (C) 2018
  * the Initial Developer. All Rights Reserved.
  *
  * Contributor(s):
@@ -37,31 +37,47 @@
  *
  * *** END LICENSE BLOCK *****
  */
+package org.dcm4chee.arc.benchmarks;
 
-package org.dcm4chee.arc.storage.cloud;
+import org.dcm4che3.data.Attributes;
+import org.dcm4chee.arc.entity.AttributesBlob;
+import org.openjdk.jmh.annotations.*;
 
-import org.dcm4chee.arc.storage.DefaultWriteContext;
-import org.dcm4chee.arc.storage.Storage;
-
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
- * @since Oct 2015
+ * @since Oct 2018
  */
-public class CloudWriteContext extends DefaultWriteContext {
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributesBlobBenchmark {
+
+    private Attributes attrs;
+    private byte[] encoded;
 
-    private FutureTask<Void> uploadTask;
+    @Setup
+    public void setup() {
+        attrs = Datasets.instance(1, 0);
+        encoded = AttributesBlob.encodeAttributes(attrs);
+    }
 
-    public CloudWriteContext(Storage storage) {
-        super(storage);
+    @Benchmark
+    public byte[] encode() {
+        return AttributesBlob.encodeAttributes(attrs);
     }
 
-    public FutureTask<Void> getUploadTask() {
-        return uploadTask;
+    @Benchmark
+    public Attributes decode() {
+        return AttributesBlob.decodeAttributes(encoded, null);
     }
 
-    public void setUploadTask(FutureTask<Void> uploadTask) {
-        this.uploadTask = uploadTask;
+    @Benchmark
+    public AttributesBlob create() {
+        return new AttributesBlob(attrs);
     }
 }
@@ -0,0 +1,96 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.benchmarks;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4chee.arc.conf.Conditions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates a list of rules, each with several conditions, in the way rules of the archive configuration are
+ * evaluated on receive of an object, where no or only the last rule matches.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConditionsBenchmark {
+
+    private static final String[] MODALITIES = { "CR", "DX", "MG", "MR", "NM", "PT", "US", "XA" };
+
+    @Param({"10", "100", "1000"})
+    public int rules;
+
+    private Conditions[] conditions;
+    private Attributes attrs;
+
+    @Setup
+    public void setup() {
+        conditions = new Conditions[rules];
+        for (int i = 0; i < rules - 1; i++)
+            conditions[i] = new Conditions(
+                    "SendingApplicationEntityTitle=MODALITY" + i,
+                    "ReceivingApplicationEntityTitle=DCM4CHEE",
+                    "Modality=" + MODALITIES[i % MODALITIES.length],
+                    "InstitutionName=Hospital " + i + "|Clinic " + i,
+                    "ReferringPhysicianName!=Doe\\^.*");
+        conditions[rules - 1] = new Conditions(
+                "SendingApplicationEntityTitle=STORESCU",
+                "ReceivingApplicationEntityTitle=DCM4CHEE",
+                "Modality=CT",
+                "StudyDescription=CT.*");
+        attrs = Datasets.instance(1, 0);
+    }
+
+    @Benchmark
+    public int firstMatch() {
+        for (int i = 0; i < conditions.length; i++)
+            if (conditions[i].match("storescu", "STORESCU", "DCM4CHEE", attrs))
+                return i;
+        return -1;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.benchmarks;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Synthetic DICOM datasets used by the benchmarks.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+class Datasets {
+
+    static final String STUDY_IUID = "1.2.40.0.13.1.1.99.1";
+    static final String SERIES_IUID = STUDY_IUID + ".1";
+
+    private Datasets() {}
+
+    static Attributes instance(int instanceNumber, int pixelDataLength) {
+        Attributes attrs = new Attributes(64);
+        attrs.setString(Tag.SpecificCharacterSet, VR.CS, "ISO_IR 100");
+        attrs.setString(Tag.ImageType, VR.CS, "ORIGINAL", "PRIMARY", "AXIAL");
+        attrs.setString(Tag.SOPClassUID, VR.UI, UID.CTImageStorage);
+        attrs.setString(Tag.SOPInstanceUID, VR.UI, SERIES_IUID + '.' + instanceNumber);
+        attrs.setString(Tag.StudyDate, VR.DA, "20181018");
+        attrs.setString(Tag.SeriesDate, VR.DA, "20181018");
+        attrs.setString(Tag.ContentDate, VR.DA, "20181018");
+        attrs.setString(Tag.StudyTime, VR.TM, "101530.000");
+        attrs.setString(Tag.SeriesTime, VR.TM, "101545.000");
+        attrs.setString(Tag.ContentTime, VR.TM, "101546.123");
+        attrs.setString(Tag.AccessionNumber, VR.SH, "A123456");
+        attrs.setString(Tag.Modality, VR.CS, "CT");
+        attrs.setString(Tag.Manufacturer, VR.LO, "Synthetic");
+        attrs.setString(Tag.InstitutionName, VR.LO, "General Hospital");
+        attrs.setString(Tag.ReferringPhysicianName, VR.PN, "Doe^Jane^^Dr.");
+        attrs.setString(Tag.StationName, VR.SH, "CT01");
+        attrs.setString(Tag.StudyDescription, VR.LO, "CT Thorax with contrast");
+        attrs.setString(Tag.SeriesDescription, VR.LO, "Thorax 1.0 B31f");
+        attrs.setString(Tag.InstitutionalDepartmentName, VR.LO, "Radiology");
+        attrs.setString(Tag.ManufacturerModelName, VR.LO, "Benchmark");
+        attrs.newSequence(Tag.ProcedureCodeSequence, 1).add(code("CTTHXC", "99DCM4CHEE", "CT Thorax"));
+        attrs.setString(Tag.PatientName, VR.PN, "Mustermann^Max");
+        attrs.setString(Tag.PatientID, VR.LO, "P123456");
+        attrs.setString(Tag.IssuerOfPatientID, VR.LO, "DCM4CHEE");
+        attrs.setString(Tag.PatientBirthDate, VR.DA, "19700101");
+        attrs.setString(Tag.PatientSex, VR.CS, "M");
+        attrs.setString(Tag.PatientAge, VR.AS, "048Y");
+        attrs.setString(Tag.BodyPartExamined, VR.CS, "CHEST");
+        attrs.setString(Tag.SliceThickness, VR.DS, "1.0");
+        attrs.setString(Tag.KVP, VR.DS, "120");
+        attrs.setString(Tag.StudyInstanceUID, VR.UI, STUDY_IUID);
+        attrs.setString(Tag.SeriesInstanceUID, VR.UI, SERIES_IUID);
+        attrs.setString(Tag.StudyID, VR.SH, "1");
+        attrs.setInt(Tag.SeriesNumber, VR.IS, 1);
+        attrs.setInt(Tag.InstanceNumber, VR.IS, instanceNumber);
+        attrs.setString(Tag.PatientOrientation, VR.CS, "L", "P");
+        attrs.setDouble(Tag.ImagePositionPatient, VR.DS, -250.0, -250.0, -instanceNumber);
+        attrs.setDouble(Tag.ImageOrientationPatient, VR.DS, 1.0, 0.0, 0.0, 0.0, 1.0, 0.0);
+        attrs.setString(Tag.FrameOfReferenceUID, VR.UI, STUDY_IUID + ".2");
+        attrs.setDouble(Tag.SliceLocation, VR.DS, -instanceNumber);
+        attrs.setInt(Tag.SamplesPerPixel, VR.US, 1);
+        attrs.setString(Tag.PhotometricInterpretation, VR.CS, "MONOCHROME2");
+        attrs.setInt(Tag.Rows, VR.US, 512);
+        attrs.setInt(Tag.Columns, VR.US, 512);
+        attrs.setDouble(Tag.PixelSpacing, VR.DS, 0.976562, 0.976562);
+        attrs.setInt(Tag.BitsAllocated, VR.US, 16);
+        attrs.setInt(Tag.BitsStored, VR.US, 12);
+        attrs.setInt(Tag.HighBit, VR.US, 11);
+        attrs.setInt(Tag.PixelRepresentation, VR.US, 0);
+        attrs.setString(Tag.WindowCenter, VR.DS, "40");
+        attrs.setString(Tag.WindowWidth, VR.DS, "400");
+        attrs.setString(Tag.RescaleIntercept, VR.DS, "-1024");
+        attrs.setString(Tag.RescaleSlope, VR.DS, "1");
+        if (pixelDataLength > 0)
+            attrs.setBytes(Tag.PixelData, VR.OW, pixelData(pixelDataLength));
+        return attrs;
+    }
+
+    static Attributes code(String value, String designator, String meaning) {
+        Attributes item = new Attributes(3);
+        item.setString(Tag.CodeValue, VR.SH, value);
+        item.setString(Tag.CodingSchemeDesignator, VR.SH, designator);
+        item.setString(Tag.CodeMeaning, VR.LO, meaning);
+        return item;
+    }
+
+    static byte[] pixelData(int length) {
+        byte[] b = new byte[length];
+        for (int i = 0; i < length; i++)
+            b[i] = (byte) (i * 31 + (i >> 9));
+        return b;
+    }
+
+    static byte[] toPart10(Attributes attrs) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DicomOutputStream dos = new DicomOutputStream(out, UID.ExplicitVRLittleEndian)) {
+            dos.writeDataset(attrs.createFileMetaInformation(UID.ExplicitVRLittleEndian), attrs);
+        }
+        return out.toByteArray();
+    }
+}
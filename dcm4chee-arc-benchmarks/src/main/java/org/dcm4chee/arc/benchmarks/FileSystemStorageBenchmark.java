@@ -0,0 +1,131 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.benchmarks;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.metrics.MetricsService;
+import org.dcm4chee.arc.storage.ReadContext;
+import org.dcm4chee.arc.storage.WriteContext;
+import org.dcm4chee.arc.storage.filesystem.FileSystemStorage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writes and reads objects of the size of an uncompressed CT image to and from a {@link FileSystemStorage} in a
+ * temporary directory, which may be placed on the file system under test by system property
+ * {@code java.io.tmpdir}.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileSystemStorageBenchmark {
+
+    private static final int OBJECTS = 100;
+
+    @Param({"524288"})
+    public int pixelDataLength;
+
+    private final byte[] buf = new byte[8192];
+    private Path dir;
+    private FileSystemStorage storage;
+    private Attributes attrs;
+    private byte[] data;
+    private String[] storagePaths;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("fs-benchmark");
+        StorageDescriptor desc = new StorageDescriptor("fs-benchmark");
+        desc.setStorageURIStr(dir.toUri().toString());
+        storage = new FileSystemStorage(desc, new MetricsService());
+        attrs = Datasets.instance(1, 0);
+        data = Datasets.toPart10(Datasets.instance(1, pixelDataLength));
+        storagePaths = new String[OBJECTS];
+        for (int i = 0; i < OBJECTS; i++)
+            storagePaths[i] = write();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        ReadContext ctx = storage.createReadContext();
+        ctx.setStoragePath(storagePaths[next++ % OBJECTS]);
+        try (InputStream in = storage.openInputStream(ctx)) {
+            while (in.read(buf, 0, buf.length) > 0);
+        }
+        return ctx.getSize();
+    }
+
+    @Benchmark
+    public void writeAndDelete() throws IOException {
+        storage.deleteObject(write());
+    }
+
+    private String write() throws IOException {
+        WriteContext ctx = storage.createWriteContext();
+        ctx.setAttributes(attrs);
+        try (OutputStream out = storage.openOutputStream(ctx)) {
+            out.write(data);
+        }
+        return ctx.getStoragePath();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.benchmarks;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.json.JSONWriter;
+import org.openjdk.jmh.annotations.*;
+
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the metadata of a Series as WADO-RS metadata response and as zipped Series metadata stored by
+ * {@code UpdateMetadataScheduler}.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonMetadataBenchmark {
+
+    @Param({"100"})
+    public int instances;
+
+    private Attributes[] metadata;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+
+    @Setup
+    public void setup() {
+        metadata = new Attributes[instances];
+        for (int i = 0; i < instances; i++)
+            metadata[i] = Datasets.instance(i + 1, 0);
+    }
+
+    @Benchmark
+    public int writeJSON() {
+        out.reset();
+        JsonGenerator gen = Json.createGenerator(out);
+        JSONWriter writer = new JSONWriter(gen);
+        gen.writeStartArray();
+        for (Attributes attrs : metadata)
+            writer.write(attrs);
+        gen.writeEnd();
+        gen.flush();
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeZippedSeriesMetadata() throws IOException {
+        out.reset();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Attributes attrs : metadata) {
+                zip.putNextEntry(new ZipEntry(attrs.getString(Tag.SOPInstanceUID)));
+                JsonGenerator gen = Json.createGenerator(zip);
+                new JSONWriter(gen).write(attrs);
+                gen.flush();
+                zip.closeEntry();
+            }
+            zip.finish();
+        }
+        return out.size();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.benchmarks;
+
+import com.querydsl.core.BooleanBuilder;
+import org.dcm4che3.data.*;
+import org.dcm4che3.net.ApplicationEntity;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.net.service.QueryRetrieveLevel2;
+import org.dcm4chee.arc.conf.*;
+import org.dcm4chee.arc.query.util.QueryBuilder;
+import org.dcm4chee.arc.query.util.QueryParam;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the predicates of a C-FIND or QIDO-RS query on Series level, without executing it.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBuilderBenchmark {
+
+    private QueryParam queryParam;
+    private IDWithIssuer[] pids;
+    private Attributes keys;
+
+    @Setup
+    public void setup() {
+        Device device = new Device("dcm4chee-arc");
+        ArchiveDeviceExtension arcdev = new ArchiveDeviceExtension();
+        device.addDeviceExtension(arcdev);
+        for (Entity entity : Entity.values())
+            arcdev.setAttributeFilter(entity, new AttributeFilter());
+        QueryRetrieveView view = new QueryRetrieveView();
+        view.setViewID("regularUse");
+        arcdev.addQueryRetrieveView(view);
+        ApplicationEntity ae = new ApplicationEntity("DCM4CHEE");
+        ArchiveAEExtension arcAE = new ArchiveAEExtension();
+        arcAE.setQueryRetrieveViewID("regularUse");
+        ae.addAEExtension(arcAE);
+        device.addApplicationEntity(ae);
+        queryParam = new QueryParam(ae);
+        queryParam.setCombinedDatetimeMatching(true);
+        pids = new IDWithIssuer[]{ new IDWithIssuer("P123456", new Issuer("DCM4CHEE", null, null)) };
+        keys = new Attributes(16);
+        keys.setString(Tag.PatientName, VR.PN, "Muster*^Max");
+        keys.setString(Tag.PatientBirthDate, VR.DA, "19700101-19701231");
+        keys.setString(Tag.PatientSex, VR.CS, "M");
+        keys.setString(Tag.StudyDate, VR.DA, "20180101-20181231");
+        keys.setString(Tag.StudyTime, VR.TM, "080000-180000");
+        keys.setString(Tag.AccessionNumber, VR.SH, "A123*");
+        keys.setString(Tag.ReferringPhysicianName, VR.PN, "Doe^J*");
+        keys.setString(Tag.StudyDescription, VR.LO, "*Thorax*");
+        keys.setString(Tag.ModalitiesInStudy, VR.CS, "CT");
+        keys.setString(Tag.InstitutionName, VR.LO, "General*");
+        keys.setString(Tag.SeriesDescription, VR.LO, "*B31f");
+        keys.setString(Tag.BodyPartExamined, VR.CS, "CHEST");
+        keys.newSequence(Tag.ProcedureCodeSequence, 1).add(Datasets.code("CTTHXC", "99DCM4CHEE", null));
+    }
+
+    @Benchmark
+    public BooleanBuilder seriesLevelPredicates() {
+        BooleanBuilder builder = new BooleanBuilder();
+        QueryBuilder.addPatientLevelPredicates(builder, pids, keys, queryParam);
+        QueryBuilder.addStudyLevelPredicates(builder, keys, queryParam, QueryRetrieveLevel2.SERIES);
+        QueryBuilder.addSeriesLevelPredicates(builder, keys, queryParam, QueryRetrieveLevel2.SERIES);
+        return builder;
+    }
+}
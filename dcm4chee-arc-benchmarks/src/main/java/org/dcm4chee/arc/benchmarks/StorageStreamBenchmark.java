@@ -0,0 +1,162 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.benchmarks;
+
+import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.metrics.MetricsService;
+import org.dcm4chee.arc.storage.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of the stream wrappers of {@link AbstractStorage} and of {@link CacheInputStream} on
+ * objects held in memory, separated from the latency of any real storage.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageStreamBenchmark {
+
+    @Param({"65536", "1048576"})
+    public int size;
+
+    private byte[] data;
+    private final byte[] buf = new byte[8192];
+    private final CacheInputStream cacheInputStream = new CacheInputStream();
+    private MemoryStorage storage;
+
+    @Setup
+    public void setup() {
+        data = Datasets.pixelData(size);
+        storage = new MemoryStorage(data);
+    }
+
+    @Benchmark
+    public long readDirect() throws IOException {
+        return drain(new ByteArrayInputStream(data));
+    }
+
+    @Benchmark
+    public long readStorage() throws IOException {
+        ReadContext ctx = storage.createReadContext();
+        ctx.setStoragePath("object");
+        return drain(storage.openInputStream(ctx));
+    }
+
+    @Benchmark
+    public long readStorageWithDigest() throws IOException, NoSuchAlgorithmException {
+        ReadContext ctx = storage.createReadContext();
+        ctx.setStoragePath("object");
+        ctx.setMessageDigest(MessageDigest.getInstance("MD5"));
+        return drain(storage.openInputStream(ctx));
+    }
+
+    @Benchmark
+    public long writeStorage() throws IOException {
+        WriteContext ctx = storage.createWriteContext();
+        try (OutputStream out = storage.openOutputStream(ctx)) {
+            for (int off = 0; off < data.length; off += buf.length)
+                out.write(data, off, Math.min(buf.length, data.length - off));
+        }
+        return ctx.getSize();
+    }
+
+    @Benchmark
+    public long cacheInputStream() throws IOException {
+        cacheInputStream.fillBuffers(new ByteArrayInputStream(data));
+        return drain(cacheInputStream);
+    }
+
+    private long drain(InputStream in) throws IOException {
+        long count = 0L;
+        try {
+            int read;
+            while ((read = in.read(buf, 0, buf.length)) > 0)
+                count += read;
+        } finally {
+            in.close();
+        }
+        return count;
+    }
+
+    private static class MemoryStorage extends AbstractStorage {
+        private final byte[] data;
+
+        MemoryStorage(byte[] data) {
+            super(new StorageDescriptor("memory"), new MetricsService());
+            this.data = data;
+        }
+
+        @Override
+        protected OutputStream openOutputStreamA(WriteContext ctx) {
+            return new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+            };
+        }
+
+        @Override
+        protected InputStream openInputStreamA(ReadContext ctx) {
+            return new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public void deleteObject(String storagePath) {
+        }
+    }
+}
@@ -116,6 +116,7 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
         writer.writeNotDef("dcmIanOnTimeout", arcDev.isIanOnTimeout(), false);
         writer.writeNotNullOrDef("dcmIanTaskPollingInterval", arcDev.getIanTaskPollingInterval(), null);
         writer.writeNotDef("dcmIanTaskFetchSize", arcDev.getIanTaskFetchSize(), 100);
+        writer.writeNotDef("dcmIanTaskThreads", arcDev.getIanTaskThreads(), 1);
         writer.writeNotNullOrDef("dcmSpanningCFindSCP", arcDev.getSpanningCFindSCP(), null);
         writer.writeNotEmpty("dcmSpanningCFindSCPRetrieveAET", arcDev.getSpanningCFindSCPRetrieveAETitles());
         writer.writeNotNullOrDef("dcmSpanningCFindSCPPolicy",
@@ -145,16 +146,28 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
         writer.writeNotNullOrDef("dcmStowSpoolDirectory",
                 arcDev.getStowSpoolDirectory(), ArchiveDeviceExtension.JBOSS_SERVER_TEMP_DIR);
         writer.writeNotNullOrDef("hl7PatientUpdateTemplateURI", arcDev.getPatientUpdateTemplateURI(), null);
+        writer.writeNotDef("hl7CompiledPatientUpdateMapping", arcDev.isCompiledPatientUpdateMapping(), false);
         writer.writeNotNullOrDef("hl7ImportReportTemplateURI", arcDev.getImportReportTemplateURI(), null);
         writer.writeNotNullOrDef("hl7ScheduleProcedureTemplateURI", arcDev.getScheduleProcedureTemplateURI(), null);
         writer.writeNotNullOrDef("hl7OutgoingPatientUpdateTemplateURI", arcDev.getOutgoingPatientUpdateTemplateURI(), null);
         writer.writeNotNullOrDef("hl7LogFilePattern", arcDev.getHl7LogFilePattern(), null);
         writer.writeNotNullOrDef("hl7ErrorLogFilePattern", arcDev.getHl7ErrorLogFilePattern(), null);
+        writer.writeNotNullOrDef("hl7LogSegmentDirectory", arcDev.getHl7LogSegmentDirectory(), null);
+        writer.writeNotNullOrDef("hl7LogSegmentMaxSize", arcDev.getHl7LogSegmentMaxSize(), null);
+        writer.writeNotNullOrDef("hl7LogSegmentMaxDuration", arcDev.getHl7LogSegmentMaxDuration(), null);
+        writer.writeNotNullOrDef("hl7LogSegmentRetentionPeriod", arcDev.getHl7LogSegmentRetentionPeriod(), null);
         writer.writeNotNullOrDef("dcmUnzipVendorDataToURI", arcDev.getUnzipVendorDataToURI(), null);
         writer.writeNotNullOrDef("dcmPurgeQueueMessagePollingInterval",
                 arcDev.getPurgeQueueMessagePollingInterval(), null);
+        writer.writeNotDef("dcmPurgeQueueMessageRowsPerSecond", arcDev.getPurgeQueueMessageRowsPerSecond(), 0);
         writer.writeNotNullOrDef("dcmWadoSpoolDirectory",
                 arcDev.getWadoSpoolDirectory(), ArchiveDeviceExtension.JBOSS_SERVER_TEMP_DIR);
+        writer.writeNotNullOrDef("dcmWadoRenderedImageCacheMemorySize",
+                arcDev.getWadoRenderedImageCacheMemorySize(), null);
+        writer.writeNotNullOrDef("dcmWadoRenderedImageCacheDirectory",
+                arcDev.getWadoRenderedImageCacheDirectory(), null);
+        writer.writeNotNullOrDef("dcmWadoRenderedImageCacheDiskSize",
+                arcDev.getWadoRenderedImageCacheDiskSize(), null);
         writer.writeNotNullOrDef("dcmRejectExpiredStudiesPollingInterval",
                 arcDev.getRejectExpiredStudiesPollingInterval(), null);
         writer.writeNotNullOrDef("dcmRejectExpiredStudiesPollingStartTime",
@@ -167,7 +180,12 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
         writer.writeNotNullOrDef("dcmStorePermissionServiceResponsePattern",
                 arcDev.getStorePermissionServiceResponsePattern(), null);
         writer.writeNotNullOrDef("dcmStorePermissionCacheStaleTimeout", arcDev.getStorePermissionCacheStaleTimeout(), null);
+        writer.writeNotNullOrDef("dcmStorePermissionCacheStaleGracePeriod",
+                arcDev.getStorePermissionCacheStaleGracePeriod(), null);
         writer.writeNotDef("dcmStorePermissionCacheSize", arcDev.getStorePermissionCacheSize(), 10);
+        writer.writeNotNullOrDef("dcmPatientCacheStaleTimeout", arcDev.getPatientCacheStaleTimeout(),
+                ArchiveDeviceExtension.DEFAULT_PATIENT_CACHE_STALE_TIMEOUT);
+        writer.writeNotDef("dcmPatientCacheSize", arcDev.getPatientCacheSize(), 1000);
         writer.writeNotNullOrDef("dcmMergeMWLCacheStaleTimeout",
                 arcDev.getMergeMWLCacheStaleTimeout(), null);
         writer.writeNotDef("dcmMergeMWLCacheSize",
@@ -225,6 +243,9 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
                 arcDev.getStorageVerificationPollingInterval(), null);
         writer.writeNotEmpty("dcmStorageVerificationSchedule", arcDev.getStorageVerificationSchedules());
         writer.writeNotDef("dcmStorageVerificationFetchSize", arcDev.getStorageVerificationFetchSize(), 100);
+        writer.writeNotDef("dcmStorageVerificationThreads", arcDev.getStorageVerificationThreads(), 1);
+        writer.writeNotNullOrDef("dcmStorageVerificationMaxBytesPerSecond",
+                arcDev.getStorageVerificationMaxBytesPerSecond(), null);
         writer.writeNotDef("hl7TrackChangedPatientID", arcDev.isHl7TrackChangedPatientID(), true);
         writer.writeNotNullOrDef("dcmInvokeImageDisplayPatientURL", arcDev.getInvokeImageDisplayPatientURL(), null);
         writer.writeNotNullOrDef("dcmInvokeImageDisplayStudyURL", arcDev.getInvokeImageDisplayStudyURL(), null);
@@ -251,6 +272,10 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
         writer.writeNotEmpty("dcmCompressionSchedule", arcDev.getCompressionSchedules());
         writer.writeNotDef("dcmCompressionThreads", arcDev.getCompressionThreads(), 1);
         writer.writeNotNullOrDef("dcmDiffTaskProgressUpdateInterval", arcDev.getDiffTaskProgressUpdateInterval(), null);
+        writer.writeNotDef("dcmHttpClientMaxConnections", arcDev.getHttpClientMaxConnections(), 20);
+        writer.writeNotNullOrDef("dcmHttpClientConnectTimeout", arcDev.getHttpClientConnectTimeout(), null);
+        writer.writeNotNullOrDef("dcmHttpClientReadTimeout", arcDev.getHttpClientReadTimeout(), null);
+        writer.writeNotNullOrDef("dcmHttpClientConnectionTTL", arcDev.getHttpClientConnectionTTL(), null);
         writeAttributeFilters(writer, arcDev);
         writeStorageDescriptor(writer, arcDev.getStorageDescriptors());
         writeQueryRetrieveView(writer, arcDev.getQueryRetrieveViews());
@@ -376,6 +401,7 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
             writer.writeNotDef("dcmRetryOnWarning", qd.isRetryOnWarning(), false);
             writer.writeNotNullOrDef("dcmPurgeQueueMessageCompletedDelay", qd.getPurgeQueueMessageCompletedDelay(), null);
             writer.writeNotDef("dcmMaxQueueSize", qd.getMaxQueueSize(), 0);
+            writer.writeNotDef("dcmMaxTasksPerDestination", qd.getMaxTasksPerDestination(), 0);
             writer.writeEnd();
         }
         writer.writeEnd();
@@ -849,6 +875,9 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
                 case "dcmIanTaskFetchSize":
                     arcDev.setIanTaskFetchSize(reader.intValue());
                     break;
+                case "dcmIanTaskThreads":
+                    arcDev.setIanTaskThreads(reader.intValue());
+                    break;
                 case "dcmSpanningCFindSCP":
                     arcDev.setSpanningCFindSCP(reader.stringValue());
                     break;
@@ -924,6 +953,9 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
                 case "hl7PatientUpdateTemplateURI":
                     arcDev.setPatientUpdateTemplateURI(reader.stringValue());
                     break;
+                case "hl7CompiledPatientUpdateMapping":
+                    arcDev.setCompiledPatientUpdateMapping(reader.booleanValue());
+                    break;
                 case "hl7ImportReportTemplateURI":
                     arcDev.setImportReportTemplateURI(reader.stringValue());
                     break;
@@ -939,15 +971,39 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
                 case "hl7ErrorLogFilePattern":
                     arcDev.setHl7ErrorLogFilePattern(reader.stringValue());
                     break;
+                case "hl7LogSegmentDirectory":
+                    arcDev.setHl7LogSegmentDirectory(reader.stringValue());
+                    break;
+                case "hl7LogSegmentMaxSize":
+                    arcDev.setHl7LogSegmentMaxSize(reader.stringValue());
+                    break;
+                case "hl7LogSegmentMaxDuration":
+                    arcDev.setHl7LogSegmentMaxDuration(Duration.valueOf(reader.stringValue()));
+                    break;
+                case "hl7LogSegmentRetentionPeriod":
+                    arcDev.setHl7LogSegmentRetentionPeriod(Duration.valueOf(reader.stringValue()));
+                    break;
                 case "dcmUnzipVendorDataToURI":
                     arcDev.setUnzipVendorDataToURI(reader.stringValue());
                     break;
                 case "dcmPurgeQueueMessagePollingInterval":
                     arcDev.setPurgeQueueMessagePollingInterval(Duration.valueOf(reader.stringValue()));
                     break;
+                case "dcmPurgeQueueMessageRowsPerSecond":
+                    arcDev.setPurgeQueueMessageRowsPerSecond(reader.intValue());
+                    break;
                 case "dcmWadoSpoolDirectory":
                     arcDev.setWadoSpoolDirectory(reader.stringValue());
                     break;
+                case "dcmWadoRenderedImageCacheMemorySize":
+                    arcDev.setWadoRenderedImageCacheMemorySize(reader.stringValue());
+                    break;
+                case "dcmWadoRenderedImageCacheDirectory":
+                    arcDev.setWadoRenderedImageCacheDirectory(reader.stringValue());
+                    break;
+                case "dcmWadoRenderedImageCacheDiskSize":
+                    arcDev.setWadoRenderedImageCacheDiskSize(reader.stringValue());
+                    break;
                 case "dcmRejectExpiredStudiesPollingInterval":
                     arcDev.setRejectExpiredStudiesPollingInterval(Duration.valueOf(reader.stringValue()));
                     break;
@@ -975,9 +1031,18 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
                 case "dcmStorePermissionCacheStaleTimeout":
                     arcDev.setStorePermissionCacheStaleTimeout(Duration.valueOf(reader.stringValue()));
                     break;
+                case "dcmStorePermissionCacheStaleGracePeriod":
+                    arcDev.setStorePermissionCacheStaleGracePeriod(Duration.valueOf(reader.stringValue()));
+                    break;
                 case "dcmStorePermissionCacheSize":
                     arcDev.setStorePermissionCacheSize(reader.intValue());
                     break;
+                case "dcmPatientCacheStaleTimeout":
+                    arcDev.setPatientCacheStaleTimeout(Duration.valueOf(reader.stringValue()));
+                    break;
+                case "dcmPatientCacheSize":
+                    arcDev.setPatientCacheSize(reader.intValue());
+                    break;
                 case "dcmMergeMWLCacheStaleTimeout":
                     arcDev.setMergeMWLCacheStaleTimeout(Duration.valueOf(reader.stringValue()));
                     break;
@@ -1117,6 +1182,12 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
                 case "dcmStorageVerificationFetchSize":
                     arcDev.setStorageVerificationFetchSize(reader.intValue());
                     break;
+                case "dcmStorageVerificationThreads":
+                    arcDev.setStorageVerificationThreads(reader.intValue());
+                    break;
+                case "dcmStorageVerificationMaxBytesPerSecond":
+                    arcDev.setStorageVerificationMaxBytesPerSecond(reader.stringValue());
+                    break;
                 case "hl7TrackChangedPatientID":
                     arcDev.setHl7TrackChangedPatientID(reader.booleanValue());
                     break;
@@ -1186,6 +1257,18 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
                 case "dcmDiffTaskProgressUpdateInterval":
                     arcDev.setDiffTaskProgressUpdateInterval(Duration.valueOf(reader.stringValue()));
                     break;
+                case "dcmHttpClientMaxConnections":
+                    arcDev.setHttpClientMaxConnections(reader.intValue());
+                    break;
+                case "dcmHttpClientConnectTimeout":
+                    arcDev.setHttpClientConnectTimeout(Duration.valueOf(reader.stringValue()));
+                    break;
+                case "dcmHttpClientReadTimeout":
+                    arcDev.setHttpClientReadTimeout(Duration.valueOf(reader.stringValue()));
+                    break;
+                case "dcmHttpClientConnectionTTL":
+                    arcDev.setHttpClientConnectionTTL(Duration.valueOf(reader.stringValue()));
+                    break;
                 case "dcmAttributeFilter":
                     loadAttributeFilterListFrom(arcDev, reader);
                     break;
@@ -1462,6 +1545,9 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
                     case "dcmMaxQueueSize":
                         qd.setMaxQueueSize(reader.intValue());
                         break;
+                    case "dcmMaxTasksPerDestination":
+                        qd.setMaxTasksPerDestination(reader.intValue());
+                        break;
                     default:
                         reader.skipUnknownProperty();
                 }
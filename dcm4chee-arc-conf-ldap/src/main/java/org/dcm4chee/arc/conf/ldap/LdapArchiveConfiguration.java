@@ -115,11 +115,18 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmWadoSR2TextTemplateURI", ext.getWadoSR2TextTemplateURI(), null);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmWadoCDA2HtmlTemplateURI", ext.getWadoCDA2HtmlTemplateURI(), null);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "hl7PatientUpdateTemplateURI", ext.getPatientUpdateTemplateURI(), null);
+        LdapUtils.storeNotDef(ldapObj, attrs, "hl7CompiledPatientUpdateMapping", ext.isCompiledPatientUpdateMapping(), false);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "hl7ImportReportTemplateURI", ext.getImportReportTemplateURI(), null);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "hl7ScheduleProcedureTemplateURI", ext.getScheduleProcedureTemplateURI(), null);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "hl7OutgoingPatientUpdateTemplateURI", ext.getOutgoingPatientUpdateTemplateURI(), null);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "hl7LogFilePattern", ext.getHl7LogFilePattern(), null);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "hl7ErrorLogFilePattern", ext.getHl7ErrorLogFilePattern(), null);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "hl7LogSegmentDirectory", ext.getHl7LogSegmentDirectory(), null);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "hl7LogSegmentMaxSize", ext.getHl7LogSegmentMaxSize(), null);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "hl7LogSegmentMaxDuration",
+                ext.getHl7LogSegmentMaxDuration(), null);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "hl7LogSegmentRetentionPeriod",
+                ext.getHl7LogSegmentRetentionPeriod(), null);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmUnzipVendorDataToURI", ext.getUnzipVendorDataToURI(), null);
         LdapUtils.storeNotEmpty(ldapObj, attrs, "dcmWadoSupportedSRClasses", ext.getWadoSupportedSRClasses());
         LdapUtils.storeNotDef(ldapObj, attrs, "dcmQueryFetchSize", ext.getQueryFetchSize(), 100);
@@ -132,6 +139,7 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeNotDef(ldapObj, attrs, "dcmIanOnTimeout", ext.isIanOnTimeout(), false);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmIanTaskPollingInterval", ext.getIanTaskPollingInterval(), null);
         LdapUtils.storeNotDef(ldapObj, attrs, "dcmIanTaskFetchSize", ext.getIanTaskFetchSize(), 100);
+        LdapUtils.storeNotDef(ldapObj, attrs, "dcmIanTaskThreads", ext.getIanTaskThreads(), 1);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmExportTaskPollingInterval", ext.getExportTaskPollingInterval(), null);
         LdapUtils.storeNotDef(ldapObj, attrs, "dcmExportTaskFetchSize", ext.getExportTaskFetchSize(), 5);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmPurgeStoragePollingInterval", ext.getPurgeStoragePollingInterval(), null);
@@ -153,8 +161,16 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 ext.getStowSpoolDirectory(), ArchiveDeviceExtension.JBOSS_SERVER_TEMP_DIR);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmPurgeQueueMessagePollingInterval",
                 ext.getPurgeQueueMessagePollingInterval(), null);
+        LdapUtils.storeNotDef(ldapObj, attrs, "dcmPurgeQueueMessageRowsPerSecond",
+                ext.getPurgeQueueMessageRowsPerSecond(), 0);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmWadoSpoolDirectory",
                 ext.getWadoSpoolDirectory(), ArchiveDeviceExtension.JBOSS_SERVER_TEMP_DIR);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmWadoRenderedImageCacheMemorySize",
+                ext.getWadoRenderedImageCacheMemorySize(), null);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmWadoRenderedImageCacheDirectory",
+                ext.getWadoRenderedImageCacheDirectory(), null);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmWadoRenderedImageCacheDiskSize",
+                ext.getWadoRenderedImageCacheDiskSize(), null);
         LdapUtils.storeNotEmpty(ldapObj, attrs, "dcmHideSPSWithStatusFromMWL", ext.getHideSPSWithStatusFrom());
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmRejectExpiredStudiesPollingInterval",
                 ext.getRejectExpiredStudiesPollingInterval(), null);
@@ -169,7 +185,12 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 ext.getStorePermissionServiceResponsePattern(), null);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmStorePermissionCacheStaleTimeout",
                 ext.getStorePermissionCacheStaleTimeout(), null);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmStorePermissionCacheStaleGracePeriod",
+                ext.getStorePermissionCacheStaleGracePeriod(), null);
         LdapUtils.storeNotDef(ldapObj, attrs, "dcmStorePermissionCacheSize", ext.getStorePermissionCacheSize(), 10);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmPatientCacheStaleTimeout",
+                ext.getPatientCacheStaleTimeout(), ArchiveDeviceExtension.DEFAULT_PATIENT_CACHE_STALE_TIMEOUT);
+        LdapUtils.storeNotDef(ldapObj, attrs, "dcmPatientCacheSize", ext.getPatientCacheSize(), 1000);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmMergeMWLCacheStaleTimeout", ext.getMergeMWLCacheStaleTimeout(), null);
         LdapUtils.storeNotDef(ldapObj, attrs, "dcmMergeMWLCacheSize", ext.getMergeMWLCacheSize(), 10);
         LdapUtils.storeNotDef(ldapObj, attrs, "dcmStoreUpdateDBMaxRetries", ext.getStoreUpdateDBMaxRetries(), 1);
@@ -224,6 +245,9 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeNotNullOrDef(ldapObj, attrs,"dcmStorageVerificationPollingInterval", ext.getStorageVerificationPollingInterval(), null);
         LdapUtils.storeNotEmpty(ldapObj, attrs, "dcmStorageVerificationSchedule", ext.getStorageVerificationSchedules());
         LdapUtils.storeNotDef(ldapObj, attrs,"dcmStorageVerificationFetchSize", ext.getStorageVerificationFetchSize(), 100);
+        LdapUtils.storeNotDef(ldapObj, attrs, "dcmStorageVerificationThreads", ext.getStorageVerificationThreads(), 1);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmStorageVerificationMaxBytesPerSecond",
+                ext.getStorageVerificationMaxBytesPerSecond(), null);
         LdapUtils.storeNotDef(ldapObj, attrs, "hl7TrackChangedPatientID", ext.isHl7TrackChangedPatientID(), true);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmInvokeImageDisplayPatientURL", ext.getInvokeImageDisplayPatientURL(), null);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmInvokeImageDisplayStudyURL", ext.getInvokeImageDisplayStudyURL(), null);
@@ -253,6 +277,12 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeNotDef(ldapObj, attrs, "dcmCompressionThreads", ext.getCompressionThreads(), 1);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmDiffTaskProgressUpdateInterval",
                 ext.getDiffTaskProgressUpdateInterval(), null);
+        LdapUtils.storeNotDef(ldapObj, attrs, "dcmHttpClientMaxConnections", ext.getHttpClientMaxConnections(), 20);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmHttpClientConnectTimeout",
+                ext.getHttpClientConnectTimeout(), null);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmHttpClientReadTimeout", ext.getHttpClientReadTimeout(), null);
+        LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmHttpClientConnectionTTL",
+                ext.getHttpClientConnectionTTL(), null);
     }
 
     @Override
@@ -294,11 +324,16 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         ext.setWadoSR2TextTemplateURI(LdapUtils.stringValue(attrs.get("dcmWadoSR2TextTemplateURI"), null));
         ext.setWadoCDA2HtmlTemplateURI(LdapUtils.stringValue(attrs.get("dcmWadoCDA2HtmlTemplateURI"), null));
         ext.setPatientUpdateTemplateURI(LdapUtils.stringValue(attrs.get("hl7PatientUpdateTemplateURI"), null));
+        ext.setCompiledPatientUpdateMapping(LdapUtils.booleanValue(attrs.get("hl7CompiledPatientUpdateMapping"), false));
         ext.setImportReportTemplateURI(LdapUtils.stringValue(attrs.get("hl7ImportReportTemplateURI"), null));
         ext.setScheduleProcedureTemplateURI(LdapUtils.stringValue(attrs.get("hl7ScheduleProcedureTemplateURI"), null));
         ext.setOutgoingPatientUpdateTemplateURI(LdapUtils.stringValue(attrs.get("hl7OutgoingPatientUpdateTemplateURI"), null));
         ext.setHl7LogFilePattern(LdapUtils.stringValue(attrs.get("hl7LogFilePattern"), null));
         ext.setHl7ErrorLogFilePattern(LdapUtils.stringValue(attrs.get("hl7ErrorLogFilePattern"), null));
+        ext.setHl7LogSegmentDirectory(LdapUtils.stringValue(attrs.get("hl7LogSegmentDirectory"), null));
+        ext.setHl7LogSegmentMaxSize(LdapUtils.stringValue(attrs.get("hl7LogSegmentMaxSize"), null));
+        ext.setHl7LogSegmentMaxDuration(toDuration(attrs.get("hl7LogSegmentMaxDuration"), null));
+        ext.setHl7LogSegmentRetentionPeriod(toDuration(attrs.get("hl7LogSegmentRetentionPeriod"), null));
         ext.setUnzipVendorDataToURI(LdapUtils.stringValue(attrs.get("dcmUnzipVendorDataToURI"), null));
         ext.setWadoSupportedSRClasses(LdapUtils.stringArray(attrs.get("dcmWadoSupportedSRClasses")));
         ext.setQueryFetchSize(LdapUtils.intValue(attrs.get("dcmQueryFetchSize"), 100));
@@ -311,6 +346,7 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         ext.setIanOnTimeout(LdapUtils.booleanValue(attrs.get("dcmIanOnTimeout"), false));
         ext.setIanTaskPollingInterval(toDuration(attrs.get("dcmIanTaskPollingInterval"), null));
         ext.setIanTaskFetchSize(LdapUtils.intValue(attrs.get("dcmIanTaskFetchSize"), 100));
+        ext.setIanTaskThreads(LdapUtils.intValue(attrs.get("dcmIanTaskThreads"), 1));
         ext.setExportTaskPollingInterval(toDuration(attrs.get("dcmExportTaskPollingInterval"), null));
         ext.setExportTaskFetchSize(LdapUtils.intValue(attrs.get("dcmExportTaskFetchSize"), 5));
         ext.setPurgeStoragePollingInterval(toDuration(attrs.get("dcmPurgeStoragePollingInterval"), null));
@@ -331,8 +367,12 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         ext.setStowSpoolDirectory(
                 LdapUtils.stringValue(attrs.get("dcmStowSpoolDirectory"), ArchiveDeviceExtension.JBOSS_SERVER_TEMP_DIR));
         ext.setPurgeQueueMessagePollingInterval(toDuration(attrs.get("dcmPurgeQueueMessagePollingInterval"), null));
+        ext.setPurgeQueueMessageRowsPerSecond(LdapUtils.intValue(attrs.get("dcmPurgeQueueMessageRowsPerSecond"), 0));
         ext.setWadoSpoolDirectory(
                 LdapUtils.stringValue(attrs.get("dcmWadoSpoolDirectory"), ArchiveDeviceExtension.JBOSS_SERVER_TEMP_DIR));
+        ext.setWadoRenderedImageCacheMemorySize(LdapUtils.stringValue(attrs.get("dcmWadoRenderedImageCacheMemorySize"), null));
+        ext.setWadoRenderedImageCacheDirectory(LdapUtils.stringValue(attrs.get("dcmWadoRenderedImageCacheDirectory"), null));
+        ext.setWadoRenderedImageCacheDiskSize(LdapUtils.stringValue(attrs.get("dcmWadoRenderedImageCacheDiskSize"), null));
         ext.setHideSPSWithStatusFrom(LdapUtils.enumArray(SPSStatus.class, attrs.get("dcmHideSPSWithStatusFromMWL")));
         ext.setRejectExpiredStudiesPollingInterval(toDuration(attrs.get("dcmRejectExpiredStudiesPollingInterval"), null));
         ext.setRejectExpiredStudiesPollingStartTime(toLocalTime(attrs.get("dcmRejectExpiredStudiesPollingStartTime")));
@@ -343,7 +383,12 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         ext.setStorePermissionServiceURL(LdapUtils.stringValue(attrs.get("dcmStorePermissionServiceURL"), null));
         ext.setStorePermissionServiceResponsePattern(toPattern(attrs.get("dcmStorePermissionServiceResponsePattern")));
         ext.setStorePermissionCacheStaleTimeout(toDuration(attrs.get("dcmStorePermissionCacheStaleTimeout"), null));
+        ext.setStorePermissionCacheStaleGracePeriod(
+                toDuration(attrs.get("dcmStorePermissionCacheStaleGracePeriod"), null));
         ext.setStorePermissionCacheSize(LdapUtils.intValue(attrs.get("dcmStorePermissionCacheSize"), 10));
+        ext.setPatientCacheStaleTimeout(toDuration(attrs.get("dcmPatientCacheStaleTimeout"),
+                ArchiveDeviceExtension.DEFAULT_PATIENT_CACHE_STALE_TIMEOUT));
+        ext.setPatientCacheSize(LdapUtils.intValue(attrs.get("dcmPatientCacheSize"), 1000));
         ext.setMergeMWLCacheStaleTimeout(toDuration(attrs.get("dcmMergeMWLCacheStaleTimeout"), null));
         ext.setMergeMWLCacheSize(LdapUtils.intValue(attrs.get("dcmMergeMWLCacheSize"), 10));
         ext.setStoreUpdateDBMaxRetries(LdapUtils.intValue(attrs.get("dcmStoreUpdateDBMaxRetries"), 1));
@@ -407,6 +452,9 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         ext.setStorageVerificationSchedules(
                 ScheduleExpression.valuesOf(LdapUtils.stringArray(attrs.get("dcmStorageVerificationSchedule"))));
         ext.setStorageVerificationFetchSize(LdapUtils.intValue(attrs.get("dcmStorageVerificationFetchSize"), 100));
+        ext.setStorageVerificationThreads(LdapUtils.intValue(attrs.get("dcmStorageVerificationThreads"), 1));
+        ext.setStorageVerificationMaxBytesPerSecond(
+                LdapUtils.stringValue(attrs.get("dcmStorageVerificationMaxBytesPerSecond"), null));
         ext.setHl7TrackChangedPatientID(LdapUtils.booleanValue(attrs.get("hl7TrackChangedPatientID"), true));
         ext.setInvokeImageDisplayPatientURL(LdapUtils.stringValue(attrs.get("dcmInvokeImageDisplayPatientURL"), null));
         ext.setInvokeImageDisplayStudyURL(LdapUtils.stringValue(attrs.get("dcmInvokeImageDisplayStudyURL"), null));
@@ -437,6 +485,10 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 ScheduleExpression.valuesOf(LdapUtils.stringArray(attrs.get("dcmCompressionSchedule"))));
         ext.setCompressionThreads(LdapUtils.intValue(attrs.get("dcmCompressionThreads"), 1));
         ext.setDiffTaskProgressUpdateInterval(toDuration(attrs.get("dcmDiffTaskProgressUpdateInterval"), null));
+        ext.setHttpClientMaxConnections(LdapUtils.intValue(attrs.get("dcmHttpClientMaxConnections"), 20));
+        ext.setHttpClientConnectTimeout(toDuration(attrs.get("dcmHttpClientConnectTimeout"), null));
+        ext.setHttpClientReadTimeout(toDuration(attrs.get("dcmHttpClientReadTimeout"), null));
+        ext.setHttpClientConnectionTTL(toDuration(attrs.get("dcmHttpClientConnectionTTL"), null));
     }
 
     @Override
@@ -520,12 +572,22 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 aa.getImportReportTemplateURI(), bb.getImportReportTemplateURI(), null);
         LdapUtils.storeDiffObject(ldapObj, mods, "hl7PatientUpdateTemplateURI",
                 aa.getPatientUpdateTemplateURI(), bb.getPatientUpdateTemplateURI(), null);
+        LdapUtils.storeDiff(ldapObj, mods, "hl7CompiledPatientUpdateMapping",
+                aa.isCompiledPatientUpdateMapping(), bb.isCompiledPatientUpdateMapping(), false);
         LdapUtils.storeDiffObject(ldapObj, mods, "hl7ScheduleProcedureTemplateURI", aa.getScheduleProcedureTemplateURI(),
                 bb.getScheduleProcedureTemplateURI(), null);
         LdapUtils.storeDiffObject(ldapObj, mods, "hl7OutgoingPatientUpdateTemplateURI", aa.getOutgoingPatientUpdateTemplateURI(),
                 bb.getOutgoingPatientUpdateTemplateURI(), null);
         LdapUtils.storeDiffObject(ldapObj, mods, "hl7LogFilePattern", aa.getHl7LogFilePattern(), bb.getHl7LogFilePattern(), null);
         LdapUtils.storeDiffObject(ldapObj, mods, "hl7ErrorLogFilePattern", aa.getHl7ErrorLogFilePattern(), bb.getHl7ErrorLogFilePattern(), null);
+        LdapUtils.storeDiffObject(ldapObj, mods, "hl7LogSegmentDirectory",
+                aa.getHl7LogSegmentDirectory(), bb.getHl7LogSegmentDirectory(), null);
+        LdapUtils.storeDiffObject(ldapObj, mods, "hl7LogSegmentMaxSize",
+                aa.getHl7LogSegmentMaxSize(), bb.getHl7LogSegmentMaxSize(), null);
+        LdapUtils.storeDiffObject(ldapObj, mods, "hl7LogSegmentMaxDuration",
+                aa.getHl7LogSegmentMaxDuration(), bb.getHl7LogSegmentMaxDuration(), null);
+        LdapUtils.storeDiffObject(ldapObj, mods, "hl7LogSegmentRetentionPeriod",
+                aa.getHl7LogSegmentRetentionPeriod(), bb.getHl7LogSegmentRetentionPeriod(), null);
         LdapUtils.storeDiffObject(ldapObj, mods, "dcmUnzipVendorDataToURI",
                 aa.getUnzipVendorDataToURI(), bb.getUnzipVendorDataToURI(), null);
         LdapUtils.storeDiff(ldapObj, mods, "dcmWadoSupportedSRClasses",
@@ -545,6 +607,7 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeDiffObject(ldapObj, mods, "dcmIanTaskPollingInterval",
                 aa.getIanTaskPollingInterval(), bb.getIanTaskPollingInterval(), null);
         LdapUtils.storeDiff(ldapObj, mods, "dcmIanTaskFetchSize", aa.getIanTaskFetchSize(), bb.getIanTaskFetchSize(), 100);
+        LdapUtils.storeDiff(ldapObj, mods, "dcmIanTaskThreads", aa.getIanTaskThreads(), bb.getIanTaskThreads(), 1);
         LdapUtils.storeDiffObject(ldapObj, mods, "dcmExportTaskPollingInterval",
                 aa.getExportTaskPollingInterval(), bb.getExportTaskPollingInterval(), null);
         LdapUtils.storeDiff(ldapObj, mods, "dcmExportTaskFetchSize",
@@ -583,10 +646,18 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 ArchiveDeviceExtension.JBOSS_SERVER_TEMP_DIR);
         LdapUtils.storeDiffObject(ldapObj, mods, "dcmPurgeQueueMessagePollingInterval", aa.getPurgeQueueMessagePollingInterval(),
                 bb.getPurgeQueueMessagePollingInterval(), null);
+        LdapUtils.storeDiff(ldapObj, mods, "dcmPurgeQueueMessageRowsPerSecond",
+                aa.getPurgeQueueMessageRowsPerSecond(), bb.getPurgeQueueMessageRowsPerSecond(), 0);
         LdapUtils.storeDiffObject(ldapObj, mods, "dcmWadoSpoolDirectory",
                 aa.getWadoSpoolDirectory(),
                 bb.getWadoSpoolDirectory(),
                 ArchiveDeviceExtension.JBOSS_SERVER_TEMP_DIR);
+        LdapUtils.storeDiffObject(ldapObj, mods, "dcmWadoRenderedImageCacheMemorySize",
+                aa.getWadoRenderedImageCacheMemorySize(), bb.getWadoRenderedImageCacheMemorySize(), null);
+        LdapUtils.storeDiffObject(ldapObj, mods, "dcmWadoRenderedImageCacheDirectory",
+                aa.getWadoRenderedImageCacheDirectory(), bb.getWadoRenderedImageCacheDirectory(), null);
+        LdapUtils.storeDiffObject(ldapObj, mods, "dcmWadoRenderedImageCacheDiskSize",
+                aa.getWadoRenderedImageCacheDiskSize(), bb.getWadoRenderedImageCacheDiskSize(), null);
         LdapUtils.storeDiff(ldapObj, mods, "dcmHideSPSWithStatusFromMWL", aa.getHideSPSWithStatusFrom(), bb.getHideSPSWithStatusFrom());
         LdapUtils.storeDiffObject(ldapObj, mods, "dcmRejectExpiredStudiesPollingInterval",
                 aa.getRejectExpiredStudiesPollingInterval(), bb.getRejectExpiredStudiesPollingInterval(), null);
@@ -606,8 +677,15 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 aa.getStorePermissionServiceResponsePattern(), bb.getStorePermissionServiceResponsePattern(), null);
         LdapUtils.storeDiffObject(ldapObj, mods, "dcmStorePermissionCacheStaleTimeout",
                 aa.getStorePermissionCacheStaleTimeout(), bb.getStorePermissionCacheStaleTimeout(), null);
+        LdapUtils.storeDiffObject(ldapObj, mods, "dcmStorePermissionCacheStaleGracePeriod",
+                aa.getStorePermissionCacheStaleGracePeriod(), bb.getStorePermissionCacheStaleGracePeriod(), null);
         LdapUtils.storeDiff(ldapObj, mods, "dcmStorePermissionCacheSize",
                 aa.getStorePermissionCacheSize(), bb.getStorePermissionCacheSize(), 10);
+        LdapUtils.storeDiffObject(ldapObj, mods, "dcmPatientCacheStaleTimeout",
+                aa.getPatientCacheStaleTimeout(), bb.getPatientCacheStaleTimeout(),
+                ArchiveDeviceExtension.DEFAULT_PATIENT_CACHE_STALE_TIMEOUT);
+        LdapUtils.storeDiff(ldapObj, mods, "dcmPatientCacheSize",
+                aa.getPatientCacheSize(), bb.getPatientCacheSize(), 1000);
         LdapUtils.storeDiffObject(ldapObj, mods, "dcmMergeMWLCacheStaleTimeout",
                 aa.getMergeMWLCacheStaleTimeout(), bb.getMergeMWLCacheStaleTimeout(), null);
         LdapUtils.storeDiff(ldapObj, mods, "dcmMergeMWLCacheSize",
@@ -699,6 +777,10 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 aa.getStorageVerificationSchedules(), bb.getStorageVerificationSchedules());
         LdapUtils.storeDiff(ldapObj, mods,"dcmStorageVerificationFetchSize",
                 aa.getStorageVerificationFetchSize(), bb.getStorageVerificationFetchSize(), 100);
+        LdapUtils.storeDiff(ldapObj, mods, "dcmStorageVerificationThreads",
+                aa.getStorageVerificationThreads(), bb.getStorageVerificationThreads(), 1);
+        LdapUtils.storeDiffObject(ldapObj, mods, "dcmStorageVerificationMaxBytesPerSecond",
+                aa.getStorageVerificationMaxBytesPerSecond(), bb.getStorageVerificationMaxBytesPerSecond(), null);
 
         LdapUtils.storeDiff(ldapObj, mods, "hl7TrackChangedPatientID",
                 aa.isHl7TrackChangedPatientID(), bb.isHl7TrackChangedPatientID(), true);
@@ -757,6 +839,14 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeDiffObject(ldapObj, mods, "dcmDiffTaskProgressUpdateInterval",
                 aa.getDiffTaskProgressUpdateInterval(),
                 bb.getDiffTaskProgressUpdateInterval(), null);
+        LdapUtils.storeDiff(ldapObj, mods, "dcmHttpClientMaxConnections",
+                aa.getHttpClientMaxConnections(), bb.getHttpClientMaxConnections(), 20);
+        LdapUtils.storeDiffObject(ldapObj, mods, "dcmHttpClientConnectTimeout",
+                aa.getHttpClientConnectTimeout(), bb.getHttpClientConnectTimeout(), null);
+        LdapUtils.storeDiffObject(ldapObj, mods, "dcmHttpClientReadTimeout",
+                aa.getHttpClientReadTimeout(), bb.getHttpClientReadTimeout(), null);
+        LdapUtils.storeDiffObject(ldapObj, mods, "dcmHttpClientConnectionTTL",
+                aa.getHttpClientConnectionTTL(), bb.getHttpClientConnectionTTL(), null);
         if (remove)
             mods.add(new ModificationItem(DirContext.REMOVE_ATTRIBUTE,
                     LdapUtils.attr("objectClass", "dcmArchiveDevice")));
@@ -1710,6 +1800,8 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeNotDef(ldapObj, attrs, "dcmRetryOnWarning", descriptor.isRetryOnWarning(), false);
         LdapUtils.storeNotNullOrDef(ldapObj, attrs, "dcmPurgeQueueMessageCompletedDelay", descriptor.getPurgeQueueMessageCompletedDelay(), null);
         LdapUtils.storeNotDef(ldapObj, attrs, "dcmMaxQueueSize", descriptor.getMaxQueueSize(), 0);
+        LdapUtils.storeNotDef(ldapObj, attrs, "dcmMaxTasksPerDestination",
+                descriptor.getMaxTasksPerDestination(), 0);
         return attrs;
     }
 
@@ -1729,6 +1821,7 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 desc.setRetryOnWarning(LdapUtils.booleanValue(attrs.get("dcmRetryOnWarning"), false));
                 desc.setPurgeQueueMessageCompletedDelay(toDuration(attrs.get("dcmPurgeQueueMessageCompletedDelay"), null));
                 desc.setMaxQueueSize(LdapUtils.intValue(attrs.get("dcmMaxQueueSize"), 0));
+                desc.setMaxTasksPerDestination(LdapUtils.intValue(attrs.get("dcmMaxTasksPerDestination"), 0));
                 arcdev.addQueueDescriptor(desc);
             }
         } finally {
@@ -1782,6 +1875,8 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeDiffObject(ldapObj, mods, "dcmPurgeQueueMessageCompletedDelay",
                 prev.getPurgeQueueMessageCompletedDelay(), desc.getPurgeQueueMessageCompletedDelay(), null);
         LdapUtils.storeDiff(ldapObj, mods, "dcmMaxQueueSize", prev.getMaxQueueSize(), desc.getMaxQueueSize(), 0);
+        LdapUtils.storeDiff(ldapObj, mods, "dcmMaxTasksPerDestination",
+                prev.getMaxTasksPerDestination(), desc.getMaxTasksPerDestination(), 0);
         return mods;
     }
 
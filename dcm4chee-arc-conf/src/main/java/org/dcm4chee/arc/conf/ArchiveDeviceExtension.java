@@ -68,6 +68,7 @@ public class ArchiveDeviceExtension extends DeviceExtension {
     public static final String JBOSS_SERVER_TEMP_DIR = "${jboss.server.temp.dir}";
     public static final String DEFAULT_WADO_ZIP_ENTRY_NAME_FORMAT =
             "DICOM/{0020000D,hash}/{0020000E,hash}/{00080018,hash}";
+    public static final Duration DEFAULT_PATIENT_CACHE_STALE_TIMEOUT = Duration.valueOf("PT5M");
 
     private String defaultCharacterSet;
     private String fuzzyAlgorithmClass;
@@ -95,6 +96,7 @@ public class ArchiveDeviceExtension extends DeviceExtension {
     private String wadoSR2TextTemplateURI;
     private String wadoCDA2HtmlTemplateURI;
     private String patientUpdateTemplateURI;
+    private boolean compiledPatientUpdateMapping = false;
     private String importReportTemplateURI;
     private String scheduleProcedureTemplateURI;
     private String unzipVendorDataToURI;
@@ -106,6 +108,7 @@ public class ArchiveDeviceExtension extends DeviceExtension {
     private boolean ianOnTimeout;
     private Duration ianTaskPollingInterval;
     private int ianTaskFetchSize = 100;
+    private volatile int ianTaskThreads = 1;
     private String spanningCFindSCP;
     private String[] spanningCFindSCPRetrieveAETitles = {};
     private SpanningCFindSCPPolicy spanningCFindSCPPolicy = SpanningCFindSCPPolicy.REPLACE;
@@ -133,12 +136,20 @@ public class ArchiveDeviceExtension extends DeviceExtension {
     private Duration auditAggregateDuration;
     private String stowSpoolDirectory = JBOSS_SERVER_TEMP_DIR;
     private String wadoSpoolDirectory = JBOSS_SERVER_TEMP_DIR;
+    private String wadoRenderedImageCacheMemorySize;
+    private String wadoRenderedImageCacheDirectory;
+    private String wadoRenderedImageCacheDiskSize;
     private Duration purgeQueueMessagePollingInterval;
+    private int purgeQueueMessageRowsPerSecond = 0;
     private Duration purgeStgCmtPollingInterval;
     private Duration purgeStgCmtCompletedDelay;
     private SPSStatus[] hideSPSWithStatusFrom = {};
     private String hl7LogFilePattern;
     private String hl7ErrorLogFilePattern;
+    private String hl7LogSegmentDirectory;
+    private String hl7LogSegmentMaxSize;
+    private Duration hl7LogSegmentMaxDuration;
+    private Duration hl7LogSegmentRetentionPeriod;
     private Duration rejectExpiredStudiesPollingInterval;
     private LocalTime rejectExpiredStudiesPollingStartTime;
     private int rejectExpiredStudiesFetchSize = 0;
@@ -151,7 +162,10 @@ public class ArchiveDeviceExtension extends DeviceExtension {
     private Pattern storePermissionServiceErrorCommentPattern;
     private Pattern storePermissionServiceErrorCodePattern;
     private Duration storePermissionCacheStaleTimeout;
+    private Duration storePermissionCacheStaleGracePeriod;
     private int storePermissionCacheSize = 10;
+    private Duration patientCacheStaleTimeout = DEFAULT_PATIENT_CACHE_STALE_TIMEOUT;
+    private int patientCacheSize = 1000;
     private Duration mergeMWLCacheStaleTimeout;
     private int mergeMWLCacheSize = 10;
     private int storeUpdateDBMaxRetries = 1;
@@ -203,12 +217,18 @@ public class ArchiveDeviceExtension extends DeviceExtension {
     private Duration storageVerificationPollingInterval;
     private ScheduleExpression[] storageVerificationSchedules = {};
     private int storageVerificationFetchSize = 100;
+    private int storageVerificationThreads = 1;
+    private String storageVerificationMaxBytesPerSecond;
     private volatile String compressionAETitle;
     private volatile Duration compressionPollingInterval;
     private volatile int compressionFetchSize = 100;
     private volatile int compressionThreads = 1;
     private volatile ScheduleExpression[] compressionSchedules = {};
     private Duration diffTaskProgressUpdateInterval;
+    private int httpClientMaxConnections = 20;
+    private Duration httpClientConnectTimeout;
+    private Duration httpClientReadTimeout;
+    private Duration httpClientConnectionTTL;
 
     private final HashSet<String> wadoSupportedSRClasses = new HashSet<>();
     private final EnumMap<Entity,AttributeFilter> attributeFilters = new EnumMap<>(Entity.class);
@@ -471,6 +491,14 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         this.patientUpdateTemplateURI = patientUpdateTemplateURI;
     }
 
+    public boolean isCompiledPatientUpdateMapping() {
+        return compiledPatientUpdateMapping;
+    }
+
+    public void setCompiledPatientUpdateMapping(boolean compiledPatientUpdateMapping) {
+        this.compiledPatientUpdateMapping = compiledPatientUpdateMapping;
+    }
+
     public String getImportReportTemplateURI() {
         return importReportTemplateURI;
     }
@@ -559,6 +587,14 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         this.ianTaskFetchSize = greaterZero(ianTaskFetchSize, "ianTaskFetchSize");
     }
 
+    public int getIanTaskThreads() {
+        return ianTaskThreads;
+    }
+
+    public void setIanTaskThreads(int ianTaskThreads) {
+        this.ianTaskThreads = greaterZero(ianTaskThreads, "ianTaskThreads");
+    }
+
     public String getSpanningCFindSCP() {
         return spanningCFindSCP;
     }
@@ -816,6 +852,30 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         this.wadoSpoolDirectory = Objects.requireNonNull(wadoSpoolDirectory, "WadoSpoolDirectory");
     }
 
+    public String getWadoRenderedImageCacheMemorySize() {
+        return wadoRenderedImageCacheMemorySize;
+    }
+
+    public void setWadoRenderedImageCacheMemorySize(String wadoRenderedImageCacheMemorySize) {
+        this.wadoRenderedImageCacheMemorySize = wadoRenderedImageCacheMemorySize;
+    }
+
+    public String getWadoRenderedImageCacheDirectory() {
+        return wadoRenderedImageCacheDirectory;
+    }
+
+    public void setWadoRenderedImageCacheDirectory(String wadoRenderedImageCacheDirectory) {
+        this.wadoRenderedImageCacheDirectory = wadoRenderedImageCacheDirectory;
+    }
+
+    public String getWadoRenderedImageCacheDiskSize() {
+        return wadoRenderedImageCacheDiskSize;
+    }
+
+    public void setWadoRenderedImageCacheDiskSize(String wadoRenderedImageCacheDiskSize) {
+        this.wadoRenderedImageCacheDiskSize = wadoRenderedImageCacheDiskSize;
+    }
+
     public String getHl7LogFilePattern() {
         return hl7LogFilePattern;
     }
@@ -832,6 +892,38 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         this.hl7ErrorLogFilePattern = hl7ErrorLogFilePattern;
     }
 
+    public String getHl7LogSegmentDirectory() {
+        return hl7LogSegmentDirectory;
+    }
+
+    public void setHl7LogSegmentDirectory(String hl7LogSegmentDirectory) {
+        this.hl7LogSegmentDirectory = hl7LogSegmentDirectory;
+    }
+
+    public String getHl7LogSegmentMaxSize() {
+        return hl7LogSegmentMaxSize;
+    }
+
+    public void setHl7LogSegmentMaxSize(String hl7LogSegmentMaxSize) {
+        this.hl7LogSegmentMaxSize = hl7LogSegmentMaxSize;
+    }
+
+    public Duration getHl7LogSegmentMaxDuration() {
+        return hl7LogSegmentMaxDuration;
+    }
+
+    public void setHl7LogSegmentMaxDuration(Duration hl7LogSegmentMaxDuration) {
+        this.hl7LogSegmentMaxDuration = hl7LogSegmentMaxDuration;
+    }
+
+    public Duration getHl7LogSegmentRetentionPeriod() {
+        return hl7LogSegmentRetentionPeriod;
+    }
+
+    public void setHl7LogSegmentRetentionPeriod(Duration hl7LogSegmentRetentionPeriod) {
+        this.hl7LogSegmentRetentionPeriod = hl7LogSegmentRetentionPeriod;
+    }
+
     public int getRejectExpiredStudiesFetchSize() {
         return rejectExpiredStudiesFetchSize;
     }
@@ -890,6 +982,14 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         this.purgeQueueMessagePollingInterval = purgeQueueMessagePollingInterval;
     }
 
+    public int getPurgeQueueMessageRowsPerSecond() {
+        return purgeQueueMessageRowsPerSecond;
+    }
+
+    public void setPurgeQueueMessageRowsPerSecond(int purgeQueueMessageRowsPerSecond) {
+        this.purgeQueueMessageRowsPerSecond = purgeQueueMessageRowsPerSecond;
+    }
+
     public Duration getPurgeStgCmtPollingInterval() {
         return purgeStgCmtPollingInterval;
     }
@@ -966,6 +1066,18 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         return toSeconds(storePermissionCacheStaleTimeout);
     }
 
+    public Duration getStorePermissionCacheStaleGracePeriod() {
+        return storePermissionCacheStaleGracePeriod;
+    }
+
+    public void setStorePermissionCacheStaleGracePeriod(Duration storePermissionCacheStaleGracePeriod) {
+        this.storePermissionCacheStaleGracePeriod = storePermissionCacheStaleGracePeriod;
+    }
+
+    public int getStorePermissionCacheStaleGracePeriodSeconds() {
+        return toSeconds(storePermissionCacheStaleGracePeriod);
+    }
+
     public int getStorePermissionCacheSize() {
         return storePermissionCacheSize;
     }
@@ -974,6 +1086,26 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         this.storePermissionCacheSize = greaterZero(storePermissionCacheSize, "storePermissionCacheSize");
     }
 
+    public Duration getPatientCacheStaleTimeout() {
+        return patientCacheStaleTimeout;
+    }
+
+    public void setPatientCacheStaleTimeout(Duration patientCacheStaleTimeout) {
+        this.patientCacheStaleTimeout = Objects.requireNonNull(patientCacheStaleTimeout, "PatientCacheStaleTimeout");
+    }
+
+    public int getPatientCacheStaleTimeoutSeconds() {
+        return toSeconds(patientCacheStaleTimeout);
+    }
+
+    public int getPatientCacheSize() {
+        return patientCacheSize;
+    }
+
+    public void setPatientCacheSize(int patientCacheSize) {
+        this.patientCacheSize = greaterZero(patientCacheSize, "patientCacheSize");
+    }
+
     public Duration getMergeMWLCacheStaleTimeout() {
         return mergeMWLCacheStaleTimeout;
     }
@@ -1888,6 +2020,22 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         this.storageVerificationFetchSize = storageVerificationFetchSize;
     }
 
+    public int getStorageVerificationThreads() {
+        return storageVerificationThreads;
+    }
+
+    public void setStorageVerificationThreads(int storageVerificationThreads) {
+        this.storageVerificationThreads = greaterZero(storageVerificationThreads, "storageVerificationThreads");
+    }
+
+    public String getStorageVerificationMaxBytesPerSecond() {
+        return storageVerificationMaxBytesPerSecond;
+    }
+
+    public void setStorageVerificationMaxBytesPerSecond(String storageVerificationMaxBytesPerSecond) {
+        this.storageVerificationMaxBytesPerSecond = storageVerificationMaxBytesPerSecond;
+    }
+
     public String getCompressionAETitle() {
         return compressionAETitle;
     }
@@ -1936,6 +2084,38 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         this.diffTaskProgressUpdateInterval = diffTaskProgressUpdateInterval;
     }
 
+    public int getHttpClientMaxConnections() {
+        return httpClientMaxConnections;
+    }
+
+    public void setHttpClientMaxConnections(int httpClientMaxConnections) {
+        this.httpClientMaxConnections = greaterZero(httpClientMaxConnections, "httpClientMaxConnections");
+    }
+
+    public Duration getHttpClientConnectTimeout() {
+        return httpClientConnectTimeout;
+    }
+
+    public void setHttpClientConnectTimeout(Duration httpClientConnectTimeout) {
+        this.httpClientConnectTimeout = httpClientConnectTimeout;
+    }
+
+    public Duration getHttpClientReadTimeout() {
+        return httpClientReadTimeout;
+    }
+
+    public void setHttpClientReadTimeout(Duration httpClientReadTimeout) {
+        this.httpClientReadTimeout = httpClientReadTimeout;
+    }
+
+    public Duration getHttpClientConnectionTTL() {
+        return httpClientConnectionTTL;
+    }
+
+    public void setHttpClientConnectionTTL(Duration httpClientConnectionTTL) {
+        this.httpClientConnectionTTL = httpClientConnectionTTL;
+    }
+
     public Collection<KeycloakServer> getKeycloakServers() {
         return keycloakServerMap.values();
     }
@@ -1988,6 +2168,7 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         wadoSR2TextTemplateURI = arcdev.wadoSR2TextTemplateURI;
         wadoCDA2HtmlTemplateURI = arcdev.wadoCDA2HtmlTemplateURI;
         patientUpdateTemplateURI = arcdev.patientUpdateTemplateURI;
+        compiledPatientUpdateMapping = arcdev.compiledPatientUpdateMapping;
         importReportTemplateURI = arcdev.importReportTemplateURI;
         scheduleProcedureTemplateURI = arcdev.scheduleProcedureTemplateURI;
         outgoingPatientUpdateTemplateURI = arcdev.outgoingPatientUpdateTemplateURI;
@@ -2003,6 +2184,7 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         ianOnTimeout = arcdev.ianOnTimeout;
         ianTaskPollingInterval = arcdev.ianTaskPollingInterval;
         ianTaskFetchSize = arcdev.ianTaskFetchSize;
+        ianTaskThreads = arcdev.ianTaskThreads;
         spanningCFindSCP = arcdev.spanningCFindSCP;
         spanningCFindSCPRetrieveAETitles = arcdev.spanningCFindSCPRetrieveAETitles;
         spanningCFindSCPPolicy = arcdev.spanningCFindSCPPolicy;
@@ -2030,9 +2212,17 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         auditAggregateDuration = arcdev.auditAggregateDuration;
         stowSpoolDirectory = arcdev.stowSpoolDirectory;
         wadoSpoolDirectory = arcdev.wadoSpoolDirectory;
+        wadoRenderedImageCacheMemorySize = arcdev.wadoRenderedImageCacheMemorySize;
+        wadoRenderedImageCacheDirectory = arcdev.wadoRenderedImageCacheDirectory;
+        wadoRenderedImageCacheDiskSize = arcdev.wadoRenderedImageCacheDiskSize;
         hl7LogFilePattern = arcdev.hl7LogFilePattern;
         hl7ErrorLogFilePattern = arcdev.hl7ErrorLogFilePattern;
+        hl7LogSegmentDirectory = arcdev.hl7LogSegmentDirectory;
+        hl7LogSegmentMaxSize = arcdev.hl7LogSegmentMaxSize;
+        hl7LogSegmentMaxDuration = arcdev.hl7LogSegmentMaxDuration;
+        hl7LogSegmentRetentionPeriod = arcdev.hl7LogSegmentRetentionPeriod;
         purgeQueueMessagePollingInterval = arcdev.purgeQueueMessagePollingInterval;
+        purgeQueueMessageRowsPerSecond = arcdev.purgeQueueMessageRowsPerSecond;
         purgeStgCmtPollingInterval = arcdev.purgeStgCmtPollingInterval;
         purgeStgCmtCompletedDelay = arcdev.purgeStgCmtCompletedDelay;
         hideSPSWithStatusFrom = arcdev.hideSPSWithStatusFrom;
@@ -2048,7 +2238,10 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         storePermissionServiceErrorCommentPattern = arcdev.storePermissionServiceErrorCommentPattern;
         storePermissionServiceErrorCodePattern = arcdev.storePermissionServiceErrorCodePattern;
         storePermissionCacheStaleTimeout = arcdev.storePermissionCacheStaleTimeout;
+        storePermissionCacheStaleGracePeriod = arcdev.storePermissionCacheStaleGracePeriod;
         storePermissionCacheSize = arcdev.storePermissionCacheSize;
+        patientCacheStaleTimeout = arcdev.patientCacheStaleTimeout;
+        patientCacheSize = arcdev.patientCacheSize;
         mergeMWLCacheStaleTimeout = arcdev.mergeMWLCacheStaleTimeout;
         mergeMWLCacheSize = arcdev.mergeMWLCacheSize;
         storeUpdateDBMaxRetries = arcdev.storeUpdateDBMaxRetries;
@@ -2099,12 +2292,18 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         storageVerificationMaxScheduled = arcdev.storageVerificationMaxScheduled;
         storageVerificationPollingInterval = arcdev.storageVerificationPollingInterval;
         storageVerificationFetchSize = arcdev.storageVerificationFetchSize;
+        storageVerificationThreads = arcdev.storageVerificationThreads;
+        storageVerificationMaxBytesPerSecond = arcdev.storageVerificationMaxBytesPerSecond;
         compressionAETitle = arcdev.compressionAETitle;
         compressionPollingInterval = arcdev.compressionPollingInterval;
         compressionFetchSize = arcdev.compressionFetchSize;
         compressionSchedules = arcdev.compressionSchedules;
         compressionThreads = arcdev.compressionThreads;
         diffTaskProgressUpdateInterval = arcdev.diffTaskProgressUpdateInterval;
+        httpClientMaxConnections = arcdev.httpClientMaxConnections;
+        httpClientConnectTimeout = arcdev.httpClientConnectTimeout;
+        httpClientReadTimeout = arcdev.httpClientReadTimeout;
+        httpClientConnectionTTL = arcdev.httpClientConnectionTTL;
         attributeFilters.clear();
         attributeFilters.putAll(arcdev.attributeFilters);
         attributeSet.clear();
@@ -20,6 +20,7 @@ public class QueueDescriptor {
     private boolean retryOnWarning;
     private Duration purgeQueueMessageCompletedDelay;
     private int maxQueueSize = 0;
+    private int maxTasksPerDestination = 0;
 
     public QueueDescriptor(String queueName) {
         setQueueName(queueName);
@@ -118,4 +119,12 @@ public class QueueDescriptor {
     public void setMaxQueueSize(int maxQueueSize) {
         this.maxQueueSize = maxQueueSize;
     }
+
+    public int getMaxTasksPerDestination() {
+        return maxTasksPerDestination;
+    }
+
+    public void setMaxTasksPerDestination(int maxTasksPerDestination) {
+        this.maxTasksPerDestination = maxTasksPerDestination;
+    }
 }
@@ -13,6 +13,11 @@ import java.util.*;
  * @since Jul 2015
  */
 public final class StorageDescriptor {
+
+    public enum ReadCacheEviction { LRU, LFU }
+
+    private static final String DEFAULT_READ_CACHE_MAX_SIZE = "1GiB";
+
     private String storageID;
     private String storageURIStr;
     private URI storageURI;
@@ -168,9 +173,21 @@ public final class StorageDescriptor {
     }
 
     public void setProperty(String name, String value) {
+        validateProperty(name, value);
         properties.put(name, value);
     }
 
+    private static void validateProperty(String name, String value) {
+        switch (name) {
+            case "readCacheMaxSize":
+                BinaryPrefix.parse(value);
+                break;
+            case "readCacheEviction":
+                ReadCacheEviction.valueOf(value);
+                break;
+        }
+    }
+
     public String getProperty(String name, String defValue) {
         String value = properties.get(name);
         return value != null ? value : defValue;
@@ -180,6 +197,19 @@ public final class StorageDescriptor {
         return properties;
     }
 
+    public String getReadCacheDirectory() {
+        String dir = properties.get("readCacheDirectory");
+        return dir != null ? StringUtils.replaceSystemProperties(dir) : null;
+    }
+
+    public long getReadCacheMaxSize() {
+        return BinaryPrefix.parse(getProperty("readCacheMaxSize", DEFAULT_READ_CACHE_MAX_SIZE));
+    }
+
+    public ReadCacheEviction getReadCacheEviction() {
+        return ReadCacheEviction.valueOf(getProperty("readCacheEviction", ReadCacheEviction.LRU.name()));
+    }
+
 
     public void setProperties(String[] ss) {
         properties.clear();
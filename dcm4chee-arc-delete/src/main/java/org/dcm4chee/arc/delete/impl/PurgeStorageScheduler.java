@@ -58,6 +58,7 @@ import org.dcm4chee.arc.entity.Series;
 import org.dcm4chee.arc.entity.Study;
 import org.dcm4chee.arc.storage.ReadContext;
 import org.dcm4chee.arc.storage.Storage;
+import org.dcm4chee.arc.storage.StorageCache;
 import org.dcm4chee.arc.storage.StorageFactory;
 import org.dcm4chee.arc.store.StoreService;
 import org.dcm4chee.arc.store.StoreSession;
@@ -101,6 +102,9 @@ public class PurgeStorageScheduler extends Scheduler {
     @Inject
     private StorageFactory storageFactory;
 
+    @Inject
+    private StorageCache storageCache;
+
     @Inject
     private Event<StudyDeleteContext> studyDeletedEvent;
 
@@ -401,6 +405,7 @@ public class PurgeStorageScheduler extends Scheduler {
                 try {
                     if (ejb.claimDeleteObject(location)) {
                         storage.deleteObject(location.getStoragePath());
+                        storageCache.invalidate(desc, location.getStoragePath());
                         ejb.removeLocation(location);
                         LOG.debug("Successfully delete {} from {}", location, desc);
                         success++;
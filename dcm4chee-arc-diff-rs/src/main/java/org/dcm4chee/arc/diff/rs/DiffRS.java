@@ -147,6 +147,14 @@ public class DiffRS {
     @ValidValueOf(type = Duration.class)
     private String forceQueryByStudyUID;
 
+    @QueryParam("SortLocally")
+    @Pattern(regexp = "true|false")
+    private String sortLocally;
+
+    @QueryParam("ConcurrentQueries")
+    @Pattern(regexp = "[1-9]\\d{0,1}")
+    private String concurrentQueries;
+
     @QueryParam("SplitStudyDateRange")
     @ValidValueOf(type = Duration.class)
     private String splitStudyDateRange;
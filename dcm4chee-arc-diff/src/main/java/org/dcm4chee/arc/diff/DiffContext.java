@@ -72,6 +72,8 @@ public class DiffContext {
     private Duration splitStudyDateRange;
     private int priority;
     private boolean forceQueryByStudyUID;
+    private boolean sortLocally;
+    private int concurrentQueries;
     private boolean fuzzymatching;
     private boolean checkMissing;
     private boolean checkDifferent;
@@ -129,6 +131,8 @@ public class DiffContext {
         this.queryString = queryString;
         this.queryAttributes = new QueryAttributes(queryParameters);
         this.forceQueryByStudyUID = parseBoolean(queryParameters.getFirst("ForceQueryByStudyUID"), false);
+        this.sortLocally = parseBoolean(queryParameters.getFirst("SortLocally"), false);
+        this.concurrentQueries = parseInt(queryParameters.getFirst("ConcurrentQueries"), 1);
         this.splitStudyDateRange = parseDuration(queryParameters.getFirst("SplitStudyDateRange"));
         this.compareKeys = parseComparefields(queryParameters.get("comparefield"));
         this.priority = parseInt(queryParameters.getFirst("priority"), 0);
@@ -147,6 +151,14 @@ public class DiffContext {
         return forceQueryByStudyUID;
     }
 
+    public boolean isSortLocally() {
+        return sortLocally;
+    }
+
+    public int getConcurrentQueries() {
+        return concurrentQueries;
+    }
+
     public Duration getSplitStudyDateRange() {
         return splitStudyDateRange;
     }
@@ -55,9 +55,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.Date;
-import java.util.EnumSet;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -69,11 +71,17 @@ public class DiffSCUImpl implements DiffSCU {
 
     private final DiffContext ctx;
     private final CFindSCU findSCU;
+    private final Deque<Lookup> lookups = new ArrayDeque<>();
 
     private Association as1;
     private Association as2;
+    private BlockingQueue<Association> otherAssociations;
+    private StudySpool spool1;
+    private StudySpool spool2;
     private DimseRSP dimseRSP;
     private DimseRSP dimseRSP2;
+    private int maxLookups = 1;
+    private boolean completed;
     private int missing;
     private int different;
     private int matches;
@@ -93,6 +101,25 @@ public class DiffSCUImpl implements DiffSCU {
                 UID.StudyRootQueryRetrieveInformationModelFIND, queryOptions);
         as2 = findSCU.openAssociation(ctx.getLocalAE(), ctx.getSecondaryAE().getAETitle(),
                 UID.StudyRootQueryRetrieveInformationModelFIND, queryOptions);
+        int concurrentQueries = ctx.getConcurrentQueries();
+        if (concurrentQueries > 1) {
+            maxLookups = concurrentQueries;
+            otherAssociations = new ArrayBlockingQueue<>(concurrentQueries);
+            otherAssociations.add(as2);
+            for (int i = 1; i < concurrentQueries; i++)
+                otherAssociations.add(findSCU.openAssociation(ctx.getLocalAE(), ctx.getSecondaryAE().getAETitle(),
+                        UID.StudyRootQueryRetrieveInformationModelFIND, queryOptions));
+        }
+        if (ctx.isSortLocally()) {
+            ctx.supportSorting();
+            spool2 = new StudySpool();
+            dimseRSP2 = spool(spool2, as2);
+            spool1 = new StudySpool();
+            dimseRSP = spool(spool1, as1);
+            LOG.info("Spooled {} C-FIND responses from {} and {} C-FIND responses from {}",
+                    spool1.size(), as1.getRemoteAET(), spool2.size(), as2.getRemoteAET());
+            return checkRSP(dimseRSP);
+        }
         if (!ctx.isForceQueryByStudyUID() && ctx.supportSorting()) {
             dimseRSP2 = findSCU.query(as2, ctx.priority(), ctx.getQueryKeys(), 0, 1, ctx.getSplitStudyDateRange());
             dimseRSP2.next();
@@ -103,44 +130,50 @@ public class DiffSCUImpl implements DiffSCU {
         return checkRSP(dimseRSP);
     }
 
+    private DimseRSP spool(StudySpool spool, Association as) throws Exception {
+        DimseRSP rsp = findSCU.query(as, ctx.priority(), ctx.getQueryKeys(), 0, 1, ctx.getSplitStudyDateRange());
+        rsp.next();
+        checkRSP(rsp);
+        spool.spool(rsp);
+        DimseRSP sortedRSP = spool.sortedRSP();
+        sortedRSP.next();
+        return sortedRSP;
+    }
+
     @Override
     public void countDiffs() throws Exception {
-        do {
-            Attributes match = dimseRSP.getDataset();
-            if (match != null) {
-                matches++;
-                Attributes other = findOther(match.getString(Tag.StudyInstanceUID));
-                if (other == null)
-                    missing++;
-                else if (other.diff(match, ctx.getCompareKeys(),null) > 0)
-                    different++;
-            }
-        } while (dimseRSP.next());
+        Lookup lookup;
+        while ((lookup = nextLookup()) != null) {
+            matches++;
+            Attributes other = lookup.other();
+            if (other == null)
+                missing++;
+            else if (other.diff(lookup.match, ctx.getCompareKeys(),null) > 0)
+                different++;
+        }
     }
 
     @Override
     public Attributes nextDiff() throws Exception {
-        boolean next;
-        do {
-            Attributes match = dimseRSP.getDataset();
-            next = dimseRSP.next();
-            if (match != null) {
-                matches++;
-                Attributes other = findOther(match.getString(Tag.StudyInstanceUID));
-                if (other == null) {
-                    if (ctx.isCheckMissing()) {
-                        missing++;
-                        return addOriginalAttributesSequence(match, modifiedAttributesForMissing());
-                    }
-                } else if (ctx.isCheckDifferent()) {
-                    Attributes modified = new Attributes(match.size());
-                    if (other.diff(match, ctx.getCompareKeys(), modified) > 0) {
-                        different++;
-                        return addOriginalAttributesSequence(match, modified);
-                    }
+        Lookup lookup;
+        while ((lookup = nextLookup()) != null) {
+            Attributes match = lookup.match;
+            matches++;
+            Attributes other = lookup.other();
+            if (other == null) {
+                if (ctx.isCheckMissing()) {
+                    missing++;
+                    return addOriginalAttributesSequence(match, modifiedAttributesForMissing());
+                }
+            } else if (ctx.isCheckDifferent()) {
+                Attributes modified = new Attributes(match.size());
+                if (other.diff(match, ctx.getCompareKeys(), modified) > 0) {
+                    different++;
+                    return addOriginalAttributesSequence(match, modified);
                 }
             }
-        } while (next && !canceled);
+        }
+        waitForOutstandingLookups();
         waitForOutstandingRSP(as1, dimseRSP);
         waitForOutstandingRSP(as2, dimseRSP2);
         return null;
@@ -170,8 +203,16 @@ public class DiffSCUImpl implements DiffSCU {
 
     @Override
     public void close() {
+        waitForOutstandingLookups();
+        if (otherAssociations != null)
+            otherAssociations.forEach(DiffSCUImpl::safeRelease);
+        else
+            safeRelease(as2);
         safeRelease(as1);
-        safeRelease(as2);
+        if (spool1 != null)
+            spool1.close();
+        if (spool2 != null)
+            spool2.close();
     }
 
     private static Attributes modifiedAttributesForMissing() {
@@ -220,6 +261,17 @@ public class DiffSCUImpl implements DiffSCU {
             }
     }
 
+    private void waitForOutstandingLookups() {
+        Lookup lookup;
+        while ((lookup = lookups.poll()) != null)
+            try {
+                lookup.other();
+            } catch (Exception e) {
+                LOG.info("Failed to wait for outstanding C-FIND of Study[uid={}] at {}:\n",
+                        lookup.match.getString(Tag.StudyInstanceUID), ctx.getSecondaryAE().getAETitle(), e);
+            }
+    }
+
     private static void safeRelease(Association as) {
         if (as != null)
             try {
@@ -229,7 +281,41 @@ public class DiffSCUImpl implements DiffSCU {
             }
     }
 
-    private Attributes findOther(String studyIUID) throws Exception {
+    private Lookup nextLookup() throws Exception {
+        while (!canceled && !completed && lookups.size() < maxLookups) {
+            Attributes match = dimseRSP.getDataset();
+            completed = !dimseRSP.next();
+            if (match != null)
+                lookups.add(lookup(match));
+        }
+        return canceled ? null : lookups.poll();
+    }
+
+    private Lookup lookup(Attributes match) throws Exception {
+        String studyIUID = match.getString(Tag.StudyInstanceUID);
+        Lookup lookup = new Lookup(match);
+        Attributes other = findOtherInSortedRSP(studyIUID);
+        if (other != null)
+            lookup.other.complete(other);
+        else if (otherAssociations == null)
+            lookup.other.complete(findOther(as2, studyIUID));
+        else
+            ctx.getLocalAE().getDevice().execute(() -> {
+                try {
+                    Association as = otherAssociations.take();
+                    try {
+                        lookup.other.complete(findOther(as, studyIUID));
+                    } finally {
+                        otherAssociations.offer(as);
+                    }
+                } catch (Throwable e) {
+                    lookup.other.completeExceptionally(e);
+                }
+            });
+        return lookup;
+    }
+
+    private Attributes findOtherInSortedRSP(String studyIUID) throws Exception {
         if (dimseRSP2 != null) {
             do {
                 Attributes other = dimseRSP2.getDataset();
@@ -242,8 +328,32 @@ public class DiffSCUImpl implements DiffSCU {
                 if (compare < 0) break;
             } while (dimseRSP2.next());
         }
-        List<Attributes> matches = findSCU.find(as2, ctx.priority(), QueryRetrieveLevel2.STUDY,
+        return null;
+    }
+
+    private Attributes findOther(Association as, String studyIUID) throws Exception {
+        List<Attributes> matches = findSCU.find(as, ctx.priority(), QueryRetrieveLevel2.STUDY,
                 studyIUID, null, null, ctx.getReturnKeys());
         return !matches.isEmpty() ? matches.get(0) : null;
     }
+
+    private static class Lookup {
+        final Attributes match;
+        final CompletableFuture<Attributes> other = new CompletableFuture<>();
+
+        Lookup(Attributes match) {
+            this.match = match;
+        }
+
+        Attributes other() throws Exception {
+            try {
+                return other.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception)
+                    throw (Exception) cause;
+                throw e;
+            }
+        }
+    }
 }
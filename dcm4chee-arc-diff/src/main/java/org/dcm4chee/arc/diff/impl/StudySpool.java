@@ -0,0 +1,249 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.diff.impl;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomInputStream;
+import org.dcm4che3.io.DicomOutputStream;
+import org.dcm4che3.net.Association;
+import org.dcm4che3.net.DimseRSP;
+import org.dcm4che3.net.Status;
+import org.dcm4che3.util.SafeClose;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Spools C-FIND responses to local files, sorted by Study Instance UID, to merge the results of C-FIND SCPs which
+ * do not support sorting.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+class StudySpool implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StudySpool.class);
+    private static final int CHUNK_SIZE = 10000;
+    private static final Comparator<Attributes> BY_STUDY_IUID =
+            Comparator.comparing(attrs -> attrs.getString(Tag.StudyInstanceUID, ""));
+
+    private final List<Attributes> chunk = new ArrayList<>();
+    private final List<Path> files = new ArrayList<>();
+    private final List<Closeable> readers = new ArrayList<>();
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public void spool(DimseRSP rsp) throws Exception {
+        do {
+            Attributes match = rsp.getDataset();
+            if (match != null) {
+                chunk.add(match);
+                size++;
+                if (chunk.size() == CHUNK_SIZE)
+                    writeChunk();
+            }
+        } while (rsp.next());
+    }
+
+    public DimseRSP sortedRSP() throws IOException {
+        PriorityQueue<Source> sources = new PriorityQueue<>(
+                Math.max(1, files.size() + 1), Comparator.comparing(Source::current, BY_STUDY_IUID));
+        chunk.sort(BY_STUDY_IUID);
+        addTo(sources, new ListSource(chunk));
+        for (Path file : files) {
+            FileSource source = new FileSource(file);
+            readers.add(source);
+            addTo(sources, source);
+        }
+        return new SortedRSP(sources);
+    }
+
+    @Override
+    public void close() {
+        for (Closeable reader : readers)
+            SafeClose.close(reader);
+        for (Path file : files)
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.warn("Failed to delete {}:\n", file, e);
+            }
+    }
+
+    private static void addTo(PriorityQueue<Source> sources, Source source) throws IOException {
+        if (source.advance())
+            sources.add(source);
+    }
+
+    private void writeChunk() throws IOException {
+        chunk.sort(BY_STUDY_IUID);
+        Path file = Files.createTempFile("diff", ".spool");
+        files.add(file);
+        LOG.debug("Spool {} C-FIND responses to {}", chunk.size(), file);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (Attributes attrs : chunk) {
+                bout.reset();
+                try (DicomOutputStream dos = new DicomOutputStream(bout, UID.ExplicitVRLittleEndian)) {
+                    dos.writeDataset(null, attrs);
+                }
+                out.writeInt(bout.size());
+                bout.writeTo(out);
+            }
+        }
+        chunk.clear();
+    }
+
+    private interface Source {
+        Attributes current();
+
+        boolean advance() throws IOException;
+    }
+
+    private static class ListSource implements Source {
+        private final Iterator<Attributes> iter;
+        private Attributes current;
+
+        ListSource(List<Attributes> list) {
+            this.iter = list.iterator();
+        }
+
+        @Override
+        public Attributes current() {
+            return current;
+        }
+
+        @Override
+        public boolean advance() {
+            current = iter.hasNext() ? iter.next() : null;
+            return current != null;
+        }
+    }
+
+    private static class FileSource implements Source, Closeable {
+        private final DataInputStream in;
+        private Attributes current;
+
+        FileSource(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        }
+
+        @Override
+        public Attributes current() {
+            return current;
+        }
+
+        @Override
+        public boolean advance() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                current = null;
+                return false;
+            }
+            byte[] b = new byte[length];
+            in.readFully(b);
+            try (DicomInputStream dis = new DicomInputStream(new ByteArrayInputStream(b), UID.ExplicitVRLittleEndian)) {
+                current = dis.readDataset(-1, -1);
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static class SortedRSP implements DimseRSP {
+        private final PriorityQueue<Source> sources;
+        private Attributes dataset;
+        private boolean completed;
+        private boolean canceled;
+
+        SortedRSP(PriorityQueue<Source> sources) {
+            this.sources = sources;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (completed)
+                return false;
+
+            Source source = canceled ? null : sources.poll();
+            if (source == null) {
+                dataset = null;
+                completed = true;
+            } else {
+                dataset = source.current();
+                addTo(sources, source);
+            }
+            return true;
+        }
+
+        @Override
+        public Attributes getCommand() {
+            Attributes cmd = new Attributes(1);
+            cmd.setInt(Tag.Status, VR.US, dataset != null ? Status.Pending : canceled ? Status.Cancel : Status.Success);
+            return cmd;
+        }
+
+        @Override
+        public Attributes getDataset() {
+            return dataset;
+        }
+
+        @Override
+        public void cancel(Association a) {
+            canceled = true;
+        }
+    }
+}
@@ -62,17 +62,21 @@ import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonReader;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.Pattern;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -84,6 +88,7 @@ import java.util.EnumSet;
 public class QueryRetrieveRS {
 
     private static final Logger LOG = LoggerFactory.getLogger(QueryRetrieveRS.class);
+    private static final int RETRIEVE_TASKS_CHUNK_SIZE = 1000;
 
     @Context
     private HttpServletRequest request;
@@ -207,6 +212,90 @@ public class QueryRetrieveRS {
         return builder.build();
     }
 
+    @POST
+    @Path("/studies/export/dicom:{destinationAET}")
+    @Consumes({"application/x-ndjson", "text/csv"})
+    @Produces("application/x-ndjson")
+    public Response retrieveStudies(
+            @PathParam("destinationAET") String destAET,
+            @QueryParam("field") @Pattern(regexp = "[1-9][0-9]*") String field,
+            InputStream in) throws Exception {
+        logRequest();
+        checkAE(aet, device.getApplicationEntity(aet, true));
+        checkAE(externalAET, aeCache.get(externalAET));
+        List<String> studyUIDs = request.getContentType().startsWith("text/csv")
+                ? readStudyUIDsFromCSV(in, parseInt(field, 1))
+                : readStudyUIDsFromNDJSON(in);
+        if (studyUIDs.isEmpty())
+            return Response.noContent().header("Warning", "Empty file").build();
+
+        return Response.accepted((StreamingOutput) out -> {
+            Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            String queueSizeLimitExceeded = null;
+            for (int from = 0; from < studyUIDs.size(); from += RETRIEVE_TASKS_CHUNK_SIZE) {
+                List<String> chunk = studyUIDs.subList(from,
+                        Math.min(from + RETRIEVE_TASKS_CHUNK_SIZE, studyUIDs.size()));
+                List<ExternalRetrieveContext> ctxs = new ArrayList<>(chunk.size());
+                for (String studyUID : chunk)
+                    if (queueSizeLimitExceeded == null && UIDUtils.isValid(studyUID))
+                        ctxs.add(createExtRetrieveCtx(destAET, studyUID));
+                boolean[] scheduled = new boolean[ctxs.size()];
+                if (!ctxs.isEmpty())
+                    try {
+                        scheduled = retrieveManager.scheduleRetrieveTasks(priority(), ctxs, batchID);
+                    } catch (QueueSizeLimitExceededException e) {
+                        queueSizeLimitExceeded = e.getMessage();
+                    }
+                int i = 0;
+                for (String studyUID : chunk)
+                    writeOutcome(w, studyUID,
+                            !UIDUtils.isValid(studyUID) ? "INVALID_UID"
+                            : queueSizeLimitExceeded != null ? "QUEUE_SIZE_LIMIT_EXCEEDED"
+                            : scheduled[i++] ? "SCHEDULED"
+                            : "ALREADY_SCHEDULED");
+                w.flush();
+            }
+        }).build();
+    }
+
+    private static List<String> readStudyUIDsFromCSV(InputStream in, int field) throws IOException {
+        List<String> studyUIDs = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = StringUtils.split(line, ',');
+            String studyUID = fields.length >= field ? fields[field - 1].replaceAll("\"", "").trim() : "";
+            if (!studyUIDs.isEmpty() || UIDUtils.isValid(studyUID))
+                studyUIDs.add(studyUID);
+        }
+        return studyUIDs;
+    }
+
+    private static List<String> readStudyUIDsFromNDJSON(InputStream in) throws IOException {
+        List<String> studyUIDs = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty())
+                continue;
+            try (JsonReader jsonReader = Json.createReader(new StringReader(line))) {
+                studyUIDs.add(jsonReader.readObject().getString("StudyInstanceUID", ""));
+            } catch (JsonException e) {
+                throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Invalid NDJSON line: " + line).build());
+            }
+        }
+        return studyUIDs;
+    }
+
+    private static void writeOutcome(Writer w, String studyUID, String outcome) throws IOException {
+        w.write("{\"StudyInstanceUID\":\"");
+        w.write(studyUID.replace("\\", "\\\\").replace("\"", "\\\""));
+        w.write("\",\"outcome\":\"");
+        w.write(outcome);
+        w.write("\"}\n");
+    }
+
     private ApplicationEntity checkAE(String aet, ApplicationEntity ae) {
         if (ae == null || !ae.isInstalled())
             throw new WebApplicationException(errResponse(
@@ -209,6 +209,10 @@ public class Patient {
         return pk;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public Date getCreatedTime() {
         return createdTime;
     }
@@ -460,6 +460,16 @@ public class QueueMessage {
         return baos.toByteArray();
     }
 
+    public String getStringProperty(String name) {
+        String key = "\"" + name + "\":\"";
+        int before = messageProperties.indexOf(key);
+        if (before < 0)
+            return null;
+
+        before += key.length();
+        return messageProperties.substring(before, messageProperties.indexOf('"', before));
+    }
+
     public void updateExporterIDInMessageProperties() {
         if (exportTask == null)
             return;
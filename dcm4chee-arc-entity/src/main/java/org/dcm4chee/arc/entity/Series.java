@@ -242,6 +242,13 @@ import java.util.stream.Stream;
         name=Series.CLAIM_COMPRESSION,
         query = "update Series se set se.compressionTime = null " +
                 "where se.pk = ?1 and se.compressionTime is not null")
+,
+@NamedQuery(
+        name=Series.FIND_VERSIONS_BY_PKS,
+        query = "select se.pk, se.version, st.version, p.version from Series se " +
+                "join se.study st " +
+                "join st.patient p " +
+                "where se.pk in ?1")
 })
 @Entity
 @Table(name = "series",
@@ -310,6 +317,7 @@ public class Series {
     public static final String UPDATE_COMPRESSION_FAILURES = "Series.updateCompressionFailures";
     public static final String UPDATE_COMPRESSION_FAILURES_AND_TSUID = "Series.updateCompressionFailuresAndTSUID";
     public static final String UPDATE_COMPRESSION_COMPLETED = "Series.updateCompressionCompleted";
+    public static final String FIND_VERSIONS_BY_PKS = "Series.findVersionsByPks";
 
     private static final long MILLIS_PER_DAY = 24 * 3600_000;
 
@@ -588,6 +596,10 @@ public class Series {
         return pk;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public Date getCreatedTime() {
         return createdTime;
     }
@@ -348,6 +348,10 @@ public class Study {
         return pk;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public Date getCreatedTime() {
         return createdTime;
     }
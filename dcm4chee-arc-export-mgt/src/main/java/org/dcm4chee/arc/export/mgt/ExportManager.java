@@ -47,9 +47,8 @@ import org.dcm4chee.arc.entity.ExportTask;
 import org.dcm4chee.arc.entity.QueueMessage;
 import org.dcm4chee.arc.event.QueueMessageEvent;
 import org.dcm4chee.arc.qmgt.*;
-import org.dcm4chee.arc.store.StoreContext;
 
-import javax.enterprise.event.Observes;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -59,7 +58,7 @@ import java.util.List;
  * @since Feb 2016
  */
 public interface ExportManager {
-    void onStore(@Observes StoreContext ctx);
+    void createOrUpdateExportTasks(Collection<ExportTask> tasks);
 
     int scheduleExportTasks(int fetchSize);
 
@@ -59,8 +59,6 @@ import org.dcm4chee.arc.event.QueueMessageEvent;
 import org.dcm4chee.arc.export.mgt.*;
 import org.dcm4chee.arc.qmgt.*;
 import org.dcm4chee.arc.query.QueryService;
-import org.dcm4chee.arc.store.StoreContext;
-import org.dcm4chee.arc.store.StoreSession;
 import org.hibernate.Session;
 import org.hibernate.StatelessSession;
 import org.slf4j.Logger;
@@ -69,7 +67,6 @@ import org.slf4j.LoggerFactory;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
-import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.jms.JMSException;
 import javax.jms.JMSRuntimeException;
@@ -116,44 +113,17 @@ public class ExportManagerEJB implements ExportManager {
     };
 
     @Override
-    public void onStore(@Observes StoreContext ctx) {
-        if (ctx.getLocations().isEmpty() || ctx.getException() != null)
-            return;
-
-        StoreSession session = ctx.getStoreSession();
-        String hostname = session.getRemoteHostName();
-        String sendingAET = session.getCallingAET();
-        String receivingAET = session.getCalledAET();
-        Calendar now = Calendar.getInstance();
-        ArchiveAEExtension arcAE = session.getArchiveAEExtension();
-        ArchiveDeviceExtension arcDev = arcAE.getArchiveDeviceExtension();
-        for (Map.Entry<String, ExportRule> entry
-                : arcAE.findExportRules(hostname, sendingAET, receivingAET, ctx.getAttributes(), now).entrySet()) {
-            String exporterID = entry.getKey();
-            ExportRule rule = entry.getValue();
-            ExporterDescriptor desc = arcDev.getExporterDescriptorNotNull(exporterID);
-            Date scheduledTime = scheduledTime(now, rule.getExportDelay(), desc.getSchedules());
-            switch (rule.getEntity()) {
-                case Study:
-                    createOrUpdateStudyExportTask(exporterID, ctx.getStudyInstanceUID(), scheduledTime);
-                    if (rule.isExportPreviousEntity() && ctx.isPreviousDifferentStudy())
-                        createOrUpdateStudyExportTask(exporterID,
-                                ctx.getPreviousInstance().getSeries().getStudy().getStudyInstanceUID(), scheduledTime);
-                    break;
-                case Series:
-                    createOrUpdateSeriesExportTask(exporterID, ctx.getStudyInstanceUID(), ctx.getSeriesInstanceUID(),
-                            scheduledTime);
-                    if (rule.isExportPreviousEntity() && ctx.isPreviousDifferentSeries())
-                        createOrUpdateSeriesExportTask(exporterID,
-                                ctx.getPreviousInstance().getSeries().getStudy().getStudyInstanceUID(),
-                                ctx.getPreviousInstance().getSeries().getSeriesInstanceUID(),
-                                scheduledTime);
-                    break;
-                case Instance:
-                    createOrUpdateInstanceExportTask(exporterID, ctx.getStudyInstanceUID(), ctx.getSeriesInstanceUID(),
-                            ctx.getSopInstanceUID(), scheduledTime);
-                    break;
-            }
+    public void createOrUpdateExportTasks(Collection<ExportTask> tasks) {
+        for (ExportTask task : tasks) {
+            if ("*".equals(task.getSeriesInstanceUID()))
+                createOrUpdateStudyExportTask(task.getExporterID(), task.getStudyInstanceUID(),
+                        task.getScheduledTime());
+            else if ("*".equals(task.getSopInstanceUID()))
+                createOrUpdateSeriesExportTask(task.getExporterID(), task.getStudyInstanceUID(),
+                        task.getSeriesInstanceUID(), task.getScheduledTime());
+            else
+                createOrUpdateInstanceExportTask(task.getExporterID(), task.getStudyInstanceUID(),
+                        task.getSeriesInstanceUID(), task.getSopInstanceUID(), task.getScheduledTime());
         }
     }
 
@@ -208,9 +178,11 @@ public class ExportManagerEJB implements ExportManager {
         QueueMessage queueMessage = task.getQueueMessage();
         if (queueMessage != null) {
             if (queueMessage.getStatus() == QueueMessage.Status.SCHEDULED) {
-                queueMessage.setStatus(QueueMessage.Status.CANCELED);
-                LOG.info("Cancel processing of Task[id={}] at Queue {}",
-                        queueMessage.getMessageID(), queueMessage.getQueueName());
+                try {
+                    queueManager.cancelTask(queueMessage.getMessageID(), null);
+                } catch (IllegalTaskStateException e) {
+                    // not thrown for scheduled tasks
+                }
             }
             task.setQueueMessage(null);
         }
@@ -231,15 +203,6 @@ public class ExportManagerEJB implements ExportManager {
         return task;
     }
 
-    private Date scheduledTime(Calendar cal, Duration exportDelay, ScheduleExpression[] schedules) {
-        if (exportDelay != null) {
-            cal = (Calendar) cal.clone();
-            cal.add(Calendar.SECOND, (int) exportDelay.getSeconds());
-        }
-        cal = ScheduleExpression.ceil(cal, schedules);
-        return cal.getTime();
-    }
-
     @Override
     public int scheduleExportTasks(int fetchSize) {
         final List<ExportTask> resultList = em.createNamedQuery(
@@ -303,7 +266,7 @@ public class ExportManagerEJB implements ExportManager {
             throws QueueSizeLimitExceededException {
         QueueMessage queueMessage = queueManager.scheduleMessage(
                 exporter.getQueueName(),
-                createMessage(exportTask, httpServletRequestInfo),
+                createMessage(exportTask, exporter, httpServletRequestInfo),
                 exporter.getPriority(),
                 batchID);
         exportTask.setQueueMessage(queueMessage);
@@ -326,7 +289,8 @@ public class ExportManagerEJB implements ExportManager {
         }
     }
 
-    private ObjectMessage createMessage(ExportTask exportTask, HttpServletRequestInfo httpServletRequestInfo) {
+    private ObjectMessage createMessage(ExportTask exportTask, ExporterDescriptor exporter,
+                                        HttpServletRequestInfo httpServletRequestInfo) {
         ObjectMessage msg = queueManager.createObjectMessage(exportTask.getPk());
         try {
             msg.setStringProperty("StudyInstanceUID", exportTask.getStudyInstanceUID());
@@ -337,6 +301,7 @@ public class ExportManagerEJB implements ExportManager {
                 }
             }
             msg.setStringProperty("ExporterID", exportTask.getExporterID());
+            setMaxConcurrentSubmissions(msg, exporter);
             if (httpServletRequestInfo != null)
                 httpServletRequestInfo.copyTo(msg);
         } catch (JMSException e) {
@@ -345,6 +310,19 @@ public class ExportManagerEJB implements ExportManager {
         return msg;
     }
 
+    /**
+     * Limits concurrent submissions of XDS-I exporters with property {@code MaxConcurrentSubmissions} per repository
+     * URL, shared by all XDS-I exporters to the same repository.
+     */
+    private static void setMaxConcurrentSubmissions(ObjectMessage msg, ExporterDescriptor exporter)
+            throws JMSException {
+        String maxConcurrentSubmissions = exporter.getProperty("MaxConcurrentSubmissions", null);
+        if (maxConcurrentSubmissions != null && "xds-i".equals(exporter.getExportURI().getScheme())) {
+            msg.setStringProperty("Destination", exporter.getExportURI().getSchemeSpecificPart());
+            msg.setStringProperty("MaxTasksPerDestination", maxConcurrentSubmissions);
+        }
+    }
+
     @Override
     @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     public ExportTaskQuery listExportTasks(QueueMessage.Status status, Predicate matchQueueMessage, Predicate matchExportTask,
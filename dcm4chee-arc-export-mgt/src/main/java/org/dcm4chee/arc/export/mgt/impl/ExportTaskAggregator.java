@@ -0,0 +1,267 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.export.mgt.impl;
+
+import org.dcm4che3.net.Association;
+import org.dcm4che3.net.AssociationListener;
+import org.dcm4che3.net.Device;
+import org.dcm4chee.arc.conf.*;
+import org.dcm4chee.arc.entity.ExportTask;
+import org.dcm4chee.arc.export.mgt.ExportManager;
+import org.dcm4chee.arc.store.StoreContext;
+import org.dcm4chee.arc.store.StoreSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates Export Tasks triggered by Export Rules on storage of Instances per Store Session and creates or updates
+ * them in batches on release of the association, or - for Store Sessions without association - after a short delay.
+ * Pending tasks of long lasting associations are flushed on reaching {@link #MAX_PENDING_TASKS} or after
+ * {@link #MAX_PENDING_SECONDS}. If the batch fails, the tasks are created or updated one by one.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@ApplicationScoped
+public class ExportTaskAggregator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExportTaskAggregator.class);
+    private static final int MAX_PENDING_TASKS = 1000;
+    private static final long FLUSH_DELAY_SECONDS = 1;
+    private static final long MAX_PENDING_SECONDS = 10;
+
+    private final Map<StoreSession, PendingTasks> pendingTasks = new ConcurrentHashMap<>();
+
+    @Inject
+    private Device device;
+
+    @Inject
+    private ExportManager exportManager;
+
+    public void onStore(@Observes StoreContext ctx) {
+        if (ctx.getLocations().isEmpty() || ctx.getException() != null)
+            return;
+
+        StoreSession session = ctx.getStoreSession();
+        String hostname = session.getRemoteHostName();
+        String sendingAET = session.getCallingAET();
+        String receivingAET = session.getCalledAET();
+        Calendar now = Calendar.getInstance();
+        ArchiveAEExtension arcAE = session.getArchiveAEExtension();
+        ArchiveDeviceExtension arcDev = arcAE.getArchiveDeviceExtension();
+        List<ExportTask> tasks = new ArrayList<>();
+        for (Map.Entry<String, ExportRule> entry
+                : arcAE.findExportRules(hostname, sendingAET, receivingAET, ctx.getAttributes(), now).entrySet()) {
+            String exporterID = entry.getKey();
+            ExportRule rule = entry.getValue();
+            ExporterDescriptor desc = arcDev.getExporterDescriptorNotNull(exporterID);
+            Date scheduledTime = scheduledTime(now, rule.getExportDelay(), desc.getSchedules());
+            switch (rule.getEntity()) {
+                case Study:
+                    tasks.add(exportTask(exporterID, ctx.getStudyInstanceUID(), "*", "*", scheduledTime));
+                    if (rule.isExportPreviousEntity() && ctx.isPreviousDifferentStudy())
+                        tasks.add(exportTask(exporterID,
+                                ctx.getPreviousInstance().getSeries().getStudy().getStudyInstanceUID(), "*", "*",
+                                scheduledTime));
+                    break;
+                case Series:
+                    tasks.add(exportTask(exporterID, ctx.getStudyInstanceUID(), ctx.getSeriesInstanceUID(), "*",
+                            scheduledTime));
+                    if (rule.isExportPreviousEntity() && ctx.isPreviousDifferentSeries())
+                        tasks.add(exportTask(exporterID,
+                                ctx.getPreviousInstance().getSeries().getStudy().getStudyInstanceUID(),
+                                ctx.getPreviousInstance().getSeries().getSeriesInstanceUID(), "*",
+                                scheduledTime));
+                    break;
+                case Instance:
+                    tasks.add(exportTask(exporterID, ctx.getStudyInstanceUID(), ctx.getSeriesInstanceUID(),
+                            ctx.getSopInstanceUID(), scheduledTime));
+                    break;
+            }
+        }
+        if (!tasks.isEmpty())
+            add(session, tasks);
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        pendingTasks.keySet().forEach(this::flush);
+    }
+
+    private void add(StoreSession session, List<ExportTask> tasks) {
+        Collection<ExportTask> flush;
+        for (;;) {
+            PendingTasks pending = pendingTasks.computeIfAbsent(session, this::newPendingTasks);
+            synchronized (pending) {
+                if (pending.flushed)
+                    continue;
+
+                for (ExportTask task : tasks)
+                    pending.put(task);
+                if (pending.tasks.size() < MAX_PENDING_TASKS) {
+                    if (pending.flushOnClose && !pending.flushScheduled) {
+                        pending.flushScheduled = true;
+                        device.schedule(() -> flushPending(pending), MAX_PENDING_SECONDS, TimeUnit.SECONDS);
+                    }
+                    return;
+                }
+
+                flush = pending.drain(false);
+                break;
+            }
+        }
+        createOrUpdateExportTasks(flush);
+    }
+
+    private PendingTasks newPendingTasks(StoreSession session) {
+        Association as = session.getAssociation();
+        if (as != null) {
+            as.addAssociationListener(new AssociationListener() {
+                @Override
+                public void onClose(Association association) {
+                    flush(session);
+                }
+            });
+        } else {
+            device.schedule(() -> flush(session), FLUSH_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+        return new PendingTasks(as != null);
+    }
+
+    private void flushPending(PendingTasks pending) {
+        Collection<ExportTask> flush;
+        synchronized (pending) {
+            pending.flushScheduled = false;
+            if (pending.flushed)
+                return;
+
+            flush = pending.drain(false);
+        }
+        createOrUpdateExportTasks(flush);
+    }
+
+    private void flush(StoreSession session) {
+        PendingTasks pending = pendingTasks.remove(session);
+        if (pending != null) {
+            Collection<ExportTask> flush;
+            synchronized (pending) {
+                flush = pending.drain(true);
+            }
+            createOrUpdateExportTasks(flush);
+        }
+    }
+
+    private void createOrUpdateExportTasks(Collection<ExportTask> tasks) {
+        if (tasks.isEmpty())
+            return;
+
+        try {
+            exportManager.createOrUpdateExportTasks(tasks);
+            return;
+        } catch (Exception e) {
+            if (tasks.size() == 1) {
+                LOG.warn("Failed to create or update {}:\n", tasks.iterator().next(), e);
+                return;
+            }
+            LOG.info("Failed to create or update {} Export Tasks - create or update them one by one:\n",
+                    tasks.size(), e);
+        }
+        for (ExportTask task : tasks) {
+            try {
+                exportManager.createOrUpdateExportTasks(Collections.singletonList(task));
+            } catch (Exception e) {
+                LOG.warn("Failed to create or update {}:\n", task, e);
+            }
+        }
+    }
+
+    private static ExportTask exportTask(
+            String exporterID, String studyIUID, String seriesIUID, String sopIUID, Date scheduledTime) {
+        ExportTask task = new ExportTask();
+        task.setExporterID(exporterID);
+        task.setStudyInstanceUID(studyIUID);
+        task.setSeriesInstanceUID(seriesIUID);
+        task.setSopInstanceUID(sopIUID);
+        task.setScheduledTime(scheduledTime);
+        return task;
+    }
+
+    private static Date scheduledTime(Calendar cal, Duration exportDelay, ScheduleExpression[] schedules) {
+        if (exportDelay != null) {
+            cal = (Calendar) cal.clone();
+            cal.add(Calendar.SECOND, (int) exportDelay.getSeconds());
+        }
+        cal = ScheduleExpression.ceil(cal, schedules);
+        return cal.getTime();
+    }
+
+    private static class PendingTasks {
+        final Map<String, ExportTask> tasks = new LinkedHashMap<>();
+        final boolean flushOnClose;
+        boolean flushScheduled;
+        boolean flushed;
+
+        PendingTasks(boolean flushOnClose) {
+            this.flushOnClose = flushOnClose;
+        }
+
+        void put(ExportTask task) {
+            String key = task.getExporterID() + '\\' + task.getStudyInstanceUID()
+                    + '\\' + task.getSeriesInstanceUID() + '\\' + task.getSopInstanceUID();
+            tasks.remove(key);
+            tasks.put(key, task);
+        }
+
+        Collection<ExportTask> drain(boolean flushed) {
+            this.flushed = flushed;
+            Collection<ExportTask> drained = new ArrayList<>(tasks.values());
+            tasks.clear();
+            return drained;
+        }
+    }
+}
@@ -43,6 +43,7 @@ package org.dcm4che.arc.export.storage;
 
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.net.ApplicationEntity;
+import org.dcm4che3.net.Device;
 import org.dcm4chee.arc.conf.ArchiveAEExtension;
 import org.dcm4chee.arc.conf.ExporterDescriptor;
 import org.dcm4chee.arc.entity.Location;
@@ -63,8 +64,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -77,13 +79,19 @@ public class StorageExporter extends AbstractExporter {
     private final RetrieveService retrieveService;
     private final StoreService storeService;
     private final StorageFactory storageFactory;
+    private final Device device;
+    private final int concurrency;
+    private final int batchSize;
 
     public StorageExporter(ExporterDescriptor descriptor, RetrieveService retrieveService,
-                           StoreService storeService, StorageFactory storageFactory) {
+                           StoreService storeService, StorageFactory storageFactory, Device device) {
         super(descriptor);
         this.retrieveService = retrieveService;
         this.storeService = storeService;
         this.storageFactory = storageFactory;
+        this.device = device;
+        this.concurrency = Math.max(1, Integer.parseInt(descriptor.getProperty("Concurrency", "1")));
+        this.batchSize = Math.max(1, Integer.parseInt(descriptor.getProperty("BatchSize", "100")));
     }
 
     @Override
@@ -106,43 +114,27 @@ public class StorageExporter extends AbstractExporter {
             if (!retrieveService.calculateMatches(retrieveContext))
                 return new Outcome(QueueMessage.Status.WARNING, noMatches(exportContext));
 
-            Set<String> seriesIUIDs = new HashSet<>();
             Storage storage = retrieveService.getStorage(storageID, retrieveContext);
             retrieveContext.setDestinationStorage(storage.getStorageDescriptor());
-            for (InstanceLocations instanceLocations : retrieveContext.getMatches()) {
-                if (instanceLocations.getLocations().stream()
-                        .filter(l -> l.getStorageID().equals(storageID))
-                        .findAny().isPresent()) {
-                    retrieveContext.setNumberOfMatches(retrieveContext.getNumberOfMatches()-1);
-                    continue;
-                }
-
-                WriteContext writeCtx = storage.createWriteContext();
-                writeCtx.setAttributes(instanceLocations.getAttributes());
-                writeCtx.setStudyInstanceUID(studyIUID);
-                Location location = null;
-                try {
-                    LOG.debug("Start copying {} to {}:\n", instanceLocations, storage.getStorageDescriptor());
-                    location = copyTo(retrieveContext, instanceLocations, storage, writeCtx);
-                    storeService.addLocation(storeSession, instanceLocations.getInstancePk(), location);
-                    storage.commitStorage(writeCtx);
-                    retrieveContext.incrementCompleted();
-                    LOG.debug("Finished copying {} to {}:\n", instanceLocations, storage.getStorageDescriptor());
-                    seriesIUIDs.add(instanceLocations.getAttributes().getString(Tag.SeriesInstanceUID));
-                } catch (Exception e) {
-                    LOG.warn("Failed to copy {} to {}:\n", instanceLocations, storage.getStorageDescriptor(), e);
-                    retrieveContext.addFailedSOPInstanceUID(instanceLocations.getSopInstanceUID());
-                    if (location != null)
-                        try {
-                            storage.revokeStorage(writeCtx);
-                        } catch (IOException e2) {
-                            LOG.warn("Failed to revoke storage", e2);
-                        }
+            if (concurrency > 1)
+                openSourceStorages(retrieveContext);
+            CopyInstances copyInstances = new CopyInstances(retrieveContext, storeSession, storage);
+            try {
+                for (InstanceLocations instanceLocations : retrieveContext.getMatches()) {
+                    if (instanceLocations.getLocations().stream()
+                            .filter(l -> l.getStorageID().equals(storageID))
+                            .findAny().isPresent()) {
+                        retrieveContext.setNumberOfMatches(retrieveContext.getNumberOfMatches()-1);
+                        continue;
+                    }
+                    copyInstances.copy(instanceLocations, studyIUID);
                 }
+            } finally {
+                copyInstances.finish();
             }
-            if (!seriesIUIDs.isEmpty()) {
+            if (!copyInstances.seriesIUIDs.isEmpty()) {
                 storeService.addStorageID(studyIUID, storageID);
-                for (String seriesIUID : seriesIUIDs) {
+                for (String seriesIUID : copyInstances.seriesIUIDs) {
                     storeService.scheduleMetadataUpdate(studyIUID, seriesIUID);
                 }
             }
@@ -153,6 +145,22 @@ public class StorageExporter extends AbstractExporter {
         }
     }
 
+    /**
+     * Opens the storages of all locations of the matching instances on the calling thread, so the copying threads
+     * only look them up in the storage map of the retrieve context, which is not thread-safe.
+     */
+    private void openSourceStorages(RetrieveContext retrieveContext) {
+        Set<String> storageIDs = new HashSet<>();
+        for (InstanceLocations instanceLocations : retrieveContext.getMatches())
+            for (Location location : instanceLocations.getLocations())
+                if (storageIDs.add(location.getStorageID()))
+                    try {
+                        retrieveService.getStorage(location.getStorageID(), retrieveContext);
+                    } catch (RuntimeException e) {
+                        LOG.warn("Failed to open {}:\n", location.getStorageID(), e);
+                    }
+    }
+
     private Location copyTo(RetrieveContext retrieveContext, InstanceLocations instanceLocations,
                             Storage storage, WriteContext writeCtx) throws IOException {
         try (LocationInputStream locationInputStream = retrieveService.openLocationInputStream(
@@ -169,6 +177,149 @@ public class StorageExporter extends AbstractExporter {
         }
     }
 
+    private class CopyInstances {
+        final RetrieveContext retrieveContext;
+        final StoreSession storeSession;
+        final Storage storage;
+        final Semaphore semaphore = new Semaphore(concurrency);
+        final Queue<CopyInstance> copied = new ConcurrentLinkedQueue<>();
+        final Map<String, List<CopyInstance>> pendingBySeries = new HashMap<>();
+        final Set<String> seriesIUIDs = new HashSet<>();
+
+        CopyInstances(RetrieveContext retrieveContext, StoreSession storeSession, Storage storage) {
+            this.retrieveContext = retrieveContext;
+            this.storeSession = storeSession;
+            this.storage = storage;
+        }
+
+        void copy(InstanceLocations instanceLocations, String studyIUID) throws InterruptedException {
+            WriteContext writeCtx = storage.createWriteContext();
+            writeCtx.setAttributes(instanceLocations.getAttributes());
+            writeCtx.setStudyInstanceUID(studyIUID);
+            CopyInstance copyInstance = new CopyInstance(instanceLocations, writeCtx);
+            if (concurrency == 1) {
+                copyInstance.run();
+            } else {
+                semaphore.acquire();
+                try {
+                    device.execute(() -> {
+                        try {
+                            copyInstance.run();
+                        } finally {
+                            semaphore.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    semaphore.release();
+                    throw e;
+                }
+            }
+            registerCopied(false);
+        }
+
+        void finish() {
+            semaphore.acquireUninterruptibly(concurrency);
+            registerCopied(true);
+        }
+
+        private void registerCopied(boolean flush) {
+            CopyInstance copyInstance;
+            while ((copyInstance = copied.poll()) != null) {
+                if (copyInstance.location == null) {
+                    retrieveContext.addFailedSOPInstanceUID(copyInstance.instanceLocations.getSopInstanceUID());
+                    continue;
+                }
+                List<CopyInstance> pending = pendingBySeries.computeIfAbsent(
+                        copyInstance.seriesIUID(), seriesIUID -> new ArrayList<>(batchSize));
+                pending.add(copyInstance);
+                if (pending.size() >= batchSize) {
+                    addLocations(pending);
+                    pending.clear();
+                }
+            }
+            if (flush) {
+                for (List<CopyInstance> pending : pendingBySeries.values())
+                    if (!pending.isEmpty())
+                        addLocations(pending);
+                pendingBySeries.clear();
+            }
+        }
+
+        private void addLocations(List<CopyInstance> batch) {
+            Map<Long, Location> locationByInstancePk = new LinkedHashMap<>();
+            for (CopyInstance copyInstance : batch)
+                locationByInstancePk.put(copyInstance.instanceLocations.getInstancePk(),
+                        new Location(copyInstance.location));
+            try {
+                storeService.addLocations(storeSession, locationByInstancePk);
+                for (CopyInstance copyInstance : batch)
+                    commitStorage(copyInstance);
+            } catch (Exception e) {
+                LOG.info("Failed to add {} Locations on {} in one transaction - add them separately:\n",
+                        batch.size(), storage.getStorageDescriptor(), e);
+                for (CopyInstance copyInstance : batch) {
+                    try {
+                        storeService.addLocation(storeSession, copyInstance.instanceLocations.getInstancePk(),
+                                copyInstance.location);
+                        commitStorage(copyInstance);
+                    } catch (Exception e1) {
+                        failed(copyInstance, e1);
+                    }
+                }
+            }
+        }
+
+        private void commitStorage(CopyInstance copyInstance) {
+            try {
+                storage.commitStorage(copyInstance.writeCtx);
+                retrieveContext.incrementCompleted();
+                LOG.debug("Finished copying {} to {}:\n",
+                        copyInstance.instanceLocations, storage.getStorageDescriptor());
+                seriesIUIDs.add(copyInstance.seriesIUID());
+            } catch (Exception e) {
+                failed(copyInstance, e);
+            }
+        }
+
+        private void failed(CopyInstance copyInstance, Exception e) {
+            LOG.warn("Failed to copy {} to {}:\n",
+                    copyInstance.instanceLocations, storage.getStorageDescriptor(), e);
+            retrieveContext.addFailedSOPInstanceUID(copyInstance.instanceLocations.getSopInstanceUID());
+            try {
+                storage.revokeStorage(copyInstance.writeCtx);
+            } catch (IOException e2) {
+                LOG.warn("Failed to revoke storage", e2);
+            }
+        }
+
+        private class CopyInstance implements Runnable {
+            final InstanceLocations instanceLocations;
+            final WriteContext writeCtx;
+            Location location;
+
+            CopyInstance(InstanceLocations instanceLocations, WriteContext writeCtx) {
+                this.instanceLocations = instanceLocations;
+                this.writeCtx = writeCtx;
+            }
+
+            String seriesIUID() {
+                return instanceLocations.getAttributes().getString(Tag.SeriesInstanceUID);
+            }
+
+            @Override
+            public void run() {
+                try {
+                    LOG.debug("Start copying {} to {}:\n", instanceLocations, storage.getStorageDescriptor());
+                    location = copyTo(retrieveContext, instanceLocations, storage, writeCtx);
+                } catch (Exception e) {
+                    LOG.warn("Failed to copy {} to {}:\n", instanceLocations, storage.getStorageDescriptor(), e);
+                } finally {
+                    copied.add(this);
+                }
+            }
+        }
+    }
+
     private String noMatches(ExportContext exportContext) {
         StringBuilder sb = new StringBuilder(256);
         sb.append("Could not find ");
@@ -41,6 +41,7 @@
 
 package org.dcm4che.arc.export.storage;
 
+import org.dcm4che3.net.Device;
 import org.dcm4chee.arc.conf.ExporterDescriptor;
 import org.dcm4chee.arc.exporter.Exporter;
 import org.dcm4chee.arc.exporter.ExporterProvider;
@@ -69,8 +70,11 @@ public class StorageExporterProvider implements ExporterProvider {
     @Inject
     private StorageFactory storageFactory;
 
+    @Inject
+    private Device device;
+
     @Override
     public Exporter getExporter(ExporterDescriptor descriptor) {
-        return new StorageExporter(descriptor, retrieveService, storeService, storageFactory);
+        return new StorageExporter(descriptor, retrieveService, storeService, storageFactory, device);
     }
 }
@@ -47,11 +47,13 @@ import org.dcm4che3.net.Device;
 import org.dcm4che3.util.SafeClose;
 import org.dcm4che3.util.StreamUtils;
 import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.Duration;
 import org.dcm4chee.arc.conf.ExporterDescriptor;
 import org.dcm4chee.arc.conf.StorageDescriptor;
 import org.dcm4chee.arc.entity.QueueMessage;
 import org.dcm4chee.arc.exporter.AbstractExporter;
 import org.dcm4chee.arc.exporter.ExportContext;
+import org.dcm4chee.arc.keycloak.HttpClientPool;
 import org.dcm4chee.arc.qmgt.Outcome;
 import org.dcm4chee.arc.query.QueryService;
 import org.dcm4chee.arc.storage.Storage;
@@ -60,13 +62,20 @@ import org.dcm4chee.arc.storage.WriteContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -79,12 +88,24 @@ public class WadoExporter extends AbstractExporter {
     private static final int COPY_BUFFER_SIZE = 8192;
     private final QueryService queryService;
     private final StorageFactory storageFactory;
+    private final HttpClientPool httpClientPool;
+    private final Device device;
+    private final Semaphore permits;
+    private final int retries;
+    private final long retryDelayMillis;
     private final EnumMap<Entity,List<WadoRequest>> wadoRequests = new EnumMap<>(Entity.class);
 
-    public WadoExporter(ExporterDescriptor descriptor, QueryService queryService, StorageFactory storageFactory, Device device) {
+    public WadoExporter(ExporterDescriptor descriptor, QueryService queryService, StorageFactory storageFactory,
+                        HttpClientPool httpClientPool, Device device, Semaphore permits) {
         super(descriptor);
         this.queryService = queryService;
         this.storageFactory = storageFactory;
+        this.httpClientPool = httpClientPool;
+        this.device = device;
+        this.permits = permits;
+        this.retries = Integer.parseInt(descriptor.getProperty("Retries", "0"));
+        Duration retryDelay = Duration.valueOf(descriptor.getProperty("RetryDelay", "PT1S"));
+        this.retryDelayMillis = retryDelay.getSeconds() * 1000L + retryDelay.getNano() / 1000000;
         EnumMap<HeaderField, String> headerFields0 = getHeaderFields(0, new EnumMap<>(HeaderField.class));
         String storageID = descriptor.getProperty("StorageID", null);
         addWadoRequest(descriptor.getExportURI().getSchemeSpecificPart(), headerFields0,
@@ -131,66 +152,137 @@ public class WadoExporter extends AbstractExporter {
 
     @Override
     public Outcome export(ExportContext exportContext) throws Exception {
-        byte[] buffer = new byte[COPY_BUFFER_SIZE];
-        int count = 0;
-        int failed = 0;
-        Exception ex = null;
-        HashMap<String, Storage> storageMap = new HashMap<>();
+        Fetches fetches = new Fetches();
         try {
             for (Map.Entry<Entity, List<WadoRequest>> entry : wadoRequests.entrySet()) {
                 for (Object[] params : entry.getKey().queryParams(exportContext, queryService)) {
                     for (WadoRequest wadoRequest : entry.getValue()) {
+                        String url = wadoRequest.format.format(params);
+                        permits.acquire();
+                        fetches.phaser.register();
                         try {
-                            if (invoke(wadoRequest, params, buffer, storageMap))
-                                count++;
-                        } catch (Exception e) {
-                            failed++;
-                            ex = e;
+                            device.execute(() -> fetch(wadoRequest, url, params, fetches, 0));
+                        } catch (RuntimeException e) {
+                            fetches.phaser.arriveAndDeregister();
+                            permits.release();
+                            throw e;
                         }
                     }
                 }
             }
         } finally {
-            for (Storage storage : storageMap.values())
+            fetches.phaser.arriveAndAwaitAdvance();
+            for (Storage storage : fetches.storageMap.values())
                 SafeClose.close(storage);
         }
 
         String exporterID = exportContext.getExporter().getExporterDescriptor().getExporterID();
-        if (failed == 0) {
+        if (fetches.failed.get() == 0) {
             return new Outcome(QueueMessage.Status.COMPLETED,
-                    "Fetched " + count + " objects by WADO Exporter " + exporterID);
+                    "Fetched " + fetches.count + " objects by WADO Exporter " + exporterID);
         }
-        if (count > 0) {
+        if (fetches.count.get() > 0) {
             return new Outcome(QueueMessage.Status.WARNING,
-                    "Fetched " + count + " objects by WADO Exporter " + exporterID
-                            + ", failed: " + failed + " - " + ex.getMessage());
+                    "Fetched " + fetches.count + " objects by WADO Exporter " + exporterID
+                            + ", failed: " + fetches.failed + " - " + fetches.ex.get().getMessage());
         }
-        throw ex;
+        throw fetches.ex.get();
     }
 
-    private boolean invoke(WadoRequest request, Object[] params, byte[] buffer, Map<String, Storage> storageMap)
-            throws Exception {
-        HttpURLConnection httpConn = request.openConnection(params);
-        int responseCode = httpConn.getResponseCode();
-        if (responseCode == HttpURLConnection.HTTP_NOT_FOUND)
+    /**
+     * Fetches one object on a device executor thread. A retryable failure is retried by scheduling another attempt
+     * after the retry delay, without blocking the executor thread; the permit of the exporter is kept until the last
+     * attempt has completed.
+     */
+    private void fetch(WadoRequest request, String url, Object[] params, Fetches fetches, int retry) {
+        try {
+            if (invoke(request, url, params, fetches.storageMap))
+                fetches.count.incrementAndGet();
+        } catch (RetryableException | ProcessingException e) {
+            if (retry < retries && scheduleRetry(request, url, params, fetches, retry, e))
+                return;
+            fetches.failed(url, e);
+        } catch (Exception e) {
+            fetches.failed(url, e);
+        }
+        fetches.phaser.arriveAndDeregister();
+        permits.release();
+    }
+
+    private boolean scheduleRetry(WadoRequest request, String url, Object[] params, Fetches fetches, int retry,
+                                  Exception e) {
+        long delay = retryDelayMillis << retry;
+        LOG.info("Failed to fetch {} - retry in {} ms:\n", url, delay, e);
+        try {
+            device.schedule(() -> device.execute(() -> fetch(request, url, params, fetches, retry + 1)),
+                    delay, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RuntimeException e2) {
+            LOG.warn("Failed to schedule retry to fetch {}:\n", url, e2);
             return false;
-        try (InputStream in = httpConn.getInputStream();
-             OutputStream out = getOutputStream(request.storageDescriptor, params, storageMap)) {
-            StreamUtils.copy(in, out, buffer);
+        }
+    }
+
+    private boolean invoke(WadoRequest request, String url, Object[] params, Map<String, Storage> storageMap)
+            throws Exception {
+        Response response = request.invocation(httpClientPool, url).get();
+        try {
+            int status = response.getStatus();
+            if (status == Response.Status.NOT_FOUND.getStatusCode())
+                return false;
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                String msg = "Server returned HTTP response code: " + status + " for URL: " + url;
+                throw status >= 500 || status == 429 ? new RetryableException(msg) : new IOException(msg);
+            }
+            try (InputStream in = response.readEntity(InputStream.class)) {
+                if (request.storageDescriptor != null)
+                    store(in, request.storageDescriptor, params, storageMap);
+                else try {
+                    StreamUtils.copy(in, null, new byte[COPY_BUFFER_SIZE]);
+                } catch (IOException e) {
+                    throw new RetryableException(e);
+                }
+            }
+        } finally {
+            response.close();
         }
         return true;
     }
 
-    private OutputStream getOutputStream(
-            StorageDescriptor storageDescriptor, Object[] params, Map<String, Storage> storageMap) throws IOException {
-        if (storageDescriptor == null)
-            return null;
+    /**
+     * Stores the fetched object. Only failures reading the HTTP response are thrown as {@link RetryableException};
+     * failures writing to the storage are not retried.
+     */
+    private void store(InputStream in, StorageDescriptor storageDescriptor, Object[] params,
+                       Map<String, Storage> storageMap) throws IOException {
+        Storage storage = storageMap.computeIfAbsent(storageDescriptor.getStorageID(),
+                storageID -> storageFactory.getStorage(storageDescriptor));
+        WriteContext ctx = createWriteContext(storage, params);
+        try (OutputStream out = storage.openOutputStream(ctx)) {
+            byte[] buf = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = read(in, buf)) > 0)
+                out.write(buf, 0, read);
+        } catch (IOException e) {
+            if (ctx.getStoragePath() != null)
+                try {
+                    storage.revokeStorage(ctx);
+                } catch (IOException e2) {
+                    LOG.warn("Failed to revoke storage of {}:\n", ctx.getStoragePath(), e2);
+                }
+            throw e;
+        }
+    }
 
-        Storage storage = storageMap.get(storageDescriptor.getStorageID());
-        if (storage == null) {
-            storage = storageFactory.getStorage(storageDescriptor);
-            storageMap.put(storageDescriptor.getStorageID(), storage);
+    private static int read(InputStream in, byte[] buf) throws RetryableException {
+        try {
+            return in.read(buf);
+        } catch (IOException e) {
+            throw new RetryableException(e);
         }
+    }
+
+    private static WriteContext createWriteContext(Storage storage, Object[] params) {
         WriteContext ctx = storage.createWriteContext();
         Attributes attrs = new Attributes(params.length);
         switch (params.length) {
@@ -204,7 +296,7 @@ public class WadoExporter extends AbstractExporter {
                 attrs.setString(Tag.StudyInstanceUID, VR.UI, (String) params[0]);
         }
         ctx.setAttributes(attrs);
-        return storage.openOutputStream(ctx);
+        return ctx;
     }
 
     private enum Entity {
@@ -281,13 +373,36 @@ public class WadoExporter extends AbstractExporter {
             this.storageDescriptor = storageDescriptor;
         }
 
-        public HttpURLConnection openConnection(Object[] params) throws Exception {
-            URL url = new URL(format.format(params));
-            HttpURLConnection httpConn = (HttpURLConnection) url.openConnection();
+        public Invocation.Builder invocation(HttpClientPool httpClientPool, String url) throws Exception {
+            Invocation.Builder request = httpClientPool.target(url).request();
             for (Map.Entry<HeaderField, String> entry : headerFields.entrySet()) {
-                httpConn.setRequestProperty(entry.getKey().toString(), entry.getValue());
+                request.header(entry.getKey().toString(), entry.getValue());
             }
-            return httpConn;
+            return request;
+        }
+    }
+
+    private static class Fetches {
+        final Phaser phaser = new Phaser(1);
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicReference<Exception> ex = new AtomicReference<>();
+        final Map<String, Storage> storageMap = new ConcurrentHashMap<>();
+
+        void failed(String url, Exception e) {
+            LOG.warn("Failed to fetch {}:\n", url, e);
+            failed.incrementAndGet();
+            ex.set(e);
+        }
+    }
+
+    private static class RetryableException extends IOException {
+        RetryableException(String message) {
+            super(message);
+        }
+
+        RetryableException(Throwable cause) {
+            super(cause);
         }
     }
 }
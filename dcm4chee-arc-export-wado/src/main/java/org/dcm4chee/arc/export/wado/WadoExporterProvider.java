@@ -44,12 +44,16 @@ import org.dcm4che3.net.Device;
 import org.dcm4chee.arc.conf.ExporterDescriptor;
 import org.dcm4chee.arc.exporter.Exporter;
 import org.dcm4chee.arc.exporter.ExporterProvider;
+import org.dcm4chee.arc.keycloak.HttpClientPool;
 import org.dcm4chee.arc.query.QueryService;
 import org.dcm4chee.arc.storage.StorageFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -68,8 +72,29 @@ public class WadoExporterProvider implements ExporterProvider {
     @Inject
     private Device device;
 
+    @Inject
+    private HttpClientPool httpClientPool;
+
+    private final Map<String, Permits> permits = new ConcurrentHashMap<>();
+
     @Override
     public Exporter getExporter(ExporterDescriptor descriptor) {
-        return new WadoExporter(descriptor, queryService, storageFactory, device);
+        return new WadoExporter(descriptor, queryService, storageFactory, httpClientPool, device,
+                permitsOf(descriptor));
+    }
+
+    private Semaphore permitsOf(ExporterDescriptor descriptor) {
+        int concurrency = Math.max(1, Integer.parseInt(descriptor.getProperty("Concurrency", "1")));
+        return permits.compute(descriptor.getExporterID(), (exporterID, prev) ->
+                prev != null && prev.concurrency == concurrency ? prev : new Permits(concurrency));
+    }
+
+    private static class Permits extends Semaphore {
+        final int concurrency;
+
+        Permits(int concurrency) {
+            super(concurrency);
+            this.concurrency = concurrency;
+        }
     }
 }
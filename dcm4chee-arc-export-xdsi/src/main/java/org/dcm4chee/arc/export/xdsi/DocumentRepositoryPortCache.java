@@ -0,0 +1,111 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.export.xdsi;
+
+import org.apache.cxf.configuration.jsse.TLSClientParameters;
+import org.dcm4che3.xdsi.DocumentRepositoryPortType;
+import org.dcm4che3.xdsi.DocumentRepositoryService;
+import org.dcm4che3.xdsi.XDSUtils;
+import org.dcm4chee.arc.event.ArchiveServiceEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.xml.ws.soap.AddressingFeature;
+import javax.xml.ws.soap.MTOMFeature;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches configured Document Repository ports per XDS-I Exporter and repository URL, so connections and TLS sessions
+ * are reused between submissions.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@ApplicationScoped
+class DocumentRepositoryPortCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DocumentRepositoryPortCache.class);
+
+    private final DocumentRepositoryService service = new DocumentRepositoryService();
+    private final Map<String, DocumentRepositoryPortType> ports = new ConcurrentHashMap<>();
+
+    public void onArchiveServiceEvent(@Observes ArchiveServiceEvent event) {
+        if (event.getType() == ArchiveServiceEvent.Type.RELOADED) {
+            ports.clear();
+        }
+    }
+
+    DocumentRepositoryPortType getPort(String exporterID, String repositoryURL,
+            Callable<TLSClientParameters> tlsClientParams) throws Exception {
+        String key = exporterID + '@' + repositoryURL;
+        DocumentRepositoryPortType port = ports.get(key);
+        if (port == null) {
+            synchronized (ports) {
+                port = ports.get(key);
+                if (port == null) {
+                    port = createPort(repositoryURL, tlsClientParams);
+                    ports.put(key, port);
+                    LOG.info("Created Document Repository port for {}", key);
+                }
+            }
+        }
+        return port;
+    }
+
+    private DocumentRepositoryPortType createPort(String repositoryURL,
+            Callable<TLSClientParameters> tlsClientParams) throws Exception {
+        DocumentRepositoryPortType port;
+        synchronized (service) {
+            port = service.getDocumentRepositoryPortSoap12(
+                    new AddressingFeature(true, true),
+                    new MTOMFeature());
+        }
+        XDSUtils.ensureMustUnderstandHandler(port);
+        XDSUtils.setEndpointAddress(port, repositoryURL);
+        if (repositoryURL.startsWith("https"))
+            XDSUtils.setTlsClientParameters(port, tlsClientParams.call());
+        return port;
+    }
+}
@@ -58,8 +58,6 @@ import org.dcm4che3.xdsi.*;
 
 import javax.enterprise.event.Event;
 import javax.xml.bind.JAXBElement;
-import javax.xml.ws.soap.AddressingFeature;
-import javax.xml.ws.soap.MTOMFeature;
 import java.io.File;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
@@ -118,7 +116,7 @@ public class XDSiExporter extends AbstractExporter {
             UID.DICOMUIDRegistry, null,
             UID.KeyObjectSelectionDocumentStorage);
 
-    private final DocumentRepositoryService service;
+    private final DocumentRepositoryPortCache portCache;
     private final QueryService queryService;
     private final Device device;
     private final Event<ExportContext> exportEvent;
@@ -157,10 +155,10 @@ public class XDSiExporter extends AbstractExporter {
     private Code typeCode;
     private int id;
 
-    public XDSiExporter(ExporterDescriptor descriptor, DocumentRepositoryService service, QueryService queryService,
-                        Device device, Event<ExportContext> exportEvent) {
+    public XDSiExporter(ExporterDescriptor descriptor, DocumentRepositoryPortCache portCache,
+                        QueryService queryService, Device device, Event<ExportContext> exportEvent) {
         super(descriptor);
-        this.service = service;
+        this.portCache = portCache;
         this.queryService = queryService;
         this.device = device;
         this.exportEvent = exportEvent;
@@ -220,7 +218,7 @@ public class XDSiExporter extends AbstractExporter {
                     out.writeDataset(manifest.createFileMetaInformation(UID.ExplicitVRLittleEndian), manifest);
                 }
             }
-            RegistryResponseType rsp = port().documentRepositoryProvideAndRegisterDocumentSetB(createRequest());
+            RegistryResponseType rsp = provideAndRegister(createRequest());
             ctx.setXDSiRegistryResponse(rsp);
             switch (rsp.getStatus()) {
                 case XDS_STATUS_SUCCESS:
@@ -318,15 +316,10 @@ public class XDSiExporter extends AbstractExporter {
         return pid.toString();
     }
 
-    private DocumentRepositoryPortType port() throws Exception {
-        DocumentRepositoryPortType port = service.getDocumentRepositoryPortSoap12(
-                new AddressingFeature(true, true),
-                new MTOMFeature());
-        XDSUtils.ensureMustUnderstandHandler(port);
-        XDSUtils.setEndpointAddress(port, repositoryURL);
-        if (repositoryURL.startsWith("https"))
-            XDSUtils.setTlsClientParameters(port, tlsClientParams());
-        return port;
+    private RegistryResponseType provideAndRegister(ProvideAndRegisterDocumentSetRequestType request)
+            throws Exception {
+        return portCache.getPort(descriptor.getExporterID(), repositoryURL, this::tlsClientParams)
+                .documentRepositoryProvideAndRegisterDocumentSetB(request);
     }
 
     private TLSClientParameters tlsClientParams() throws GeneralSecurityException, IOException {
@@ -44,7 +44,6 @@ import org.dcm4chee.arc.exporter.ExportContext;
 import org.dcm4chee.arc.exporter.Exporter;
 import org.dcm4chee.arc.exporter.ExporterProvider;
 import org.dcm4chee.arc.query.QueryService;
-import org.dcm4che3.xdsi.DocumentRepositoryService;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Event;
@@ -59,7 +58,8 @@ import javax.inject.Named;
 @Named("xds-i")
 public class XDSiExporterProvider implements ExporterProvider {
 
-    private DocumentRepositoryService service = new DocumentRepositoryService();
+    @Inject
+    private DocumentRepositoryPortCache portCache;
 
     @Inject
     private QueryService queryService;
@@ -72,6 +72,6 @@ public class XDSiExporterProvider implements ExporterProvider {
 
     @Override
     public Exporter getExporter(ExporterDescriptor descriptor) {
-        return new XDSiExporter(descriptor, service, queryService, device, exportEvent);
+        return new XDSiExporter(descriptor, portCache, queryService, device, exportEvent);
     }
 }
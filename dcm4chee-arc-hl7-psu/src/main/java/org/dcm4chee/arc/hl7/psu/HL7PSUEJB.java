@@ -97,18 +97,19 @@ public class HL7PSUEJB {
         LOG.info("{}: Created {}", ctx, task);
     }
 
-    public boolean createOrUpdateHL7PSUTaskForStudy(ArchiveAEExtension arcAE, StoreContext ctx) {
+    public HL7PSUTask createOrUpdateHL7PSUTaskForStudy(ArchiveAEExtension arcAE, StoreContext ctx) {
         if (!hasMWLItems(ctx.getStudyInstanceUID()))
-            return false;
+            return null;
 
+        HL7PSUTask task;
         try {
-            HL7PSUTask task = em.createNamedQuery(HL7PSUTask.FIND_BY_STUDY_IUID, HL7PSUTask.class)
+            task = em.createNamedQuery(HL7PSUTask.FIND_BY_STUDY_IUID, HL7PSUTask.class)
                     .setParameter(1, ctx.getStudyInstanceUID())
                     .getSingleResult();
             task.setScheduledTime(scheduledTime(arcAE.hl7PSUDelay()));
             LOG.info("{}: Updated {}", ctx, task);
         } catch (NoResultException nre) {
-            HL7PSUTask task = new HL7PSUTask();
+            task = new HL7PSUTask();
             task.setDeviceName(device.getDeviceName());
             task.setAETitle(arcAE.getApplicationEntity().getAETitle());
             task.setStudyInstanceUID(ctx.getStudyInstanceUID());
@@ -116,6 +117,16 @@ public class HL7PSUEJB {
             em.persist(task);
             LOG.info("{}: Created {}", ctx, task);
         }
+        return task;
+    }
+
+    public boolean updateHL7PSUTaskScheduledTime(StoreContext ctx, long pk, Date scheduledTime) {
+        HL7PSUTask task = em.find(HL7PSUTask.class, pk);
+        if (task == null)
+            return false;
+
+        task.setScheduledTime(scheduledTime);
+        LOG.info("{}: Updated {}", ctx, task);
         return true;
     }
 
@@ -51,6 +51,7 @@ import org.dcm4chee.arc.conf.Duration;
 import org.dcm4chee.arc.entity.HL7PSUTask;
 import org.dcm4chee.arc.entity.MPPS;
 import org.dcm4chee.arc.mpps.MPPSContext;
+import org.dcm4chee.arc.procedure.ProcedureContext;
 import org.dcm4chee.arc.query.QueryService;
 import org.dcm4chee.arc.store.StoreContext;
 import org.dcm4chee.arc.store.StoreSession;
@@ -60,7 +61,10 @@ import org.dcm4chee.arc.Scheduler;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Vrinda Nayak <vrinda.nayak@j4care.com>
@@ -70,6 +74,8 @@ import java.util.List;
 @ApplicationScoped
 public class HL7PSUScheduler extends Scheduler {
     private static final Logger LOG = LoggerFactory.getLogger(HL7PSUScheduler.class);
+    private static final long STUDY_MEMO_TTL_MILLIS = 60000L;
+    private static final int MAX_STUDY_MEMOS = 1000;
 
     @Inject
     private Device device;
@@ -80,6 +86,8 @@ public class HL7PSUScheduler extends Scheduler {
     @Inject
     private QueryService queryService;
 
+    private final Map<String, StudyMemo> studyMemos = new ConcurrentHashMap<>();
+
     protected HL7PSUScheduler() {
         super(Mode.scheduleWithFixedDelay);
     }
@@ -97,6 +105,7 @@ public class HL7PSUScheduler extends Scheduler {
 
     @Override
     protected void execute() {
+        removeExpiredStudyMemos();
         ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
         int fetchSize = arcDev.getHl7PSUTaskFetchSize();
         long hl7psuTaskPk = 0;
@@ -114,6 +123,7 @@ public class HL7PSUScheduler extends Scheduler {
                     if (checkAllRefInMpps(ae, hl7psuTask.getMpps())) {
                         LOG.info("Schedule {}", hl7psuTask);
                         ejb.scheduleHL7PSUTask(hl7psuTask, HL7PSU.HL7);
+                        studyMemos.remove(hl7psuTask.getStudyInstanceUID());
                     }
                 } catch (Exception e) {
                     LOG.warn("Failed to process {}:\n", hl7psuTask, e);
@@ -144,6 +154,8 @@ public class HL7PSUScheduler extends Scheduler {
                     }
                 } catch (Exception e) {
                     LOG.warn("Failed to process {}:\n", hl7psuTask, e);
+                } finally {
+                    studyMemos.remove(hl7psuTask.getStudyInstanceUID());
                 }
             }
         } while (hl7psuTasks.size() == fetchSize);
@@ -169,13 +181,59 @@ public class HL7PSUScheduler extends Scheduler {
         ArchiveAEExtension arcAE = session.getArchiveAEExtension();
         if (arcAE.hl7PSUOnStudy()) {
             try {
-                ejb.createOrUpdateHL7PSUTaskForStudy(arcAE, ctx);
+                createOrUpdateHL7PSUTaskForStudy(arcAE, ctx);
             } catch (Exception e) {
+                studyMemos.remove(ctx.getStudyInstanceUID());
                 LOG.warn("{}: Failed to create or update HL7PSUTask:\n", ctx, e);
             }
         }
     }
 
+    private void createOrUpdateHL7PSUTaskForStudy(ArchiveAEExtension arcAE, StoreContext ctx) {
+        String studyIUID = ctx.getStudyInstanceUID();
+        Duration delay = arcAE.hl7PSUDelay();
+        long now = System.currentTimeMillis();
+        StudyMemo memo = studyMemos.get(studyIUID);
+        if (memo != null && !memo.isExpired(now)) {
+            if (memo.taskPk == null)
+                return;
+
+            Date scheduledTime = scheduledTime(delay, now);
+            if (!memo.needsUpdate(scheduledTime, delay))
+                return;
+
+            if (ejb.updateHL7PSUTaskScheduledTime(ctx, memo.taskPk, scheduledTime)) {
+                studyMemos.put(studyIUID, new StudyMemo(memo.taskPk, scheduledTime, memo.expires));
+                return;
+            }
+        }
+        if (studyMemos.size() >= MAX_STUDY_MEMOS)
+            removeExpiredStudyMemos();
+        HL7PSUTask task = ejb.createOrUpdateHL7PSUTaskForStudy(arcAE, ctx);
+        studyMemos.put(studyIUID, task != null
+                ? new StudyMemo(task.getPk(), task.getScheduledTime(), now + STUDY_MEMO_TTL_MILLIS)
+                : new StudyMemo(null, null, now + STUDY_MEMO_TTL_MILLIS));
+    }
+
+    private static Date scheduledTime(Duration delay, long now) {
+        return delay != null ? new Date(now + delay.getSeconds() * 1000L) : null;
+    }
+
+    private void removeExpiredStudyMemos() {
+        long now = System.currentTimeMillis();
+        studyMemos.values().removeIf(memo -> memo.isExpired(now));
+    }
+
+    void onProcedureUpdate(@Observes ProcedureContext ctx) {
+        String studyIUID = ctx.getStudyInstanceUID();
+        if (studyIUID == null && ctx.getAttributes() != null)
+            studyIUID = ctx.getAttributes().getString(Tag.StudyInstanceUID);
+        if (studyIUID != null)
+            studyMemos.remove(studyIUID);
+        else
+            studyMemos.clear();
+    }
+
     private boolean createHL7PSUOnMPPS(MPPSContext ctx) {
         Attributes ssaAttrs = ctx.getMPPS().getAttributes().getNestedDataset(Tag.ScheduledStepAttributesSequence);
         return ctx.getMPPS().getStatus() == MPPS.Status.COMPLETED
@@ -225,6 +283,27 @@ public class HL7PSUScheduler extends Scheduler {
         return true;
     }
 
+    private static class StudyMemo {
+        final Long taskPk;
+        final Date scheduledTime;
+        final long expires;
+
+        StudyMemo(Long taskPk, Date scheduledTime, long expires) {
+            this.taskPk = taskPk;
+            this.scheduledTime = scheduledTime;
+            this.expires = expires;
+        }
+
+        boolean isExpired(long now) {
+            return now > expires;
+        }
+
+        boolean needsUpdate(Date newScheduledTime, Duration delay) {
+            return scheduledTime != null && newScheduledTime != null
+                    && newScheduledTime.getTime() - scheduledTime.getTime() > delay.getSeconds() * 100L;
+        }
+    }
+
     private boolean available(Attributes performed, Sequence available) {
         String iuid = performed.getString(Tag.ReferencedSOPInstanceUID);
         for (Attributes ref : available) {
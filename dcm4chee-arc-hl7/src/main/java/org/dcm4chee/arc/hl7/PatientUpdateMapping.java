@@ -0,0 +1,390 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.hl7;
+
+import org.dcm4che3.data.*;
+import org.dcm4che3.hl7.HL7Charset;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiled equivalent of {@code hl7-adt2dcm.xsl}, which maps PID and MRG segments of HL7 ADT messages to DICOM
+ * attributes without transforming the XML representation of the message by XSLT.
+ * <p>
+ * Field, component and subcomponent values are selected with the same semantics as the XPath expressions of
+ * {@code hl7-common.xsl} applied on the XML emitted by {@link org.dcm4che3.hl7.HL7Parser}, where the first
+ * component of a field and the first subcomponent of a component are represented as text nodes of the parent
+ * element, and escape sequences as separate elements.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+class PatientUpdateMapping {
+
+    private static final String STYLESHEET_NAME = "hl7-adt2dcm.xsl";
+    private static final String NULL = "\"\"";
+
+    private final char fieldDelim;
+    private final char componentDelim;
+    private final char repeatDelim;
+    private final char escapeDelim;
+    private final char subcomponentDelim;
+
+    private PatientUpdateMapping(String msh) {
+        fieldDelim = msh.charAt(3);
+        String encodingChars = msh.length() > 4 ? msh.substring(4) : "";
+        componentDelim = encodingChar(encodingChars, 0, '^');
+        repeatDelim = encodingChar(encodingChars, 1, '~');
+        escapeDelim = encodingChar(encodingChars, 2, '\\');
+        subcomponentDelim = encodingChar(encodingChars, 3, '&');
+    }
+
+    private char encodingChar(String encodingChars, int index, char defVal) {
+        char ch = encodingChars.length() > index ? encodingChars.charAt(index) : fieldDelim;
+        return ch != fieldDelim ? ch : defVal;
+    }
+
+    static boolean isApplicable(String templateURI) {
+        return templateURI.endsWith('/' + STYLESHEET_NAME) || templateURI.equals(STYLESHEET_NAME);
+    }
+
+    static Attributes transform(byte[] data, String hl7charset) throws UnsupportedEncodingException {
+        Attributes attrs = new Attributes();
+        String dicomCharset = HL7Charset.toDicomCharacterSetCode(hl7charset);
+        if (dicomCharset != null)
+            attrs.setString(Tag.SpecificCharacterSet, VR.CS, dicomCharset);
+        PatientUpdateMapping mapping = null;
+        List<String[]> pids = new ArrayList<>(1);
+        List<String[]> mrgs = new ArrayList<>(1);
+        for (String segment : new String(data, HL7Charset.toCharsetName(hl7charset)).split("[\r\n]")) {
+            if (mapping == null) {
+                if (segment.startsWith("MSH") && segment.length() > 3)
+                    mapping = new PatientUpdateMapping(segment);
+            } else if (mapping.isSegment(segment, "PID")) {
+                pids.add(mapping.fields(segment));
+            } else if (mapping.isSegment(segment, "MRG")) {
+                mrgs.add(mapping.fields(segment));
+            }
+        }
+        if (mapping != null) {
+            for (String[] pid : pids)
+                mapping.pid2attrs(pid, attrs);
+            for (String[] mrg : mrgs)
+                mapping.mrg2attrs(mrg, attrs);
+        }
+        return attrs;
+    }
+
+    private boolean isSegment(String segment, String segmentID) {
+        return segment.startsWith(segmentID)
+                && (segment.length() == 3 || segment.charAt(3) == fieldDelim);
+    }
+
+    private String[] fields(String segment) {
+        return split(segment, fieldDelim);
+    }
+
+    private Node field(String[] fields, int index) {
+        return index < fields.length ? new Node(fields[index], 0) : null;
+    }
+
+    private void pid2attrs(String[] pid, Attributes attrs) {
+        xpn2pnAttr(attrs, Tag.PatientName, field(pid, 5));
+        cx2pidAttrs(attrs, field(pid, 3));
+        Node birthDate = field(pid, 7);
+        attr(attrs, Tag.PatientBirthDate, VR.DA, substring(stringValue(birthDate), 8));
+        Node sex = field(pid, 8);
+        attrAlways(attrs, Tag.PatientSex, VR.CS, sex(sex != null ? sex.textNodes() : new ArrayList<>()));
+        xpn2pnAttr(attrs, Tag.PatientMotherBirthName, field(pid, 6));
+        vetPID2attr(attrs, field(pid, 2), field(pid, 4));
+        String owner = text(field(pid, 9));
+        if (owner != null) {
+            xpn2pnAttr(attrs, Tag.ResponsiblePerson, field(pid, 9));
+            attrAlways(attrs, Tag.ResponsiblePersonRole, VR.CS, owner.contains(NULL) ? owner : "OWNER");
+        }
+        ce2codeItemWithDesc(attrs, Tag.PatientSpeciesDescription, Tag.PatientSpeciesCodeSequence, field(pid, 35));
+        ce2codeItemWithDesc(attrs, Tag.PatientBreedDescription, Tag.PatientBreedCodeSequence, field(pid, 36));
+        attrAlways(attrs, Tag.PatientSexNeutered, VR.CS, neutered(sex));
+    }
+
+    private void mrg2attrs(String[] mrg, Attributes attrs) {
+        Attributes item = new Attributes(3);
+        xpn2pnAttr(item, Tag.PatientName, field(mrg, 7));
+        cx2pidAttrs(item, field(mrg, 1));
+        attrs.newSequence(Tag.ModifiedAttributesSequence, 1).add(item);
+    }
+
+    private static String sex(List<String> val) {
+        if (val.isEmpty())
+            return "";
+        if (val.contains("F") || val.contains("M") || val.contains("O"))
+            return val.get(0);
+        if (val.contains("A") || val.contains("N"))
+            return "O";
+        return NULL;
+    }
+
+    private String neutered(Node sex) {
+        List<String> val = new ArrayList<>();
+        if (sex != null)
+            for (int i = 1; sex.child(i) != null; i++)
+                val.addAll(sex.child(i).textNodes());
+        return val.contains("Y") ? "ALTERED" : val.contains("N") ? "UNALTERED" : "";
+    }
+
+    private void cx2pidAttrs(Attributes attrs, Node cx) {
+        attrs.setString(Tag.PatientID, VR.LO, nullIfEmpty(text(cx)));
+        Node hd = cx != null ? cx.child(3) : null;
+        if (hd == null)
+            return;
+
+        attrs.setString(Tag.IssuerOfPatientID, VR.LO, nullIfEmpty(text(hd)));
+        if (hd.child(2) != null) {
+            Attributes item = new Attributes(2);
+            item.setString(Tag.UniversalEntityID, VR.UT, nullIfEmpty(stringValue(hd.child(1))));
+            item.setString(Tag.UniversalEntityIDType, VR.CS, nullIfEmpty(stringValue(hd.child(2))));
+            attrs.newSequence(Tag.IssuerOfPatientIDQualifiersSequence, 1).add(item);
+        }
+    }
+
+    private void vetPID2attr(Attributes attrs, Node chip, Node tattoo) {
+        String chipText = text(chip);
+        String tattooText = text(tattoo);
+        if (chipText == null && tattooText == null)
+            return;
+
+        Sequence seq = attrs.newSequence(Tag.OtherPatientIDsSequence, 2);
+        if (chipText != null && !chipText.contains(NULL))
+            seq.add(pidItem(chip, "CHIP", "RFID"));
+        if (tattooText != null && !tattooText.contains(NULL))
+            seq.add(pidItem(tattoo, "TATTOO", "BARCODE"));
+    }
+
+    private Attributes pidItem(Node cx, String defaultIssuer, String type) {
+        Attributes item = new Attributes(3);
+        cx2pidAttrs(item, cx);
+        if (cx.child(3) == null)
+            item.setString(Tag.IssuerOfPatientID, VR.LO, defaultIssuer);
+        item.setString(Tag.TypeOfPatientID, VR.CS, type);
+        return item;
+    }
+
+    private void xpn2pnAttr(Attributes attrs, int tag, Node xpn) {
+        String fn = text(xpn);
+        if (fn == null)
+            return;
+
+        if (fn.equals(NULL)) {
+            attrs.setNull(tag, VR.PN);
+            return;
+        }
+        PersonName pn = new PersonName();
+        pnComp(pn, PersonName.Component.FamilyName, fn);
+        pnComp(pn, PersonName.Component.GivenName, text(xpn.child(1)));
+        pnComp(pn, PersonName.Component.MiddleName, text(xpn.child(2)));
+        pnComp(pn, PersonName.Component.NamePrefix, text(xpn.child(4)));
+        pnComp(pn, PersonName.Component.NameSuffix, concat(text(xpn.child(3)), text(xpn.child(5))));
+        attrs.setString(tag, VR.PN, pn.toString());
+    }
+
+    private static void pnComp(PersonName pn, PersonName.Component comp, String val) {
+        if (isPresent(val))
+            pn.set(comp, val);
+    }
+
+    private static String concat(String val1, String val2) {
+        return !isPresent(val1) ? val2 : !isPresent(val2) ? val1 : val1 + ' ' + val2;
+    }
+
+    private void ce2codeItemWithDesc(Attributes attrs, int descTag, int seqTag, Node ce) {
+        String desc = ce != null ? text(ce.child(1)) : null;
+        if (desc == null) {
+            attr(attrs, descTag, VR.LO, text(ce));
+            return;
+        }
+        attr(attrs, descTag, VR.LO, substring(desc, 64));
+        if (ce.child(2) != null) {
+            Attributes item = new Attributes(3);
+            item.setString(Tag.CodeValue, VR.SH, nullIfEmpty(substring(text(ce), 16)));
+            item.setString(Tag.CodingSchemeDesignator, VR.SH, nullIfEmpty(substring(stringValue(ce.child(2)), 16)));
+            item.setString(Tag.CodeMeaning, VR.LO, nullIfEmpty(substring(stringValue(ce.child(1)), 64)));
+            attrs.newSequence(seqTag, 1).add(item);
+        }
+    }
+
+    /**
+     * Equivalent to template {@code attr} invoked with a string or node-set as value.
+     */
+    private static void attr(Attributes attrs, int tag, VR vr, String val) {
+        if (val != null && !val.isEmpty())
+            attrAlways(attrs, tag, vr, val);
+    }
+
+    /**
+     * Equivalent to template {@code attr} invoked with a result tree fragment as value, which always evaluates
+     * to {@code true}.
+     */
+    private static void attrAlways(Attributes attrs, int tag, VR vr, String val) {
+        attrs.setString(tag, vr, NULL.equals(val) ? null : nullIfEmpty(val));
+    }
+
+    private static boolean isPresent(String val) {
+        return val != null && !val.isEmpty() && !val.equals(NULL);
+    }
+
+    private static String nullIfEmpty(String val) {
+        return val != null && !val.isEmpty() ? val : null;
+    }
+
+    private static String substring(String val, int maxLength) {
+        return val != null && val.length() > maxLength ? val.substring(0, maxLength) : val;
+    }
+
+    private static String text(Node node) {
+        return node != null ? node.text() : null;
+    }
+
+    private static String stringValue(Node node) {
+        return node != null ? node.stringValue() : "";
+    }
+
+    private static String[] split(String s, char delim) {
+        int count = 1;
+        for (int i = s.indexOf(delim); i >= 0; i = s.indexOf(delim, i + 1))
+            count++;
+        String[] ss = new String[count];
+        int begin = 0;
+        for (int i = 0; i < count - 1; i++) {
+            int end = s.indexOf(delim, begin);
+            ss[i] = s.substring(begin, end);
+            begin = end + 1;
+        }
+        ss[count - 1] = s.substring(begin);
+        return ss;
+    }
+
+    /**
+     * Element of the XML representation of a field (level 0), component (level 1) or subcomponent (level 2).
+     */
+    private class Node {
+        private final String value;
+        private final int level;
+        private String[] children;
+
+        Node(String value, int level) {
+            this.value = value;
+            this.level = level;
+        }
+
+        /**
+         * Returns child element with specified position, which corresponds to the component (or subcomponent)
+         * following the specified number of component (or subcomponent) delimiters in the first repetition.
+         */
+        Node child(int index) {
+            String[] ss = children();
+            return index < ss.length ? new Node(ss[index], level + 1) : null;
+        }
+
+        private String[] children() {
+            if (children == null)
+                children = level == 0 ? split(split(value, repeatDelim)[0], componentDelim)
+                        : level == 1 ? split(value, subcomponentDelim)
+                        : new String[] { value };
+            return children;
+        }
+
+        /**
+         * Returns text nodes of this element, splitted by escape sequences.
+         */
+        List<String> textNodes() {
+            String s = value;
+            int firstDelimiter = firstDelimiter(s);
+            if (firstDelimiter >= 0)
+                s = s.substring(0, firstDelimiter);
+            List<String> texts = new ArrayList<>(1);
+            int begin = 0;
+            int end;
+            while ((end = s.indexOf(escapeDelim, begin)) >= 0) {
+                if (end > begin)
+                    texts.add(s.substring(begin, end));
+                int endEscape = s.indexOf(escapeDelim, end + 1);
+                if (endEscape < 0)
+                    return texts;
+                begin = endEscape + 1;
+            }
+            if (begin < s.length())
+                texts.add(s.substring(begin));
+            return texts;
+        }
+
+        private int firstDelimiter(String s) {
+            for (int i = 0, n = s.length(); i < n; i++) {
+                char ch = s.charAt(i);
+                if (ch == repeatDelim || ch == componentDelim || ch == subcomponentDelim)
+                    return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Returns first text node of this element, equivalent to XPath {@code text()}.
+         */
+        String text() {
+            List<String> texts = textNodes();
+            return texts.isEmpty() ? null : texts.get(0);
+        }
+
+        /**
+         * Returns the concatenated text of this element and all its descendants, equivalent to XPath
+         * {@code string()}.
+         */
+        String stringValue() {
+            StringBuilder sb = new StringBuilder(value.length());
+            for (int i = 0, n = value.length(); i < n; i++) {
+                char ch = value.charAt(i);
+                if (ch != repeatDelim && ch != componentDelim && ch != subcomponentDelim && ch != escapeDelim)
+                    sb.append(ch);
+            }
+            return sb.toString();
+        }
+    }
+}
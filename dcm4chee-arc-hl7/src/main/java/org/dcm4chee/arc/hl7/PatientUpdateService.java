@@ -166,7 +166,11 @@ class PatientUpdateService extends DefaultHL7Service {
     private static Attributes transform(UnparsedHL7Message msg, ArchiveHL7ApplicationExtension arcHL7App,
                                         String hl7cs) throws HL7Exception {
         try {
-            return SAXTransformer.transform(msg.data(), hl7cs, arcHL7App.patientUpdateTemplateURI(), null);
+            String templateURI = arcHL7App.patientUpdateTemplateURI();
+            return arcHL7App.getArchiveDeviceExtension().isCompiledPatientUpdateMapping()
+                        && PatientUpdateMapping.isApplicable(templateURI)
+                    ? PatientUpdateMapping.transform(msg.data(), hl7cs)
+                    : SAXTransformer.transform(msg.data(), hl7cs, templateURI, null);
         } catch (Exception e) {
             throw new HL7Exception(new ERRSegment(msg.msh()).setUserMessage(e.getMessage()), e);
         }
@@ -56,12 +56,6 @@ import org.slf4j.LoggerFactory;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
-import java.io.BufferedOutputStream;
-import java.io.DataOutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
@@ -77,15 +71,31 @@ public class HL7Logger {
     @Inject
     private Device device;
 
+    @Inject
+    private HL7MessageLog messageLog;
+
     public void onHL7Connection(@Observes HL7ConnectionEvent event) {
         UnparsedHL7Message msg = event.getHL7Message();
         switch (event.getType()) {
             case MESSAGE_RECEIVED:
-                log(msg, hl7LogFilePattern(msg));
+                messageLog.append(HL7MessageLog.RecordType.RECEIVED, msg, logFilePath(msg, hl7LogFilePattern(msg)));
                 break;
             case MESSAGE_PROCESSED:
                 if (event.getException() != null)
-                    log(msg, hl7ErrorLogFilePattern(msg));
+                    messageLog.append(HL7MessageLog.RecordType.ERROR, msg,
+                            logFilePath(msg, hl7ErrorLogFilePattern(msg)));
+                break;
+            case MESSAGE_SENT:
+                messageLog.append(event.getException() != null
+                        ? HL7MessageLog.RecordType.ERROR
+                        : HL7MessageLog.RecordType.SENT, msg, null);
+                break;
+            case MESSAGE_RESPONSE:
+                UnparsedHL7Message rsp = event.getHL7ResponseMessage();
+                if (rsp != null)
+                    messageLog.append(HL7MessageLog.RecordType.RESPONSE, rsp, null);
+                else if (event.getException() != null)
+                    messageLog.append(HL7MessageLog.RecordType.ERROR, msg, null);
                 break;
         }
     }
@@ -110,26 +120,10 @@ public class HL7Logger {
         return arcHL7App != null ? arcHL7App.hl7ErrorLogFilePattern() : arcdev().getHl7ErrorLogFilePattern();
     }
 
-    private void log(UnparsedHL7Message msg, String dirpath) {
-        if (dirpath == null)
-            return;
-
-        String filePath = getPath(StringUtils.replaceSystemProperties(dirpath), msg.getSerialNo(), msg.msh());
-        Path dir = Paths.get(filePath.substring(0,filePath.lastIndexOf("/")));
-        Path file = dir.resolve(filePath.substring(filePath.lastIndexOf("/")+1));
-        try {
-            if (!Files.exists(dir))
-                Files.createDirectories(dir);
-            if (!Files.exists(file))
-                Files.createFile(file);
-            try (BufferedOutputStream out = new BufferedOutputStream(
-                    Files.newOutputStream(file, StandardOpenOption.APPEND))) {
-                new DataOutputStream(out);
-                out.write(msg.data());
-            }
-        } catch (Exception e) {
-            LOG.warn("Failed to write log file : ", dir, file, e);
-        }
+    private String logFilePath(UnparsedHL7Message msg, String dirpath) {
+        return dirpath != null
+                ? getPath(StringUtils.replaceSystemProperties(dirpath), msg.getSerialNo(), msg.msh())
+                : null;
     }
 
     private String getPath(String s, int serialNo, HL7Segment msh) {
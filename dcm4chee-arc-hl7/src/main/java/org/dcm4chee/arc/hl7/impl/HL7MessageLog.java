@@ -0,0 +1,418 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.hl7.impl;
+
+import org.dcm4che3.hl7.HL7Segment;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.net.hl7.UnparsedHL7Message;
+import org.dcm4che3.util.SafeClose;
+import org.dcm4che3.util.StringUtils;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.BinaryPrefix;
+import org.dcm4chee.arc.conf.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Appends received, sent and response HL7 messages into size and time bounded segment files by a single writer
+ * thread. Each segment file {@code hl7-<start-time>.log} is accompanied by an index file {@code hl7-<start-time>.idx},
+ * with one line per message containing its time, offset and length in the segment file, the record type and the
+ * message control ID. The writer thread also writes messages to the files given by the configured HL7 log file
+ * patterns, so no logging is performed on the threads receiving or sending HL7 messages. On starting a new segment
+ * file, segment and index files with messages older than the configured retention period are deleted.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@ApplicationScoped
+public class HL7MessageLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HL7MessageLog.class);
+    private static final String SEGMENT_PREFIX = "hl7-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final long DEFAULT_MAX_SIZE = 64000000L;
+    private static final long DEFAULT_MAX_DURATION = 3600000L;
+    private static final long DEFAULT_RETENTION_PERIOD = 30 * 86400000L;
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final long IDLE_TIMEOUT = 1L;
+
+    public enum RecordType { RECEIVED, SENT, RESPONSE, ERROR }
+
+    @Inject
+    private Device device;
+
+    private final BlockingQueue<Record> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicBoolean writerRunning = new AtomicBoolean();
+    private Segment segment;
+
+    /**
+     * Queues message for being appended to the current segment file, if enabled, and to the specified log file.
+     * Blocks only if the queue is full.
+     *
+     * @param logFilePath path of the log file or {@code null}
+     */
+    public void append(RecordType type, UnparsedHL7Message msg, String logFilePath) {
+        if (logFilePath == null && arcdev().getHl7LogSegmentDirectory() == null)
+            return;
+
+        try {
+            queue.put(new Record(System.currentTimeMillis(), type, msg, logFilePath));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted while queuing HL7 message {} for logging", msg);
+            return;
+        }
+        if (writerRunning.compareAndSet(false, true))
+            device.execute(this::writeQueued);
+    }
+
+    /**
+     * Returns index entries of logged messages with specified message control ID.
+     */
+    public List<Entry> findByMessageControlID(String msgControlID) throws IOException {
+        Path dir = flushedSegmentDirectory();
+        return dir != null ? findByMessageControlID(dir, msgControlID) : new ArrayList<>();
+    }
+
+    /**
+     * Returns index entries of messages logged in the specified time range, given in milliseconds since the epoch.
+     */
+    public List<Entry> findByTime(long from, long to) throws IOException {
+        Path dir = flushedSegmentDirectory();
+        return dir != null ? findByTime(dir, from, to) : new ArrayList<>();
+    }
+
+    public static byte[] read(Entry entry) throws IOException {
+        byte[] b = new byte[entry.length];
+        try (RandomAccessFile raf = new RandomAccessFile(entry.segmentFile.toFile(), "r")) {
+            raf.seek(entry.offset);
+            raf.readFully(b);
+        }
+        return b;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+    private void writeQueued() {
+        try {
+            for (;;) {
+                Record record = queue.poll(IDLE_TIMEOUT, TimeUnit.SECONDS);
+                if (record == null) {
+                    writerRunning.set(false);
+                    if (queue.isEmpty() || !writerRunning.compareAndSet(false, true))
+                        return;
+                    continue;
+                }
+                if (record.logFilePath != null)
+                    writeLogFile(record);
+                write(record, queue.isEmpty());
+            }
+        } catch (InterruptedException e) {
+            writerRunning.set(false);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeLogFile(Record record) {
+        Path file = Paths.get(record.logFilePath);
+        try {
+            Path dir = file.getParent();
+            if (dir != null)
+                Files.createDirectories(dir);
+            Files.write(file, record.msg.data(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (Exception e) {
+            LOG.warn("Failed to write log file {}:\n", file, e);
+        }
+    }
+
+    private synchronized void write(Record record, boolean flush) {
+        ArchiveDeviceExtension arcdev = arcdev();
+        String dirPath = arcdev.getHl7LogSegmentDirectory();
+        if (dirPath == null) {
+            close();
+            return;
+        }
+        try {
+            Path dir = Paths.get(StringUtils.replaceSystemProperties(dirPath));
+            if (segment == null || !segment.isAppendable(dir, record, maxSize(arcdev), maxDuration(arcdev))) {
+                close();
+                segment = new Segment(dir, record.time);
+                purge(dir, record.time - retentionPeriod(arcdev));
+            }
+            segment.append(record);
+            if (flush)
+                segment.flush();
+        } catch (Exception e) {
+            LOG.warn("Failed to log HL7 message {}:\n", record.msg, e);
+            close();
+        }
+    }
+
+    private Path flushedSegmentDirectory() {
+        String dirPath = arcdev().getHl7LogSegmentDirectory();
+        if (dirPath == null)
+            return null;
+
+        synchronized (this) {
+            if (segment != null)
+                segment.flush();
+        }
+        return Paths.get(StringUtils.replaceSystemProperties(dirPath));
+    }
+
+    static List<Entry> findByMessageControlID(Path dir, String msgControlID) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (Path idx : indexFiles(dir, Long.MIN_VALUE, Long.MAX_VALUE))
+            for (Entry entry : readIndex(idx))
+                if (entry.msgControlID.equals(msgControlID))
+                    entries.add(entry);
+        return entries;
+    }
+
+    static List<Entry> findByTime(Path dir, long from, long to) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (Path idx : indexFiles(dir, from, to))
+            for (Entry entry : readIndex(idx))
+                if (entry.time >= from && entry.time <= to)
+                    entries.add(entry);
+        return entries;
+    }
+
+    /**
+     * Deletes segment and index files, which only contain messages logged before the specified time. The messages of
+     * one segment file were logged before the start of the next segment file, so the latest segment file is never
+     * deleted.
+     */
+    static void purge(Path dir, long before) {
+        try {
+            List<Path> indexFiles = indexFiles(dir);
+            for (int i = 0; i + 1 < indexFiles.size(); i++) {
+                if (startTimeOf(indexFiles.get(i + 1)) > before)
+                    break;
+
+                Path idx = indexFiles.get(i);
+                Path segmentFile = segmentFileOf(idx);
+                Files.deleteIfExists(segmentFile);
+                Files.deleteIfExists(idx);
+                LOG.info("Deleted HL7 log segment {}", segmentFile);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to purge HL7 log segments from {}:\n", dir, e);
+        }
+    }
+
+    private static List<Path> indexFiles(Path dir, long from, long to) throws IOException {
+        List<Path> indexFiles = indexFiles(dir);
+        List<Path> result = new ArrayList<>(indexFiles.size());
+        for (int i = 0; i < indexFiles.size(); i++) {
+            if (startTimeOf(indexFiles.get(i)) <= to
+                    && (i + 1 == indexFiles.size() || startTimeOf(indexFiles.get(i + 1)) > from))
+                result.add(indexFiles.get(i));
+        }
+        return result;
+    }
+
+    private static List<Path> indexFiles(Path dir) throws IOException {
+        List<Path> indexFiles = new ArrayList<>();
+        if (!Files.isDirectory(dir))
+            return indexFiles;
+
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + INDEX_SUFFIX)) {
+            for (Path path : paths)
+                indexFiles.add(path);
+        }
+        indexFiles.sort((a, b) -> Long.compare(startTimeOf(a), startTimeOf(b)));
+        return indexFiles;
+    }
+
+    private static long startTimeOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.indexOf('.')));
+        } catch (RuntimeException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static Path segmentFileOf(Path idx) {
+        String name = idx.getFileName().toString();
+        return idx.resolveSibling(name.substring(0, name.length() - INDEX_SUFFIX.length()) + SEGMENT_SUFFIX);
+    }
+
+    private static List<Entry> readIndex(Path idx) throws IOException {
+        Path segmentFile = segmentFileOf(idx);
+        List<Entry> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(idx, StandardCharsets.UTF_8)) {
+            String[] fields = StringUtils.split(line, '\t');
+            if (fields.length == 5)
+                entries.add(new Entry(segmentFile, Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                        Integer.parseInt(fields[2]), RecordType.valueOf(fields[3]), fields[4]));
+        }
+        return entries;
+    }
+
+    private static long maxSize(ArchiveDeviceExtension arcdev) {
+        String maxSize = arcdev.getHl7LogSegmentMaxSize();
+        return maxSize != null ? BinaryPrefix.parse(maxSize) : DEFAULT_MAX_SIZE;
+    }
+
+    private static long maxDuration(ArchiveDeviceExtension arcdev) {
+        Duration maxDuration = arcdev.getHl7LogSegmentMaxDuration();
+        return maxDuration != null ? maxDuration.getSeconds() * 1000L : DEFAULT_MAX_DURATION;
+    }
+
+    private static long retentionPeriod(ArchiveDeviceExtension arcdev) {
+        Duration retentionPeriod = arcdev.getHl7LogSegmentRetentionPeriod();
+        return retentionPeriod != null ? retentionPeriod.getSeconds() * 1000L : DEFAULT_RETENTION_PERIOD;
+    }
+
+    private ArchiveDeviceExtension arcdev() {
+        return device.getDeviceExtensionNotNull(ArchiveDeviceExtension.class);
+    }
+
+    public static final class Entry {
+        public final Path segmentFile;
+        public final long time;
+        public final long offset;
+        public final int length;
+        public final RecordType type;
+        public final String msgControlID;
+
+        Entry(Path segmentFile, long time, long offset, int length, RecordType type, String msgControlID) {
+            this.segmentFile = segmentFile;
+            this.time = time;
+            this.offset = offset;
+            this.length = length;
+            this.type = type;
+            this.msgControlID = msgControlID;
+        }
+    }
+
+    static final class Record {
+        final long time;
+        final RecordType type;
+        final UnparsedHL7Message msg;
+        final String logFilePath;
+
+        Record(long time, RecordType type, UnparsedHL7Message msg, String logFilePath) {
+            this.time = time;
+            this.type = type;
+            this.msg = msg;
+            this.logFilePath = logFilePath;
+        }
+
+        String msgControlID() {
+            HL7Segment msh = msg.msh();
+            return msh.getField(9, "").replace('\t', ' ');
+        }
+    }
+
+    static final class Segment {
+        final Path dir;
+        final long startTime;
+        final OutputStream log;
+        final Writer index;
+        long size;
+
+        Segment(Path dir, long time) throws IOException {
+            Files.createDirectories(dir);
+            long startTime = time;
+            while (Files.exists(dir.resolve(SEGMENT_PREFIX + startTime + SEGMENT_SUFFIX)))
+                startTime++;
+            this.dir = dir;
+            this.startTime = startTime;
+            this.log = new BufferedOutputStream(
+                    Files.newOutputStream(dir.resolve(SEGMENT_PREFIX + startTime + SEGMENT_SUFFIX)));
+            this.index = Files.newBufferedWriter(dir.resolve(SEGMENT_PREFIX + startTime + INDEX_SUFFIX),
+                    StandardCharsets.UTF_8);
+            LOG.info("Start HL7 log segment {}{}{}", dir.resolve(SEGMENT_PREFIX), startTime, SEGMENT_SUFFIX);
+        }
+
+        boolean isAppendable(Path dir, Record record, long maxSize, long maxDuration) {
+            return this.dir.equals(dir)
+                    && (size == 0 || size + record.msg.data().length <= maxSize)
+                    && record.time - startTime < maxDuration;
+        }
+
+        void append(Record record) throws IOException {
+            byte[] data = record.msg.data();
+            log.write(data);
+            log.write('\n');
+            index.write(record.time + "\t" + size + '\t' + data.length + '\t' + record.type + '\t'
+                    + record.msgControlID() + '\n');
+            size += data.length + 1;
+        }
+
+        void flush() {
+            try {
+                log.flush();
+                index.flush();
+            } catch (IOException e) {
+                LOG.warn("Failed to flush HL7 log segment {}{}{}:\n", dir.resolve(SEGMENT_PREFIX), startTime,
+                        SEGMENT_SUFFIX, e);
+            }
+        }
+
+        void close() {
+            SafeClose.close(log);
+            SafeClose.close(index);
+        }
+    }
+}
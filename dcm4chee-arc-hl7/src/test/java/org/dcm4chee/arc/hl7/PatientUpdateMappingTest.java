@@ -0,0 +1,114 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.hl7;
+
+import org.dcm4che3.data.Attributes;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+public class PatientUpdateMappingTest {
+
+    private static final String ADT2DCM_XSL =
+            new File("../dcm4chee-arc-conf-data/src/main/resources/hl7-adt2dcm.xsl").toURI().toString();
+
+    private static final String MSH =
+            "MSH|^~\\&|RIS|HOSP|DCM4CHEE|DCM4CHEE|20181018120000||ADT^A08|MSG1|P|2.5||||||8859/1\r";
+
+    @Test
+    public void testPatientUpdate() throws Exception {
+        assertSameAsXSL("PID|1||P1^^^HOSP||Doe^John^W^Dr^Jr^MD||19700101120000|M\r");
+    }
+
+    @Test
+    public void testIssuerQualifiers() throws Exception {
+        assertSameAsXSL("PID|1||P1^^^HOSP&1.2.3.4&ISO~P2^^^OTHER||Doe^Jane|Smith^Ann|19700101|F\r");
+    }
+
+    @Test
+    public void testEmptyAndNullValues() throws Exception {
+        assertSameAsXSL("PID|1||P1^^^||\"\"|\"\"|\"\"|\"\"\r");
+        assertSameAsXSL("PID|1||P1||^John||||\r");
+        assertSameAsXSL("PID|1||P1\r");
+    }
+
+    @Test
+    public void testSexMapping() throws Exception {
+        assertSameAsXSL("PID|1||P1||Doe||19700101|A\r");
+        assertSameAsXSL("PID|1||P1||Doe||19700101|U\r");
+        assertSameAsXSL("PID|1||P1||Doe||19700101|F^Y\r");
+        assertSameAsXSL("PID|1||P1||Doe||19700101|M^N\r");
+    }
+
+    @Test
+    public void testEscapeSequences() throws Exception {
+        assertSameAsXSL("PID|1||P\\T\\1^^^HO\\S\\SP||O\\T\\Brien^Mary||1970\\F\\0101|F\r");
+    }
+
+    @Test
+    public void testVeterinary() throws Exception {
+        assertSameAsXSL("PID|1|CHIP123|P1^^^HOSP|TAT456^^^KENNEL|Rex||20100101|M^Y|Owner^Tom"
+                + "|||||||||||||||||||||||||"
+                + "|Dog^Canine^L-80700^SRT|Beagle^Beagle^L-81234^SRT\r");
+        assertSameAsXSL("PID|1|\"\"|P1|TAT456|Rex||20100101|F^N|\"\"^Tom"
+                + "|||||||||||||||||||||||||"
+                + "|Cat^^|Unknown\r");
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        assertSameAsXSL("PID|1||P1^^^HOSP||Doe^John\rMRG|P0^^^HOSP&1.2.3.4&ISO||||||Doe^Jon\r");
+        assertSameAsXSL("PID|1||P1^^^HOSP||Doe^John\rMRG|P0\r");
+    }
+
+    private static void assertSameAsXSL(String segments) throws Exception {
+        byte[] data = (MSH + segments).getBytes("ISO-8859-1");
+        Attributes expected = SAXTransformer.transform(data, "8859/1", ADT2DCM_XSL, null);
+        Attributes actual = PatientUpdateMapping.transform(data, "8859/1");
+        assertEquals(expected.toString(Integer.MAX_VALUE, 200), actual.toString(Integer.MAX_VALUE, 200));
+        assertEquals(expected, actual);
+    }
+}
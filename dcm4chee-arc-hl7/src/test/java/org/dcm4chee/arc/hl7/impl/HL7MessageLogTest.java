@@ -0,0 +1,139 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2013
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.hl7.impl;
+
+import org.dcm4che3.net.hl7.UnparsedHL7Message;
+import org.dcm4chee.arc.hl7.impl.HL7MessageLog.Entry;
+import org.dcm4chee.arc.hl7.impl.HL7MessageLog.RecordType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+public class HL7MessageLogTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = tmp.getRoot().toPath();
+    }
+
+    @Test
+    public void testFindByMessageControlID() throws Exception {
+        writeSegment(1000L, "MSG1", "MSG2");
+        writeSegment(2000L, "MSG3", "MSG1");
+        List<Entry> entries = HL7MessageLog.findByMessageControlID(dir, "MSG1");
+        assertEquals(2, entries.size());
+        assertEquals(1000L, entries.get(0).time);
+        assertEquals(2001L, entries.get(1).time);
+        assertEquals(RecordType.RECEIVED, entries.get(0).type);
+        assertEquals(RecordType.RESPONSE, entries.get(1).type);
+        assertTrue(HL7MessageLog.findByMessageControlID(dir, "MSG4").isEmpty());
+    }
+
+    @Test
+    public void testFindByTime() throws Exception {
+        writeSegment(1000L, "MSG1", "MSG2");
+        writeSegment(2000L, "MSG3", "MSG4");
+        writeSegment(3000L, "MSG5", "MSG6");
+        List<Entry> entries = HL7MessageLog.findByTime(dir, 1001L, 2000L);
+        assertEquals(2, entries.size());
+        assertEquals("MSG2", entries.get(0).msgControlID);
+        assertEquals("MSG3", entries.get(1).msgControlID);
+        assertTrue(HL7MessageLog.findByTime(dir, 4000L, 5000L).isEmpty());
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        writeSegment(1000L, "MSG1", "MSG2");
+        Entry entry = HL7MessageLog.findByMessageControlID(dir, "MSG2").get(0);
+        assertEquals(msh("MSG2"), new String(HL7MessageLog.read(entry), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testPurge() throws Exception {
+        writeSegment(1000L, "MSG1");
+        writeSegment(2000L, "MSG2");
+        writeSegment(3000L, "MSG3");
+        HL7MessageLog.purge(dir, 2500L);
+        assertFalse(Files.exists(dir.resolve("hl7-1000.log")));
+        assertFalse(Files.exists(dir.resolve("hl7-1000.idx")));
+        assertTrue(Files.exists(dir.resolve("hl7-2000.log")));
+        assertTrue(Files.exists(dir.resolve("hl7-3000.log")));
+        HL7MessageLog.purge(dir, Long.MAX_VALUE);
+        assertFalse(Files.exists(dir.resolve("hl7-2000.idx")));
+        assertTrue(Files.exists(dir.resolve("hl7-3000.log")));
+        assertTrue(Files.exists(dir.resolve("hl7-3000.idx")));
+        assertEquals(1, HL7MessageLog.findByTime(dir, Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    private void writeSegment(long startTime, String... msgControlIDs) throws Exception {
+        HL7MessageLog.Segment segment = new HL7MessageLog.Segment(dir, startTime);
+        try {
+            for (int i = 0; i < msgControlIDs.length; i++)
+                segment.append(new HL7MessageLog.Record(startTime + i,
+                        i % 2 == 0 ? RecordType.RECEIVED : RecordType.RESPONSE,
+                        new UnparsedHL7Message(msh(msgControlIDs[i]).getBytes(StandardCharsets.ISO_8859_1)),
+                        null));
+        } finally {
+            segment.close();
+        }
+    }
+
+    private static String msh(String msgControlID) {
+        return "MSH|^~\\&|RIS|HOSP|DCM4CHEE|DCM4CHEE|20181018120000||ADT^A08|" + msgControlID + "|P|2.5\r";
+    }
+}
@@ -59,7 +59,8 @@ import org.slf4j.LoggerFactory;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.Semaphore;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -100,61 +101,128 @@ public class IANScheduler extends Scheduler {
         int fetchSize = arcDev.getIanTaskFetchSize();
         long ianTaskPk = 0;
         List<IanTask> ianTasks;
-        Attributes ian;
         do {
             ianTasks = ejb.fetchIANTasksForMPPS(device.getDeviceName(), ianTaskPk, fetchSize);
-            for (IanTask ianTask : ianTasks) {
-                if (getPollingInterval() == null)
-                    return;
+            if (ianTasks.isEmpty())
+                break;
 
-                try {
-                    ianTaskPk = ianTask.getPk();
-                    ApplicationEntity ae = device.getApplicationEntity(ianTask.getCallingAET(), true);
-                    LOG.info("Check availability of {}", ianTask.getMpps());
-                    ian = createIANForMPPS(ae, ianTask.getMpps());
-                    if (ian != null) {
-                        LOG.info("Schedule {}", ianTask);
-                        ejb.scheduleIANTask(ianTask, ian);
-                    }
-                } catch (Exception e) {
-                    LOG.warn("Failed to process {}", ianTask, e);
-                }
-            }
+            ianTaskPk = ianTasks.get(ianTasks.size() - 1).getPk();
+            if (!process(arcDev, ianTasks, this::processIANTaskForMPPS))
+                return;
         } while (ianTasks.size() == fetchSize);
         do {
             ianTasks = ejb.fetchIANTasksForStudy(device.getDeviceName(), fetchSize);
-            for (IanTask ianTask : ianTasks) {
+            if (!process(arcDev, ianTasks, this::processIANTaskForStudy))
+                return;
+        } while (ianTasks.size() == fetchSize);
+    }
+
+    @FunctionalInterface
+    private interface IanTaskProcessor {
+        void process(ApplicationEntity ae, IanTask ianTask, Attributes ianOfStudy) throws Exception;
+    }
+
+    private boolean process(ArchiveDeviceExtension arcDev, List<IanTask> ianTasks, IanTaskProcessor processor) {
+        Map<String, List<IanTask>> ianTasksByStudy = new LinkedHashMap<>();
+        for (IanTask ianTask : ianTasks)
+            ianTasksByStudy.computeIfAbsent(studyInstanceUIDOf(ianTask), key -> new ArrayList<>()).add(ianTask);
+        Map<String, Attributes> iansOfStudies = createIANsForStudies(ianTasksByStudy);
+        int permits = arcDev.getIanTaskThreads();
+        Semaphore semaphore = new Semaphore(permits);
+        try {
+            for (List<IanTask> ianTasksOfStudy : ianTasksByStudy.values()) {
                 if (getPollingInterval() == null)
-                    return;
+                    return false;
 
-                try {
-                    ApplicationEntity ae = device.getApplicationEntity(ianTask.getCallingAET(), true);
-                    if (ianTask.getMpps() == null) {
-                        ian = queryService.createIAN(ae, ianTask.getStudyInstanceUID(), null,
-                                null,null, null);
-                        if (ian != null) {
-                            LOG.info("Schedule {}", ianTask);
-                            ejb.scheduleIANTask(ianTask, ian);
-                        } else {
-                            LOG.info("Ignore {} without referenced objects", ianTask);
-                            ejb.removeIANTask(ianTask);
-                        }
-                    } else {
-                        if (ae.getAEExtension(ArchiveAEExtension.class).ianOnTimeout()
-                                && (ian = queryService.createIAN(ae, ianTask.getMpps().getStudyInstanceUID(), null,
-                                null,null, null)) != null) {
-                            LOG.warn("Timeout for {} exceeded - schedule IAN for available instances", ianTask);
-                            ejb.scheduleIANTask(ianTask, ian);
-                        } else {
-                            LOG.warn("Timeout for {} exceeded - no IAN", ianTask);
-                            ejb.removeIANTask(ianTask);
+                semaphore.acquire();
+                device.execute(() -> {
+                    try {
+                        for (IanTask ianTask : ianTasksOfStudy) {
+                            try {
+                                processor.process(
+                                        device.getApplicationEntity(ianTask.getCallingAET(), true),
+                                        ianTask,
+                                        iansOfStudies.get(ianTaskKey(ianTask)));
+                            } catch (Exception e) {
+                                LOG.warn("Failed to process {}", ianTask, e);
+                            }
                         }
+                    } finally {
+                        semaphore.release();
                     }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted processing of IAN Tasks - stop processing of remaining IAN Tasks");
+            return false;
+        } finally {
+            semaphore.acquireUninterruptibly(permits);
+        }
+        return true;
+    }
+
+    private Map<String, Attributes> createIANsForStudies(Map<String, List<IanTask>> ianTasksByStudy) {
+        Map<String, Set<String>> studyUIDsByCallingAET = new HashMap<>();
+        ianTasksByStudy.forEach((studyUID, ianTasksOfStudy) -> {
+            for (IanTask ianTask : ianTasksOfStudy)
+                studyUIDsByCallingAET.computeIfAbsent(ianTask.getCallingAET(), key -> new HashSet<>()).add(studyUID);
+        });
+        Map<String, Attributes> iansOfStudies = new HashMap<>();
+        studyUIDsByCallingAET.forEach((callingAET, studyUIDs) -> {
+            ApplicationEntity ae = device.getApplicationEntity(callingAET, true);
+            if (ae != null)
+                try {
+                    queryService.createIANsForStudies(ae, studyUIDs).forEach(
+                            (studyUID, ian) -> iansOfStudies.put(ianTaskKey(callingAET, studyUID), ian));
                 } catch (Exception e) {
-                    LOG.warn("Failed to process {}", ianTask, e);
+                    LOG.warn("Failed to check availability of Studies{}", studyUIDs, e);
                 }
+        });
+        return iansOfStudies;
+    }
+
+    private static String studyInstanceUIDOf(IanTask ianTask) {
+        return ianTask.getMpps() != null ? ianTask.getMpps().getStudyInstanceUID() : ianTask.getStudyInstanceUID();
+    }
+
+    private static String ianTaskKey(IanTask ianTask) {
+        return ianTaskKey(ianTask.getCallingAET(), studyInstanceUIDOf(ianTask));
+    }
+
+    private static String ianTaskKey(String callingAET, String studyUID) {
+        return callingAET + '\\' + studyUID;
+    }
+
+    private void processIANTaskForMPPS(ApplicationEntity ae, IanTask ianTask, Attributes ianOfStudy)
+            throws Exception {
+        LOG.info("Check availability of {}", ianTask.getMpps());
+        Attributes ian = createIANForMPPS(ianTask.getMpps(), ianOfStudy);
+        if (ian != null) {
+            LOG.info("Schedule {}", ianTask);
+            ejb.scheduleIANTask(ianTask, ian);
+        }
+    }
+
+    private void processIANTaskForStudy(ApplicationEntity ae, IanTask ianTask, Attributes ianOfStudy)
+            throws Exception {
+        if (ianTask.getMpps() == null) {
+            if (ianOfStudy != null) {
+                LOG.info("Schedule {}", ianTask);
+                ejb.scheduleIANTask(ianTask, ianOfStudy);
+            } else {
+                LOG.info("Ignore {} without referenced objects", ianTask);
+                ejb.removeIANTask(ianTask);
             }
-        } while (ianTasks.size() == fetchSize);
+        } else {
+            if (ae.getAEExtension(ArchiveAEExtension.class).ianOnTimeout() && ianOfStudy != null) {
+                LOG.warn("Timeout for {} exceeded - schedule IAN for available instances", ianTask);
+                ejb.scheduleIANTask(ianTask, ianOfStudy);
+            } else {
+                LOG.warn("Timeout for {} exceeded - no IAN", ianTask);
+                ejb.removeIANTask(ianTask);
+            }
+        }
     }
 
     void onMPPSReceive(@Observes MPPSContext ctx) {
@@ -224,7 +292,10 @@ public class IANScheduler extends Scheduler {
                 ejb.scheduleMessage(ctx.getAETitle(), ian, remoteAET);
     }
 
-    private Attributes createIANForMPPS(ApplicationEntity ae, MPPS mpps) {
+    private Attributes createIANForMPPS(MPPS mpps, Attributes ianOfStudy) {
+        if (ianOfStudy == null)
+            return null;
+
         Attributes mppsAttrs = mpps.getAttributes();
         String studyInstanceUID = mpps.getStudyInstanceUID();
         Sequence perfSeriesSeq = mppsAttrs.getSequence(Tag.PerformedSeriesSequence);
@@ -232,24 +303,28 @@ public class IANScheduler extends Scheduler {
         Sequence refSeriesSeq = ian.newSequence(Tag.ReferencedSeriesSequence, perfSeriesSeq.size());
         ian.setString(Tag.StudyInstanceUID, VR.UI, studyInstanceUID);
         for (Attributes perfSeries : perfSeriesSeq) {
-            String seriesInstanceUID = perfSeries.getString(Tag.SeriesInstanceUID);
-            Attributes ianForSeries = queryService.createIAN(ae, studyInstanceUID, seriesInstanceUID,
-                    null, null, null);
-            if (ianForSeries == null)
+            Attributes refSeries = refSeries(ianOfStudy, perfSeries.getString(Tag.SeriesInstanceUID));
+            if (refSeries == null)
                 return null;
 
-            Attributes refSeries = ianForSeries.getSequence(Tag.ReferencedSeriesSequence).remove(0);
             Sequence available = refSeries.getSequence(Tag.ReferencedSOPSequence);
             if (!allAvailable(perfSeries.getSequence(Tag.ReferencedImageSequence), available) ||
                 !allAvailable(perfSeries.getSequence(Tag.ReferencedNonImageCompositeSOPInstanceSequence), available))
                 return null;
 
-            refSeriesSeq.add(refSeries);
+            refSeriesSeq.add(new Attributes(refSeries));
         }
         ian.newSequence(Tag.ReferencedPerformedProcedureStepSequence, 1).add(refMPPS(mpps));
         return ian;
     }
 
+    private static Attributes refSeries(Attributes ianOfStudy, String seriesInstanceUID) {
+        for (Attributes refSeries : ianOfStudy.getSequence(Tag.ReferencedSeriesSequence))
+            if (seriesInstanceUID.equals(refSeries.getString(Tag.SeriesInstanceUID)))
+                return refSeries;
+        return null;
+    }
+
     private Attributes refMPPS(MPPS mpps) {
         Attributes refMPPS = new Attributes(3);
         refMPPS.setString(Tag.ReferencedSOPClassUID, VR.UI, UID.ModalityPerformedProcedureStepSOPClass);
@@ -45,15 +45,32 @@ import org.dcm4che3.net.Device;
 import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
 import org.dcm4chee.arc.conf.KeycloakServer;
 import org.dcm4chee.arc.event.ArchiveServiceEvent;
-import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.keycloak.representations.AccessTokenResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Caches access tokens per Keycloak server. Tokens are renewed in the background after 3/4 of their lifetime, so
+ * callers only wait for the token endpoint on the first request for a server or if the background renewal failed.
+ * Concurrent renewals for the same server are merged into one token request. Background renewal stops if no token
+ * was requested for {@link #IDLE_TIMEOUT_MILLIS} ms; failed renewals are retried with exponential backoff. The HTTP
+ * client is re-acquired from the {@link HttpClientPool} for each token request, so renewals never use a client
+ * retired by a reload of the configuration.
+ *
  * @author Gunter Zeilinger <gunterze@gmail.com>
  * @author Vrinda Nayak <vrinda.nayak@j4care.com>
  * @since May 2018
@@ -61,78 +78,194 @@ import javax.inject.Inject;
 @ApplicationScoped
 public class AccessTokenRequestor {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AccessTokenRequestor.class);
+    private static final long MIN_VALIDITY_MILLIS = 5000L;
+    private static final long MIN_RENEWAL_DELAY_MILLIS = 1000L;
+    private static final long RETRY_DELAY_MILLIS = 10000L;
+    private static final long MAX_RETRY_DELAY_MILLIS = 600000L;
+    private static final long IDLE_TIMEOUT_MILLIS = 600000L;
+
     @Inject
     private Device device;
 
-    private CachedKeycloak cachedKeycloak;
+    @Inject
+    private HttpClientPool httpClientPool;
+
+    private final Map<String, CachedKeycloak> cachedKeycloaks = new ConcurrentHashMap<>();
 
     public void onArchiveServiceEvent(@Observes ArchiveServiceEvent event) {
         if (event.getType() == ArchiveServiceEvent.Type.RELOADED)
-            cachedKeycloak = null;
+            clear();
     }
 
-    public String getAccessTokenString(String keycloakServerID) throws Exception {
-        return getAccessTokenString(toCachedKeycloak(keycloakServerID));
+    @PreDestroy
+    public void clear() {
+        for (CachedKeycloak tmp : cachedKeycloaks.values())
+            tmp.cancel();
+        cachedKeycloaks.clear();
     }
 
-    private String getAccessTokenString(CachedKeycloak tmp) {
-        return tmp.keycloak.tokenManager().getAccessTokenString();
+    public String getAccessTokenString(String keycloakServerID) throws Exception {
+        return toCachedKeycloak(keycloakServerID).accessToken().token;
     }
-    
+
     public AccessToken getAccessToken(String keycloakServerID) throws Exception {
-        CachedKeycloak tmp = toCachedKeycloak(keycloakServerID);
-        return new AccessToken(
-                getAccessTokenString(tmp), 
-                tmp.keycloak.tokenManager().getAccessToken().getExpiresIn());
+        CachedToken token = toCachedKeycloak(keycloakServerID).accessToken();
+        return new AccessToken(token.token,
+                TimeUnit.MILLISECONDS.toSeconds(token.expiresAt - System.currentTimeMillis()));
     }
 
     private CachedKeycloak toCachedKeycloak(String keycloakServerID) throws Exception {
-        CachedKeycloak tmp = cachedKeycloak;
-        if (tmp == null || !tmp.keycloakServerID.equals(keycloakServerID)) {
+        CachedKeycloak tmp = cachedKeycloaks.get(keycloakServerID);
+        if (tmp == null) {
             KeycloakServer server = device.getDeviceExtensionNotNull(ArchiveDeviceExtension.class)
                     .getKeycloakServerNotNull(keycloakServerID);
-            cachedKeycloak = tmp = new CachedKeycloak(keycloakServerID, KeycloakBuilder.builder()
-                    .serverUrl(server.getServerURL())
-                    .realm(server.getRealm())
-                    .clientId(server.getClientID())
-                    .clientSecret(server.getClientSecret())
-                    .username(server.getUserID())
-                    .password(server.getPassword())
-                    .grantType(server.getGrantType().name())
-                    .resteasyClient(resteasyClientBuilder(
-                            server.getServerURL(),
-                            server.isTlsAllowAnyHostname(),
-                            server.isTlsDisableTrustManager())
-                            .build())
-                    .build());
+            tmp = new CachedKeycloak(keycloakServerID, server);
+            CachedKeycloak prev = cachedKeycloaks.putIfAbsent(keycloakServerID, tmp);
+            if (prev != null)
+                tmp = prev;
         }
         return tmp;
     }
 
-    public ResteasyClientBuilder resteasyClientBuilder(
-            String url, boolean allowAnyHostname, boolean disableTrustManager) throws Exception {
-        ResteasyClientBuilder builder = new ResteasyClientBuilder();
-        if (url.toLowerCase().startsWith("https")) {
-            builder.sslContext(device.sslContext())
-                    .hostnameVerification(allowAnyHostname
-                            ? ResteasyClientBuilder.HostnameVerificationPolicy.ANY
-                            : ResteasyClientBuilder.HostnameVerificationPolicy.WILDCARD);
-            if (disableTrustManager)
-                builder.disableTrustManager();
+    private class CachedKeycloak {
+        final String keycloakServerID;
+        final KeycloakServer server;
+        private ResteasyClient client;
+        private Keycloak keycloak;
+        volatile CachedToken token;
+        private CompletableFuture<CachedToken> pending;
+        private ScheduledFuture<?> scheduledRenewal;
+        private boolean canceled;
+        private int failures;
+        private volatile long lastAccessTime = System.currentTimeMillis();
+
+        CachedKeycloak(String keycloakServerID, KeycloakServer server) {
+            this.keycloakServerID = keycloakServerID;
+            this.server = server;
+        }
+
+        CachedToken accessToken() throws Exception {
+            lastAccessTime = System.currentTimeMillis();
+            CachedToken tmp = token;
+            return tmp != null && tmp.isValid() ? tmp : renew();
+        }
+
+        CachedToken renew() throws Exception {
+            CompletableFuture<CachedToken> future;
+            boolean request = false;
+            synchronized (this) {
+                if (pending == null) {
+                    pending = new CompletableFuture<>();
+                    request = true;
+                }
+                future = pending;
+            }
+            if (request)
+                requestToken(future);
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            }
+        }
+
+        private void requestToken(CompletableFuture<CachedToken> future) {
+            try {
+                AccessTokenResponse response = keycloak().tokenManager().grantToken();
+                CachedToken tmp = new CachedToken(response.getToken(), response.getExpiresIn());
+                token = tmp;
+                LOG.debug("Obtained access token from Keycloak server {} valid for {} s",
+                        keycloakServerID, response.getExpiresIn());
+                scheduleRenewal(renewalDelay(response.getExpiresIn()), false);
+                future.complete(tmp);
+            } catch (Exception e) {
+                LOG.warn("Failed to obtain access token from Keycloak server {}:\n", keycloakServerID, e);
+                scheduleRenewal(RETRY_DELAY_MILLIS, true);
+                future.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    pending = null;
+                }
+            }
+        }
+
+        private synchronized Keycloak keycloak() throws Exception {
+            ResteasyClient client = httpClientPool.getClient(
+                    server.getServerURL(),
+                    server.isTlsAllowAnyHostname(),
+                    server.isTlsDisableTrustManager());
+            if (keycloak == null || this.client != client) {
+                keycloak = KeycloakBuilder.builder()
+                        .serverUrl(server.getServerURL())
+                        .realm(server.getRealm())
+                        .clientId(server.getClientID())
+                        .clientSecret(server.getClientSecret())
+                        .username(server.getUserID())
+                        .password(server.getPassword())
+                        .grantType(server.getGrantType().name())
+                        .resteasyClient(client)
+                        .build();
+                this.client = client;
+            }
+            return keycloak;
+        }
+
+        private synchronized void scheduleRenewal(long delayMillis, boolean failed) {
+            if (failed) {
+                delayMillis = Math.min(delayMillis << Math.min(failures, 6), MAX_RETRY_DELAY_MILLIS);
+                failures++;
+            } else {
+                failures = 0;
+            }
+            if (canceled)
+                return;
+
+            if (scheduledRenewal != null)
+                scheduledRenewal.cancel(false);
+            scheduledRenewal = device.schedule(this::renewInBackground, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void renewInBackground() {
+            if (System.currentTimeMillis() - lastAccessTime > IDLE_TIMEOUT_MILLIS) {
+                LOG.debug("Stop renewal of access token from idle Keycloak server {}", keycloakServerID);
+                return;
+            }
+            try {
+                renew();
+            } catch (Exception e) {
+                // already logged by requestToken
+            }
+        }
+
+        synchronized void cancel() {
+            canceled = true;
+            if (scheduledRenewal != null)
+                scheduledRenewal.cancel(false);
         }
-        return builder;
     }
 
-    private static class CachedKeycloak {
-        final String keycloakServerID;
-        final Keycloak keycloak;
+    private static long renewalDelay(long expiresIn) {
+        long expiresInMillis = TimeUnit.SECONDS.toMillis(expiresIn);
+        return Math.max(Math.min(expiresInMillis * 3 / 4, expiresInMillis - MIN_VALIDITY_MILLIS),
+                MIN_RENEWAL_DELAY_MILLIS);
+    }
 
-        CachedKeycloak(String keycloakServerID, Keycloak keycloak) {
-            this.keycloakServerID = keycloakServerID;
-            this.keycloak = keycloak;
+    private static class CachedToken {
+        final String token;
+        final long expiresAt;
+
+        CachedToken(String token, long expiresIn) {
+            this.token = token;
+            this.expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expiresIn);
+        }
+
+        boolean isValid() {
+            return expiresAt - System.currentTimeMillis() > MIN_VALIDITY_MILLIS;
         }
     }
-    
+
     public static class AccessToken {
         final String token;
         final long expiration;
@@ -0,0 +1,335 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.keycloak;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.dcm4che3.net.Device;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.Duration;
+import org.dcm4chee.arc.event.ArchiveServiceEvent;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.jboss.resteasy.client.jaxrs.engines.PassthroughTrustManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.ws.rs.client.WebTarget;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares HTTP clients with pooled keep-alive connections between outbound REST requests, one per target origin
+ * and TLS options, configured by the HTTP Client attributes of the Archive Device. Clients are replaced on reload
+ * of the configuration; replaced clients are closed after they were not handed out for {@link #RETIRE_GRACE_PERIOD}
+ * ms and do not hold leased connections any more, so requests on a client handed out before the reload may still
+ * lease their connection. Waiting for a pooled connection is limited by the configured HTTP Client connect timeout,
+ * or by {@link #DEFAULT_CONNECTION_REQUEST_TIMEOUT} ms, if no connect timeout is configured.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@ApplicationScoped
+public class HttpClientPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpClientPool.class);
+    private static final String METRIC_NAME = "dcm4chee_arc_http_client_connections";
+    static final long RETIRE_GRACE_PERIOD = 60000L;
+    static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 30000;
+
+    @Inject
+    private Device device;
+
+    private final Map<Key, PooledClient> clients = new ConcurrentHashMap<>();
+    final List<PooledClient> retired = new ArrayList<>();
+    private boolean closeRetiredScheduled;
+
+    public void onArchiveServiceEvent(@Observes ArchiveServiceEvent event) {
+        if (event.getType() == ArchiveServiceEvent.Type.RELOADED)
+            retireAll();
+    }
+
+    @PreDestroy
+    public void close() {
+        retire();
+        synchronized (retired) {
+            for (PooledClient client : retired)
+                client.close();
+            retired.clear();
+        }
+    }
+
+    public WebTarget target(String url) throws Exception {
+        return getClient(url, false, false).target(url);
+    }
+
+    public ResteasyClient getClient(String url, boolean allowAnyHostname, boolean disableTrustManager) throws Exception {
+        long now = System.currentTimeMillis();
+        closeRetired(now);
+        Key key = new Key(URI.create(url), allowAnyHostname, disableTrustManager);
+        PooledClient client = clients.get(key);
+        if (client == null) {
+            synchronized (clients) {
+                client = clients.get(key);
+                if (client == null) {
+                    client = createClient(key);
+                    clients.put(key, client);
+                    LOG.info("Created HTTP client for {}", key);
+                }
+            }
+        }
+        client.lastHandedOut = now;
+        return client.client;
+    }
+
+    public void writeTo(Writer w) throws IOException {
+        w.write("# HELP ");
+        w.write(METRIC_NAME);
+        w.write(" Number of pooled connections of outbound HTTP requests by target origin and state\n# TYPE ");
+        w.write(METRIC_NAME);
+        w.write(" gauge\n");
+        for (Map.Entry<Key, PooledClient> entry : new TreeMap<>(clients).entrySet()) {
+            PoolStats stats = entry.getValue().connectionManager.getTotalStats();
+            String origin = entry.getKey().toString();
+            writeSample(w, origin, "leased", stats.getLeased());
+            writeSample(w, origin, "available", stats.getAvailable());
+            writeSample(w, origin, "pending", stats.getPending());
+            writeSample(w, origin, "max", stats.getMax());
+        }
+    }
+
+    private static void writeSample(Writer w, String origin, String state, int value) throws IOException {
+        w.write(METRIC_NAME);
+        w.write("{origin=\"");
+        w.write(origin);
+        w.write("\",state=\"");
+        w.write(state);
+        w.write("\"} ");
+        w.write(Integer.toString(value));
+        w.write('\n');
+    }
+
+    private void retireAll() {
+        retire();
+        scheduleCloseRetired();
+    }
+
+    private void retire() {
+        long now = System.currentTimeMillis();
+        synchronized (clients) {
+            synchronized (retired) {
+                for (PooledClient client : clients.values()) {
+                    client.retiredAt = now;
+                    retired.add(client);
+                }
+            }
+            clients.clear();
+        }
+    }
+
+    private void scheduleCloseRetired() {
+        synchronized (retired) {
+            if (closeRetiredScheduled || retired.isEmpty())
+                return;
+
+            device.schedule(this::closeRetiredScheduled, RETIRE_GRACE_PERIOD, TimeUnit.MILLISECONDS);
+            closeRetiredScheduled = true;
+        }
+    }
+
+    private void closeRetiredScheduled() {
+        synchronized (retired) {
+            closeRetiredScheduled = false;
+        }
+        closeRetired(System.currentTimeMillis());
+        scheduleCloseRetired();
+    }
+
+    void closeRetired(long now) {
+        synchronized (retired) {
+            for (Iterator<PooledClient> iter = retired.iterator(); iter.hasNext();) {
+                PooledClient client = iter.next();
+                if (client.isIdle(now)) {
+                    client.close();
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    private PooledClient createClient(Key key) throws Exception {
+        ArchiveDeviceExtension arcDev = device.getDeviceExtensionNotNull(ArchiveDeviceExtension.class);
+        RegistryBuilder<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory());
+        if (key.scheme.equals("https"))
+            registry.register("https", sslConnectionSocketFactory(key));
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                registry.build(), null, null, null,
+                toMillis(arcDev.getHttpClientConnectionTTL(), -1), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(arcDev.getHttpClientMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(arcDev.getHttpClientMaxConnections());
+        int connectTimeout = (int) toMillis(arcDev.getHttpClientConnectTimeout(), 0);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(connectionRequestTimeout(connectTimeout))
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout((int) toMillis(arcDev.getHttpClientReadTimeout(), 0))
+                .build();
+        ResteasyClient client = new ResteasyClientBuilder()
+                .httpEngine(new ApacheHttpClient43Engine(HttpClients.custom()
+                        .setConnectionManager(connectionManager)
+                        .setDefaultRequestConfig(requestConfig)
+                        .build(), true))
+                .build();
+        return new PooledClient(client, connectionManager);
+    }
+
+    private SSLConnectionSocketFactory sslConnectionSocketFactory(Key key) throws Exception {
+        SSLContext sslContext;
+        if (key.disableTrustManager) {
+            sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new TrustManager[]{ new PassthroughTrustManager() }, null);
+        } else {
+            sslContext = device.sslContext();
+        }
+        return new SSLConnectionSocketFactory(sslContext,
+                key.allowAnyHostname || key.disableTrustManager
+                        ? NoopHostnameVerifier.INSTANCE
+                        : new DefaultHostnameVerifier());
+    }
+
+    static int connectionRequestTimeout(int connectTimeout) {
+        return connectTimeout > 0 ? connectTimeout : DEFAULT_CONNECTION_REQUEST_TIMEOUT;
+    }
+
+    private static long toMillis(Duration duration, long defVal) {
+        return duration != null ? duration.getSeconds() * 1000L + duration.getNano() / 1000000 : defVal;
+    }
+
+    static class PooledClient {
+        final ResteasyClient client;
+        final PoolingHttpClientConnectionManager connectionManager;
+        volatile long lastHandedOut;
+        volatile long retiredAt;
+
+        PooledClient(ResteasyClient client, PoolingHttpClientConnectionManager connectionManager) {
+            this.client = client;
+            this.connectionManager = connectionManager;
+        }
+
+        boolean isIdle(long now) {
+            return now - Math.max(lastHandedOut, retiredAt) >= RETIRE_GRACE_PERIOD
+                    && connectionManager.getTotalStats().getLeased() == 0;
+        }
+
+        void close() {
+            try {
+                client.close();
+            } catch (Exception e) {
+                LOG.info("Failed to close HTTP client:\n", e);
+            }
+        }
+    }
+
+    private static class Key implements Comparable<Key> {
+        final String scheme;
+        final String host;
+        final int port;
+        final boolean allowAnyHostname;
+        final boolean disableTrustManager;
+
+        Key(URI uri, boolean allowAnyHostname, boolean disableTrustManager) {
+            this.scheme = uri.getScheme().toLowerCase();
+            this.host = uri.getHost().toLowerCase();
+            this.port = uri.getPort() != -1 ? uri.getPort() : scheme.equals("https") ? 443 : 80;
+            this.allowAnyHostname = allowAnyHostname && scheme.equals("https");
+            this.disableTrustManager = disableTrustManager && scheme.equals("https");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+            return port == key.port
+                    && allowAnyHostname == key.allowAnyHostname
+                    && disableTrustManager == key.disableTrustManager
+                    && scheme.equals(key.scheme)
+                    && host.equals(key.host);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scheme, host, port, allowAnyHostname, disableTrustManager);
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            return toString().compareTo(o.toString());
+        }
+
+        @Override
+        public String toString() {
+            String origin = scheme + "://" + host + ':' + port;
+            return disableTrustManager ? origin + "[disableTrustManager]"
+                    : allowAnyHostname ? origin + "[allowAnyHostname]"
+                    : origin;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2013
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.keycloak;
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+public class HttpClientPoolTest {
+
+    @Test
+    public void testCloseRetiredAfterGracePeriod() {
+        HttpClientPool pool = new HttpClientPool();
+        TestClient client = new TestClient();
+        client.retiredAt = 1000L;
+        pool.retired.add(client);
+        pool.closeRetired(1000L + HttpClientPool.RETIRE_GRACE_PERIOD - 1);
+        assertFalse(client.closed);
+        assertEquals(1, pool.retired.size());
+        pool.closeRetired(1000L + HttpClientPool.RETIRE_GRACE_PERIOD);
+        assertTrue(client.closed);
+        assertTrue(pool.retired.isEmpty());
+    }
+
+    @Test
+    public void testKeepRetiredHandedOutWithinGracePeriod() {
+        HttpClientPool pool = new HttpClientPool();
+        TestClient client = new TestClient();
+        client.retiredAt = 1000L;
+        client.lastHandedOut = 2000L;
+        pool.retired.add(client);
+        pool.closeRetired(1000L + HttpClientPool.RETIRE_GRACE_PERIOD);
+        assertFalse(client.closed);
+        pool.closeRetired(2000L + HttpClientPool.RETIRE_GRACE_PERIOD);
+        assertTrue(client.closed);
+    }
+
+    @Test
+    public void testConnectionRequestTimeout() {
+        assertEquals(5000, HttpClientPool.connectionRequestTimeout(5000));
+        assertEquals(HttpClientPool.DEFAULT_CONNECTION_REQUEST_TIMEOUT, HttpClientPool.connectionRequestTimeout(0));
+    }
+
+    private static class TestClient extends HttpClientPool.PooledClient {
+        boolean closed;
+
+        TestClient() {
+            super(null, new PoolingHttpClientConnectionManager());
+        }
+
+        @Override
+        void close() {
+            closed = true;
+        }
+    }
+}
@@ -48,6 +48,8 @@ package org.dcm4chee.arc.monitor.rs;
 import org.dcm4che3.net.Association;
 import org.dcm4che3.net.Device;
 import org.dcm4che3.net.Dimse;
+import org.dcm4chee.arc.keycloak.HttpClientPool;
+import org.dcm4chee.arc.metrics.MetricsService;
 import org.jboss.resteasy.annotations.cache.NoCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -74,6 +76,12 @@ public class ArchiveMonitor {
     @Inject
     private Device device;
 
+    @Inject
+    private MetricsService metricsService;
+
+    @Inject
+    private HttpClientPool httpClientPool;
+
     @Context
     private HttpServletRequest request;
 
@@ -127,6 +135,20 @@ public class ArchiveMonitor {
         throw new WebApplicationException(Response.Status.NOT_FOUND);
     }
 
+    @GET
+    @NoCache
+    @Path("metrics")
+    @Produces("text/plain; version=0.0.4")
+    public StreamingOutput metrics() {
+        logRequest();
+        return out -> {
+                Writer w = new OutputStreamWriter(out, "UTF-8");
+                metricsService.writeTo(w);
+                httpClientPool.writeTo(w);
+                w.flush();
+        };
+    }
+
     @GET
     @NoCache
     @Path("/serverTime")
@@ -42,6 +42,7 @@ package org.dcm4chee.arc.patient.impl;
 
 import org.dcm4che3.audit.AuditMessages;
 import org.dcm4che3.data.*;
+import org.dcm4chee.arc.PatientCache;
 import org.dcm4chee.arc.conf.AttributeFilter;
 import org.dcm4chee.arc.entity.*;
 import org.dcm4chee.arc.issuer.IssuerService;
@@ -71,6 +72,9 @@ public class PatientServiceEJB {
     @Inject
     private IssuerService issuerService;
 
+    @Inject
+    private PatientCache patientCache;
+
     public List<Patient> findPatients(IDWithIssuer pid) {
         List<Patient> list = em.createNamedQuery(Patient.FIND_BY_PATIENT_ID_EAGER, Patient.class)
                 .setParameter(1, pid.getID())
@@ -139,14 +143,20 @@ public class PatientServiceEJB {
 
     public Patient findPatient(IDWithIssuer pid)
             throws NonUniquePatientException, PatientMergedException {
-        List<Patient> list = findPatients(pid);
-        if (list.isEmpty())
-            return null;
+        Patient pat = findCachedPatient(pid);
+        if (pat == null) {
+            List<Patient> list = findPatients(pid);
+            if (list.isEmpty())
+                return null;
 
-        if (list.size() > 1)
-            throw new NonUniquePatientException("Multiple Patients with ID " + pid);
+            if (list.size() > 1)
+                throw new NonUniquePatientException("Multiple Patients with ID " + pid);
 
-        Patient pat = list.get(0);
+            pat = list.get(0);
+            List<Long> patPks = mergedChainOf(pat);
+            if (patPks != null)
+                patientCache.put(pid, patPks);
+        }
         Patient mergedWith = pat.getMergedWith();
         if (mergedWith != null)
             throw new PatientMergedException("" + pat + " merged with " + mergedWith);
@@ -268,31 +278,65 @@ public class PatientServiceEJB {
             return null;
         }
 
-        List<Patient> list = findPatients(ctx.getPatientID());
-        if (list.isEmpty())
-            return null;
+        Patient pat = findCachedPatient(ctx.getPatientID());
+        if (pat == null) {
+            List<Patient> list = findPatients(ctx.getPatientID());
+            if (list.isEmpty())
+                return null;
 
-        if (list.size() > 1) {
-            LOG.info("{}: Multiple Patients with ID: {}", ctx, ctx.getPatientID());
+            if (list.size() > 1) {
+                LOG.info("{}: Multiple Patients with ID: {}", ctx, ctx.getPatientID());
+                return null;
+            }
+
+            pat = list.get(0);
+            List<Long> patPks = mergedChainOf(pat);
+            if (patPks == null) {
+                LOG.warn("{}: Detected circular merged {}", ctx, ctx.getPatientID());
+                return null;
+            }
+            patientCache.put(ctx.getPatientID(), patPks);
+        }
+        Patient mergedWith;
+        while ((mergedWith = pat.getMergedWith()) != null)
+            pat = mergedWith;
+        return pat;
+    }
+
+    private Patient findCachedPatient(IDWithIssuer pid) {
+        List<Long> patPks = patientCache.get(pid);
+        if (patPks == null)
             return null;
+
+        Patient pat = em.find(Patient.class, patPks.get(0));
+        if (pat != null) {
+            IDWithIssuer pidOfPat = pidOf(pat.getPatientID());
+            if (pidOfPat != null && pid.matches(pidOfPat) && patPks.equals(mergedChainOf(pat)))
+                return pat;
         }
 
-        Patient pat = list.get(0);
-        Patient mergedWith = pat.getMergedWith();
-        if (mergedWith == null)
-            return pat;
+        patientCache.remove(pid);
+        return null;
+    }
 
-        HashSet<Long> patPks = new HashSet<>();
+    private static IDWithIssuer pidOf(PatientID patientID) {
+        if (patientID == null)
+            return null;
+
+        IssuerEntity issuer = patientID.getIssuer();
+        return new IDWithIssuer(patientID.getID(), issuer != null ? issuer.getIssuer() : null);
+    }
+
+    private static List<Long> mergedChainOf(Patient pat) {
+        List<Long> patPks = new ArrayList<>(1);
         do {
-            if (!patPks.add(mergedWith.getPk())) {
-                LOG.warn("{}: Detected circular merged {}", ctx, ctx.getPatientID());
+            if (patPks.contains(pat.getPk()))
                 return null;
-            }
 
-            pat = mergedWith;
-            mergedWith = pat.getMergedWith();
-        } while (mergedWith != null);
-        return pat;
+            patPks.add(pat.getPk());
+            pat = pat.getMergedWith();
+        } while (pat != null);
+        return patPks;
     }
 
     private void moveStudies(Patient from, Patient to) {
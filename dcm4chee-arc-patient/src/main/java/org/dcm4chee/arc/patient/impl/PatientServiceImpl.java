@@ -45,6 +45,7 @@ import org.dcm4che3.net.Association;
 import org.dcm4che3.net.Device;
 import org.dcm4che3.net.hl7.HL7Application;
 import org.dcm4che3.net.hl7.UnparsedHL7Message;
+import org.dcm4chee.arc.PatientCache;
 import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
 import org.dcm4chee.arc.entity.Patient;
 import org.dcm4chee.arc.patient.*;
@@ -74,6 +75,9 @@ public class PatientServiceImpl implements PatientService {
     @Inject
     private Event<PatientMgtContext> patientMgtEvent;
 
+    @Inject
+    private PatientCache patientCache;
+
     @Override
     public PatientMgtContext createPatientMgtContextDIMSE(Association as) {
         PatientMgtContextImpl ctx = new PatientMgtContextImpl(device);
@@ -120,6 +124,7 @@ public class PatientServiceImpl implements PatientService {
             ctx.setException(e);
             throw e;
         } finally {
+            patientCache.removePatientID(ctx.getPatientID());
             if (ctx.getEventActionCode() != null)
                 patientMgtEvent.fire(ctx);
         }
@@ -134,6 +139,7 @@ public class PatientServiceImpl implements PatientService {
             ctx.setException(e);
             throw e;
         } finally {
+            patientCache.removePatientID(ctx.getPatientID());
             if (ctx.getEventActionCode() != null)
                 patientMgtEvent.fire(ctx);
         }
@@ -151,6 +157,8 @@ public class PatientServiceImpl implements PatientService {
             ctx.setException(e);
             throw e;
         } finally {
+            patientCache.removePatientID(ctx.getPatientID());
+            patientCache.removePatientID(ctx.getPreviousPatientID());
             if (ctx.getEventActionCode() != null)
                 patientMgtEvent.fire(ctx);
         }
@@ -174,6 +182,8 @@ public class PatientServiceImpl implements PatientService {
             ctx.setException(e);
             throw e;
         } finally {
+            patientCache.removePatientID(ctx.getPatientID());
+            patientCache.removePatientID(ctx.getPreviousPatientID());
             if (ctx.getEventActionCode() != null)
                 patientMgtEvent.fire(ctx);
         }
@@ -194,13 +204,16 @@ public class PatientServiceImpl implements PatientService {
     @Override
     public void deletePatientFromUI(PatientMgtContext ctx) {
         ejb.deletePatientFromUI(ctx.getPatient());
+        patientCache.clear();
         patientMgtEvent.fire(ctx);
     }
 
     @Override
     public void deletePatientIfHasNoMergedWith(PatientMgtContext ctx) {
         boolean patientDeleted = ejb.deletePatientIfHasNoMergedWith(ctx.getPatient());
-        if (patientDeleted)
+        if (patientDeleted) {
+            patientCache.removePatientID(IDWithIssuer.pidOf(ctx.getPatient().getAttributes()));
             patientMgtEvent.fire(ctx);
+        }
     }
 }
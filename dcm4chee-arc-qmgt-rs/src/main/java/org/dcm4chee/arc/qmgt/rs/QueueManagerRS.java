@@ -48,6 +48,7 @@ import org.dcm4chee.arc.entity.QueueMessage;
 import org.dcm4chee.arc.event.BulkQueueMessageEvent;
 import org.dcm4chee.arc.event.QueueMessageEvent;
 import org.dcm4chee.arc.event.QueueMessageOperation;
+import org.dcm4chee.arc.qmgt.DestinationConcurrency;
 import org.dcm4chee.arc.qmgt.IllegalTaskStateException;
 import org.dcm4chee.arc.qmgt.QueueManager;
 import org.dcm4chee.arc.qmgt.QueueMessageQuery;
@@ -61,6 +62,7 @@ import javax.enterprise.context.RequestScoped;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.json.Json;
+import javax.json.stream.JsonGenerator;
 import javax.json.stream.JsonParser;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.Pattern;
@@ -156,6 +158,32 @@ public class QueueManagerRS {
         return count(mgr.countTasks(matchQueueMessage(status(), null)));
     }
 
+    @GET
+    @NoCache
+    @Path("/concurrency")
+    @Produces("application/json")
+    public StreamingOutput listDestinationConcurrency() {
+        logRequest();
+        List<DestinationConcurrency> list = mgr.listDestinationConcurrency(queueName);
+        return out -> {
+            JsonGenerator gen = Json.createGenerator(out);
+            gen.writeStartArray();
+            for (DestinationConcurrency dc : list) {
+                gen.writeStartObject();
+                gen.write("destination", dc.getDestination());
+                gen.write("limit", dc.getLimit());
+                gen.write("maxLimit", dc.getMaxLimit());
+                gen.write("inProcess", dc.getInProcess());
+                gen.write("deferred", dc.getDeferred());
+                gen.write("failed", dc.getFailed());
+                gen.write("avgProcessingTime", dc.getAvgProcessingTime());
+                gen.writeEnd();
+            }
+            gen.writeEnd();
+            gen.flush();
+        };
+    }
+
     @POST
     @Path("{msgId}/cancel")
     public Response cancelProcessing(@PathParam("msgId") String msgId) {
@@ -61,6 +61,9 @@ public interface QueueManager {
     QueueMessage scheduleMessage(String queueName, ObjectMessage message, int priority, String batchID)
             throws QueueSizeLimitExceededException;
 
+    List<QueueMessage> scheduleMessages(String queueName, List<ObjectMessage> messages, int priority, String batchID)
+            throws QueueSizeLimitExceededException;
+
     long countScheduledMessagesOnThisDevice(String queueName);
 
     QueueMessage onProcessingStart(String msgId);
@@ -69,6 +72,8 @@ public interface QueueManager {
 
     QueueMessage onProcessingFailed(String msgId, Throwable e);
 
+    List<DestinationConcurrency> listDestinationConcurrency(String queueName);
+
     boolean cancelTask(String msgId, QueueMessageEvent queueEvent) throws IllegalTaskStateException;
 
     long cancelTasks(Predicate matchQueueMessage, QueueMessage.Status prev) throws IllegalTaskStateException;
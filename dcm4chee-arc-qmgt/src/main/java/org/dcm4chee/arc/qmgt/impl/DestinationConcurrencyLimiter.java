@@ -0,0 +1,217 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.qmgt.impl;
+
+import org.dcm4chee.arc.conf.QueueDescriptor;
+import org.dcm4chee.arc.entity.QueueMessage;
+import org.dcm4chee.arc.qmgt.DestinationConcurrency;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Limits the number of tasks of one queue concurrently processed for one destination - identified by the
+ * {@code Destination}, {@code RemoteAET}, {@code ExporterID}, {@code ReceivingApplication}, {@code SecondaryAET} or
+ * {@code URI} message property - by an AIMD (additive increase, multiplicative decrease) controlled limit, bounded by
+ * the {@code MaxTasksPerDestination} message property, if present, or by
+ * {@link QueueDescriptor#getMaxTasksPerDestination()}. The limit is increased by one per limit of successfully
+ * processed tasks, and decreased on failures or on processing times exceeding the double of the average processing
+ * time for the destination. Tasks for a saturated destination shall be rescheduled with the delay returned by
+ * {@link #tryAcquire}.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@ApplicationScoped
+public class DestinationConcurrencyLimiter {
+
+    private static final String[] DESTINATION_PROPERTIES =
+            { "Destination", "RemoteAET", "ExporterID", "ReceivingApplication", "SecondaryAET", "URI" };
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double LATENCY_BACKOFF = 0.9;
+    private static final double FAILURE_BACKOFF = 0.5;
+    private static final double AVG_WEIGHT = 0.1;
+    private static final long MIN_DEFERRAL_DELAY = 1000L;
+    private static final long MAX_DEFERRAL_DELAY = 60000L;
+
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+    private final Map<String, Permit> permits = new ConcurrentHashMap<>();
+
+    /**
+     * Acquires a permit to process the task.
+     *
+     * @return {@code 0} if the task may be processed, otherwise the delay in ms after which the task shall be
+     *         rescheduled
+     */
+    public long tryAcquire(QueueMessage msg, QueueDescriptor descriptor) {
+        String maxTasksPerDestination = msg.getStringProperty("MaxTasksPerDestination");
+        int maxLimit = maxTasksPerDestination != null
+                ? Integer.parseInt(maxTasksPerDestination)
+                : descriptor.getMaxTasksPerDestination();
+        return maxLimit > 0 ? tryAcquire(msg.getMessageID(), msg.getQueueName(), destinationOf(msg), maxLimit) : 0L;
+    }
+
+    long tryAcquire(String msgId, String queueName, String destination, int maxLimit) {
+        if (maxLimit <= 0 || destination == null || permits.containsKey(msgId))
+            return 0L;
+
+        Limit limit = limits.computeIfAbsent(queueName + '\\' + destination,
+                key -> new Limit(queueName, destination));
+        long delay = limit.tryAcquire(maxLimit);
+        if (delay == 0L)
+            permits.put(msgId, new Permit(limit));
+        return delay;
+    }
+
+    /**
+     * Releases the permit acquired for the task and adjusts the limit for its destination according to the
+     * processing time and the outcome.
+     */
+    public void release(String msgId, boolean success) {
+        Permit permit = permits.remove(msgId);
+        if (permit != null)
+            permit.limit.release(
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - permit.startTime), success);
+    }
+
+    /**
+     * Releases the permit acquired for the task without adjusting the limit for its destination.
+     */
+    public void cancel(String msgId) {
+        Permit permit = permits.remove(msgId);
+        if (permit != null)
+            permit.limit.cancel();
+    }
+
+    public List<DestinationConcurrency> list(String queueName) {
+        return limits.values().stream()
+                .filter(limit -> queueName == null || queueName.equals(limit.queueName))
+                .map(Limit::snapshot)
+                .sorted((a, b) -> a.getDestination().compareTo(b.getDestination()))
+                .collect(Collectors.toList());
+    }
+
+    private static String destinationOf(QueueMessage msg) {
+        for (String name : DESTINATION_PROPERTIES) {
+            String value = msg.getStringProperty(name);
+            if (value != null)
+                return name.equals("URI") ? authorityOf(value) : value;
+        }
+        return null;
+    }
+
+    static String authorityOf(String uri) {
+        int start = uri.indexOf("://");
+        if (start < 0)
+            return uri;
+
+        int end = uri.indexOf('/', start + 3);
+        return end < 0 ? uri : uri.substring(0, end);
+    }
+
+    private static class Permit {
+        final Limit limit;
+        final long startTime = System.nanoTime();
+
+        Permit(Limit limit) {
+            this.limit = limit;
+        }
+    }
+
+    private static class Limit {
+        final String queueName;
+        final String destination;
+        double limit;
+        int maxLimit;
+        int inProcess;
+        double avgProcessingTime;
+        long deferred;
+        long failed;
+
+        Limit(String queueName, String destination) {
+            this.queueName = queueName;
+            this.destination = destination;
+        }
+
+        synchronized long tryAcquire(int maxLimit) {
+            if (this.maxLimit != maxLimit) {
+                this.maxLimit = maxLimit;
+                limit = limit == 0 ? maxLimit : Math.min(limit, maxLimit);
+            }
+            if (inProcess < (int) limit) {
+                inProcess++;
+                return 0L;
+            }
+            deferred++;
+            long delay = Math.max(MIN_DEFERRAL_DELAY, Math.min(MAX_DEFERRAL_DELAY, (long) avgProcessingTime));
+            return delay + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        }
+
+        synchronized void release(long processingTime, boolean success) {
+            inProcess--;
+            if (!success) {
+                failed++;
+                limit = Math.max(1.0, limit * FAILURE_BACKOFF);
+                return;
+            }
+            if (avgProcessingTime > 0 && processingTime > avgProcessingTime * LATENCY_TOLERANCE)
+                limit = Math.max(1.0, limit * LATENCY_BACKOFF);
+            else
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            avgProcessingTime = avgProcessingTime > 0
+                    ? avgProcessingTime + (processingTime - avgProcessingTime) * AVG_WEIGHT
+                    : processingTime;
+        }
+
+        synchronized void cancel() {
+            inProcess--;
+        }
+
+        synchronized DestinationConcurrency snapshot() {
+            return new DestinationConcurrency(queueName, destination, (int) limit, maxLimit, inProcess,
+                    deferred, failed, (long) avgProcessingTime);
+        }
+    }
+}
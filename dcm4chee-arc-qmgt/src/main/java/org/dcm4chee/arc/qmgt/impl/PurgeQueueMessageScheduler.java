@@ -46,14 +46,18 @@ import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
 import org.dcm4chee.arc.conf.Duration;
 import org.dcm4chee.arc.conf.QueueDescriptor;
 import org.dcm4chee.arc.entity.QueueMessage;
-import org.dcm4chee.arc.qmgt.QueueManager;
 import org.dcm4chee.arc.query.util.MatchTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -68,7 +72,11 @@ public class PurgeQueueMessageScheduler extends Scheduler {
     private Device device;
 
     @Inject
-    private QueueManager mgr;
+    private QueueManagerEJB ejb;
+
+    private final Set<String> inProcess = Collections.synchronizedSet(new HashSet<>());
+
+    private final AtomicLong nextPurgeTime = new AtomicLong();
 
     protected PurgeQueueMessageScheduler() {
         super(Mode.scheduleWithFixedDelay);
@@ -88,25 +96,48 @@ public class PurgeQueueMessageScheduler extends Scheduler {
     @Override
     protected void execute() {
         ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
-        for (QueueDescriptor desc : arcDev.getQueueDescriptors())
-            delete(desc.getQueueName(), QueueMessage.Status.COMPLETED, desc.getPurgeQueueMessageCompletedDelay());
+        for (QueueDescriptor desc : arcDev.getQueueDescriptors()) {
+            Duration delay = desc.getPurgeQueueMessageCompletedDelay();
+            String queueName = desc.getQueueName();
+            if (delay != null && inProcess.add(queueName))
+                device.execute(() -> {
+                    try {
+                        delete(queueName, QueueMessage.Status.COMPLETED, delay);
+                    } catch (Throwable e) {
+                        LOG.warn("Failed to purge messages from queue: {}", queueName, e);
+                    } finally {
+                        inProcess.remove(queueName);
+                    }
+                });
+        }
     }
 
-    private void delete(String queueName, QueueMessage.Status status, Duration delay) {
-        if (delay == null)
-            return;
-
+    private void delete(String queueName, QueueMessage.Status status, Duration delay) throws InterruptedException {
         Date before = new Date(System.currentTimeMillis() - delay.getSeconds() * 1000);
         int deleted = 0;
         int count;
-        int deleteTaskFetchSize = device.getDeviceExtensionNotNull(ArchiveDeviceExtension.class).getQueueTasksFetchSize();
+        ArchiveDeviceExtension arcDev = device.getDeviceExtensionNotNull(ArchiveDeviceExtension.class);
+        int deleteTaskFetchSize = arcDev.getQueueTasksFetchSize();
         do {
-            count = mgr.deleteTasks(
+            count = ejb.purgeTasks(
                     MatchTask.matchQueueMessage(queueName, null, status, null, null,null, null, before),
                     deleteTaskFetchSize);
             deleted += count;
-        } while (count >= deleteTaskFetchSize);
+            throttle(count, arcDev.getPurgeQueueMessageRowsPerSecond());
+        } while (count >= deleteTaskFetchSize && arcDev.getPurgeQueueMessagePollingInterval() != null);
         if (deleted > 0)
             LOG.info("Deleted " + deleted + " messages from queue: " + queueName);
     }
+
+    private void throttle(int deleted, int rowsPerSecond) throws InterruptedException {
+        if (rowsPerSecond <= 0 || deleted == 0)
+            return;
+
+        long now = System.nanoTime();
+        long permitted = TimeUnit.SECONDS.toNanos(deleted) / rowsPerSecond;
+        long delay = nextPurgeTime.accumulateAndGet(now,
+                (next, current) -> (next - current > 0 ? next : current) + permitted) - now;
+        if (delay > 0)
+            TimeUnit.NANOSECONDS.sleep(delay);
+    }
 }
\ No newline at end of file
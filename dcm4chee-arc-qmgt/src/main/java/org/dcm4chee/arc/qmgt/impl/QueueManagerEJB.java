@@ -43,6 +43,7 @@ package org.dcm4chee.arc.qmgt.impl;
 import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.hibernate.HibernateDeleteClause;
 import com.querydsl.jpa.hibernate.HibernateQuery;
 import com.querydsl.jpa.hibernate.HibernateUpdateClause;
 import org.dcm4che3.net.Device;
@@ -50,6 +51,8 @@ import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
 import org.dcm4chee.arc.conf.QueueDescriptor;
 import org.dcm4chee.arc.entity.*;
 import org.dcm4chee.arc.event.QueueMessageEvent;
+import org.dcm4chee.arc.metrics.Metric;
+import org.dcm4chee.arc.metrics.MetricsService;
 import org.dcm4chee.arc.qmgt.IllegalTaskStateException;
 import org.dcm4chee.arc.qmgt.MessageCanceled;
 import org.dcm4chee.arc.qmgt.Outcome;
@@ -72,8 +75,12 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -85,6 +92,8 @@ public class QueueManagerEJB {
 
     private static final Logger LOG = LoggerFactory.getLogger(QueueManagerEJB.class);
 
+    private static final Map<String, Queue> queues = new ConcurrentHashMap<>();
+
     @PersistenceContext(unitName="dcm4chee-arc")
     private EntityManager em;
 
@@ -97,6 +106,15 @@ public class QueueManagerEJB {
     @Inject
     private Event<MessageCanceled> messageCanceledEvent;
 
+    @Inject
+    private MetricsService metricsService;
+
+    @Inject
+    private ScheduledMessageCounter scheduledMessageCounter;
+
+    @Inject
+    private DestinationConcurrencyLimiter destinationConcurrencyLimiter;
+
     @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     public ObjectMessage createObjectMessage(Serializable object) {
         return jmsCtx.createObjectMessage(object);
@@ -106,17 +124,44 @@ public class QueueManagerEJB {
             throws QueueSizeLimitExceededException {
         QueueDescriptor queueDescriptor = descriptorOf(queueName);
         int maxQueueSize = queueDescriptor.getMaxQueueSize();
-        if (maxQueueSize > 0 && maxQueueSize < countScheduledMessagesOnThisDevice(queueName))
+        if (maxQueueSize > 0 && maxQueueSize < countScheduledMessages(queueName))
             throw new QueueSizeLimitExceededException(queueDescriptor);
 
         sendMessage(queueDescriptor, msg, 0L, priority);
         QueueMessage entity = new QueueMessage(device.getDeviceName(), queueName, msg);
         entity.setBatchID(batchID);
         em.persist(entity);
+        scheduledMessageCounter.add(queueName, 1);
         LOG.info("Schedule Task[id={}] at Queue {}", entity.getMessageID(), entity.getQueueName());
         return entity;
     }
 
+    public List<QueueMessage> scheduleMessages(String queueName, List<ObjectMessage> msgs, int priority,
+            String batchID) throws QueueSizeLimitExceededException {
+        QueueDescriptor queueDescriptor = descriptorOf(queueName);
+        int maxQueueSize = queueDescriptor.getMaxQueueSize();
+        if (maxQueueSize > 0 && maxQueueSize < countScheduledMessages(queueName) + msgs.size() - 1)
+            throw new QueueSizeLimitExceededException(queueDescriptor);
+
+        Queue queue = lookup(queueDescriptor.getJndiName());
+        JMSProducer producer = jmsCtx.createProducer().setPriority(priority);
+        List<QueueMessage> entities = new ArrayList<>(msgs.size());
+        for (ObjectMessage msg : msgs) {
+            producer.send(queue, msg);
+            QueueMessage entity = new QueueMessage(device.getDeviceName(), queueName, msg);
+            entity.setBatchID(batchID);
+            em.persist(entity);
+            entities.add(entity);
+        }
+        scheduledMessageCounter.add(queueName, entities.size());
+        LOG.info("Schedule {} Tasks at Queue {}", entities.size(), queueName);
+        return entities;
+    }
+
+    private long countScheduledMessages(String queueName) {
+        return scheduledMessageCounter.get(queueName, () -> countScheduledMessagesOnThisDevice(queueName));
+    }
+
     public long countScheduledMessagesOnThisDevice(String queueName) {
         return em.createNamedQuery(QueueMessage.COUNT_BY_DEVICE_AND_QUEUE_NAME_AND_STATUS, Long.class)
                 .setParameter(1, device.getDeviceName())
@@ -132,9 +177,21 @@ public class QueueManagerEJB {
         } else switch (entity.getStatus()) {
             case IN_PROCESS:
             case SCHEDULED:
+                QueueDescriptor descriptor = descriptorOf(entity.getQueueName());
+                long delay = destinationConcurrencyLimiter.tryAcquire(entity, descriptor);
+                if (delay > 0) {
+                    LOG.info("Defer processing of Task[id={}] from Queue {} by {} ms - limit of concurrently " +
+                                    "processed tasks for the same destination reached",
+                            entity.getMessageID(), entity.getQueueName(), delay);
+                    entity.setProcessingStartTime(null);
+                    rescheduleTask(entity, descriptor, delay);
+                    return null;
+                }
                 LOG.info("Start processing Task[id={}] from Queue {} with Status: {}",
                         entity.getMessageID(), entity.getQueueName(), entity.getStatus());
                 entity.setProcessingStartTime(new Date());
+                if (entity.getStatus() == QueueMessage.Status.SCHEDULED)
+                    scheduledMessageCounter.add(entity.getQueueName(), -1);
                 entity.setStatus(QueueMessage.Status.IN_PROCESS);
                 setUpdateTime(entity);
                 return entity;
@@ -155,6 +212,7 @@ public class QueueManagerEJB {
         QueueMessage.Status status = outcome.getStatus();
         String queueName = entity.getQueueName();
         entity.setProcessingEndTime(new Date());
+        recordProcessingTime(entity);
         entity.setOutcomeMessage(outcome.getDescription());
         entity.setStatus(status);
         setUpdateTime(entity);
@@ -168,7 +226,6 @@ public class QueueManagerEJB {
         if (delay >= 0) {
             LOG.info("Failed processing of Task[id={}] at Queue {} with Status {} - retry",
                     msgId, queueName, status);
-            entity.setStatus(QueueMessage.Status.SCHEDULED);
             rescheduleTask(entity, descriptor, delay * 1000L);
             return entity;
         }
@@ -187,6 +244,7 @@ public class QueueManagerEJB {
 
         entity.setErrorMessage(e.getMessage());
         entity.setProcessingEndTime(new Date());
+        recordProcessingTime(entity);
         QueueDescriptor descriptor = descriptorOf(entity.getQueueName());
         long delay = descriptor.getRetryDelayInSeconds(entity.incrementNumberOfFailures());
         if (delay < 0) {
@@ -200,6 +258,13 @@ public class QueueManagerEJB {
         return entity;
     }
 
+    private void recordProcessingTime(QueueMessage entity) {
+        Date processingStartTime = entity.getProcessingStartTime();
+        if (processingStartTime != null)
+            metricsService.record(Metric.QUEUE, entity.getQueueName(), TimeUnit.MILLISECONDS.toNanos(
+                    entity.getProcessingEndTime().getTime() - processingStartTime.getTime()));
+    }
+
     public boolean cancelTask(String msgId, QueueMessageEvent queueEvent) throws IllegalTaskStateException {
         QueueMessage entity = findQueueMessage(msgId);
         if (entity == null)
@@ -221,6 +286,8 @@ public class QueueManagerEJB {
     }
 
     private void cancelTask(QueueMessage entity) {
+        if (entity.getStatus() == QueueMessage.Status.SCHEDULED)
+            scheduledMessageCounter.add(entity.getQueueName(), -1);
         entity.setStatus(QueueMessage.Status.CANCELED);
         setUpdateTime(entity);
         LOG.info("Cancel processing of Task[id={}] at Queue {}", entity.getMessageID(), entity.getQueueName());
@@ -280,6 +347,7 @@ public class QueueManagerEJB {
     }
 
     private long updateStatus(HibernateQuery<Long> queueMessageQuery, QueueMessage.Status status, Date now) {
+        scheduledMessageCounter.invalidate();
         return new HibernateUpdateClause(em.unwrap(Session.class), QQueueMessage.queueMessage)
                 .set(QQueueMessage.queueMessage.status, status)
                 .set(QQueueMessage.queueMessage.updatedTime, now)
@@ -413,7 +481,10 @@ public class QueueManagerEJB {
             sendMessage(descriptor, msg, delay, entity.getPriority());
             entity.setMessageID(msg.getJMSMessageID());
             entity.setScheduledTime(new Date(System.currentTimeMillis() + delay));
-            entity.setStatus(QueueMessage.Status.SCHEDULED);
+            if (entity.getStatus() != QueueMessage.Status.SCHEDULED) {
+                entity.setStatus(QueueMessage.Status.SCHEDULED);
+                scheduledMessageCounter.add(entity.getQueueName(), 1);
+            }
             entity.setDeviceName(device.getDeviceName());
             setUpdateTime(entity);
             LOG.info("Reschedule Task[id={}] at Queue {}", entity.getMessageID(), entity.getQueueName());
@@ -437,6 +508,8 @@ public class QueueManagerEJB {
     }
 
     private void deleteTask(QueueMessage entity) {
+        if (entity.getStatus() == QueueMessage.Status.SCHEDULED)
+            scheduledMessageCounter.add(entity.getQueueName(), -1);
         if (entity.getExportTask() != null)
             em.remove(entity.getExportTask());
         else if (entity.getRetrieveTask() != null)
@@ -461,6 +534,39 @@ public class QueueManagerEJB {
         return count;
     }
 
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int purgeTasks(Predicate matchQueueMessage, int purgeTaskFetchSize) {
+        List<Long> pks = createQuery(matchQueueMessage)
+                .select(QQueueMessage.queueMessage.pk)
+                .orderBy(QQueueMessage.queueMessage.pk.asc())
+                .limit(purgeTaskFetchSize)
+                .fetch();
+        if (pks.isEmpty())
+            return 0;
+
+        Session session = em.unwrap(Session.class);
+        List<DiffTask> diffTasks = new HibernateQuery<DiffTask>(session)
+                .from(QDiffTask.diffTask)
+                .where(QDiffTask.diffTask.queueMessage.pk.in(pks))
+                .fetch();
+        if (!diffTasks.isEmpty()) {
+            diffTasks.forEach(em::remove);
+            em.flush();
+        }
+        new HibernateDeleteClause(session, QExportTask.exportTask)
+                .where(QExportTask.exportTask.queueMessage.pk.in(pks))
+                .execute();
+        new HibernateDeleteClause(session, QRetrieveTask.retrieveTask)
+                .where(QRetrieveTask.retrieveTask.queueMessage.pk.in(pks))
+                .execute();
+        new HibernateDeleteClause(session, QStorageVerificationTask.storageVerificationTask)
+                .where(QStorageVerificationTask.storageVerificationTask.queueMessage.pk.in(pks))
+                .execute();
+        return diffTasks.size() + (int) new HibernateDeleteClause(session, QQueueMessage.queueMessage)
+                .where(QQueueMessage.queueMessage.pk.in(pks))
+                .execute();
+    }
+
     public long countTasks(Predicate matchQueueMessage) {
         return createQuery(matchQueueMessage).fetchCount();
     }
@@ -491,6 +597,10 @@ public class QueueManagerEJB {
     }
 
     private Queue lookup(String jndiName) {
+        return queues.computeIfAbsent(jndiName, QueueManagerEJB::doLookup);
+    }
+
+    private static Queue doLookup(String jndiName) {
         try {
             return InitialContext.doLookup(jndiName);
         } catch (NamingException e) {
@@ -61,6 +61,9 @@ public class QueueManagerImpl implements QueueManager {
     @Inject
     private QueueManagerEJB ejb;
 
+    @Inject
+    private DestinationConcurrencyLimiter destinationConcurrencyLimiter;
+
     @Override
     public ObjectMessage createObjectMessage(Serializable object) {
         return ejb.createObjectMessage(object);
@@ -72,6 +75,12 @@ public class QueueManagerImpl implements QueueManager {
         return ejb.scheduleMessage(queueName, message, priority, batchID);
     }
 
+    @Override
+    public List<QueueMessage> scheduleMessages(String queueName, List<ObjectMessage> messages, int priority,
+            String batchID) throws QueueSizeLimitExceededException {
+        return ejb.scheduleMessages(queueName, messages, priority, batchID);
+    }
+
     @Override
     public long countScheduledMessagesOnThisDevice(String queueName) {
         return ejb.countScheduledMessagesOnThisDevice(queueName);
@@ -82,6 +91,7 @@ public class QueueManagerImpl implements QueueManager {
         try {
             return ejb.onProcessingStart(msgId);
         } catch (Throwable e) {
+            destinationConcurrencyLimiter.cancel(msgId);
             logDBUpdateFailed("onProcessingStart", msgId, e);
             return null;
         }
@@ -89,6 +99,7 @@ public class QueueManagerImpl implements QueueManager {
 
     @Override
     public QueueMessage onProcessingSuccessful(String msgId, Outcome outcome) {
+        destinationConcurrencyLimiter.release(msgId, outcome.getStatus() != QueueMessage.Status.FAILED);
         try {
             return ejb.onProcessingSuccessful(msgId, outcome);
         } catch (Throwable e) {
@@ -99,6 +110,7 @@ public class QueueManagerImpl implements QueueManager {
 
     @Override
     public QueueMessage onProcessingFailed(String msgId, Throwable e) {
+        destinationConcurrencyLimiter.release(msgId, false);
         try {
             return ejb.onProcessingFailed(msgId, e);
         } catch (Throwable e1) {
@@ -111,6 +123,11 @@ public class QueueManagerImpl implements QueueManager {
         LOG.error("Failed to update status of Task[id={}] in DB {}:\n", msgId, method, e);
     }
 
+    @Override
+    public List<DestinationConcurrency> listDestinationConcurrency(String queueName) {
+        return destinationConcurrencyLimiter.list(queueName);
+    }
+
     @Override
     public boolean cancelTask(String msgId, QueueMessageEvent queueEvent) throws IllegalTaskStateException {
         return ejb.cancelTask(msgId, queueEvent);
@@ -0,0 +1,92 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.qmgt.impl;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the number of scheduled messages per queue on this device in memory, to check the maximal queue size without
+ * counting the scheduled messages in the database on each scheduled message. The counts are adjusted on scheduling
+ * and processing of messages and periodically synchronized with the database, to recover from changes which are not
+ * tracked - like bulk updates or rolled back transactions.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@ApplicationScoped
+public class ScheduledMessageCounter {
+
+    private static final long RESYNC_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private final Map<String, Count> counts = new ConcurrentHashMap<>();
+
+    public long get(String queueName, LongSupplier countScheduledMessages) {
+        long now = System.currentTimeMillis();
+        Count count = counts.get(queueName);
+        if (count == null || count.resyncTime < now)
+            counts.put(queueName, count = new Count(countScheduledMessages.getAsLong(), now + RESYNC_INTERVAL));
+        return Math.max(0L, count.value.get());
+    }
+
+    public void add(String queueName, int delta) {
+        Count count = counts.get(queueName);
+        if (count != null)
+            count.value.addAndGet(delta);
+    }
+
+    public void invalidate() {
+        counts.clear();
+    }
+
+    private static class Count {
+        final AtomicLong value;
+        final long resyncTime;
+
+        Count(long value, long resyncTime) {
+            this.value = new AtomicLong(value);
+            this.resyncTime = resyncTime;
+        }
+    }
+}
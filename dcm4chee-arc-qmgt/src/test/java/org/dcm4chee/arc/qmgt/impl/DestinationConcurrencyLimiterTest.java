@@ -0,0 +1,141 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2013
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.qmgt.impl;
+
+import org.dcm4chee.arc.qmgt.DestinationConcurrency;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+public class DestinationConcurrencyLimiterTest {
+
+    private static final String QUEUE = "Export1";
+    private static final String DEST = "STORESCP";
+
+    @Test
+    public void testDeferBeyondMaxLimit() {
+        DestinationConcurrencyLimiter limiter = new DestinationConcurrencyLimiter();
+        assertEquals(0L, limiter.tryAcquire("1", QUEUE, DEST, 2));
+        assertEquals(0L, limiter.tryAcquire("2", QUEUE, DEST, 2));
+        assertTrue(limiter.tryAcquire("3", QUEUE, DEST, 2) >= 1000L);
+        assertEquals(0L, limiter.tryAcquire("4", QUEUE, DEST + "2", 2));
+        assertEquals(0L, limiter.tryAcquire("5", "Export2", DEST, 2));
+        DestinationConcurrency concurrency = limiter.list(QUEUE).get(0);
+        assertEquals(DEST, concurrency.getDestination());
+        assertEquals(2, concurrency.getInProcess());
+        assertEquals(1L, concurrency.getDeferred());
+        limiter.release("1", true);
+        assertEquals(0L, limiter.tryAcquire("3", QUEUE, DEST, 2));
+    }
+
+    @Test
+    public void testAcquireTwice() {
+        DestinationConcurrencyLimiter limiter = new DestinationConcurrencyLimiter();
+        assertEquals(0L, limiter.tryAcquire("1", QUEUE, DEST, 1));
+        assertEquals(0L, limiter.tryAcquire("1", QUEUE, DEST, 1));
+        assertEquals(1, limiter.list(QUEUE).get(0).getInProcess());
+    }
+
+    @Test
+    public void testUnlimited() {
+        DestinationConcurrencyLimiter limiter = new DestinationConcurrencyLimiter();
+        assertEquals(0L, limiter.tryAcquire("1", QUEUE, DEST, 0));
+        assertEquals(0L, limiter.tryAcquire("2", QUEUE, null, 1));
+        assertTrue(limiter.list(null).isEmpty());
+    }
+
+    @Test
+    public void testDecreaseOnFailure() {
+        DestinationConcurrencyLimiter limiter = new DestinationConcurrencyLimiter();
+        for (int i = 0; i < 4; i++)
+            assertEquals(0L, limiter.tryAcquire(Integer.toString(i), QUEUE, DEST, 4));
+        limiter.release("0", false);
+        DestinationConcurrency concurrency = limiter.list(QUEUE).get(0);
+        assertEquals(2, concurrency.getLimit());
+        assertEquals(4, concurrency.getMaxLimit());
+        assertEquals(3, concurrency.getInProcess());
+        assertEquals(1L, concurrency.getFailed());
+        limiter.release("1", false);
+        limiter.release("2", false);
+        limiter.release("3", false);
+        assertEquals(1, limiter.list(QUEUE).get(0).getLimit());
+    }
+
+    @Test
+    public void testIncreaseOnSuccess() {
+        DestinationConcurrencyLimiter limiter = new DestinationConcurrencyLimiter();
+        assertEquals(0L, limiter.tryAcquire("1", QUEUE, DEST, 4));
+        limiter.release("1", false);
+        assertEquals(2, limiter.list(QUEUE).get(0).getLimit());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(0L, limiter.tryAcquire(Integer.toString(i), QUEUE, DEST, 4));
+            limiter.release(Integer.toString(i), true);
+        }
+        assertEquals(4, limiter.list(QUEUE).get(0).getLimit());
+    }
+
+    @Test
+    public void testCancel() {
+        DestinationConcurrencyLimiter limiter = new DestinationConcurrencyLimiter();
+        assertEquals(0L, limiter.tryAcquire("1", QUEUE, DEST, 1));
+        limiter.cancel("1");
+        limiter.cancel("1");
+        List<DestinationConcurrency> list = limiter.list(QUEUE);
+        assertEquals(0, list.get(0).getInProcess());
+        assertEquals(1, list.get(0).getLimit());
+        assertEquals(0L, limiter.tryAcquire("2", QUEUE, DEST, 1));
+    }
+
+    @Test
+    public void testAuthorityOf() {
+        assertEquals("http://host:8080",
+                DestinationConcurrencyLimiter.authorityOf("http://host:8080/dcm4chee-arc/aets/DCM4CHEE/rs"));
+        assertEquals("http://host:8080", DestinationConcurrencyLimiter.authorityOf("http://host:8080"));
+        assertEquals("STORESCP", DestinationConcurrencyLimiter.authorityOf("STORESCP"));
+    }
+}
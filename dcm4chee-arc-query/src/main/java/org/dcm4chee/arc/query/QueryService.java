@@ -60,6 +60,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.zip.ZipInputStream;
 
 /**
@@ -106,6 +107,8 @@ public interface QueryService {
     Attributes createIAN(ApplicationEntity ae, String studyUID, String seriesUID,
                          String[] retrieveAETs, String retrieveLocationUID, Availability availability);
 
+    Map<String, Attributes> createIANsForStudies(ApplicationEntity ae, Collection<String> studyUIDs);
+
     Attributes createXDSiManifest(ApplicationEntity ae, String studyUID,
                                   String[] retrieveAETs, String retrieveLocationUID,
                                   Code conceptNameCode, int seriesNumber, int instanceNumber, Collection<Attributes> seriesAttrs);
@@ -47,6 +47,8 @@ import com.querydsl.jpa.hibernate.HibernateQuery;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.net.service.DicomServiceException;
 import org.dcm4che3.util.StringUtils;
+import org.dcm4chee.arc.metrics.Metric;
+import org.dcm4chee.arc.metrics.MetricsService;
 import org.dcm4chee.arc.query.Query;
 import org.dcm4chee.arc.query.QueryContext;
 import org.dcm4chee.arc.query.util.OrderByTag;
@@ -66,16 +68,19 @@ abstract class AbstractQuery implements Query {
 
     protected final QueryContext context;
     protected final StatelessSession session;
+    private final MetricsService metricsService;
     protected HibernateQuery<Tuple> query;
     private Iterator<Tuple> results;
     private long offset;
     private long limit;
     private int rejected;
     private int matches;
+    private long fetchNanos;
 
-    public AbstractQuery(QueryContext context, StatelessSession session) {
+    public AbstractQuery(QueryContext context, StatelessSession session, MetricsService metricsService) {
         this.context = context;
         this.session = session;
+        this.metricsService = metricsService;
     }
 
     public void initQuery() {
@@ -129,7 +134,9 @@ abstract class AbstractQuery implements Query {
         checkQuery();
         rejected = 0;
         matches = 0;
+        long start = System.nanoTime();
         results = offset > 0 ? query.fetch().iterator() : query.iterate();
+        metricsService.recordSince(Metric.QUERY, "execute", start);
     }
 
     @Override
@@ -153,7 +160,9 @@ abstract class AbstractQuery implements Query {
 
     @Override
     public boolean hasMoreMatches() throws DicomServiceException {
+        long start = System.nanoTime();
         boolean hasNext = results.hasNext();
+        fetchNanos += System.nanoTime() - start;
         if (hasNext || rejected == 0 || limit != matches)
             return hasNext;
 
@@ -165,7 +174,9 @@ abstract class AbstractQuery implements Query {
 
     @Override
     public Attributes nextMatch() {
+        long start = System.nanoTime();
         Attributes attrs = toAttributes(results.next());
+        fetchNanos += System.nanoTime() - start;
         matches++;
         if (attrs == null)
             rejected++;
@@ -188,6 +199,8 @@ abstract class AbstractQuery implements Query {
 
     @Override
     public void close() {
+        if (results != null)
+            metricsService.record(Metric.QUERY, "fetch", fetchNanos);
         session.close();
         context.close();
     }
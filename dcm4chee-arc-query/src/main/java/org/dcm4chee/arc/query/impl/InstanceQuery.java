@@ -56,6 +56,7 @@ import org.dcm4chee.arc.conf.Availability;
 import org.dcm4chee.arc.conf.Entity;
 import org.dcm4chee.arc.conf.QueryRetrieveView;
 import org.dcm4chee.arc.entity.*;
+import org.dcm4chee.arc.metrics.MetricsService;
 import org.dcm4chee.arc.query.QueryContext;
 import org.dcm4chee.arc.query.util.QueryBuilder;
 import org.dcm4chee.arc.query.util.QueryParam;
@@ -118,8 +119,9 @@ class InstanceQuery extends AbstractQuery {
     private int[] instTags;
     private Attributes instQueryKeys;
 
-    public InstanceQuery(QueryContext context, StatelessSession session, CodeCache codeCache) {
-        super(context, session);
+    public InstanceQuery(QueryContext context, StatelessSession session, CodeCache codeCache,
+            MetricsService metricsService) {
+        super(context, session, metricsService);
         this.codeCache = codeCache;
     }
 
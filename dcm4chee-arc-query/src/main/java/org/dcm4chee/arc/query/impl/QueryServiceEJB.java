@@ -137,6 +137,17 @@ public class QueryServiceEJB {
             QInstance.instance.availability
     };
 
+    static final Expression<?>[] SOP_REFS_OF_STUDIES = {
+            QStudy.study.pk,
+            QStudy.study.studyInstanceUID,
+            QSeries.series.pk,
+            QSeries.series.seriesInstanceUID,
+            QInstance.instance.sopInstanceUID,
+            QInstance.instance.sopClassUID,
+            QInstance.instance.retrieveAETs,
+            QInstance.instance.availability
+    };
+
     static final Expression<?>[] PATIENT_STUDY_ATTRS = {
             QueryBuilder.studyAttributesBlob.encodedAttributes,
             QueryBuilder.patientAttributesBlob.encodedAttributes
@@ -450,6 +461,34 @@ public class QueryServiceEJB {
         if (type == SOPInstanceRefsType.STGCMT)
             return getStgCmtRqstAttr(tuples);
 
+        return toSOPInstanceRefs(type, studyIUID, tuples, seriesAttrs, retrieveAETs, retrieveLocationUID,
+                availability);
+    }
+
+    public Map<String, Attributes> getIANsOfStudies(Predicate predicate) {
+        List<Tuple> tuples = new HibernateQuery<Void>(em.unwrap(Session.class))
+                .select(SOP_REFS_OF_STUDIES)
+                .from(QInstance.instance)
+                .join(QInstance.instance.series, QSeries.series)
+                .join(QSeries.series.study, QStudy.study)
+                .where(predicate)
+                .fetch();
+
+        Map<String, List<Tuple>> tuplesByStudy = new HashMap<>();
+        for (Tuple tuple : tuples)
+            tuplesByStudy.computeIfAbsent(tuple.get(QStudy.study.studyInstanceUID), key -> new ArrayList<>())
+                    .add(tuple);
+
+        Map<String, Attributes> ians = new HashMap<>();
+        tuplesByStudy.forEach((studyIUID, tuplesOfStudy) -> ians.put(studyIUID,
+                toSOPInstanceRefs(SOPInstanceRefsType.IAN, studyIUID, tuplesOfStudy, null, null, null, null)));
+        return ians;
+    }
+
+    private Attributes toSOPInstanceRefs(
+            SOPInstanceRefsType type, String studyIUID, List<Tuple> tuples,
+            Collection<Attributes> seriesAttrs, String[] retrieveAETs, String retrieveLocationUID,
+            Availability availability) {
         Attributes refStudy = new Attributes(2);
         Sequence refSeriesSeq = refStudy.newSequence(Tag.ReferencedSeriesSequence, 10);
         refStudy.setString(Tag.StudyInstanceUID, VR.UI, studyIUID);
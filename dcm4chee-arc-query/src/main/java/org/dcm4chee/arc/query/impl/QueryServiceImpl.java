@@ -53,6 +53,7 @@ import org.dcm4chee.arc.LeadingCFindSCPQueryCache;
 import org.dcm4chee.arc.code.CodeCache;
 import org.dcm4chee.arc.conf.*;
 import org.dcm4chee.arc.entity.*;
+import org.dcm4chee.arc.metrics.MetricsService;
 import org.dcm4chee.arc.query.Query;
 import org.dcm4chee.arc.query.QueryContext;
 import org.dcm4chee.arc.query.QueryService;
@@ -117,6 +118,9 @@ class QueryServiceImpl implements QueryService {
     @Inject
     private StorageFactory storageFactory;
 
+    @Inject
+    private MetricsService metricsService;
+
     @Inject
     private Event<QueryContext> queryEvent;
 
@@ -161,28 +165,28 @@ class QueryServiceImpl implements QueryService {
 
     @Override
     public Query createPatientQuery(QueryContext ctx) {
-        return new PatientQuery(ctx, openStatelessSession());
+        return new PatientQuery(ctx, openStatelessSession(), metricsService);
     }
 
     @Override
     public Query createStudyQuery(QueryContext ctx) {
-        return new StudyQuery(ctx, openStatelessSession());
+        return new StudyQuery(ctx, openStatelessSession(), metricsService);
     }
 
     @Override
     public Query createSeriesQuery(QueryContext ctx) {
-        return new SeriesQuery(ctx, openStatelessSession());
+        return new SeriesQuery(ctx, openStatelessSession(), metricsService);
     }
 
     @Override
     public Query createInstanceQuery(QueryContext ctx) {
-        return new InstanceQuery(ctx, openStatelessSession(), codeCache);
+        return new InstanceQuery(ctx, openStatelessSession(), codeCache, metricsService);
     }
 
     @Override
     public Query createMWLQuery(QueryContext ctx) {
         queryEvent.fire(ctx);
-        return new MWLQuery(ctx, openStatelessSession());
+        return new MWLQuery(ctx, openStatelessSession(), metricsService);
     }
 
     @Override
@@ -235,6 +239,11 @@ class QueryServiceImpl implements QueryService {
                 retrieveAETs, retrieveLocationUID, availability);
     }
 
+    @Override
+    public Map<String, Attributes> createIANsForStudies(ApplicationEntity ae, Collection<String> studyUIDs) {
+        return ejb.getIANsOfStudies(new SOPInstanceRefsPredicateBuilder(studyUIDs).build(ae));
+    }
+
     @Override
     public Attributes createXDSiManifest(ApplicationEntity ae, String studyUID,
                                          String[] retrieveAETs, String retrieveLocationUID,
@@ -417,6 +426,10 @@ class QueryServiceImpl implements QueryService {
             predicate = new BooleanBuilder(QStudy.study.studyInstanceUID.eq(studyUID));
         }
 
+        private SOPInstanceRefsPredicateBuilder(Collection<String> studyUIDs) {
+            predicate = new BooleanBuilder(QStudy.study.studyInstanceUID.in(studyUIDs));
+        }
+
         public void setSeriesInstanceUID(String seriesUID) {
             predicate.and(QSeries.series.seriesInstanceUID.eq(seriesUID));
         }
@@ -53,6 +53,7 @@ import org.dcm4che3.util.StringUtils;
 import org.dcm4chee.arc.conf.Availability;
 import org.dcm4chee.arc.entity.*;
 import org.dcm4chee.arc.query.util.QueryBuilder;
+import org.dcm4chee.arc.metrics.MetricsService;
 import org.dcm4chee.arc.query.QueryContext;
 import org.dcm4chee.arc.query.util.QueryParam;
 import org.hibernate.StatelessSession;
@@ -115,8 +116,8 @@ class SeriesQuery extends AbstractQuery {
     private Long studyPk;
     private Attributes studyAttrs;
 
-    public SeriesQuery(QueryContext context, StatelessSession session) {
-        super(context, session);
+    public SeriesQuery(QueryContext context, StatelessSession session, MetricsService metricsService) {
+        super(context, session, metricsService);
     }
 
     @Override
@@ -62,6 +62,9 @@ public interface RetrieveManager {
 
     boolean scheduleRetrieveTask(int priority, ExternalRetrieveContext ctx, String batchID) throws QueueSizeLimitExceededException;
 
+    boolean[] scheduleRetrieveTasks(int priority, List<ExternalRetrieveContext> ctxs, String batchID)
+            throws QueueSizeLimitExceededException;
+
     RetrieveTaskQuery listRetrieveTasks(Predicate matchQueueMessage, Predicate matchRetrieveTask,
                                         OrderSpecifier<Date> order, int offset, int limit);
 
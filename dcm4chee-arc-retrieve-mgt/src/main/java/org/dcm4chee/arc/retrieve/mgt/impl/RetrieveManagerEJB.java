@@ -76,10 +76,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.EnumSet;
-import java.util.List;
+import java.util.*;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -99,6 +96,8 @@ public class RetrieveManagerEJB {
     @Inject
     private Device device;
 
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
     private static final Expression<?>[] SELECT = {
             QQueueMessage.queueMessage.processingStartTime.min(),
             QQueueMessage.queueMessage.processingStartTime.max(),
@@ -119,15 +118,8 @@ public class RetrieveManagerEJB {
             return false;
         }
         try {
-            ObjectMessage msg = queueManager.createObjectMessage(ctx.getKeys());
-            msg.setStringProperty("LocalAET", ctx.getLocalAET());
-            msg.setStringProperty("RemoteAET", ctx.getRemoteAET());
-            msg.setIntProperty("Priority", priority);
-            msg.setStringProperty("DestinationAET", ctx.getDestinationAET());
-            msg.setStringProperty("StudyInstanceUID", ctx.getStudyInstanceUID());
-            ctx.getHttpServletRequestInfo().copyTo(msg);
-            QueueMessage queueMessage = queueManager.scheduleMessage(RetrieveManager.QUEUE_NAME, msg,
-                    Message.DEFAULT_PRIORITY, batchID);
+            QueueMessage queueMessage = queueManager.scheduleMessage(RetrieveManager.QUEUE_NAME,
+                    createMessage(priority, ctx), Message.DEFAULT_PRIORITY, batchID);
             createRetrieveTask(device, ctx, queueMessage);
             return true;
         } catch (JMSException e) {
@@ -135,6 +127,88 @@ public class RetrieveManagerEJB {
         }
     }
 
+    public boolean[] scheduleRetrieveTasks(Device device, int priority, List<ExternalRetrieveContext> ctxs,
+            String batchID) throws QueueSizeLimitExceededException {
+        boolean[] scheduled = new boolean[ctxs.size()];
+        Set<String> alreadyScheduled = alreadyScheduledStudies(ctxs);
+        List<ExternalRetrieveContext> toSchedule = new ArrayList<>(ctxs.size());
+        List<ObjectMessage> msgs = new ArrayList<>(ctxs.size());
+        try {
+            for (int i = 0; i < scheduled.length; i++) {
+                ExternalRetrieveContext ctx = ctxs.get(i);
+                if (ctx.getSeriesInstanceUID() == null
+                        ? !alreadyScheduled.add(studyKey(ctx.getRemoteAET(), ctx.getDestinationAET(),
+                                ctx.getStudyInstanceUID()))
+                        : isAlreadyScheduled(em, ctx))
+                    continue;
+
+                msgs.add(createMessage(priority, ctx));
+                toSchedule.add(ctx);
+                scheduled[i] = true;
+            }
+        } catch (JMSException e) {
+            throw QueueMessage.toJMSRuntimeException(e);
+        }
+        if (!msgs.isEmpty()) {
+            List<QueueMessage> queueMessages = queueManager.scheduleMessages(RetrieveManager.QUEUE_NAME, msgs,
+                    Message.DEFAULT_PRIORITY, batchID);
+            for (int i = 0; i < queueMessages.size(); i++)
+                createRetrieveTask(device, toSchedule.get(i), queueMessages.get(i));
+        }
+        LOG.info("Scheduled {} of {} Retrieve Tasks", msgs.size(), scheduled.length);
+        return scheduled;
+    }
+
+    private ObjectMessage createMessage(int priority, ExternalRetrieveContext ctx) throws JMSException {
+        ObjectMessage msg = queueManager.createObjectMessage(ctx.getKeys());
+        msg.setStringProperty("LocalAET", ctx.getLocalAET());
+        msg.setStringProperty("RemoteAET", ctx.getRemoteAET());
+        msg.setIntProperty("Priority", priority);
+        msg.setStringProperty("DestinationAET", ctx.getDestinationAET());
+        msg.setStringProperty("StudyInstanceUID", ctx.getStudyInstanceUID());
+        ctx.getHttpServletRequestInfo().copyTo(msg);
+        return msg;
+    }
+
+    private Set<String> alreadyScheduledStudies(List<ExternalRetrieveContext> ctxs) {
+        Set<String> remoteAETs = new HashSet<>();
+        Set<String> destinationAETs = new HashSet<>();
+        List<String> studyIUIDs = new ArrayList<>(ctxs.size());
+        for (ExternalRetrieveContext ctx : ctxs) {
+            if (ctx.getSeriesInstanceUID() == null) {
+                remoteAETs.add(ctx.getRemoteAET());
+                destinationAETs.add(ctx.getDestinationAET());
+                studyIUIDs.add(ctx.getStudyInstanceUID());
+            }
+        }
+        Set<String> studyKeys = new HashSet<>();
+        for (int from = 0; from < studyIUIDs.size(); from += MAX_IN_LIST_SIZE) {
+            List<Tuple> tuples = new HibernateQuery<>(em.unwrap(Session.class))
+                    .select(QRetrieveTask.retrieveTask.remoteAET,
+                            QRetrieveTask.retrieveTask.destinationAET,
+                            QRetrieveTask.retrieveTask.studyInstanceUID)
+                    .from(QRetrieveTask.retrieveTask)
+                    .where(QRetrieveTask.retrieveTask.queueMessage.status.in(
+                                QueueMessage.Status.SCHEDULED, QueueMessage.Status.IN_PROCESS),
+                            QRetrieveTask.retrieveTask.remoteAET.in(remoteAETs),
+                            QRetrieveTask.retrieveTask.destinationAET.in(destinationAETs),
+                            QRetrieveTask.retrieveTask.studyInstanceUID.in(
+                                studyIUIDs.subList(from, Math.min(from + MAX_IN_LIST_SIZE, studyIUIDs.size()))),
+                            QRetrieveTask.retrieveTask.seriesInstanceUID.isNull())
+                    .fetch();
+            for (Tuple tuple : tuples)
+                studyKeys.add(studyKey(
+                        tuple.get(QRetrieveTask.retrieveTask.remoteAET),
+                        tuple.get(QRetrieveTask.retrieveTask.destinationAET),
+                        tuple.get(QRetrieveTask.retrieveTask.studyInstanceUID)));
+        }
+        return studyKeys;
+    }
+
+    private static String studyKey(String remoteAET, String destinationAET, String studyIUID) {
+        return remoteAET + '\\' + destinationAET + '\\' + studyIUID;
+    }
+
     private boolean isAlreadyScheduled(EntityManager em, ExternalRetrieveContext ctx) {
         BooleanBuilder predicate = new BooleanBuilder(QRetrieveTask.retrieveTask.queueMessage.status.in(
                 QueueMessage.Status.SCHEDULED, QueueMessage.Status.IN_PROCESS));
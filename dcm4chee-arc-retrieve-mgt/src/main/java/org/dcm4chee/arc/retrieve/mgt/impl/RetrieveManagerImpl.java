@@ -150,6 +150,12 @@ public class RetrieveManagerImpl implements RetrieveManager {
         return ejb.scheduleRetrieveTask(device, priority, ctx, batchID);
     }
 
+    @Override
+    public boolean[] scheduleRetrieveTasks(int priority, List<ExternalRetrieveContext> ctxs, String batchID)
+            throws QueueSizeLimitExceededException {
+        return ejb.scheduleRetrieveTasks(device, priority, ctxs, batchID);
+    }
+
     @Override
     public RetrieveTaskQuery listRetrieveTasks(Predicate matchQueueMessage, Predicate matchRetrieveTask,
                                                OrderSpecifier<Date> order, int offset, int limit) {
@@ -58,13 +58,9 @@ import org.dcm4che3.xdsi.RetrieveRenderedImagingDocumentSetResponseType.Rendered
 
 import javax.activation.DataHandler;
 import javax.enterprise.event.Event;
-import javax.imageio.ImageIO;
-import javax.imageio.ImageReader;
-import javax.imageio.ImageWriter;
 import javax.inject.Inject;
 import javax.jws.WebService;
 import javax.servlet.http.HttpServletRequest;
-import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.xml.ws.BindingType;
 import javax.xml.ws.soap.Addressing;
@@ -115,6 +111,8 @@ public class ImageDocumentSource implements ImagingDocumentSourcePortType {
     public static final String WC_REQUIRED_IF_WW = "WindowCenter is required if WindowWidth is present";
     public static final String WW_REQUIRED_IF_WC = "WindowWidth is required if WindowCenter is present";
 
+    private static final int MAX_RENDER_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
     @Inject
     private RetrieveService retrieveService;
 
@@ -179,12 +177,11 @@ public class ImageDocumentSource implements ImagingDocumentSourcePortType {
         if (calculateMatches(ctx, regRsp, map)) {
             retrieveStart.fire(ctx);
             RenderedImageDataHandler dh = null;
-            ImageReader imageReader = getDicomImageReader();
-            ImageWriter imageWriter = getImageWriter(MediaTypes.IMAGE_JPEG_TYPE);
+            RenderedImageEncoder encoder = new RenderedImageEncoder(device.getExecutor(), MAX_RENDER_PARALLELISM);
             for (InstanceLocations match : ctx.getMatches()) {
                 if (!ctx.copyToRetrieveCache(match)) {
                     for (RenderedDocumentRequest docReq : map.get(match.getSopInstanceUID())) {
-                        dh = new RenderedImageDataHandler(ctx, match, docReq, imageReader, imageWriter);
+                        dh = new RenderedImageDataHandler(ctx, match, docReq, encoder);
                         rsp.getRenderedDocumentResponse().add(createRenderedDocumentResponse(docReq, dh));
                     }
                 }
@@ -193,7 +190,7 @@ public class ImageDocumentSource implements ImagingDocumentSourcePortType {
             InstanceLocations match;
             while ((match = ctx.copiedToRetrieveCache()) != null) {
                 for (RenderedDocumentRequest docReq : map.get(match.getSopInstanceUID())) {
-                    dh = new RenderedImageDataHandler(ctx, match, docReq, imageReader, imageWriter);
+                    dh = new RenderedImageDataHandler(ctx, match, docReq, encoder);
                     rsp.getRenderedDocumentResponse().add(createRenderedDocumentResponse(docReq, dh));
                 }
             }
@@ -206,26 +203,6 @@ public class ImageDocumentSource implements ImagingDocumentSourcePortType {
         return rsp;
     }
 
-    private static ImageReader getDicomImageReader() {
-        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("DICOM");
-        if (!readers.hasNext()) {
-            ImageIO.scanForPlugins();
-            readers = ImageIO.getImageReadersByFormatName("DICOM");
-            if (!readers.hasNext())
-                throw new RuntimeException("DICOM Image Reader not registered");
-        }
-        return readers.next();
-    }
-
-    private static ImageWriter getImageWriter(MediaType mimeType) {
-        String formatName = mimeType.getSubtype();
-        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
-        if (!writers.hasNext())
-            throw new RuntimeException(formatName + " Image Writer not registered");
-
-        return writers.next();
-    }
-
     private RetrieveContext newRetrieveContextXDSI(
             RetrieveImagingDocumentSetRequestType req,
             MultivaluedHashMap<String, DocumentRequest> map) {
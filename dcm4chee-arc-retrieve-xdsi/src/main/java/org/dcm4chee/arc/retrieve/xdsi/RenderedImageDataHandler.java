@@ -57,11 +57,17 @@ import javax.enterprise.event.Event;
 import javax.imageio.*;
 import javax.imageio.stream.ImageOutputStream;
 import javax.imageio.stream.MemoryCacheImageOutputStream;
+import javax.ws.rs.core.MediaType;
 import java.awt.geom.AffineTransform;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -71,40 +77,84 @@ public class RenderedImageDataHandler extends DataHandler {
     private final RetrieveContext ctx;
     private final InstanceLocations inst;
     private final RenderedDocumentRequest docReq;
-    private final ImageReader imageReader;
-    private final ImageWriter imageWriter;
+    private final RenderedImageEncoder encoder;
+    private final int index;
+    private ImageReader imageReader;
+    private ImageWriter imageWriter;
     private Event<RetrieveContext> retrieveEnd;
 
     public RenderedImageDataHandler(RetrieveContext ctx, InstanceLocations inst, RenderedDocumentRequest docReq,
-                                    ImageReader imageReader, ImageWriter imageWriter) {
+                                    RenderedImageEncoder encoder) {
         super(inst, MediaTypes.IMAGE_JPEG);
         this.ctx = ctx;
         this.inst = inst;
         this.docReq = docReq;
-        this.imageReader = imageReader;
-        this.imageWriter = imageWriter;
+        this.encoder = encoder;
+        this.index = encoder.add(this);
     }
 
     public void setRetrieveEnd(Event<RetrieveContext> retrieveEnd) {
         this.retrieveEnd = retrieveEnd;
     }
 
+    FutureTask<byte[]> newRenderTask() {
+        return new FutureTask<>(this::render);
+    }
+
     @Override
     public void writeTo(OutputStream out) throws IOException {
+        try {
+            out.write(encoder.renderAhead(index).get());
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } finally {
+            encoder.written(index);
+        }
+        if (retrieveEnd != null)
+            retrieveEnd.fire(ctx);
+    }
+
+    private byte[] render() throws IOException {
+        imageReader = getDicomImageReader();
+        imageWriter = getImageWriter(MediaTypes.IMAGE_JPEG_TYPE);
         try (DicomInputStream dis = ctx.getRetrieveService().openDicomInputStream(ctx, inst)) {
             imageReader.setInput(dis);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
             ImageOutputStream imageOut = new MemoryCacheImageOutputStream(out);
             imageWriter.setOutput(imageOut);
             BufferedImage bi = imageReader.read(parseInt(docReq.getFrameNumber(), 1) - 1, readParam());
             imageWriter.write(null, new IIOImage(adjust(bi), null, null), writeParam());
-            imageOut.close();   // does not close out,
-                                // marks imageOut as closed to prevent finalizer thread to invoke out.flush()
-        }
-        if (retrieveEnd != null) {
+            imageOut.close();
+            return out.toByteArray();
+        } finally {
             imageWriter.dispose();
             imageReader.dispose();
-            retrieveEnd.fire(ctx);
+            imageWriter = null;
+            imageReader = null;
+        }
+    }
+
+    private static ImageReader getDicomImageReader() {
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("DICOM");
+        if (!readers.hasNext()) {
+            ImageIO.scanForPlugins();
+            readers = ImageIO.getImageReadersByFormatName("DICOM");
+            if (!readers.hasNext())
+                throw new RuntimeException("DICOM Image Reader not registered");
         }
+        return readers.next();
+    }
+
+    private static ImageWriter getImageWriter(MediaType mimeType) {
+        String formatName = mimeType.getSubtype();
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
+        if (!writers.hasNext())
+            throw new RuntimeException(formatName + " Image Writer not registered");
+
+        return writers.next();
     }
 
     private ImageWriteParam writeParam() {
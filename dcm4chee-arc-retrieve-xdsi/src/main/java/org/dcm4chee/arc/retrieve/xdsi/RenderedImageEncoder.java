@@ -0,0 +1,108 @@
+/*
+ * **** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2015-2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * **** END LICENSE BLOCK *****
+ *
+ */
+
+package org.dcm4chee.arc.retrieve.xdsi;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Renders the documents of one RetrieveRenderedImagingDocumentSet response concurrently. Besides the document
+ * currently serialized, at most {@code maxParallelism - 1} following documents are rendered ahead; the encoded
+ * image of a document is dropped as soon as it was written.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Nov 2018
+ */
+class RenderedImageEncoder {
+    private final Executor executor;
+    private final int maxParallelism;
+    private final List<RenderedImageDataHandler> handlers = new ArrayList<>();
+    private final List<FutureTask<byte[]>> renderTasks = new ArrayList<>();
+    private final BitSet renderedAhead = new BitSet();
+    private final BitSet written = new BitSet();
+    private int renderingAhead;
+
+    RenderedImageEncoder(Executor executor, int maxParallelism) {
+        this.executor = executor;
+        this.maxParallelism = maxParallelism;
+    }
+
+    synchronized int add(RenderedImageDataHandler dh) {
+        handlers.add(dh);
+        renderTasks.add(null);
+        return handlers.size() - 1;
+    }
+
+    synchronized FutureTask<byte[]> renderAhead(int index) {
+        FutureTask<byte[]> renderTask = submit(index);
+        int end = Math.min(index + maxParallelism, handlers.size());
+        for (int i = index + 1; i < end && renderingAhead < maxParallelism - 1; i++) {
+            if (renderTasks.get(i) == null && !written.get(i)) {
+                submit(i);
+                renderedAhead.set(i);
+                renderingAhead++;
+            }
+        }
+        return renderTask;
+    }
+
+    synchronized void written(int index) {
+        renderTasks.set(index, null);
+        written.set(index);
+        if (renderedAhead.get(index)) {
+            renderedAhead.clear(index);
+            renderingAhead--;
+        }
+    }
+
+    private FutureTask<byte[]> submit(int index) {
+        FutureTask<byte[]> renderTask = renderTasks.get(index);
+        if (renderTask == null) {
+            renderTasks.set(index, renderTask = handlers.get(index).newRenderTask());
+            executor.execute(renderTask);
+        }
+        return renderTask;
+    }
+}
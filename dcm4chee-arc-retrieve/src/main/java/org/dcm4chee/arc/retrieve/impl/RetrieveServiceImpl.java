@@ -63,6 +63,8 @@ import org.dcm4che3.util.UIDUtils;
 import org.dcm4chee.arc.LeadingCFindSCPQueryCache;
 import org.dcm4chee.arc.conf.*;
 import org.dcm4chee.arc.entity.*;
+import org.dcm4chee.arc.metrics.Metric;
+import org.dcm4chee.arc.metrics.MetricsService;
 import org.dcm4chee.arc.query.scu.CFindSCU;
 import org.dcm4chee.arc.query.scu.CFindSCUAttributeCoercion;
 import org.dcm4chee.arc.retrieve.*;
@@ -70,6 +72,7 @@ import org.dcm4chee.arc.code.CodeCache;
 import org.dcm4chee.arc.query.util.QueryBuilder;
 import org.dcm4chee.arc.storage.ReadContext;
 import org.dcm4chee.arc.storage.Storage;
+import org.dcm4chee.arc.storage.StorageCache;
 import org.dcm4chee.arc.storage.StorageFactory;
 import org.dcm4chee.arc.qmgt.HttpServletRequestInfo;
 import org.dcm4chee.arc.store.InstanceLocations;
@@ -166,6 +169,9 @@ public class RetrieveServiceImpl implements RetrieveService {
     @Inject
     private StorageFactory storageFactory;
 
+    @Inject
+    private StorageCache storageCache;
+
     @Inject
     private StoreService storeService;
 
@@ -187,6 +193,9 @@ public class RetrieveServiceImpl implements RetrieveService {
     @Inject
     private LeadingCFindSCPQueryCache leadingCFindSCPQueryCache;
 
+    @Inject
+    private MetricsService metricsService;
+
     StatelessSession openStatelessSession() {
         return em.unwrap(Session.class).getSessionFactory().openStatelessSession();
     }
@@ -371,6 +380,7 @@ public class RetrieveServiceImpl implements RetrieveService {
 
     @Override
     public boolean calculateMatches(RetrieveContext ctx) throws DicomServiceException {
+        long start = System.nanoTime();
         StatelessSession session = openStatelessSession();
         Collection<InstanceLocations> matches = ctx.getMatches();
         matches.clear();
@@ -436,6 +446,7 @@ public class RetrieveServiceImpl implements RetrieveService {
             throw new DicomServiceException(Status.UnableToCalculateNumberOfMatches, e);
         } finally {
             session.close();
+            metricsService.recordSince(Metric.RETRIEVE, "calculateMatches", start);
         }
     }
 
@@ -783,6 +794,7 @@ public class RetrieveServiceImpl implements RetrieveService {
     @Override
     public Transcoder openTranscoder(RetrieveContext ctx, InstanceLocations inst,
                                      Collection<String> tsuids, boolean fmi) throws IOException {
+        long start = System.nanoTime();
         removeUnsupportedTransferSyntax(inst, tsuids);
         LocationInputStream locationInputStream = openLocationInputStream(ctx, inst);
         Transcoder transcoder = new Transcoder(toDicomInputStream(locationInputStream));
@@ -792,6 +804,7 @@ public class RetrieveServiceImpl implements RetrieveService {
         transcoder.setDestinationTransferSyntax(selectTransferSyntax(locationInputStream, tsuids));
         transcoder.setCloseOutputStream(false);
         transcoder.setIncludeFileMetaInformation(fmi);
+        metricsService.recordSince(Metric.RETRIEVE, "openTranscoder", start);
         return transcoder;
     }
 
@@ -1085,7 +1098,8 @@ public class RetrieveServiceImpl implements RetrieveService {
             Storage storage, Location location, String studyInstanceUID)
             throws IOException {
         ReadContext readContext = createReadContext(storage, location.getStoragePath(), studyInstanceUID);
-        InputStream stream = storage.openInputStream(readContext);
+        InputStream stream = storageCache.openInputStream(storage, readContext,
+                location.getSize(), location.getDigestAsHexString());
         return new LocationInputStream(stream, readContext, location);
     }
 
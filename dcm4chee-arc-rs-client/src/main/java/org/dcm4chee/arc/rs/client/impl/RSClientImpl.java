@@ -46,11 +46,11 @@ import org.dcm4che3.net.Device;
 import org.dcm4che3.net.WebApplication;
 import org.dcm4chee.arc.entity.QueueMessage;
 import org.dcm4chee.arc.keycloak.AccessTokenRequestor;
+import org.dcm4chee.arc.keycloak.HttpClientPool;
 import org.dcm4chee.arc.qmgt.Outcome;
 import org.dcm4chee.arc.qmgt.QueueManager;
 import org.dcm4chee.arc.qmgt.QueueSizeLimitExceededException;
 import org.dcm4chee.arc.rs.client.RSClient;
-import org.jboss.resteasy.client.jaxrs.ResteasyClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -80,6 +80,9 @@ public class RSClientImpl implements RSClient {
     @Inject
     private AccessTokenRequestor accessTokenRequestor;
 
+    @Inject
+    private HttpClientPool httpClientPool;
+
     @Inject
     private IDeviceCache iDeviceCache;
 
@@ -111,9 +114,7 @@ public class RSClientImpl implements RSClient {
 
     private Response toResponse(String method, String uri, String keycloakServerID, boolean allowAnyHostname,
                                 boolean disableTrustManager, byte[] content, String authorization) throws Exception {
-        ResteasyClient client = accessTokenRequestor.resteasyClientBuilder(uri, allowAnyHostname, disableTrustManager)
-                .build();
-        WebTarget target = client.target(uri);
+        WebTarget target = httpClientPool.getClient(uri, allowAnyHostname, disableTrustManager).target(uri);
         Invocation.Builder request = target.request();
         if (authorization != null)
             request.header("Authorization", authorization);
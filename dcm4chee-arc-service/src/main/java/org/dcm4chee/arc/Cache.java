@@ -43,6 +43,7 @@ package org.dcm4chee.arc;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -60,6 +61,9 @@ public class Cache<K,V> {
         public V value() {
             return value;
         }
+        public long fetchTime() {
+            return fetchTime;
+        }
     }
 
     private int maxSize;
@@ -124,6 +128,10 @@ public class Cache<K,V> {
         return entry != null ? entry.value : null;
     }
 
+    public void removeIf(Predicate<K> predicate) {
+        cache.keySet().removeIf(predicate);
+    }
+
     public void clear() {
         cache.clear();
     }
@@ -0,0 +1,98 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2013
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc;
+
+import org.dcm4che3.data.IDWithIssuer;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Caches the primary keys of the Patient matching a Patient ID, followed by the primary keys of the Patients it was
+ * merged with.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@ApplicationScoped
+public class PatientCache extends Cache<IDWithIssuer,List<Long>> {
+
+    @Override
+    public synchronized void setMaxSize(int maxSize) {
+        super.setMaxSize(maxSize);
+    }
+
+    @Override
+    public synchronized void setStaleTimeout(long staleTimeout) {
+        super.setStaleTimeout(staleTimeout);
+    }
+
+    @Override
+    public synchronized Entry<List<Long>> getEntry(IDWithIssuer key) {
+        return super.getEntry(key);
+    }
+
+    @Override
+    public synchronized List<Long> put(IDWithIssuer key, List<Long> value) {
+        return super.put(key, value);
+    }
+
+    @Override
+    public synchronized List<Long> remove(IDWithIssuer key) {
+        return super.remove(key);
+    }
+
+    @Override
+    public synchronized void removeIf(Predicate<IDWithIssuer> predicate) {
+        super.removeIf(predicate);
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+    }
+
+    public void removePatientID(IDWithIssuer pid) {
+        if (pid != null)
+            removeIf(key -> key.getID().equals(pid.getID()));
+    }
+}
@@ -43,9 +43,43 @@ package org.dcm4chee.arc;
 import javax.enterprise.context.ApplicationScoped;
 
 /**
+ * Entries older than the stale timeout are still returned for the configured stale grace period, so they can be
+ * revalidated in the background without blocking the caller.
+ *
  * @author Gunter Zeilinger <gunterze@gmail.com>
  * @since Jul 2016
  */
 @ApplicationScoped
 public class StorePermissionCache extends Cache<String,StorePermission> {
+
+    private long staleTimeout;
+    private long staleGracePeriod;
+
+    @Override
+    public long getStaleTimeout() {
+        return staleTimeout;
+    }
+
+    @Override
+    public void setStaleTimeout(long staleTimeout) {
+        this.staleTimeout = staleTimeout;
+        updateExpiration();
+    }
+
+    public long getStaleGracePeriod() {
+        return staleGracePeriod;
+    }
+
+    public void setStaleGracePeriod(long staleGracePeriod) {
+        this.staleGracePeriod = staleGracePeriod;
+        updateExpiration();
+    }
+
+    private void updateExpiration() {
+        super.setStaleTimeout(staleTimeout > 0 ? staleTimeout + staleGracePeriod : 0);
+    }
+
+    public boolean needsRevalidation(Entry<StorePermission> entry) {
+        return staleTimeout > 0 && entry.fetchTime() <= System.currentTimeMillis() - staleTimeout;
+    }
 }
@@ -106,6 +106,9 @@ public class ArchiveServiceImpl implements ArchiveService {
     @Inject
     private StorePermissionCache storePermissionCache;
 
+    @Inject
+    private PatientCache patientCache;
+
     @Inject
     private Device device;
 
@@ -229,7 +232,12 @@ public class ArchiveServiceImpl implements ArchiveService {
         mergeMWLCache.setMaxSize(arcdev.getMergeMWLCacheSize());
         storePermissionCache.setStaleTimeout(
                 arcdev.getStorePermissionCacheStaleTimeoutSeconds() * 1000L);
+        storePermissionCache.setStaleGracePeriod(
+                arcdev.getStorePermissionCacheStaleGracePeriodSeconds() * 1000L);
         storePermissionCache.setMaxSize(arcdev.getStorePermissionCacheSize());
+        patientCache.setStaleTimeout(
+                arcdev.getPatientCacheStaleTimeoutSeconds() * 1000L);
+        patientCache.setMaxSize(arcdev.getPatientCacheSize());
         Patient.setShowPatientInfo(arcdev.showPatientInfoInSystemLog());
     }
 
@@ -1,5 +1,5 @@
 /*
- * *** BEGIN LICENSE BLOCK *****
+ * **** BEGIN LICENSE BLOCK *****
  * Version: MPL 1.1/GPL 2.0/LGPL 2.1
  *
  * The contents of this file are subject to the Mozilla Public License Version
@@ -17,7 +17,7 @@
  *
  * The Initial Developer of the Original Code is
  * J4Care.
- * Portions created by the Initial Developer are Copyright (C) 2015
+ * Portions created by the Initial Developer are Copyright (C) 2015-2018
  * the Initial Developer. All Rights Reserved.
  *
  * Contributor(s):
@@ -35,22 +35,43 @@
  * the provisions above, a recipient may use your version of this file under
  * the terms of any one of the MPL, the GPL or the LGPL.
  *
- * *** END LICENSE BLOCK *****
+ * **** END LICENSE BLOCK *****
+ *
  */
 
-package org.dcm4chee.arc.storage.cloud;
-
-import org.jclouds.blobstore.BlobStore;
-import org.jclouds.blobstore.BlobStoreContext;
-
-import java.io.IOException;
-import java.io.InputStream;
+package org.dcm4chee.arc.metrics;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
- * @since Oct 2015
+ * @since Oct 2018
  */
-interface Uploader {
-    void upload(BlobStoreContext context, InputStream in, BlobStore blobStore, String container, String storagePath)
-            throws IOException;
+public enum Metric {
+    STORE("store", "phase", "Latency of processing of received objects by phase"),
+    QUERY("query", "phase", "Latency of query execution and result fetching"),
+    RETRIEVE("retrieve", "phase", "Latency of calculating retrieve matches and opening transcoders"),
+    STORAGE_READ("storage_read", "storage", "Latency of reading objects from Storage"),
+    STORAGE_WRITE("storage_write", "storage", "Latency of writing objects to Storage"),
+    QUEUE("queue_task", "queue", "Latency of processing of Tasks by Queue");
+
+    private final String name;
+    private final String label;
+    private final String help;
+
+    Metric(String name, String label, String help) {
+        this.name = "dcm4chee_arc_" + name + "_seconds";
+        this.label = label;
+        this.help = help;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getHelp() {
+        return help;
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * **** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2015-2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * **** END LICENSE BLOCK *****
+ *
+ */
+
+package org.dcm4chee.arc.metrics;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@ApplicationScoped
+public class MetricsService {
+
+    private final EnumMap<Metric, ConcurrentHashMap<String, LatencyHistogram>> histograms =
+            new EnumMap<>(Metric.class);
+
+    public MetricsService() {
+        for (Metric metric : Metric.values())
+            histograms.put(metric, new ConcurrentHashMap<>());
+    }
+
+    public void record(Metric metric, String labelValue, long nanos) {
+        histograms.get(metric).computeIfAbsent(labelValue, key -> new LatencyHistogram()).record(nanos);
+    }
+
+    public void recordSince(Metric metric, String labelValue, long startNanos) {
+        record(metric, labelValue, System.nanoTime() - startNanos);
+    }
+
+    public void writeTo(Writer w) throws IOException {
+        for (Metric metric : Metric.values()) {
+            String name = metric.getName();
+            w.write("# HELP ");
+            w.write(name);
+            w.write(' ');
+            w.write(metric.getHelp());
+            w.write("\n# TYPE ");
+            w.write(name);
+            w.write(" histogram\n");
+            for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms.get(metric)).entrySet())
+                write(w, metric, escape(entry.getKey()), entry.getValue());
+        }
+    }
+
+    private static void write(Writer w, Metric metric, String labelValue, LatencyHistogram histogram)
+            throws IOException {
+        String name = metric.getName();
+        String label = metric.getLabel();
+        long count = 0;
+        for (int i = 0; i <= LatencyHistogram.NUM_BUCKETS; i++) {
+            count += histogram.getCount(i);
+            w.write(name);
+            w.write("_bucket{");
+            w.write(label);
+            w.write("=\"");
+            w.write(labelValue);
+            w.write("\",le=\"");
+            w.write(i < LatencyHistogram.NUM_BUCKETS
+                    ? Double.toString(LatencyHistogram.upperBoundInSeconds(i))
+                    : "+Inf");
+            w.write("\"} ");
+            w.write(Long.toString(count));
+            w.write('\n');
+        }
+        writeSample(w, name + "_sum", label, labelValue, Double.toString(histogram.getSumInSeconds()));
+        writeSample(w, name + "_count", label, labelValue, Long.toString(count));
+    }
+
+    private static void writeSample(Writer w, String name, String label, String labelValue, String value)
+            throws IOException {
+        w.write(name);
+        w.write('{');
+        w.write(label);
+        w.write("=\"");
+        w.write(labelValue);
+        w.write("\"} ");
+        w.write(value);
+        w.write('\n');
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -53,6 +53,8 @@ import org.dcm4che3.util.StreamUtils;
 import org.dcm4che3.util.StringUtils;
 import org.dcm4che3.util.TagUtils;
 import org.dcm4chee.arc.conf.ArchiveAEExtension;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.BinaryPrefix;
 import org.dcm4chee.arc.conf.StorageVerificationPolicy;
 import org.dcm4chee.arc.conf.StorageDescriptor;
 import org.dcm4chee.arc.entity.*;
@@ -80,8 +82,11 @@ import javax.inject.Inject;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -92,7 +97,7 @@ import java.util.stream.Collectors;
  */
 @ApplicationScoped
 public class StgCmtManagerImpl implements StgCmtManager {
-    private final Logger LOG = LoggerFactory.getLogger(StgCmtManagerImpl.class);
+    private static final Logger LOG = LoggerFactory.getLogger(StgCmtManagerImpl.class);
 
     @Inject
     private Device device;
@@ -109,6 +114,8 @@ public class StgCmtManagerImpl implements StgCmtManager {
     @Inject
     private Event<StgCmtContext> stgCmtEvent;
 
+    private final Map<String, StorageVerificationThrottle> throttles = new ConcurrentHashMap<>();
+
     @Override
     public void addExternalRetrieveAETs(Attributes eventInfo, Device device) {
         ejb.addExternalRetrieveAETs(eventInfo, device);
@@ -353,9 +360,11 @@ public class StgCmtManagerImpl implements StgCmtManager {
         if (commonRetrieveAET != null)
             eventInfo.setString(Tag.RetrieveAETitle, VR.AE, commonRetrieveAET);
 
+        List<UpdateLocation> updateLocations = Collections.synchronizedList(new ArrayList<>());
+        boolean[] verified = verifyLocations(ctx, retrCtx, matches, updateLocations);
         Set<String> studyInstanceUIDs = new HashSet<>();
-        List<UpdateLocation> updateLocations = new ArrayList<>();
-        for (InstanceLocations inst : matches) {
+        for (int i = 0; i < verified.length; i++) {
+            InstanceLocations inst = matches.get(i);
             String cuid = inst.getSopClassUID();
             String iuid = inst.getSopInstanceUID();
             Attributes attr = inst.getAttributes();
@@ -364,8 +373,7 @@ public class StgCmtManagerImpl implements StgCmtManager {
                     attr.getString(Tag.SeriesInstanceUID),
                     key -> new int[1])
                     : null;
-            if (ctx.getStorageVerificationPolicy() == StorageVerificationPolicy.DB_RECORD_EXISTS
-                    || checkLocations(ctx, retrCtx, inst, updateLocations)) {
+            if (verified[i]) {
                 eventInfo.ensureSequence(Tag.ReferencedSOPSequence, retrCtx.getNumberOfMatches())
                         .add(refSOP(cuid, iuid, commonRetrieveAET == null ? inst.getRetrieveAETs() : null));
             } else {
@@ -390,6 +398,65 @@ public class StgCmtManagerImpl implements StgCmtManager {
         }
     }
 
+    private boolean[] verifyLocations(StgCmtContext ctx, RetrieveContext retrCtx, List<InstanceLocations> matches,
+                                      List<UpdateLocation> updateLocations) {
+        boolean[] verified = new boolean[matches.size()];
+        if (ctx.getStorageVerificationPolicy() == StorageVerificationPolicy.DB_RECORD_EXISTS) {
+            Arrays.fill(verified, true);
+            return verified;
+        }
+        Map<String, Storage> storages = getStorages(ctx, retrCtx, matches);
+        int threads = device.getDeviceExtension(ArchiveDeviceExtension.class).getStorageVerificationThreads();
+        if (threads <= 1 || verified.length <= 1) {
+            for (int i = 0; i < verified.length; i++)
+                verified[i] = checkLocations(ctx, storages, matches.get(i), updateLocations);
+            return verified;
+        }
+        Semaphore semaphore = new Semaphore(threads);
+        int i = 0;
+        try {
+            for (; i < verified.length; i++) {
+                int index = i;
+                semaphore.acquire();
+                device.execute(() -> {
+                    try {
+                        verified[index] = checkLocations(ctx, storages, matches.get(index), updateLocations);
+                    } finally {
+                        semaphore.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted verification of Instances - treat {} of {} Instances as failed",
+                    verified.length - i, verified.length);
+        }
+        semaphore.acquireUninterruptibly(threads);
+        return verified;
+    }
+
+    private Map<String, Storage> getStorages(StgCmtContext ctx, RetrieveContext retrCtx,
+                                             List<InstanceLocations> matches) {
+        Map<String, Storage> storages = new HashMap<>();
+        for (InstanceLocations inst : matches)
+            for (Location l : inst.getLocations())
+                if (ctx.isStgCmtStorageID(l.getStorageID()))
+                    storages.computeIfAbsent(l.getStorageID(), storageID ->
+                            retrieveService.getStorage(storageID, retrCtx));
+        return storages;
+    }
+
+    private StorageVerificationThrottle throttle(StorageDescriptor storageDescriptor) {
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        int threads = arcDev.getStorageVerificationThreads();
+        String maxBytesPerSecond = arcDev.getStorageVerificationMaxBytesPerSecond();
+        long bytesPerSecond = maxBytesPerSecond != null ? BinaryPrefix.parse(maxBytesPerSecond) : 0L;
+        return throttles.compute(storageDescriptor.getStorageID(), (storageID, throttle) ->
+                throttle != null && throttle.isConfiguredWith(threads, bytesPerSecond)
+                        ? throttle
+                        : new StorageVerificationThrottle(threads, bytesPerSecond));
+    }
+
     private String commonRetrieveAET(List<InstanceLocations> matches) {
         if (matches.isEmpty())
             return null;
@@ -489,7 +556,7 @@ public class StgCmtManagerImpl implements StgCmtManager {
         return attrs;
     }
 
-    private boolean checkLocations(StgCmtContext ctx, RetrieveContext retrCtx, InstanceLocations inst,
+    private boolean checkLocations(StgCmtContext ctx, Map<String, Storage> storages, InstanceLocations inst,
                                    List<UpdateLocation> updateLocations) {
         int locationsOnStgCmtStorage = 0;
         Attributes attrs = inst.getAttributes();
@@ -497,8 +564,7 @@ public class StgCmtManagerImpl implements StgCmtManager {
         for (Location l : inst.getLocations()) {
             if (ctx.isStgCmtStorageID(l.getStorageID())) {
                 locationsOnStgCmtStorage++;
-                Storage storage = retrieveService.getStorage(l.getStorageID(), retrCtx);
-                CheckResult result = checkLocation(ctx, inst, l, storage, updateLocations);
+                CheckResult result = checkLocation(ctx, inst, l, storages.get(l.getStorageID()), updateLocations);
                 if (ctx.isStgCmtUpdateLocationStatus() && l.getStatus() != result.status) {
                     updateLocations.add(new UpdateLocation(inst, l, result.status, null));
                 }
@@ -532,6 +598,22 @@ public class StgCmtManagerImpl implements StgCmtManager {
 
     private CheckResult checkLocation(StgCmtContext ctx, InstanceLocations inst, Location l, Storage storage,
                                       List<UpdateLocation> updateLocations) {
+        StorageVerificationThrottle throttle = throttle(storage.getStorageDescriptor());
+        try {
+            throttle.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new CheckResult(Location.Status.FAILED_TO_FETCH_OBJECT, new InterruptedIOException());
+        }
+        try {
+            return checkLocation(ctx, inst, l, storage, throttle, updateLocations);
+        } finally {
+            throttle.release();
+        }
+    }
+
+    private CheckResult checkLocation(StgCmtContext ctx, InstanceLocations inst, Location l, Storage storage,
+                                      StorageVerificationThrottle throttle, List<UpdateLocation> updateLocations) {
         ReadContext readContext = storage.createReadContext();
         readContext.setStoragePath(l.getStoragePath());
         readContext.setStudyInstanceUID(inst.getAttributes().getString(Tag.StudyInstanceUID));
@@ -541,11 +623,11 @@ public class StgCmtManagerImpl implements StgCmtManager {
             case OBJECT_SIZE:
                 return compareObjectSize(readContext, l);
             case OBJECT_FETCH:
-                return fetchObject(readContext);
+                return fetchObject(readContext, throttle);
             case OBJECT_CHECKSUM:
-                return recalcChecksum(readContext, inst, l, updateLocations);
+                return recalcChecksum(readContext, inst, l, throttle, updateLocations);
             case S3_MD5SUM:
-                return compareS3md5Sum(readContext, inst, l, updateLocations);
+                return compareS3md5Sum(readContext, inst, l, throttle, updateLocations);
         }
         throw new AssertionError("StgCmtPolicy: " + ctx.getStorageVerificationPolicy());
     }
@@ -586,8 +668,8 @@ public class StgCmtManagerImpl implements StgCmtManager {
         }
     }
 
-    private CheckResult fetchObject(ReadContext readContext) {
-        try (InputStream stream = readContext.getStorage().openInputStream(readContext)) {
+    private CheckResult fetchObject(ReadContext readContext, StorageVerificationThrottle throttle) {
+        try (InputStream stream = throttle.throttle(readContext.getStorage().openInputStream(readContext))) {
             StreamUtils.copy(stream, null);
             return new CheckResult(Location.Status.OK);
         } catch (FileNotFoundException e) {
@@ -598,11 +680,31 @@ public class StgCmtManagerImpl implements StgCmtManager {
     }
 
     private CheckResult recalcChecksum(ReadContext readContext, InstanceLocations inst, Location l,
-                                       List<UpdateLocation> updateLocations) {
+                                       StorageVerificationThrottle throttle, List<UpdateLocation> updateLocations) {
+        String digest = l.getDigestAsHexString();
+        if (digest != null && "MD5".equals(readContext.getStorage().getStorageDescriptor().getDigestAlgorithm())) {
+            try {
+                byte[] contentMD5 = readContext.getStorage().getContentMD5(readContext);
+                if (contentMD5 != null)
+                    return (TagUtils.toHexString(contentMD5).equals(digest))
+                            ? new CheckResult(Location.Status.OK)
+                            : new CheckResult(Location.Status.DIFFERING_OBJECT_CHECKSUM);
+            } catch (FileNotFoundException e) {
+                return new CheckResult(Location.Status.MISSING_OBJECT, e);
+            } catch (IOException e) {
+                LOG.info("Failed to fetch MD5 of {} from {} -> recalculate object checksum:\n",
+                        l, readContext.getStorage().getStorageDescriptor(), e);
+            }
+        }
+        return fetchAndRecalcChecksum(readContext, inst, l, throttle, updateLocations);
+    }
+
+    private CheckResult fetchAndRecalcChecksum(ReadContext readContext, InstanceLocations inst, Location l,
+                                               StorageVerificationThrottle throttle, List<UpdateLocation> updateLocations) {
         StorageDescriptor storageDescriptor = readContext.getStorage().getStorageDescriptor();
         MessageDigest messageDigest = storageDescriptor.getMessageDigest();
         readContext.setMessageDigest(messageDigest);
-        CheckResult checkResult = fetchObject(readContext);
+        CheckResult checkResult = fetchObject(readContext, throttle);
         if (!checkResult.ok() || messageDigest == null)
             return checkResult;
 
@@ -619,7 +721,7 @@ public class StgCmtManagerImpl implements StgCmtManager {
     }
 
     private CheckResult compareS3md5Sum(ReadContext readContext, InstanceLocations inst, Location l,
-                                        List<UpdateLocation> updateLocations) {
+                                        StorageVerificationThrottle throttle, List<UpdateLocation> updateLocations) {
         StorageDescriptor storageDescriptor = readContext.getStorage().getStorageDescriptor();
         if (!"MD5".equals(storageDescriptor.getDigestAlgorithm())) {
             LOG.info("Digest Algorithm of {} != MD5 -> compare object size instead compare S3 MD5",
@@ -638,11 +740,11 @@ public class StgCmtManagerImpl implements StgCmtManager {
         if (contentMD5 == null) {
             LOG.info("S3 MD5SUM not supported by {} -> recalculate object checksum instead compare S3 MD5",
                     storageDescriptor);
-            return recalcChecksum(readContext, inst, l, updateLocations);
+            return fetchAndRecalcChecksum(readContext, inst, l, throttle, updateLocations);
         }
         String digest = l.getDigestAsHexString();
         if (digest == null || contentMD5 == null) {
-            CheckResult checkResult = recalcChecksum(readContext, inst, l, updateLocations);
+            CheckResult checkResult = fetchAndRecalcChecksum(readContext, inst, l, throttle, updateLocations);
             if (!checkResult.ok())
                 return checkResult;
 
@@ -0,0 +1,134 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.stgcmt.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of concurrent verifications and the rate of bytes read by verifications of one Storage.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+class StorageVerificationThrottle {
+
+    private static final long MAX_BURST_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int maxConcurrent;
+    private final long maxBytesPerSecond;
+    private final Semaphore semaphore;
+    private long nextFreeNanos = System.nanoTime();
+
+    StorageVerificationThrottle(int maxConcurrent, long maxBytesPerSecond) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.semaphore = new Semaphore(maxConcurrent);
+    }
+
+    boolean isConfiguredWith(int maxConcurrent, long maxBytesPerSecond) {
+        return this.maxConcurrent == maxConcurrent && this.maxBytesPerSecond == maxBytesPerSecond;
+    }
+
+    void acquire() throws InterruptedException {
+        semaphore.acquire();
+    }
+
+    void release() {
+        semaphore.release();
+    }
+
+    InputStream throttle(InputStream in) {
+        return maxBytesPerSecond > 0 ? new ThrottledInputStream(in) : in;
+    }
+
+    private void consume(long bytes) throws InterruptedIOException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (nextFreeNanos < now - MAX_BURST_NANOS)
+                nextFreeNanos = now - MAX_BURST_NANOS;
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += bytes * 1000000000L / maxBytesPerSecond;
+        }
+        if (waitNanos > 0)
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+    }
+
+    private class ThrottledInputStream extends FilterInputStream {
+
+        ThrottledInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0)
+                consume(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0)
+                consume(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            if (skipped > 0)
+                consume(skipped);
+            return skipped;
+        }
+    }
+}
@@ -41,9 +41,12 @@
 package org.dcm4chee.arc.storage.cloud;
 
 import com.google.common.hash.HashCode;
-import org.dcm4che3.net.Device;
+import com.google.common.io.ByteSource;
 import org.dcm4che3.util.AttributesFormat;
+import org.dcm4che3.util.StreamUtils;
+import org.dcm4chee.arc.conf.BinaryPrefix;
 import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.metrics.MetricsService;
 import org.dcm4chee.arc.storage.AbstractStorage;
 import org.dcm4chee.arc.storage.ReadContext;
 import org.dcm4chee.arc.storage.WriteContext;
@@ -52,18 +55,18 @@ import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.blobstore.options.PutOptions;
 import org.jclouds.io.Payload;
-import org.jclouds.io.payloads.InputStreamPayload;
+import org.jclouds.io.Payloads;
 import org.jclouds.logging.slf4j.config.SLF4JLoggingModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.file.NoSuchFileException;
-import java.util.Collections;
-import java.util.Map;
-import java.util.Properties;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
+import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -73,34 +76,23 @@ import java.util.concurrent.ThreadLocalRandom;
  */
 public class CloudStorage extends AbstractStorage {
 
+    private static final Logger LOG = LoggerFactory.getLogger(CloudStorage.class);
     private static final String DEFAULT_CONTAINER = "org.dcm4chee.arc";
-    private static final Uploader DEFAULT_UPLOADER = new Uploader() {
-        @Override
-        public void upload(BlobStoreContext context, InputStream in, BlobStore blobStore, String container,
-                           String storagePath) throws IOException {
-            Payload payload = new InputStreamPayload(in);
-            Blob blob = blobStore.blobBuilder(storagePath).payload(payload).build();
-            blobStore.putBlob(container, blob);
-        }
-    };
-    private final Device device;
+    private static final String DEFAULT_PART_SIZE = "5MiB";
+    private static final int INITIAL_BUFFER_SIZE = 65536;
     private final AttributesFormat pathFormat;
     private final String container;
     private final BlobStoreContext context;
-    private final Uploader uploader;
+    private final boolean uniqueStoragePaths;
+    private final int partSize;
     private int count;
 
-    @Override
-    public WriteContext createWriteContext() {
-        return new CloudWriteContext(this);
-    }
-
-    protected CloudStorage(StorageDescriptor descriptor, Device device) {
-        super(descriptor);
-        this.device = device;
+    protected CloudStorage(StorageDescriptor descriptor, MetricsService metricsService) {
+        super(descriptor, metricsService);
         pathFormat = new AttributesFormat(descriptor.getProperty("pathFormat", DEFAULT_PATH_FORMAT));
         container = descriptor.getProperty("container", DEFAULT_CONTAINER);
         if (Boolean.parseBoolean(descriptor.getProperty("containerExists", null))) count++;
+        uniqueStoragePaths = Boolean.parseBoolean(descriptor.getProperty("uniqueStoragePaths", null));
         String api = descriptor.getStorageURI().getSchemeSpecificPart();
         String endpoint = null;
         int endApi = api.indexOf(':');
@@ -108,7 +100,6 @@ public class CloudStorage extends AbstractStorage {
             endpoint = api.substring(endApi + 1);
             api = api.substring(0, endApi);
         }
-        this.uploader = api.endsWith("s3") ? new S3Uploader() : DEFAULT_UPLOADER;
         ContextBuilder ctxBuilder = ContextBuilder.newBuilder(api);
         String identity = descriptor.getProperty("identity", null);
         if (identity != null)
@@ -124,60 +115,164 @@ public class CloudStorage extends AbstractStorage {
         ctxBuilder.overrides(overrides);
         ctxBuilder.modules(Collections.singleton(new SLF4JLoggingModule()));
         context = ctxBuilder.buildView(BlobStoreContext.class);
+        partSize = (int) Math.max(context.getBlobStore().getMinimumMultipartPartSize(),
+                BinaryPrefix.parse(descriptor.getProperty("partSize", DEFAULT_PART_SIZE)));
     }
 
     @Override
-    protected OutputStream openOutputStreamA(final WriteContext ctx) throws IOException {
-        final PipedInputStream in = new PipedInputStream();
-        PipedOutputStream out = new PipedOutputStream(in);
-        FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
-            @Override
-            public Void call() throws Exception {
-                try {
-                    upload(ctx, in);
-                } finally {
-                    in.close();
-                }
-                return null;
-            }
-        });
-        ((CloudWriteContext) ctx).setUploadTask(task);
-        device.execute(task);
-        return out;
+    protected OutputStream openOutputStreamA(WriteContext ctx) {
+        return new UploadOutputStream(ctx);
     }
 
     @Override
     protected void copyA(InputStream in, WriteContext ctx) throws IOException {
-        upload(ctx, in);
-    }
-
-    @Override
-    protected void afterOutputStreamClosed(WriteContext ctx) throws IOException {
-        FutureTask<Void> task = ((CloudWriteContext) ctx).getUploadTask();
+        UploadOutputStream out = new UploadOutputStream(ctx);
         try {
-            task.get();
-        } catch (InterruptedException e) {
-            throw new InterruptedIOException();
-        } catch (ExecutionException e) {
-            Throwable c = e.getCause();
-            if (c instanceof IOException)
-                throw (IOException) c;
-            throw new IOException("Upload failed", c);
+            StreamUtils.copy(in, out);
+        } catch (IOException | RuntimeException e) {
+            out.discard();
+            throw e;
         }
+        out.close();
     }
 
-    private void upload(WriteContext ctx, InputStream in) throws IOException {
-        BlobStore blobStore = context.getBlobStore();
+    private String storagePath(BlobStore blobStore, WriteContext ctx) {
         String storagePath = pathFormat.format(ctx.getAttributes());
         if (count++ == 0 && !blobStore.containerExists(container))
             blobStore.createContainerInLocation(null, container);
-        else {
+        else if (!uniqueStoragePaths) {
             while (blobStore.blobExists(container, storagePath))
                 storagePath = storagePath.substring(0, storagePath.lastIndexOf('/') + 1)
                         .concat(String.format("%08X", ThreadLocalRandom.current().nextInt()));
         }
-        uploader.upload(context, in, blobStore, container, storagePath);
-        ctx.setStoragePath(storagePath);
+        return storagePath;
+    }
+
+    /**
+     * Buffers written data in parts of {@link #partSize} and uploads them from the calling thread - as one blob, if
+     * the data fits into one part, otherwise by multipart upload. The upload is only committed by {@link #close()},
+     * if no part upload failed and the stream was not {@link #discard() discarded} before.
+     */
+    private class UploadOutputStream extends OutputStream {
+        private final WriteContext ctx;
+        private final BlobStore blobStore = context.getBlobStore();
+        private byte[] buf = new byte[Math.min(INITIAL_BUFFER_SIZE, partSize)];
+        private int pos;
+        private String storagePath;
+        private MultipartUpload mpu;
+        private List<MultipartPart> parts;
+        private boolean closed;
+        private boolean failed;
+
+        UploadOutputStream(WriteContext ctx) {
+            this.ctx = ctx;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureCapacity(1);
+            buf[pos++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, ensureCapacity(len));
+                System.arraycopy(b, off, buf, pos, n);
+                pos += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private int ensureCapacity(int len) throws IOException {
+            int remaining = buf.length - pos;
+            if (remaining >= len)
+                return remaining;
+
+            if (buf.length < partSize) {
+                buf = Arrays.copyOf(buf, (int) Math.min(partSize, Math.max(buf.length * 2L, (long) pos + len)));
+                return buf.length - pos;
+            }
+            if (remaining == 0)
+                uploadPart();
+            return buf.length - pos;
+        }
+
+        private void uploadPart() throws IOException {
+            if (failed)
+                throw new IOException("Upload of " + storagePath + " to " + CloudStorage.this + " failed");
+
+            try {
+                if (mpu == null) {
+                    storagePath = storagePath(blobStore, ctx);
+                    mpu = blobStore.initiateMultipartUpload(container,
+                            blobStore.blobBuilder(storagePath).build().getMetadata(), PutOptions.NONE);
+                    parts = new ArrayList<>();
+                }
+                parts.add(blobStore.uploadMultipartPart(mpu, parts.size() + 1, payload()));
+                pos = 0;
+            } catch (RuntimeException e) {
+                failed = true;
+                abort();
+                throw new IOException("Upload failed", e);
+            }
+        }
+
+        private Payload payload() {
+            Payload payload = Payloads.newByteSourcePayload(ByteSource.wrap(buf).slice(0, pos));
+            payload.getContentMetadata().setContentLength((long) pos);
+            return payload;
+        }
+
+        private void abort() {
+            if (mpu != null)
+                try {
+                    blobStore.abortMultipartUpload(mpu);
+                } catch (RuntimeException e) {
+                    LOG.warn("Failed to abort multipart upload of {} to {}:\n", storagePath, CloudStorage.this, e);
+                } finally {
+                    mpu = null;
+                }
+        }
+
+        void discard() {
+            if (closed)
+                return;
+
+            closed = true;
+            buf = null;
+            abort();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+
+            closed = true;
+            if (failed)
+                throw new IOException("Upload of " + storagePath + " to " + CloudStorage.this + " failed");
+
+            if (mpu == null) {
+                try {
+                    storagePath = storagePath(blobStore, ctx);
+                    blobStore.putBlob(container, blobStore.blobBuilder(storagePath).payload(payload()).build());
+                } catch (RuntimeException e) {
+                    throw new IOException("Upload failed", e);
+                }
+            } else {
+                if (pos > 0)
+                    uploadPart();
+                try {
+                    blobStore.completeMultipartUpload(mpu, parts);
+                } catch (RuntimeException e) {
+                    abort();
+                    throw new IOException("Upload failed", e);
+                }
+            }
+            ctx.setStoragePath(storagePath);
+        }
     }
 
     @Override
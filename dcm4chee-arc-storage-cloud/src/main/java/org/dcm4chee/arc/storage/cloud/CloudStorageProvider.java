@@ -40,8 +40,8 @@
 
 package org.dcm4chee.arc.storage.cloud;
 
-import org.dcm4che3.net.Device;
 import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.metrics.MetricsService;
 import org.dcm4chee.arc.storage.Storage;
 import org.dcm4chee.arc.storage.StorageProvider;
 
@@ -58,10 +58,10 @@ import javax.inject.Named;
 public class CloudStorageProvider implements StorageProvider {
 
     @Inject
-    private Device device;
+    private MetricsService metricsService;
 
     @Override
     public Storage openStorage(StorageDescriptor descriptor) {
-        return new CloudStorage(descriptor, device);
+        return new CloudStorage(descriptor, metricsService);
     }
 }
@@ -1,10 +1,12 @@
 package org.dcm4chee.arc.storage.filesystem;
 
 import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.metrics.MetricsService;
 import org.dcm4chee.arc.storage.Storage;
 import org.dcm4chee.arc.storage.StorageProvider;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import javax.inject.Named;
 
 /**
@@ -14,8 +16,12 @@ import javax.inject.Named;
 @ApplicationScoped
 @Named("file")
 class FileSystemStorageProvider implements StorageProvider {
+
+    @Inject
+    private MetricsService metricsService;
+
     @Override
     public Storage openStorage(StorageDescriptor descriptor) {
-        return new FileSystemStorage(descriptor);
+        return new FileSystemStorage(descriptor, metricsService);
     }
 }
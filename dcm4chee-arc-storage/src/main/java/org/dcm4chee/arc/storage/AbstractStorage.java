@@ -41,6 +41,8 @@
 package org.dcm4chee.arc.storage;
 
 import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.metrics.Metric;
+import org.dcm4chee.arc.metrics.MetricsService;
 
 import java.io.*;
 import java.security.DigestInputStream;
@@ -56,9 +58,11 @@ public abstract class AbstractStorage implements Storage {
             "{now,date,yyyy/MM/dd}/{0020000D,hash}/{0020000E,hash}/{00080018,hash}";
 
     protected final StorageDescriptor descriptor;
+    private final MetricsService metricsService;
 
-    protected AbstractStorage(StorageDescriptor descriptor) {
+    protected AbstractStorage(StorageDescriptor descriptor, MetricsService metricsService) {
         this.descriptor = descriptor;
+        this.metricsService = metricsService;
     }
 
     @Override
@@ -108,33 +112,44 @@ public abstract class AbstractStorage implements Storage {
     @Override
     public OutputStream openOutputStream(final WriteContext ctx) throws IOException {
         checkAccessable();
+        long start = System.nanoTime();
         OutputStream stream = openOutputStreamA(ctx);
         if (ctx.getMessageDigest() != null) {
             stream = new DigestOutputStream(stream, ctx.getMessageDigest());
         }
+        long openNanos = System.nanoTime() - start;
         return new FilterOutputStream(stream) {
+            private long nanos = openNanos;
+
             @Override
             public void write(int b) throws IOException {
+                long start = System.nanoTime();
                 try {
                     out.write(b);
                 } catch (IOException e) {
                     throw new StorageException(e);
+                } finally {
+                    nanos += System.nanoTime() - start;
                 }
                 ctx.incrementSize(1);
             }
 
             @Override
             public void write(byte[] b, int off, int len) throws IOException {
+                long start = System.nanoTime();
                 try {
                     out.write(b, off, len);
                 } catch (IOException e) {
                     throw new StorageException(e);
+                } finally {
+                    nanos += System.nanoTime() - start;
                 }
                 ctx.incrementSize(len);
             }
 
             @Override
             public void close() throws IOException {
+                long start = System.nanoTime();
                 try {
                     beforeOutputStreamClosed(ctx, this);
                 } finally {
@@ -144,6 +159,8 @@ public abstract class AbstractStorage implements Storage {
                         throw new StorageException(e);
                     } finally {
                         afterOutputStreamClosed(ctx);
+                        metricsService.record(Metric.STORAGE_WRITE, descriptor.getStorageID(),
+                                nanos + System.nanoTime() - start);
                     }
                 }
             }
@@ -153,7 +170,9 @@ public abstract class AbstractStorage implements Storage {
     @Override
     public void copy(InputStream in, WriteContext ctx) throws IOException {
         checkAccessable();
+        long start = System.nanoTime();
         copyA(in, ctx);
+        metricsService.recordSince(Metric.STORAGE_WRITE, descriptor.getStorageID(), start);
     }
 
     private void checkAccessable() throws IOException {
@@ -193,18 +212,25 @@ public abstract class AbstractStorage implements Storage {
     @Override
     public InputStream openInputStream(final ReadContext ctx) throws IOException {
         checkAccessable();
+        long start = System.nanoTime();
         InputStream stream = openInputStreamA(ctx);
         if (ctx.getMessageDigest() != null) {
             stream = new DigestInputStream(stream, ctx.getMessageDigest());
         }
+        long openNanos = System.nanoTime() - start;
         return new FilterInputStream(stream) {
+            private long nanos = openNanos;
+
             @Override
             public int read() throws IOException {
                 int read = 0;
+                long start = System.nanoTime();
                 try {
                     read = in.read();
                 } catch (IOException e) {
                     throw new StorageException(e);
+                } finally {
+                    nanos += System.nanoTime() - start;
                 }
                 if (read >= 0)
                     ctx.incrementSize(1);
@@ -214,10 +240,13 @@ public abstract class AbstractStorage implements Storage {
             @Override
             public int read(byte[] b, int off, int len) throws IOException {
                 int read = 0;
+                long start = System.nanoTime();
                 try {
                     read = in.read(b, off, len);
                 } catch (IOException e) {
                     throw new StorageException(e);
+                } finally {
+                    nanos += System.nanoTime() - start;
                 }
                 if (read > 0)
                     ctx.incrementSize(read);
@@ -243,6 +272,7 @@ public abstract class AbstractStorage implements Storage {
 
             @Override
             public void close() throws IOException {
+                long start = System.nanoTime();
                 try {
                     beforeInputStreamClosed(ctx, this);
                 } finally {
@@ -252,6 +282,8 @@ public abstract class AbstractStorage implements Storage {
                         throw new StorageException(e);
                     } finally {
                         afterInputStreamClosed(ctx);
+                        metricsService.record(Metric.STORAGE_READ, descriptor.getStorageID(),
+                                nanos + System.nanoTime() - start);
                     }
                 }
             }
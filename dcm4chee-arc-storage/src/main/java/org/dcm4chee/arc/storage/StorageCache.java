@@ -0,0 +1,505 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.storage;
+
+import org.dcm4che3.util.TagUtils;
+import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.conf.StorageDescriptor.ReadCacheEviction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache of objects on local disk in front of any Storage, configured by Storage properties
+ * {@code readCacheDirectory}, {@code readCacheMaxSize} and {@code readCacheEviction} ({@code LRU} or {@code LFU}).
+ * Each cached object is kept in one file named by a hash of Storage ID and storage path and by its digest, so the
+ * cache directory itself represents the state of the cache and survives restarts and crashes. Objects are written to
+ * the cache while they are streamed to the first reader; partially read objects are discarded. Concurrent readers of
+ * an object being written to the cache wait until it is written and read it from the cache; they only read it from
+ * the Storage, if writing to the cache fails or does not complete within {@link #FILL_WAIT_TIMEOUT} ms.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@ApplicationScoped
+public class StorageCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StorageCache.class);
+    private static final String PART_SUFFIX = ".part";
+    static final long FILL_WAIT_TIMEOUT = 60000L;
+
+    private final Map<String, ObjectCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Opens the object referenced by {@code ctx} from the cache of the Storage, if available, otherwise from the
+     * Storage itself.
+     *
+     * @param storage Storage containing the object
+     * @param ctx Read Context referencing the object
+     * @param size expected size of the object or {@code -1}, if unknown
+     * @param digest expected digest of the object as hex string or {@code null}, if unknown
+     * @return input stream of the object
+     * @throws IOException if the object cannot be read from the Storage
+     */
+    public InputStream openInputStream(Storage storage, ReadContext ctx, long size, String digest)
+            throws IOException {
+        ObjectCache cache = ctx.getMessageDigest() == null ? cacheOf(storage.getStorageDescriptor()) : null;
+        return cache != null ? cache.openInputStream(storage, ctx, size, digest) : storage.openInputStream(ctx);
+    }
+
+    /**
+     * Removes the object with the specified storage path from the cache of the Storage. Shall be invoked after
+     * deleting the object from the Storage.
+     *
+     * @param desc Storage Descriptor
+     * @param storagePath storage path of the deleted object
+     */
+    public void invalidate(StorageDescriptor desc, String storagePath) {
+        ObjectCache cache = caches.get(desc.getStorageID());
+        if (cache != null)
+            cache.invalidate(keyOf(desc, storagePath));
+    }
+
+    private ObjectCache cacheOf(StorageDescriptor desc) {
+        String dir = desc.getReadCacheDirectory();
+        if (dir == null) {
+            caches.remove(desc.getStorageID());
+            return null;
+        }
+        Path path = Paths.get(dir);
+        long maxSize = desc.getReadCacheMaxSize();
+        ReadCacheEviction eviction = desc.getReadCacheEviction();
+        return caches.compute(desc.getStorageID(), (storageID, cache) ->
+                cache != null && cache.isConfiguredWith(path, maxSize, eviction)
+                        ? cache
+                        : new ObjectCache(path, maxSize, eviction));
+    }
+
+    private static String keyOf(StorageDescriptor desc, String storagePath) {
+        return UUID.nameUUIDFromBytes((desc.getStorageID() + '\\' + storagePath).getBytes(StandardCharsets.UTF_8))
+                .toString();
+    }
+
+    static class Entry {
+        final String key;
+        final String digest;
+        final long size;
+        long lastAccess;
+        long hits;
+
+        Entry(String key, String digest, long size, long lastAccess) {
+            this.key = key;
+            this.digest = digest;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+
+        String fileName() {
+            return digest != null ? key + '.' + digest : key;
+        }
+
+        boolean matches(long size, String digest) {
+            return (size < 0 || this.size == size) && (digest == null || digest.equals(this.digest));
+        }
+    }
+
+    /**
+     * Signals the completion of writing an object to the cache to concurrent readers of the object.
+     */
+    static class Fill {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean filled;
+
+        void done(boolean filled) {
+            this.filled = filled;
+            done.countDown();
+        }
+
+        boolean await() throws InterruptedIOException {
+            try {
+                return done.await(FILL_WAIT_TIMEOUT, TimeUnit.MILLISECONDS) && filled;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    static class ObjectCache {
+        private final Path dir;
+        private final long maxSize;
+        private final ReadCacheEviction eviction;
+        private final Map<String, Entry> entries = new HashMap<>();
+        private final Map<String, Fill> fills = new ConcurrentHashMap<>();
+        private long size;
+        private long clock;
+        private boolean initialized;
+
+        ObjectCache(Path dir, long maxSize, ReadCacheEviction eviction) {
+            this.dir = dir;
+            this.maxSize = maxSize;
+            this.eviction = eviction;
+        }
+
+        boolean isConfiguredWith(Path dir, long maxSize, ReadCacheEviction eviction) {
+            return this.dir.equals(dir) && this.maxSize == maxSize && this.eviction == eviction;
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        synchronized boolean contains(String key) {
+            init();
+            return entries.containsKey(key);
+        }
+
+        InputStream openInputStream(Storage storage, ReadContext ctx, long size, String digest)
+                throws IOException {
+            if (size > maxSize)
+                return storage.openInputStream(ctx);
+
+            String key = keyOf(storage.getStorageDescriptor(), ctx.getStoragePath());
+            InputStream cached = openCached(key, size, digest);
+            if (cached != null)
+                return cached;
+
+            Fill fill = new Fill();
+            Fill pending = fills.putIfAbsent(key, fill);
+            if (pending != null) {
+                if (pending.await() && (cached = openCached(key, size, digest)) != null)
+                    return cached;
+
+                LOG.debug("Failed to wait for caching of {} - read it from {}", ctx.getStoragePath(), storage);
+                return storage.openInputStream(ctx);
+            }
+
+            InputStream in = null;
+            try {
+                in = storage.openInputStream(ctx);
+                Files.createDirectories(dir);
+                Path part = dir.resolve(key + PART_SUFFIX);
+                MessageDigest md = digest != null ? storage.getStorageDescriptor().getMessageDigest() : null;
+                return new CachingInputStream(in, Files.newOutputStream(part), part, key, fill, size, digest, md);
+            } catch (IOException | RuntimeException e) {
+                fills.remove(key, fill);
+                fill.done(false);
+                if (in == null)
+                    throw e;
+                LOG.warn("Failed to cache {} from {} in {}:\n", ctx.getStoragePath(), storage, dir, e);
+                return in;
+            }
+        }
+
+        private InputStream openCached(String key, long size, String digest) throws IOException {
+            Path file = hit(key, size, digest);
+            if (file != null)
+                try {
+                    return Files.newInputStream(file);
+                } catch (NoSuchFileException e) {
+                    LOG.debug("{} evicted from cache", file);
+                }
+            return null;
+        }
+
+        synchronized void invalidate(String key) {
+            init();
+            Entry entry = entries.get(key);
+            if (entry != null)
+                remove(entry);
+        }
+
+        synchronized Path hit(String key, long size, String digest) {
+            init();
+            Entry entry = entries.get(key);
+            if (entry == null)
+                return null;
+
+            if (!entry.matches(size, digest)) {
+                LOG.info("Discard outdated {} from cache", dir.resolve(entry.fileName()));
+                remove(entry);
+                return null;
+            }
+            entry.lastAccess = ++clock;
+            entry.hits++;
+            return dir.resolve(entry.fileName());
+        }
+
+        void filled(Path part, String key, String digest, long fileSize) throws IOException {
+            Entry entry = new Entry(key, digest, fileSize, 0L);
+            Files.move(part, dir.resolve(entry.fileName()), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            add(entry);
+        }
+
+        synchronized void add(Entry entry) {
+            entry.lastAccess = ++clock;
+            Entry prev = entries.put(entry.key, entry);
+            if (prev != null) {
+                size -= prev.size;
+                if (!prev.fileName().equals(entry.fileName()))
+                    deleteFile(prev);
+            }
+            size += entry.size;
+            evict(entry.key);
+        }
+
+        private void evict(String keep) {
+            Comparator<Entry> order = eviction == ReadCacheEviction.LFU
+                    ? Comparator.<Entry>comparingLong(e -> e.hits).thenComparingLong(e -> e.lastAccess)
+                    : Comparator.comparingLong(e -> e.lastAccess);
+            PriorityQueue<Entry> candidates = null;
+            while (size > maxSize && entries.size() > 1) {
+                if (candidates == null) {
+                    candidates = new PriorityQueue<>(entries.size(), order);
+                    candidates.addAll(entries.values());
+                }
+                Entry entry = candidates.poll();
+                if (entry.key.equals(keep))
+                    continue;
+
+                remove(entry);
+            }
+        }
+
+        private void remove(Entry entry) {
+            entries.remove(entry.key);
+            size -= entry.size;
+            deleteFile(entry);
+        }
+
+        private void deleteFile(Entry entry) {
+            Path file = dir.resolve(entry.fileName());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.warn("Failed to delete {} from cache:\n", file, e);
+            }
+        }
+
+        private void init() {
+            if (initialized)
+                return;
+
+            initialized = true;
+            if (!Files.isDirectory(dir))
+                return;
+
+            List<Path> files = new ArrayList<>();
+            try (Stream<Path> stream = Files.list(dir)) {
+                stream.forEach(files::add);
+            } catch (IOException e) {
+                LOG.warn("Failed to list cache directory {}:\n", dir, e);
+            }
+            files.sort(Comparator.comparingLong(ObjectCache::lastModified));
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    if (name.endsWith(PART_SUFFIX))
+                        Files.delete(file);
+                    else {
+                        int index = name.indexOf('.');
+                        add(index < 0
+                                ? new Entry(name, null, Files.size(file), 0L)
+                                : new Entry(name.substring(0, index), name.substring(index + 1), Files.size(file), 0L));
+                    }
+                } catch (IOException e) {
+                    LOG.warn("Failed to restore cache entry {}:\n", file, e);
+                }
+            }
+            LOG.info("Restored {} cached objects with {} bytes from {}", entries.size(), size, dir);
+        }
+
+        private static long lastModified(Path file) {
+            try {
+                return Files.getLastModifiedTime(file).toMillis();
+            } catch (IOException e) {
+                return 0L;
+            }
+        }
+
+        /**
+         * Writes the bytes read by the first reader of an object to the cache. The object is only added to the cache,
+         * if it was read completely and matches the expected size and digest; writing to the cache stops silently
+         * on any error or, if the object exceeds the maximal size of the cache.
+         */
+        private class CachingInputStream extends FilterInputStream {
+            private final Path part;
+            private final String key;
+            private final Fill fill;
+            private final long expectedSize;
+            private final String expectedDigest;
+            private final MessageDigest md;
+            private OutputStream cache;
+            private long count;
+            private boolean eof;
+
+            CachingInputStream(InputStream in, OutputStream cache, Path part, String key, Fill fill,
+                    long expectedSize, String expectedDigest, MessageDigest md) {
+                super(in);
+                this.cache = cache;
+                this.part = part;
+                this.key = key;
+                this.fill = fill;
+                this.expectedSize = expectedSize;
+                this.expectedDigest = expectedDigest;
+                this.md = md;
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                if (b < 0)
+                    eof = true;
+                else
+                    write(new byte[]{(byte) b}, 0, 1);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = in.read(b, off, len);
+                if (n < 0)
+                    eof = true;
+                else
+                    write(b, off, n);
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                discard();
+                return in.skip(n);
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+
+            private void write(byte[] b, int off, int len) {
+                if (cache == null)
+                    return;
+
+                count += len;
+                if (count > maxSize) {
+                    discard();
+                    return;
+                }
+                try {
+                    cache.write(b, off, len);
+                    if (md != null)
+                        md.update(b, off, len);
+                } catch (IOException e) {
+                    LOG.warn("Failed to write {} to cache:\n", part, e);
+                    discard();
+                }
+            }
+
+            private boolean isComplete() {
+                return eof || expectedSize >= 0 && count == expectedSize;
+            }
+
+            @Override
+            public void close() throws IOException {
+                boolean filled = false;
+                try {
+                    in.close();
+                } finally {
+                    try {
+                        if (cache != null && isComplete())
+                            filled = commit();
+                    } finally {
+                        discard();
+                        fills.remove(key, fill);
+                        fill.done(filled);
+                    }
+                }
+            }
+
+            private boolean commit() {
+                try {
+                    cache.close();
+                    cache = null;
+                    if (expectedSize >= 0 && count != expectedSize)
+                        throw new IOException("Size " + count + " does not match expected size " + expectedSize);
+                    String digest = md != null ? TagUtils.toHexString(md.digest()) : null;
+                    if (expectedDigest != null && digest != null && !expectedDigest.equalsIgnoreCase(digest))
+                        throw new IOException("Digest " + digest + " does not match expected digest "
+                                + expectedDigest);
+                    filled(part, key, expectedDigest, count);
+                    return true;
+                } catch (IOException e) {
+                    LOG.warn("Failed to add {} to cache:\n", part, e);
+                    return false;
+                }
+            }
+
+            private void discard() {
+                if (cache != null)
+                    try {
+                        cache.close();
+                    } catch (IOException ignore) {
+                    } finally {
+                        cache = null;
+                    }
+                try {
+                    Files.deleteIfExists(part);
+                } catch (IOException e) {
+                    LOG.warn("Failed to delete {}:\n", part, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2013
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.storage;
+
+import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.conf.StorageDescriptor.ReadCacheEviction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+public class StorageCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = tmp.getRoot().toPath();
+    }
+
+    @Test
+    public void testEvictLRU() throws Exception {
+        StorageCache.ObjectCache cache = newObjectCache(ReadCacheEviction.LRU);
+        fill(cache, "a");
+        fill(cache, "b");
+        assertNotNull(cache.hit("a", 100, null));
+        fill(cache, "c");
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+        assertFalse(Files.exists(dir.resolve("b")));
+        assertEquals(200L, cache.size());
+    }
+
+    @Test
+    public void testEvictLFU() throws Exception {
+        StorageCache.ObjectCache cache = newObjectCache(ReadCacheEviction.LFU);
+        fill(cache, "a");
+        fill(cache, "b");
+        assertNotNull(cache.hit("a", 100, null));
+        assertNotNull(cache.hit("a", 100, null));
+        assertNotNull(cache.hit("b", 100, null));
+        fill(cache, "c");
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+    }
+
+    @Test
+    public void testDiscardOnSizeOrDigestMismatch() throws Exception {
+        StorageCache.ObjectCache cache = newObjectCache(ReadCacheEviction.LRU);
+        fill(cache, "a");
+        assertNull(cache.hit("a", 99, null));
+        assertFalse(cache.contains("a"));
+        cache.filled(newPart("b"), "b", "0123", 100);
+        assertTrue(Files.exists(dir.resolve("b.0123")));
+        assertNull(cache.hit("b", 100, "4567"));
+        assertFalse(Files.exists(dir.resolve("b.0123")));
+        assertEquals(0L, cache.size());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        StorageCache.ObjectCache cache = newObjectCache(ReadCacheEviction.LRU);
+        fill(cache, "a");
+        cache.invalidate("a");
+        assertFalse(cache.contains("a"));
+        assertFalse(Files.exists(dir.resolve("a")));
+        assertEquals(0L, cache.size());
+    }
+
+    @Test
+    public void testRestore() throws Exception {
+        StorageCache.ObjectCache cache = newObjectCache(ReadCacheEviction.LRU);
+        fill(cache, "a");
+        cache.filled(newPart("b"), "b", "0123", 100);
+        newPart("c");
+        StorageCache.ObjectCache restored = newObjectCache(ReadCacheEviction.LRU);
+        assertTrue(restored.contains("a"));
+        assertNotNull(restored.hit("b", 100, "0123"));
+        assertFalse(restored.contains("c"));
+        assertFalse(Files.exists(dir.resolve("c.part")));
+        assertEquals(200L, restored.size());
+    }
+
+    @Test
+    public void testConcurrentMissReadsFromCache() throws Exception {
+        StorageCache.ObjectCache cache = newObjectCache(ReadCacheEviction.LRU);
+        AtomicInteger opened = new AtomicInteger();
+        Storage storage = newStorage(opened);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            InputStream first = cache.openInputStream(storage, newReadContext(storage), 100, null);
+            Future<byte[]> second = executor.submit(
+                    () -> readAll(cache.openInputStream(storage, newReadContext(storage), 100, null)));
+            assertArrayEquals(content(), readAll(first));
+            assertArrayEquals(content(), second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, opened.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentMissReadsFromStorageOnFailedFill() throws Exception {
+        StorageCache.ObjectCache cache = newObjectCache(ReadCacheEviction.LRU);
+        AtomicInteger opened = new AtomicInteger();
+        Storage storage = newStorage(opened);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            InputStream first = cache.openInputStream(storage, newReadContext(storage), 100, null);
+            Future<byte[]> second = executor.submit(
+                    () -> readAll(cache.openInputStream(storage, newReadContext(storage), 100, null)));
+            first.close();
+            assertArrayEquals(content(), second.get(10, TimeUnit.SECONDS));
+            assertEquals(2, opened.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Storage newStorage(AtomicInteger opened) {
+        StorageDescriptor descriptor = new StorageDescriptor("test");
+        return (Storage) Proxy.newProxyInstance(Storage.class.getClassLoader(), new Class<?>[]{ Storage.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getStorageDescriptor":
+                            return descriptor;
+                        case "openInputStream":
+                            opened.incrementAndGet();
+                            return new ByteArrayInputStream(content());
+                        case "toString":
+                            return "TestStorage";
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static ReadContext newReadContext(Storage storage) {
+        DefaultReadContext ctx = new DefaultReadContext(storage);
+        ctx.setStoragePath("a/b/c");
+        return ctx;
+    }
+
+    private static byte[] content() {
+        byte[] b = new byte[100];
+        Arrays.fill(b, (byte) 'x');
+        return b;
+    }
+
+    private static byte[] readAll(InputStream in) throws Exception {
+        try (InputStream is = in) {
+            byte[] b = new byte[200];
+            int len = 0, read;
+            while ((read = is.read(b, len, b.length - len)) > 0)
+                len += read;
+            return Arrays.copyOf(b, len);
+        }
+    }
+
+    private StorageCache.ObjectCache newObjectCache(ReadCacheEviction eviction) {
+        StorageCache.ObjectCache cache = new StorageCache.ObjectCache(dir, 250L, eviction);
+        cache.contains("");
+        return cache;
+    }
+
+    private void fill(StorageCache.ObjectCache cache, String key) throws Exception {
+        cache.filled(newPart(key), key, null, 100);
+    }
+
+    private Path newPart(String key) throws Exception {
+        return Files.write(dir.resolve(key + ".part"), new byte[100]);
+    }
+}
@@ -15,6 +15,7 @@ import java.io.InputStream;
 import java.net.Socket;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.zip.ZipInputStream;
 
 /**
@@ -79,6 +80,8 @@ public interface StoreService {
 
     void addLocation(StoreSession storeSession, Long instancePk, Location location);
 
+    void addLocations(StoreSession storeSession, Map<Long, Location> locationByInstancePk);
+
     void compress(StoreContext ctx, InstanceLocations inst, InputStream data)
             throws IOException;
 }
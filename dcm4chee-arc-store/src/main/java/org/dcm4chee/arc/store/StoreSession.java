@@ -47,6 +47,7 @@ import org.dcm4che3.net.hl7.HL7Application;
 import org.dcm4che3.net.hl7.UnparsedHL7Message;
 import org.dcm4chee.arc.conf.AcceptConflictingPatientID;
 import org.dcm4chee.arc.conf.AcceptMissingPatientID;
+import org.dcm4chee.arc.StorePermission;
 import org.dcm4chee.arc.conf.ArchiveAEExtension;
 import org.dcm4chee.arc.conf.PrefetchRule;
 import org.dcm4chee.arc.entity.Series;
@@ -100,6 +101,12 @@ public interface StoreSession extends Closeable {
 
     void cacheSeries(Series series);
 
+    void evictCachedStudy(String studyInstanceUID);
+
+    StorePermission getCachedStorePermission(String studyInstanceUID, String urlspec);
+
+    void cacheStorePermission(String studyInstanceUID, String urlspec, StorePermission storePermission);
+
     boolean isNotProcessed(PrefetchRule rule);
 
     boolean markAsProcessed(PrefetchRule rule);
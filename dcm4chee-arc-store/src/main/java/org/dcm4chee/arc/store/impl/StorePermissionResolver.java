@@ -0,0 +1,235 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.store.impl;
+
+import org.dcm4che3.net.Device;
+import org.dcm4che3.net.Status;
+import org.dcm4che3.net.service.DicomServiceException;
+import org.dcm4chee.arc.Cache;
+import org.dcm4chee.arc.StorePermission;
+import org.dcm4chee.arc.StorePermissionCache;
+import org.dcm4chee.arc.conf.ArchiveAEExtension;
+import org.dcm4chee.arc.keycloak.HttpClientPool;
+import org.dcm4chee.arc.store.StoreContext;
+import org.dcm4chee.arc.store.StoreService;
+import org.dcm4chee.arc.store.StoreSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.Response;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves Store Permissions by the configured Store Permission Service. Results are cached per study in the
+ * Store Session and per URL in the {@link StorePermissionCache}. Concurrent queries of the same URL are merged and
+ * stale cache entries are revalidated in the background.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@ApplicationScoped
+class StorePermissionResolver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StorePermissionResolver.class);
+
+    @Inject
+    private Device device;
+
+    @Inject
+    private StorePermissionCache storePermissionCache;
+
+    @Inject
+    private HttpClientPool httpClientPool;
+
+    private final Map<String, CompletableFuture<StorePermission>> pending = new ConcurrentHashMap<>();
+
+    StorePermission resolve(StoreContext ctx, String urlspec) throws DicomServiceException {
+        StoreSession session = ctx.getStoreSession();
+        String studyIUID = ctx.getStudyInstanceUID();
+        StorePermission storePermission = session.getCachedStorePermission(studyIUID, urlspec);
+        if (storePermission == null) {
+            storePermission = resolve(session, urlspec);
+            session.cacheStorePermission(studyIUID, urlspec, storePermission);
+        }
+        return storePermission;
+    }
+
+    private StorePermission resolve(StoreSession session, String urlspec) throws DicomServiceException {
+        Cache.Entry<StorePermission> entry;
+        synchronized (storePermissionCache) {
+            entry = storePermissionCache.getEntry(urlspec);
+        }
+        if (entry == null)
+            return await(query(session, urlspec));
+
+        if (storePermissionCache.needsRevalidation(entry) && !pending.containsKey(urlspec)) {
+            LOG.debug("{}: Revalidate cached result of Query Store Permission Service {}", session, urlspec);
+            device.execute(() -> query(session, urlspec));
+        }
+        LOG.debug("{}: Use cached result of Query Store Permission Service {} - {}",
+                session, urlspec, entry.value());
+        return entry.value();
+    }
+
+    private CompletableFuture<StorePermission> query(StoreSession session, String urlspec) {
+        CompletableFuture<StorePermission> future = new CompletableFuture<>();
+        CompletableFuture<StorePermission> prev = pending.putIfAbsent(urlspec, future);
+        if (prev != null)
+            return prev;
+
+        try {
+            StorePermission storePermission = queryStorePermission(session, urlspec);
+            synchronized (storePermissionCache) {
+                storePermissionCache.put(urlspec, storePermission);
+            }
+            future.complete(storePermission);
+        } catch (DicomServiceException e) {
+            future.completeExceptionally(e);
+        } finally {
+            pending.remove(urlspec);
+        }
+        return future;
+    }
+
+    private static StorePermission await(CompletableFuture<StorePermission> future) throws DicomServiceException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw (DicomServiceException) e.getCause();
+        } catch (InterruptedException e) {
+            throw new DicomServiceException(Status.ProcessingFailure, e);
+        }
+    }
+
+    private StorePermission queryStorePermission(StoreSession session, String urlspec) throws DicomServiceException {
+        LOG.info("{}: Query Store Permission Service {}", session, urlspec);
+        LocalDate expirationDate = null;
+        DicomServiceException exception = null;
+        try {
+            Response resp = httpClientPool.target(urlspec).request().get();
+            try {
+                Pattern responsePattern = session.getArchiveAEExtension().storePermissionServiceResponsePattern();
+                switch (resp.getStatus()) {
+                    case 200:
+                        String responseContent = resp.readEntity(String.class);
+                        LOG.debug("{}: Store Permission Service {} response:\n{}", session, urlspec, responseContent);
+                        if (responsePattern == null || responsePattern.matcher(responseContent).find() )
+                            expirationDate = selectExpirationDate(session, urlspec, responseContent);
+                        else
+                            exception = selectErrorCodeComment(session, urlspec, responseContent);
+                        break;
+                    case 204:
+                        if (responsePattern == null)
+                            break;
+                    default:
+                        exception = new DicomServiceException(Status.NotAuthorized, StoreService.NOT_AUTHORIZED);
+                        break;
+                }
+            } finally {
+                resp.close();
+            }
+        } catch (Exception e) {
+            LOG.warn("{}: Failed to query Store Permission Service {}:\n", session, urlspec, e);
+            throw new DicomServiceException(Status.ProcessingFailure,
+                    StoreService.FAILED_TO_QUERY_STORE_PERMISSION_SERVICE);
+        }
+        StorePermission result = new StorePermission(expirationDate, exception);
+        LOG.info("{}: Store Permission Service {} returns {}", session, urlspec, result);
+        return result;
+    }
+
+    private LocalDate selectExpirationDate(StoreSession session, String url, String response) {
+        Pattern pattern = session.getArchiveAEExtension().storePermissionServiceExpirationDatePattern();
+        if (pattern != null) {
+            Matcher matcher = pattern.matcher(response);
+            if (matcher.find()) {
+                String s = matcher.group(1);
+                try {
+                    return LocalDate.parse(s, DateTimeFormatter.BASIC_ISO_DATE);
+                } catch (DateTimeParseException e) {
+                    LOG.warn("{}: Store Permission Service {} returns invalid Expiration Date: {} - ignored",
+                            session, url, s);
+                }
+            } else
+                LOG.info("{}: Store Permission Service {} response does not contains expiration date", session, url);
+        }
+        return null;
+    }
+
+    private String selectErrorComment(StoreSession session, String url, String response, Pattern pattern) {
+        if (pattern != null) {
+            Matcher matcher = pattern.matcher(response);
+            if (matcher.find())
+                return matcher.group(1);
+            else
+                LOG.info("{}: Store Permission Service {} response does not contain error comment", session, url);
+        }
+        return StoreService.NOT_AUTHORIZED;
+    }
+
+    private int selectErrorCode(StoreSession session, String url, String response, Pattern pattern) {
+        if (pattern != null) {
+            Matcher matcher = pattern.matcher(response);
+            if (matcher.find())
+                return Integer.parseInt(matcher.group(1), 16);
+            else
+                LOG.info("{}: Store Permission Service {} response does not contain error code ", session, url);
+        }
+        return Status.NotAuthorized;
+    }
+
+    private DicomServiceException selectErrorCodeComment(StoreSession session, String url, String response) {
+        ArchiveAEExtension arcAE = session.getArchiveAEExtension();
+        return new DicomServiceException(
+                selectErrorCode(session, url, response, arcAE.storePermissionServiceErrorCodePattern()),
+                selectErrorComment(session, url, response, arcAE.storePermissionServiceErrorCommentPattern()));
+    }
+}
@@ -52,7 +52,6 @@ import org.dcm4che3.util.StringUtils;
 import org.dcm4che3.util.TagUtils;
 import org.dcm4chee.arc.MergeMWLQueryParam;
 import org.dcm4chee.arc.StorePermission;
-import org.dcm4chee.arc.StorePermissionCache;
 import org.dcm4chee.arc.code.CodeCache;
 import org.dcm4chee.arc.conf.*;
 import org.dcm4chee.arc.conf.Entity;
@@ -75,18 +74,12 @@ import javax.inject.Inject;
 import javax.json.Json;
 import javax.persistence.*;
 import javax.servlet.http.HttpServletRequest;
-import javax.ws.rs.client.ClientBuilder;
-import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.text.MessageFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -118,7 +111,7 @@ public class StoreServiceEJB {
     private PatientService patientService;
 
     @Inject
-    private StorePermissionCache storePermissionCache;
+    private StorePermissionResolver storePermissionResolver;
 
     @Inject
     private IDService idService;
@@ -998,101 +991,13 @@ public class StoreServiceEJB {
         if (pat != null)
             attrs.addAll(pat.getAttributes());
         String urlspec = new AttributesFormat(serviceURL).format(attrs);
-        StorePermission storePermission = storePermissionCache.get(urlspec);
-        if (storePermission == null) {
-            storePermission = queryStorePermission(session, urlspec);
-            storePermissionCache.put(urlspec, storePermission);
-        } else
-            LOG.debug("{}: Use cached result of Query Store Permission Service {} - {}",
-                    session, urlspec, storePermission);
-
+        StorePermission storePermission = storePermissionResolver.resolve(ctx, urlspec);
         if (storePermission.exception != null)
             throw storePermission.exception;
 
         ctx.setExpirationDate(storePermission.expirationDate);
     }
 
-    private StorePermission queryStorePermission(StoreSession session, String urlspec) throws DicomServiceException {
-        LOG.info("{}: Query Store Permission Service {}", session, urlspec);
-        LocalDate expirationDate = null;
-        DicomServiceException exception = null;
-        try {
-            WebTarget target = ClientBuilder.newBuilder().build().target(urlspec);
-            Response resp = target.request().get();
-            Pattern responsePattern = session.getArchiveAEExtension().storePermissionServiceResponsePattern();
-            switch (resp.getStatus()) {
-                case 200:
-                    String responseContent = resp.readEntity(String.class);
-                    LOG.debug("{}: Store Permission Service {} response:\n{}", session, urlspec, responseContent);
-                    if (responsePattern == null || responsePattern.matcher(responseContent).find() )
-                        expirationDate = selectExpirationDate(session, urlspec, responseContent);
-                    else
-                        exception = selectErrorCodeComment(session, urlspec, responseContent);
-                    break;
-                case 204:
-                    if (responsePattern == null)
-                        break;
-                default:
-                    exception = new DicomServiceException(Status.NotAuthorized, StoreService.NOT_AUTHORIZED);
-                    break;
-            }
-        } catch (Exception e) {
-            LOG.warn("{}: Failed to query Store Permission Service {}:\n", session, urlspec, e);
-            throw new DicomServiceException(Status.ProcessingFailure,
-                    StoreService.FAILED_TO_QUERY_STORE_PERMISSION_SERVICE);
-        }
-        StorePermission result = new StorePermission(expirationDate, exception);
-        LOG.info("{}: Store Permission Service {} returns {}", session, urlspec, result);
-        return result;
-    }
-
-    private LocalDate selectExpirationDate(StoreSession session, String url, String response) {
-        Pattern pattern = session.getArchiveAEExtension().storePermissionServiceExpirationDatePattern();
-        if (pattern != null) {
-            Matcher matcher = pattern.matcher(response);
-            if (matcher.find()) {
-                String s = matcher.group(1);
-                try {
-                    return LocalDate.parse(s, DateTimeFormatter.BASIC_ISO_DATE);
-                } catch (DateTimeParseException e) {
-                    LOG.warn("{}: Store Permission Service {} returns invalid Expiration Date: {} - ignored",
-                            session, url, s);
-                }
-            } else
-                LOG.info("{}: Store Permission Service {} response does not contains expiration date", session, url);
-        }
-        return null;
-    }
-
-    private String selectErrorComment(StoreSession session, String url, String response, Pattern pattern) {
-        if (pattern != null) {
-            Matcher matcher = pattern.matcher(response);
-            if (matcher.find())
-                return matcher.group(1);
-            else
-                LOG.info("{}: Store Permission Service {} response does not contain error comment", session, url);
-        }
-        return StoreService.NOT_AUTHORIZED;
-    }
-
-    private int selectErrorCode(StoreSession session, String url, String response, Pattern pattern) {
-        if (pattern != null) {
-            Matcher matcher = pattern.matcher(response);
-            if (matcher.find())
-                return Integer.parseInt(matcher.group(1), 16);
-            else
-                LOG.info("{}: Store Permission Service {} response does not contain error code ", session, url);
-        }
-        return Status.NotAuthorized;
-    }
-
-    private DicomServiceException selectErrorCodeComment(StoreSession session, String url, String response) {
-        ArchiveAEExtension arcAE = session.getArchiveAEExtension();
-        return new DicomServiceException(
-                selectErrorCode(session, url, response, arcAE.storePermissionServiceErrorCodePattern()),
-                selectErrorComment(session, url, response, arcAE.storePermissionServiceErrorCommentPattern()));
-    }
-
     private void setStudyAttributes(StoreContext ctx, Study study) {
         ArchiveAEExtension arcAE = ctx.getStoreSession().getArchiveAEExtension();
         ArchiveDeviceExtension arcDev = arcAE.getArchiveDeviceExtension();
@@ -1269,6 +1174,21 @@ public class StoreServiceEJB {
         LOG.info("{}: Create {}", session, location);
     }
 
+    public void addLocations(StoreSession session, Map<Long, Location> locationByInstancePk) {
+        for (Map.Entry<Long, Location> entry : locationByInstancePk.entrySet())
+            addLocation(session, entry.getKey(), entry.getValue());
+    }
+
+    public Map<Long, long[]> findSeriesVersions(Collection<Long> seriesPks) {
+        Map<Long, long[]> versions = new HashMap<>();
+        for (Tuple tuple : em.createNamedQuery(Series.FIND_VERSIONS_BY_PKS, Tuple.class)
+                .setParameter(1, seriesPks)
+                .getResultList())
+            versions.put(tuple.get(0, Long.class), new long[]{
+                    tuple.get(1, Long.class), tuple.get(2, Long.class), tuple.get(3, Long.class)});
+        return versions;
+    }
+
     public void addStorageID(String studyIUID, String storageID) {
         Tuple tuple = em.createNamedQuery(Study.STORAGE_IDS_BY_STUDY_UID, Tuple.class)
                 .setParameter(1, studyIUID)
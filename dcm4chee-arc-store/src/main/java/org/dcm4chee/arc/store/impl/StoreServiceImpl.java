@@ -54,6 +54,7 @@ import org.dcm4che3.net.*;
 import org.dcm4che3.net.hl7.HL7Application;
 import org.dcm4che3.net.hl7.UnparsedHL7Message;
 import org.dcm4che3.net.service.DicomServiceException;
+import org.dcm4che3.util.AttributesFormat;
 import org.dcm4che3.util.StringUtils;
 import org.dcm4che3.util.UIDUtils;
 import org.dcm4chee.arc.Cache;
@@ -62,6 +63,8 @@ import org.dcm4chee.arc.MergeMWLCache;
 import org.dcm4chee.arc.conf.*;
 import org.dcm4chee.arc.entity.*;
 import org.dcm4chee.arc.event.SoftwareConfiguration;
+import org.dcm4chee.arc.metrics.Metric;
+import org.dcm4chee.arc.metrics.MetricsService;
 import org.dcm4chee.arc.mima.SupplementAssigningAuthorities;
 import org.dcm4chee.arc.store.InstanceLocations;
 import org.dcm4chee.arc.storage.*;
@@ -120,16 +123,25 @@ class StoreServiceImpl implements StoreService {
     @Inject
     private MergeMWLCache mergeMWLCache;
 
+    @Inject
+    private MetricsService metricsService;
+
+    @Inject
+    private StorePermissionResolver storePermissionResolver;
+
+    @Inject
+    private StudyCachePool studyCachePool;
+
     @Override
     public StoreSession newStoreSession(Association as) {
-        StoreSessionImpl session = new StoreSessionImpl(this);
+        StoreSessionImpl session = new StoreSessionImpl(this, studyCachePool);
         session.setAssociation(as);
         return session;
     }
 
     @Override
     public StoreSession newStoreSession(HttpServletRequest httpRequest, ApplicationEntity ae, String sourceAET) {
-        StoreSessionImpl session = new StoreSessionImpl(this);
+        StoreSessionImpl session = new StoreSessionImpl(this, studyCachePool);
         session.setHttpRequest(httpRequest);
         session.setApplicationEntity(ae);
         session.setCallingAET(sourceAET);
@@ -138,14 +150,14 @@ class StoreServiceImpl implements StoreService {
 
     @Override
     public StoreSession newStoreSession(ApplicationEntity ae) {
-        StoreSessionImpl session = new StoreSessionImpl(this);
+        StoreSessionImpl session = new StoreSessionImpl(this, studyCachePool);
         session.setApplicationEntity(ae);
         return session;
     }
 
     @Override
     public StoreSession newStoreSession(HL7Application hl7App, Socket socket, UnparsedHL7Message msg, ApplicationEntity ae) {
-        StoreSessionImpl session = new StoreSessionImpl(this);
+        StoreSessionImpl session = new StoreSessionImpl(this, studyCachePool);
         session.setApplicationEntity(ae);
         session.setSocket(socket);
         session.setMsg(msg);
@@ -162,7 +174,9 @@ class StoreServiceImpl implements StoreService {
     public void store(StoreContext ctx, InputStream data) throws IOException {
         UpdateDBResult result = null;
         try {
+            long start = System.nanoTime();
             writeToStorage(ctx, data);
+            metricsService.recordSince(Metric.STORE, "write", start);
             if (ctx.getAcceptedStudyInstanceUID() != null
                     && !ctx.getAcceptedStudyInstanceUID().equals(ctx.getStudyInstanceUID())) {
                 LOG.info("{}: Received Instance[studyUID={},seriesUID={},objectUID={}]" +
@@ -172,7 +186,9 @@ class StoreServiceImpl implements StoreService {
             }
             checkCharacterSet(ctx);
             storeMetadata(ctx);
+            start = System.nanoTime();
             coerceAttributes(ctx);
+            metricsService.recordSince(Metric.STORE, "coerce", start);
             result = updateDB(ctx);
             postUpdateDB(ctx, result);
         } catch (DicomServiceException e) {
@@ -219,16 +235,20 @@ class StoreServiceImpl implements StoreService {
     private UpdateDBResult updateDB(StoreContext ctx) throws DicomServiceException {
         StoreSession session = ctx.getStoreSession();
         ArchiveAEExtension arcAE = session.getArchiveAEExtension();
+        prefetchStorePermission(ctx, arcAE);
         ArchiveDeviceExtension arcDev = arcAE.getArchiveDeviceExtension();
         int retries = arcDev.getStoreUpdateDBMaxRetries();
         for (;;) {
             try {
                 UpdateDBResult result = new UpdateDBResult();
-                long start = System.currentTimeMillis();
+                long start = System.nanoTime();
                 ejb.updateDB(ctx, result);
-                LOG.info("{}: Updated DB in {} ms", session, System.currentTimeMillis() - start);
+                long nanos = System.nanoTime() - start;
+                metricsService.record(Metric.STORE, "updateDB", nanos);
+                LOG.info("{}: Updated DB in {} ms", session, nanos / 1000000);
                 return result;
             } catch (EJBException e) {
+                session.evictCachedStudy(ctx.getStudyInstanceUID());
                 if (retries-- > 0) {
                     LOG.info("{}: Failed to update DB - retry:\n", session, e);
                 } else {
@@ -244,7 +264,14 @@ class StoreServiceImpl implements StoreService {
         }
     }
 
+    private void prefetchStorePermission(StoreContext ctx, ArchiveAEExtension arcAE) throws DicomServiceException {
+        String serviceURL = arcAE.storePermissionServiceURL();
+        if (serviceURL != null)
+            storePermissionResolver.resolve(ctx, new AttributesFormat(serviceURL).format(ctx.getAttributes()));
+    }
+
     private void postUpdateDB(StoreContext ctx, UpdateDBResult result) throws IOException {
+        long start = System.nanoTime();
         Instance instance = result.getCreatedInstance();
         if (instance != null) {
             if (result.getCreatedPatient() != null) {
@@ -267,6 +294,7 @@ class StoreServiceImpl implements StoreService {
         ctx.setRejectionNote(result.getRejectionNote());
         ctx.setPreviousInstance(result.getPreviousInstance());
         ctx.setStoredInstance(result.getStoredInstance());
+        metricsService.recordSince(Metric.STORE, "postUpdateDB", start);
     }
 
     private void commitStorage(UpdateDBResult result) throws IOException {
@@ -286,6 +314,11 @@ class StoreServiceImpl implements StoreService {
         ejb.addLocation(session, instancePk, location);
     }
 
+    @Override
+    public void addLocations(StoreSession session, Map<Long, Location> locationByInstancePk) {
+        ejb.addLocations(session, locationByInstancePk);
+    }
+
     @Override
     public void compress(StoreContext ctx, InstanceLocations inst, InputStream data)
             throws IOException {
@@ -317,7 +350,9 @@ class StoreServiceImpl implements StoreService {
                 adjustPixelDataBulkData(attrs);
                 checkCharacterSet(ctx);
                 storeMetadata(ctx);
+                long start = System.nanoTime();
                 coerceAttributes(ctx);
+                metricsService.recordSince(Metric.STORE, "coerce", start);
             }
             result = updateDB(ctx);
             postUpdateDB(ctx, result);
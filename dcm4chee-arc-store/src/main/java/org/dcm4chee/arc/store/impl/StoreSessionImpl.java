@@ -47,6 +47,7 @@ import org.dcm4che3.net.hl7.HL7Application;
 import org.dcm4che3.net.hl7.UnparsedHL7Message;
 import org.dcm4che3.util.ReverseDNS;
 import org.dcm4che3.util.SafeClose;
+import org.dcm4chee.arc.StorePermission;
 import org.dcm4chee.arc.conf.*;
 import org.dcm4chee.arc.entity.Series;
 import org.dcm4chee.arc.entity.Study;
@@ -83,11 +84,13 @@ class StoreSessionImpl implements StoreSession {
     private Socket socket;
     private UnparsedHL7Message msg;
     private final StoreService storeService;
+    private final StudyCachePool studyCachePool;
     private final Map<String, Storage> storageMap = new HashMap<>();
-    private Study cachedStudy;
-    private final Map<String,Series> seriesCache = new HashMap<>();
-    private final Set<String> processedPrefetchRules = new HashSet<>();
+    private StudyCache studyCache;
+    private Set<String> processedPrefetchRules = new HashSet<>();
     private final Map<Long,UIDMap> uidMapCache = new HashMap<>();
+    private String storePermissionStudyIUID;
+    private final Map<String,StorePermission> storePermissionCache = new HashMap<>();
     private Map<String, String> uidMap;
     private String objectStorageID;
     private String metadataStorageID;
@@ -97,9 +100,10 @@ class StoreSessionImpl implements StoreSession {
     private Attributes.UpdatePolicy studyUpdatePolicy;
     private String impaxReportEndpoint;
 
-    StoreSessionImpl(StoreService storeService) {
+    StoreSessionImpl(StoreService storeService, StudyCachePool studyCachePool) {
         this.serialNo = prevSerialNo.incrementAndGet();
         this.storeService = storeService;
+        this.studyCachePool = studyCachePool;
     }
 
     @Override
@@ -231,23 +235,37 @@ class StoreSessionImpl implements StoreSession {
 
     @Override
     public Study getCachedStudy(String studyInstanceUID) {
-        return isStudyCached(studyInstanceUID) ? cachedStudy : null;
+        return studyCache().getStudy(studyInstanceUID);
     }
 
     @Override
     public Series getCachedSeries(String studyInstanceUID, String seriesIUID) {
-        return isStudyCached(studyInstanceUID) ? seriesCache.get(seriesIUID) : null;
+        return studyCache().getSeries(studyInstanceUID, seriesIUID);
     }
 
     @Override
     public void cacheSeries(Series series) {
-        Study study = series.getStudy();
-        if (!isStudyCached(study.getStudyInstanceUID())) {
-            cachedStudy = study;
-            seriesCache.clear();
-            processedPrefetchRules.clear();
+        processedPrefetchRules = studyCache().putSeries(series);
+    }
+
+    @Override
+    public void evictCachedStudy(String studyInstanceUID) {
+        if (studyCache != null)
+            studyCache.evict(studyInstanceUID);
+    }
+
+    @Override
+    public StorePermission getCachedStorePermission(String studyInstanceUID, String urlspec) {
+        return studyInstanceUID.equals(storePermissionStudyIUID) ? storePermissionCache.get(urlspec) : null;
+    }
+
+    @Override
+    public void cacheStorePermission(String studyInstanceUID, String urlspec, StorePermission storePermission) {
+        if (!studyInstanceUID.equals(storePermissionStudyIUID)) {
+            storePermissionStudyIUID = studyInstanceUID;
+            storePermissionCache.clear();
         }
-        seriesCache.put(series.getSeriesInstanceUID(), series);
+        storePermissionCache.put(urlspec, storePermission);
     }
 
     @Override
@@ -260,14 +278,25 @@ class StoreSessionImpl implements StoreSession {
         return processedPrefetchRules.add(rule.getCommonName());
     }
 
-    private boolean isStudyCached(String studyInstanceUID) {
-        return cachedStudy != null && cachedStudy.getStudyInstanceUID().equals(studyInstanceUID);
+    private StudyCache studyCache() {
+        if (studyCache == null) {
+            String key = studyCacheKey();
+            studyCache = key != null ? studyCachePool.take(key) : new StudyCache();
+        }
+        return studyCache;
+    }
+
+    private String studyCacheKey() {
+        return callingAET != null && calledAET != null ? callingAET + "->" + calledAET : null;
     }
 
     @Override
     public void close() throws IOException {
         for (Storage storage : storageMap.values())
             SafeClose.close(storage);
+        String key = studyCacheKey();
+        if (studyCache != null && key != null)
+            studyCachePool.offer(key, studyCache);
     }
 
     @Override
@@ -0,0 +1,159 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.store.impl;
+
+import org.dcm4chee.arc.entity.Series;
+import org.dcm4chee.arc.entity.Study;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded LRU cache of recently stored studies, with their series and processed prefetch rules, used by one Store
+ * Session at a time.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+class StudyCache {
+
+    static final int MAX_STUDIES = 10;
+
+    private final long createdTime;
+    private final Map<String, Entry> studies = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_STUDIES;
+        }
+    };
+
+    StudyCache() {
+        this(System.currentTimeMillis());
+    }
+
+    StudyCache(long createdTime) {
+        this.createdTime = createdTime;
+    }
+
+    long getCreatedTime() {
+        return createdTime;
+    }
+
+    boolean isEmpty() {
+        return studies.isEmpty();
+    }
+
+    int size() {
+        return studies.size();
+    }
+
+    Study getStudy(String studyInstanceUID) {
+        Entry entry = studies.get(studyInstanceUID);
+        return entry != null ? entry.study : null;
+    }
+
+    Series getSeries(String studyInstanceUID, String seriesInstanceUID) {
+        Entry entry = studies.get(studyInstanceUID);
+        return entry != null ? entry.series.get(seriesInstanceUID) : null;
+    }
+
+    Set<String> putSeries(Series series) {
+        Study study = series.getStudy();
+        return putSeries(study.getStudyInstanceUID(), study, series.getSeriesInstanceUID(), series);
+    }
+
+    Set<String> putSeries(String studyInstanceUID, Study study, String seriesInstanceUID, Series series) {
+        Entry entry = studies.get(studyInstanceUID);
+        if (entry == null)
+            studies.put(studyInstanceUID, entry = new Entry());
+        entry.study = study;
+        entry.series.put(seriesInstanceUID, series);
+        return entry.processedPrefetchRules;
+    }
+
+    void evict(String studyInstanceUID) {
+        studies.remove(studyInstanceUID);
+    }
+
+    List<Long> seriesPks() {
+        List<Long> pks = new ArrayList<>();
+        for (Entry entry : studies.values())
+            for (Series series : entry.series.values())
+                pks.add(series.getPk());
+        return pks;
+    }
+
+    /**
+     * Evicts all studies for which the version of any cached series, of the study or of its patient differs from the
+     * current version in the database.
+     *
+     * @param versionsBySeriesPk current versions of series, study and patient by series pk
+     */
+    void retainCurrent(Map<Long, long[]> versionsBySeriesPk) {
+        Iterator<Entry> iter = studies.values().iterator();
+        while (iter.hasNext())
+            if (!iter.next().isCurrent(versionsBySeriesPk))
+                iter.remove();
+    }
+
+    private static class Entry {
+        Study study;
+        final Map<String, Series> series = new HashMap<>();
+        final Set<String> processedPrefetchRules = new HashSet<>();
+
+        boolean isCurrent(Map<Long, long[]> versionsBySeriesPk) {
+            for (Series series : series.values()) {
+                long[] versions = versionsBySeriesPk.get(series.getPk());
+                if (versions == null
+                        || versions[0] != series.getVersion()
+                        || versions[1] != study.getVersion()
+                        || versions[2] != study.getPatient().getVersion())
+                    return false;
+            }
+            return true;
+        }
+    }
+}
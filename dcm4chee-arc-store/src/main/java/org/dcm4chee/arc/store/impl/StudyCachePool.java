@@ -0,0 +1,107 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.store.impl;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Passes the {@link StudyCache} of a closed Store Session to the next Store Session between the same calling and
+ * called AE, so that consecutive associations of the same modality do not start with an empty cache. Each cache is
+ * only used by one Store Session at a time. A cache is discarded {@link #MAX_AGE} ms after its creation, however often
+ * it was handed over; on take over, studies whose series, study or patient were modified meanwhile by others are
+ * evicted from the cache.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@ApplicationScoped
+class StudyCachePool {
+
+    static final long MAX_AGE = 60000L;
+    static final int MAX_SIZE = 100;
+
+    private final LinkedHashMap<String, StudyCache> pool = new LinkedHashMap<>();
+
+    @Inject
+    private StoreServiceEJB ejb;
+
+    StudyCache take(String key) {
+        long now = System.currentTimeMillis();
+        StudyCache cache = take(key, now);
+        if (cache.isEmpty())
+            return cache;
+
+        cache.retainCurrent(ejb.findSeriesVersions(cache.seriesPks()));
+        return cache;
+    }
+
+    synchronized StudyCache take(String key, long now) {
+        StudyCache cache = pool.remove(key);
+        return cache != null && !isExpired(cache, now) ? cache : new StudyCache(now);
+    }
+
+    void offer(String key, StudyCache cache) {
+        offer(key, cache, System.currentTimeMillis());
+    }
+
+    synchronized void offer(String key, StudyCache cache, long now) {
+        pool.remove(key);
+        if (!cache.isEmpty() && !isExpired(cache, now))
+            pool.put(key, cache);
+        Iterator<StudyCache> iter = pool.values().iterator();
+        while (iter.hasNext()) {
+            StudyCache next = iter.next();
+            if (pool.size() <= MAX_SIZE && !isExpired(next, now))
+                break;
+            iter.remove();
+        }
+    }
+
+    synchronized int size() {
+        return pool.size();
+    }
+
+    private static boolean isExpired(StudyCache cache, long now) {
+        return cache.getCreatedTime() + MAX_AGE <= now;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2013
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.store.impl;
+
+import org.dcm4chee.arc.entity.Series;
+import org.dcm4chee.arc.entity.Study;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+public class StudyCachePoolTest {
+
+    private static final String KEY = "MODALITY->DCM4CHEE";
+
+    @Test
+    public void testTakeOffered() throws Exception {
+        StudyCachePool pool = new StudyCachePool();
+        StudyCache cache = newStudyCache(0L);
+        pool.offer(KEY, cache, 1000L);
+        assertSame(cache, pool.take(KEY, 2000L));
+        assertNotSame(cache, pool.take(KEY, 2000L));
+    }
+
+    @Test
+    public void testExpiresByCreationTime() throws Exception {
+        StudyCachePool pool = new StudyCachePool();
+        StudyCache cache = newStudyCache(0L);
+        pool.offer(KEY, cache, StudyCachePool.MAX_AGE / 2);
+        assertSame(cache, pool.take(KEY, StudyCachePool.MAX_AGE / 2 + 1));
+        pool.offer(KEY, cache, StudyCachePool.MAX_AGE - 1);
+        StudyCache taken = pool.take(KEY, StudyCachePool.MAX_AGE);
+        assertNotSame(cache, taken);
+        assertTrue(taken.isEmpty());
+        assertEquals(StudyCachePool.MAX_AGE, taken.getCreatedTime());
+    }
+
+    @Test
+    public void testDiscardExpiredOnOffer() throws Exception {
+        StudyCachePool pool = new StudyCachePool();
+        pool.offer(KEY, newStudyCache(0L), 0L);
+        pool.offer(KEY, newStudyCache(StudyCachePool.MAX_AGE), StudyCachePool.MAX_AGE + 1);
+        pool.offer("OTHER->DCM4CHEE", newStudyCache(0L), StudyCachePool.MAX_AGE + 1);
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        StudyCachePool pool = new StudyCachePool();
+        for (int i = 0; i <= StudyCachePool.MAX_SIZE; i++)
+            pool.offer("AE" + i + "->DCM4CHEE", newStudyCache(0L), 0L);
+        assertEquals(StudyCachePool.MAX_SIZE, pool.size());
+        assertTrue(pool.take("AE0->DCM4CHEE", 0L).isEmpty());
+        assertFalse(pool.take("AE1->DCM4CHEE", 0L).isEmpty());
+    }
+
+    private static StudyCache newStudyCache(long createdTime) {
+        StudyCache cache = new StudyCache(createdTime);
+        cache.putSeries("1.2.3", new Study(), "1.2.3.4", new Series());
+        return cache;
+    }
+}
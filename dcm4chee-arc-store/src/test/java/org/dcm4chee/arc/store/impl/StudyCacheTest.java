@@ -0,0 +1,98 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2013
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.store.impl;
+
+import org.dcm4chee.arc.entity.Series;
+import org.dcm4chee.arc.entity.Study;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+public class StudyCacheTest {
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        StudyCache cache = new StudyCache();
+        Study[] studies = new Study[StudyCache.MAX_STUDIES + 1];
+        for (int i = 0; i < StudyCache.MAX_STUDIES; i++)
+            put(cache, i, studies[i] = new Study());
+        assertSame(studies[0], cache.getStudy("1.2.0"));
+        put(cache, StudyCache.MAX_STUDIES, studies[StudyCache.MAX_STUDIES] = new Study());
+        assertEquals(StudyCache.MAX_STUDIES, cache.size());
+        assertSame(studies[0], cache.getStudy("1.2.0"));
+        assertNull(cache.getStudy("1.2.1"));
+        assertNull(cache.getSeries("1.2.1", "1.2.1.1"));
+        assertSame(studies[StudyCache.MAX_STUDIES], cache.getStudy("1.2." + StudyCache.MAX_STUDIES));
+    }
+
+    @Test
+    public void testPutSeriesOfCachedStudy() throws Exception {
+        StudyCache cache = new StudyCache();
+        Study study = new Study();
+        Series series1 = new Series();
+        Series series2 = new Series();
+        Set<String> processedPrefetchRules = cache.putSeries("1.2.0", study, "1.2.0.1", series1);
+        processedPrefetchRules.add("rule");
+        assertSame(processedPrefetchRules, cache.putSeries("1.2.0", study, "1.2.0.2", series2));
+        assertSame(series1, cache.getSeries("1.2.0", "1.2.0.1"));
+        assertSame(series2, cache.getSeries("1.2.0", "1.2.0.2"));
+        assertEquals(2, cache.seriesPks().size());
+    }
+
+    @Test
+    public void testEvict() throws Exception {
+        StudyCache cache = new StudyCache();
+        put(cache, 0, new Study());
+        cache.evict("1.2.0");
+        assertNull(cache.getStudy("1.2.0"));
+        assertTrue(cache.isEmpty());
+    }
+
+    private static void put(StudyCache cache, int i, Study study) {
+        cache.putSeries("1.2." + i, study, "1.2." + i + ".1", new Series());
+    }
+}
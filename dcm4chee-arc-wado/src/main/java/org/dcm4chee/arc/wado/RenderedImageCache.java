@@ -0,0 +1,383 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2018
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+package org.dcm4chee.arc.wado;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Sequence;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.util.StringUtils;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.BinaryPrefix;
+import org.dcm4chee.arc.delete.StudyDeleteContext;
+import org.dcm4chee.arc.entity.Instance;
+import org.dcm4chee.arc.store.StoreContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Two-tier LRU cache of rendered WADO images, bounded by the total size of the cached images. Evicted images of the
+ * memory tier are kept in the disk tier, if a cache directory is configured.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+@ApplicationScoped
+public class RenderedImageCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RenderedImageCache.class);
+    private static final String FILE_SUFFIX = ".rendered";
+    private static final int MAX_ENTRY_FRACTION = 16;
+
+    @Inject
+    private Device device;
+
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private final HashMap<String, String[]> iuidsByKey = new HashMap<>();
+    private final HashMap<String, Set<String>> keysByIUID = new HashMap<>();
+    private long memorySize;
+    private long diskSize;
+    private Path diskDir;
+
+    public RenderedImageCache() {
+    }
+
+    RenderedImageCache(Device device) {
+        this.device = device;
+    }
+
+    /**
+     * Returns maximal size of a rendered image to be cached or {@code 0}, if rendered images are not cached.
+     */
+    public long maxEntrySize() {
+        return Math.max(maxMemorySize(), maxDiskSize()) / MAX_ENTRY_FRACTION;
+    }
+
+    public byte[] get(String key) {
+        Path file;
+        synchronized (this) {
+            byte[] b = memory.get(key);
+            if (b != null)
+                return b;
+
+            if (disk.get(key) == null)
+                return null;
+
+            file = diskDir.resolve(fileNameOf(key));
+        }
+        try {
+            byte[] b = Files.readAllBytes(file);
+            if (b.length <= maxMemorySize() / MAX_ENTRY_FRACTION)
+                putInMemory(key, b);
+            return b;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.warn("Failed to read cached rendered image from {}:\n", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Caches rendered image, which will be evicted on receive or deletion of any of the referenced instances.
+     */
+    public void put(String key, byte[] b, String... iuids) {
+        if (b.length > maxEntrySize())
+            return;
+
+        synchronized (this) {
+            iuidsByKey.put(key, iuids);
+            for (String iuid : iuids)
+                if (iuid != null)
+                    keysByIUID.computeIfAbsent(iuid, x -> new HashSet<>()).add(key);
+        }
+        if (b.length <= maxMemorySize() / MAX_ENTRY_FRACTION)
+            putInMemory(key, b);
+        else
+            putOnDisk(key, b);
+    }
+
+    /**
+     * Wraps output of rendered image to cache the rendered image after it was written completely.
+     */
+    public StreamingOutput cachingOutput(String key, StreamingOutput output, String... iuids) {
+        long maxEntrySize = maxEntrySize();
+        return out -> {
+            CachingOutputStream cachingOut = new CachingOutputStream(out, maxEntrySize);
+            output.write(cachingOut);
+            byte[] b = cachingOut.toByteArray();
+            if (b != null)
+                put(key, b, iuids);
+        };
+    }
+
+    public void invalidate(String iuid) {
+        synchronized (this) {
+            if (keysByIUID.isEmpty())
+                return;
+
+            Set<String> keys = keysByIUID.remove(iuid);
+            if (keys == null)
+                return;
+
+            for (String key : keys) {
+                byte[] b = memory.remove(key);
+                if (b != null)
+                    memorySize -= b.length;
+                Long length = disk.remove(key);
+                if (length != null) {
+                    diskSize -= length;
+                    deleteFile(key);
+                }
+                removeKey(key);
+            }
+        }
+    }
+
+    public void onStore(@Observes StoreContext ctx) {
+        invalidate(ctx.getSopInstanceUID());
+        if (ctx.getRejectionNote() != null)
+            invalidateReferencedInstances(ctx.getAttributes());
+    }
+
+    public void onStudyDeleted(@Observes StudyDeleteContext ctx) {
+        for (Instance inst : ctx.getInstances())
+            invalidate(inst.getSopInstanceUID());
+    }
+
+    private void invalidateReferencedInstances(Attributes ko) {
+        Sequence refStudySeq = ko.getSequence(Tag.CurrentRequestedProcedureEvidenceSequence);
+        if (refStudySeq == null)
+            return;
+
+        for (Attributes refStudy : refStudySeq) {
+            Sequence refSeriesSeq = refStudy.getSequence(Tag.ReferencedSeriesSequence);
+            if (refSeriesSeq != null)
+                for (Attributes refSeries : refSeriesSeq) {
+                    Sequence refSOPSeq = refSeries.getSequence(Tag.ReferencedSOPSequence);
+                    if (refSOPSeq != null)
+                        for (Attributes refSOP : refSOPSeq)
+                            invalidate(refSOP.getString(Tag.ReferencedSOPInstanceUID));
+                }
+        }
+    }
+
+    private void putInMemory(String key, byte[] b) {
+        List<Map.Entry<String, byte[]>> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (!iuidsByKey.containsKey(key))
+                return; // invalidated in the meantime
+
+            byte[] prev = memory.put(key, b);
+            if (prev != null)
+                memorySize -= prev.length;
+            memorySize += b.length;
+            long maxSize = maxMemorySize();
+            Iterator<Map.Entry<String, byte[]>> iter = memory.entrySet().iterator();
+            while (memorySize > maxSize && iter.hasNext()) {
+                Map.Entry<String, byte[]> entry = iter.next();
+                iter.remove();
+                memorySize -= entry.getValue().length;
+                if (!disk.containsKey(entry.getKey()))
+                    evicted.add(entry);
+            }
+        }
+        for (Map.Entry<String, byte[]> entry : evicted)
+            putOnDisk(entry.getKey(), entry.getValue());
+    }
+
+    private void putOnDisk(String key, byte[] b) {
+        Path dir = diskDir();
+        if (dir == null || b.length > maxDiskSize() / MAX_ENTRY_FRACTION) {
+            discardIfNotInMemory(key);
+            return;
+        }
+        Path file = dir.resolve(fileNameOf(key));
+        try {
+            Path tmp = Files.createTempFile(dir, null, null);
+            try {
+                Files.write(tmp, b);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to write rendered image to cache {}:\n", file, e);
+            discardIfNotInMemory(key);
+            return;
+        }
+        synchronized (this) {
+            if (!iuidsByKey.containsKey(key) || !dir.equals(diskDir)) {
+                deleteFile(dir, key);
+                return;
+            }
+            Long prev = disk.put(key, (long) b.length);
+            if (prev != null)
+                diskSize -= prev;
+            diskSize += b.length;
+            long maxSize = maxDiskSize();
+            Iterator<Map.Entry<String, Long>> iter = disk.entrySet().iterator();
+            while (diskSize > maxSize && iter.hasNext()) {
+                Map.Entry<String, Long> entry = iter.next();
+                iter.remove();
+                diskSize -= entry.getValue();
+                deleteFile(entry.getKey());
+                if (!memory.containsKey(entry.getKey()))
+                    removeKey(entry.getKey());
+            }
+        }
+    }
+
+    private synchronized void discardIfNotInMemory(String key) {
+        if (!memory.containsKey(key))
+            removeKey(key);
+    }
+
+    private synchronized Path diskDir() {
+        String dirPath = arcdev().getWadoRenderedImageCacheDirectory();
+        if (dirPath == null || maxDiskSize() == 0)
+            return null;
+
+        Path dir = Paths.get(StringUtils.replaceSystemProperties(dirPath));
+        if (!dir.equals(diskDir)) {
+            disk.clear();
+            diskSize = 0L;
+            diskDir = dir;
+            try {
+                Files.createDirectories(dir);
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + FILE_SUFFIX)) {
+                    for (Path file : files)
+                        Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                LOG.warn("Failed to clean rendered image cache directory {}:\n", dir, e);
+            }
+        }
+        return dir;
+    }
+
+    private void removeKey(String key) {
+        String[] iuids = iuidsByKey.remove(key);
+        if (iuids != null)
+            for (String iuid : iuids) {
+                Set<String> keys = keysByIUID.get(iuid);
+                if (keys != null && keys.remove(key) && keys.isEmpty())
+                    keysByIUID.remove(iuid);
+            }
+    }
+
+    private void deleteFile(String key) {
+        deleteFile(diskDir, key);
+    }
+
+    private static void deleteFile(Path dir, String key) {
+        try {
+            Files.deleteIfExists(dir.resolve(fileNameOf(key)));
+        } catch (IOException e) {
+            LOG.info("Failed to delete cached rendered image from {}:\n", dir, e);
+        }
+    }
+
+    private static String fileNameOf(String key) {
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + FILE_SUFFIX;
+    }
+
+    private long maxMemorySize() {
+        return parseSize(arcdev().getWadoRenderedImageCacheMemorySize());
+    }
+
+    private long maxDiskSize() {
+        return arcdev().getWadoRenderedImageCacheDirectory() != null
+                ? parseSize(arcdev().getWadoRenderedImageCacheDiskSize())
+                : 0L;
+    }
+
+    private static long parseSize(String size) {
+        return size != null ? BinaryPrefix.parse(size) : 0L;
+    }
+
+    private ArchiveDeviceExtension arcdev() {
+        return device.getDeviceExtension(ArchiveDeviceExtension.class);
+    }
+
+    private static class CachingOutputStream extends FilterOutputStream {
+        private final long maxSize;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        CachingOutputStream(OutputStream out, long maxSize) {
+            super(out);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (reserve(1))
+                buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (reserve(len))
+                buffer.write(b, off, len);
+        }
+
+        private boolean reserve(int len) {
+            if (buffer != null && buffer.size() + len > maxSize)
+                buffer = null;
+            return buffer != null;
+        }
+
+        byte[] toByteArray() {
+            return buffer != null ? buffer.toByteArray() : null;
+        }
+    }
+}
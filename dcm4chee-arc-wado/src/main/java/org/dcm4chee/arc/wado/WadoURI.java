@@ -76,6 +76,7 @@ import java.awt.*;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.List;
 
@@ -112,6 +113,9 @@ public class WadoURI {
     @Inject @RetrieveWADO
     private Event<RetrieveContext> retrieveWado;
 
+    @Inject
+    private RenderedImageCache renderedImageCache;
+
     @Context
     private Request req;
 
@@ -250,11 +254,28 @@ public class WadoURI {
                 ctx.setException(throwable);
                 retrieveWado.fire(ctx);
         });
-        ar.resume(Response.ok(entity, mimeType).lastModified(lastModified).tag(String.valueOf(lastModified.hashCode())).build());
+        ar.resume(Response.ok(entity, mimeType).lastModified(lastModified).tag(entityTag(lastModified)).build());
     }
 
     private Response.ResponseBuilder evaluatePreConditions(Date lastModified) {
-        return req.evaluatePreconditions(lastModified, new EntityTag(String.valueOf(lastModified.hashCode())));
+        return req.evaluatePreconditions(lastModified, entityTag(lastModified));
+    }
+
+    private EntityTag entityTag(Date lastModified) {
+        return entityTag(lastModified, studyUID, seriesUID, objectUID, contentType, charset, anonymize, annotation,
+                rows, columns, region, windowCenter, windowWidth, frameNumber, imageQuality,
+                presentationUID, presentationSeriesUID, transferSyntax);
+    }
+
+    /**
+     * Derives the entity tag from the last modification date and the request parameters in a fixed order, so it does
+     * not depend on the order of the query parameters or on unknown parameters of the request.
+     */
+    static EntityTag entityTag(Date lastModified, String... params) {
+        StringBuilder sb = new StringBuilder().append(lastModified.getTime());
+        for (String param : params)
+            sb.append('|').append(param != null ? param : "");
+        return new EntityTag(UUID.nameUUIDFromBytes(sb.toString().getBytes(StandardCharsets.UTF_8)).toString());
     }
 
     private void checkAET() {
@@ -290,8 +311,31 @@ public class WadoURI {
         throw new AssertionError("objectType: " + objectType);
     }
 
-    private RenderedImageOutput renderImage(RetrieveContext ctx, InstanceLocations inst,
-                                            MediaType mimeType, int imageIndex) throws IOException {
+    private StreamingOutput renderImage(RetrieveContext ctx, InstanceLocations inst,
+                                        MediaType mimeType, int imageIndex) throws IOException {
+        if (renderedImageCache.maxEntrySize() == 0)
+            return renderImage0(ctx, inst, mimeType, imageIndex);
+
+        String key = renderedImageCacheKey(inst, mimeType, imageIndex);
+        byte[] cached = renderedImageCache.get(key);
+        if (cached != null) {
+            LOG.debug("Return cached rendered image of {}", inst);
+            return out -> out.write(cached);
+        }
+        return renderedImageCache.cachingOutput(key, renderImage0(ctx, inst, mimeType, imageIndex),
+                inst.getSopInstanceUID(), presentationUID);
+    }
+
+    private String renderedImageCacheKey(InstanceLocations inst, MediaType mimeType, int imageIndex) {
+        Date updatedTime = inst.getUpdatedTime();
+        return String.join("|", inst.getSopInstanceUID(),
+                updatedTime != null ? Long.toString(updatedTime.getTime()) : null,
+                Integer.toString(imageIndex), mimeType.toString(), rows, columns, region,
+                windowCenter, windowWidth, presentationUID, presentationSeriesUID, imageQuality);
+    }
+
+    private RenderedImageOutput renderImage0(RetrieveContext ctx, InstanceLocations inst,
+                                             MediaType mimeType, int imageIndex) throws IOException {
         Attributes attrs = inst.getAttributes();
         DicomImageReadParam readParam = new DicomImageReadParam();
         if (windowCenter != null && windowWidth != null) {
@@ -0,0 +1,182 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2013
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.wado;
+
+import org.dcm4che3.net.Device;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+public class RenderedImageCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path dir;
+    private ArchiveDeviceExtension arcdev;
+    private RenderedImageCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = tmp.getRoot().toPath().resolve("rendered");
+        Device device = new Device("test");
+        arcdev = new ArchiveDeviceExtension();
+        device.addDeviceExtension(arcdev);
+        arcdev.setWadoRenderedImageCacheMemorySize("1600");
+        cache = new RenderedImageCache(device);
+    }
+
+    @Test
+    public void testEvictLRUFromMemory() throws Exception {
+        for (int i = 0; i < 16; i++)
+            cache.put("k" + i, image(100, i), "1.2." + i);
+        assertNotNull(cache.get("k0"));
+        cache.put("k16", image(100, 16), "1.2.16");
+        assertArrayEquals(image(100, 0), cache.get("k0"));
+        assertNull(cache.get("k1"));
+        assertArrayEquals(image(100, 16), cache.get("k16"));
+    }
+
+    @Test
+    public void testSkipTooLargeImage() throws Exception {
+        assertEquals(100L, cache.maxEntrySize());
+        cache.put("k0", image(101, 0), "1.2.0");
+        assertNull(cache.get("k0"));
+    }
+
+    @Test
+    public void testKeepEvictedOnDisk() throws Exception {
+        enableDisk("16000");
+        for (int i = 0; i <= 16; i++)
+            cache.put("k" + i, image(100, i), "1.2." + i);
+        assertEquals(1, countFiles());
+        assertArrayEquals(image(100, 0), cache.get("k0"));
+    }
+
+    @Test
+    public void testPutLargeImageOnDisk() throws Exception {
+        enableDisk("16000");
+        assertEquals(1000L, cache.maxEntrySize());
+        cache.put("k0", image(1000, 0), "1.2.0");
+        assertEquals(1, countFiles());
+        assertArrayEquals(image(1000, 0), cache.get("k0"));
+    }
+
+    @Test
+    public void testEvictLRUFromDisk() throws Exception {
+        enableDisk("3200");
+        for (int i = 0; i < 16; i++)
+            cache.put("k" + i, image(200, i), "1.2." + i);
+        assertNotNull(cache.get("k0"));
+        cache.put("k16", image(200, 16), "1.2.16");
+        assertEquals(16, countFiles());
+        assertArrayEquals(image(200, 0), cache.get("k0"));
+        assertNull(cache.get("k1"));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        enableDisk("16000");
+        cache.put("k0", image(100, 0), "1.2.3", "1.2.4");
+        cache.put("k1", image(1000, 1), "1.2.4");
+        cache.put("k2", image(100, 2), "1.2.5");
+        assertEquals(1, countFiles());
+        cache.invalidate("1.2.4");
+        assertNull(cache.get("k0"));
+        assertNull(cache.get("k1"));
+        assertNotNull(cache.get("k2"));
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    public void testCleanDiskDirectoryOnFirstUse() throws Exception {
+        Files.createDirectories(dir);
+        Files.write(dir.resolve("stale.rendered"), image(100, 0));
+        enableDisk("16000");
+        cache.put("k0", image(1000, 0), "1.2.0");
+        assertFalse(Files.exists(dir.resolve("stale.rendered")));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    public void testCachingOutput() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.cachingOutput("k0", os -> os.write(image(100, 0)), "1.2.0").write(out);
+        assertArrayEquals(image(100, 0), out.toByteArray());
+        assertArrayEquals(image(100, 0), cache.get("k0"));
+        cache.cachingOutput("k1", os -> os.write(image(101, 1)), "1.2.1").write(new ByteArrayOutputStream());
+        assertNull(cache.get("k1"));
+    }
+
+    private void enableDisk(String diskSize) {
+        arcdev.setWadoRenderedImageCacheDirectory(dir.toString());
+        arcdev.setWadoRenderedImageCacheDiskSize(diskSize);
+    }
+
+    private int countFiles() throws Exception {
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files)
+                count++;
+        }
+        return count;
+    }
+
+    private static byte[] image(int length, int value) {
+        byte[] b = new byte[length];
+        Arrays.fill(b, (byte) value);
+        return b;
+    }
+}
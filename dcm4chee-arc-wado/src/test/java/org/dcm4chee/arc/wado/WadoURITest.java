@@ -0,0 +1,108 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2013
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.wado;
+
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.specimpl.RequestImpl;
+import org.junit.Test;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2018
+ */
+public class WadoURITest {
+
+    private static final Date LAST_MODIFIED = new Date(1539907200000L);
+    private static final String STUDY_UID = "1.2.3";
+    private static final String SERIES_UID = "1.2.3.4";
+    private static final String OBJECT_UID = "1.2.3.4.5";
+
+    @Test
+    public void testEntityTagOfSameRendering() {
+        assertEquals(
+                WadoURI.entityTag(LAST_MODIFIED, STUDY_UID, SERIES_UID, OBJECT_UID, "image/jpeg", "512"),
+                WadoURI.entityTag(LAST_MODIFIED, STUDY_UID, SERIES_UID, OBJECT_UID, "image/jpeg", "512"));
+    }
+
+    @Test
+    public void testEntityTagOfDifferentRendering() {
+        EntityTag tag = WadoURI.entityTag(LAST_MODIFIED, STUDY_UID, SERIES_UID, OBJECT_UID, "image/jpeg", "512");
+        assertNotEquals(tag,
+                WadoURI.entityTag(LAST_MODIFIED, STUDY_UID, SERIES_UID, OBJECT_UID, "image/jpeg", "256"));
+        assertNotEquals(tag,
+                WadoURI.entityTag(LAST_MODIFIED, STUDY_UID, SERIES_UID, OBJECT_UID, "image/jpeg", null, "512"));
+        assertNotEquals(tag,
+                WadoURI.entityTag(new Date(LAST_MODIFIED.getTime() + 1),
+                        STUDY_UID, SERIES_UID, OBJECT_UID, "image/jpeg", "512"));
+    }
+
+    @Test
+    public void testRevalidateNotModified() throws Exception {
+        EntityTag tag = WadoURI.entityTag(LAST_MODIFIED, STUDY_UID, SERIES_UID, OBJECT_UID, "image/jpeg", "512");
+        Response.ResponseBuilder builder = evaluatePreconditions(tag,
+                WadoURI.entityTag(LAST_MODIFIED, STUDY_UID, SERIES_UID, OBJECT_UID, "image/jpeg", "512"));
+        assertNotNull(builder);
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), builder.build().getStatus());
+    }
+
+    @Test
+    public void testRevalidateModified() throws Exception {
+        EntityTag tag = WadoURI.entityTag(LAST_MODIFIED, STUDY_UID, SERIES_UID, OBJECT_UID, "image/jpeg", "512");
+        assertNull(evaluatePreconditions(tag,
+                WadoURI.entityTag(LAST_MODIFIED, STUDY_UID, SERIES_UID, OBJECT_UID, "image/jpeg", "256")));
+    }
+
+    private static Response.ResponseBuilder evaluatePreconditions(EntityTag ifNoneMatch, EntityTag current)
+            throws Exception {
+        MockHttpRequest request = MockHttpRequest.get("/aets/DCM4CHEE/wado")
+                .header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch.toString());
+        return new RequestImpl(request, new MockHttpResponse()).evaluatePreconditions(LAST_MODIFIED, current);
+    }
+}
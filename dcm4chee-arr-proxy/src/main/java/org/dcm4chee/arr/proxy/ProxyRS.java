@@ -43,12 +43,12 @@ package org.dcm4chee.arr.proxy;
 import org.dcm4che3.net.Device;
 import org.dcm4che3.util.SafeClose;
 import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.keycloak.HttpClientPool;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.SyncInvoker;
 import javax.ws.rs.client.WebTarget;
@@ -67,6 +67,9 @@ public class ProxyRS {
     @Inject
     private Device device;
 
+    @Inject
+    private HttpClientPool httpClientPool;
+
     @Context
     private HttpServletRequest httpRequest;
 
@@ -117,7 +120,12 @@ public class ProxyRS {
                             .build());
         }
         String targetURL = arrURL.charAt(arrURL.length()-1) != '/' ? arrURL + "/" + path : arrURL + path;
-        WebTarget target = ClientBuilder.newBuilder().build().target(targetURL);
+        WebTarget target;
+        try {
+            target = httpClientPool.target(targetURL);
+        } catch (Exception e) {
+            throw new WebApplicationException(e, Response.Status.INTERNAL_SERVER_ERROR);
+        }
         MultivaluedMap<String, String> headers = httpHeaders.getRequestHeaders();
         if (removeContentLength)
             headers.remove("Content-Length");
@@ -40,6 +40,7 @@ package org.dcm4chee.arr.query;
 
 import org.dcm4che3.net.Device;
 import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.keycloak.HttpClientPool;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -49,8 +50,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 import javax.ws.rs.*;
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
@@ -70,6 +69,9 @@ public class SyslogSearchRS {
     @Inject
     private Device device;
 
+    @Inject
+    private HttpClientPool httpClientPool;
+
     @Context
     private HttpServletRequest httpRequest;
 
@@ -123,8 +125,12 @@ public class SyslogSearchRS {
     }
 
     private Response queryElasticSearch(String esURL) {
-        Client client = ClientBuilder.newBuilder().build();
-        WebTarget target = client.target(esURL);
+        WebTarget target;
+        try {
+            target = httpClientPool.target(esURL);
+        } catch (Exception e) {
+            throw new WebApplicationException(e, Response.Status.INTERNAL_SERVER_ERROR);
+        }
         //TODO
         // target = target.path(index);
         // target = target.path("_search");